@@ -0,0 +1,123 @@
+package me.fru1t.csgo_server_manager.files;
+
+import com.google.common.io.CharStreams;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Measures parsing, serializing and changing {@link TextSetting} trees across file shapes and
+ * sizes, and loading them from {@link TextSettingSnapshot snapshots} instead. Divide the corpus
+ * size by the reported time per operation for throughput in bytes per second; the gc profiler
+ * enabled by the jmh gradle task reports the allocation rate alongside.</p>
+ * <p>The largest sizes take a while per operation. Narrow a run down with, for example,
+ * {@code -p size=1KB,1MB}.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class TextSettingBenchmark {
+    @Param({"FLAT", "NESTED", "GAMEMODES"})
+    public TextSettingCorpus.Shape shape;
+
+    @Param({"1KB", "64KB", "1MB", "100MB"})
+    public String size;
+
+    private Path file;
+    private String content;
+    private TextSetting parsed;
+
+    // The deepest first value in the tree
+    private TextSettingQuery firstValue;
+
+    @Setup
+    public void setUp()
+        throws IOException, InvalidFileFormatException, InvalidTextSettingException {
+        file = TextSettingCorpus.generateFile(shape, TextSettingCorpus.parseSize(size));
+        content = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        parsed = TextSettingUtil.processFile(file);
+        List<String> keys = new ArrayList<>();
+        TextSetting setting = parsed;
+        while (setting.getChildren() != null && !setting.getChildren().isEmpty()) {
+            setting = setting.getChildren().values().iterator().next();
+            keys.add(setting.getKey());
+        }
+        firstValue = TextSettingQuery.of(keys.toArray(new String[keys.size()]));
+
+        // Backdated so that loading the snapshot trusts the modified time rather than hashing
+        Files.setLastModifiedTime(file, FileTime.fromMillis(0));
+        TextSettingSnapshot.write(file, parsed);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.delete(TextSettingSnapshot.pathFor(file));
+        Files.delete(file);
+    }
+
+    @Benchmark
+    public TextSetting parseScanner() throws InvalidFileFormatException {
+        return TextSettingUtil.processFile(new Scanner(content));
+    }
+
+    @Benchmark
+    public TextSetting parseMapped() throws IOException, InvalidFileFormatException {
+        return TextSettingUtil.processFile(file);
+    }
+
+    @Benchmark
+    public TextSetting loadSnapshot() throws IOException {
+        return TextSettingSnapshot.load(file);
+    }
+
+    @Benchmark
+    public void loadSnapshotFully() throws IOException, InvalidTextSettingException {
+        // Visits every setting, so every child is read from the snapshot
+        new TextSettingWriter(CharStreams.nullWriter()).write(TextSettingSnapshot.load(file));
+    }
+
+    @Benchmark
+    public String serialize() throws InvalidTextSettingException {
+        return parsed.toFileString();
+    }
+
+    @Benchmark
+    public void serializeStreaming() throws IOException, InvalidTextSettingException {
+        TextSettingWriter writer = new TextSettingWriter(CharStreams.nullWriter());
+        writer.write(parsed);
+        writer.flush();
+    }
+
+    @Benchmark
+    public TextSetting with() throws InvalidTextSettingException {
+        return parsed.with(firstValue, "changed");
+    }
+
+    @Benchmark
+    public String roundTrip()
+        throws IOException, InvalidFileFormatException, InvalidTextSettingException {
+        return TextSettingUtil.processFile(file).toFileString();
+    }
+}
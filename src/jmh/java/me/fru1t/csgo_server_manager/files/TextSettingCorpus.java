@@ -0,0 +1,155 @@
+package me.fru1t.csgo_server_manager.files;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Generates valve settings files of a given shape and approximate size for benchmarking.
+ */
+public class TextSettingCorpus {
+    public enum Shape {
+        /** A single block holding nothing but key-value pairs. */
+        FLAT,
+        /** Many chains of blocks, each nested {@link #NESTED_DEPTH} levels deep. */
+        NESTED,
+        /** Game types, game modes and map groups laid out the way gamemodes.txt does. */
+        GAMEMODES
+    }
+
+    static final int NESTED_DEPTH = 32;
+
+    private static final String INDENTATION = "  ";
+    private static final String[] MAPS = {
+        "de_dust2", "de_inferno", "de_mirage", "de_nuke", "de_overpass", "de_train", "de_cache",
+        "cs_office", "cs_italy", "ar_shoots"
+    };
+
+    // Uninstantiable
+    private TextSettingCorpus() { }
+
+    /**
+     * Parses sizes such as "1KB", "10MB" or "512" (bytes).
+     */
+    public static int parseSize(String size) {
+        String upper = size.trim().toUpperCase();
+        if (upper.endsWith("KB")) {
+            return Integer.parseInt(upper.substring(0, upper.length() - 2)) * 1024;
+        }
+        if (upper.endsWith("MB")) {
+            return Integer.parseInt(upper.substring(0, upper.length() - 2)) * 1024 * 1024;
+        }
+        return Integer.parseInt(upper);
+    }
+
+    /**
+     * @return A file of the given shape that's at least the given number of characters long.
+     */
+    public static String generate(Shape shape, int minimumLength) {
+        StringBuilder result = new StringBuilder(minimumLength + 4096);
+        switch (shape) {
+            case FLAT:
+                generateFlat(result, minimumLength);
+                break;
+            case NESTED:
+                generateNested(result, minimumLength);
+                break;
+            case GAMEMODES:
+            default:
+                generateGameModes(result, minimumLength);
+                break;
+        }
+        return result.toString();
+    }
+
+    /**
+     * Writes {@link #generate(Shape, int)} to a new temporary file, which the caller should delete.
+     */
+    public static Path generateFile(Shape shape, int minimumLength) throws IOException {
+        Path file = Files.createTempFile("corpus-" + shape.name().toLowerCase() + "-", ".txt");
+        Files.write(file, generate(shape, minimumLength).getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static void generateFlat(StringBuilder result, int minimumLength) {
+        result.append("\"flat\" {\n");
+        for (int i = 0; result.length() < minimumLength; ++i) {
+            keyValue(result, 1, "key_" + i, "value " + i);
+        }
+        result.append("}\n");
+    }
+
+    private static void generateNested(StringBuilder result, int minimumLength) {
+        result.append("\"nested\" {\n");
+        for (int i = 0; result.length() < minimumLength; ++i) {
+            for (int depth = 1; depth <= NESTED_DEPTH; ++depth) {
+                startBlock(result, depth, depth == 1 ? "chain_" + i : "level_" + depth);
+            }
+            keyValue(result, NESTED_DEPTH + 1, "leaf", "value " + i);
+            for (int depth = NESTED_DEPTH; depth >= 1; --depth) {
+                endBlock(result, depth);
+            }
+        }
+        result.append("}\n");
+    }
+
+    private static void generateGameModes(StringBuilder result, int minimumLength) {
+        // Roughly two thirds game modes, one third map groups
+        result.append("\"GameModes.txt\" {\n");
+        startBlock(result, 1, "gameTypes");
+        startBlock(result, 2, "classic");
+        keyValue(result, 3, "value", "0");
+        startBlock(result, 3, "gameModes");
+        for (int i = 0; result.length() < minimumLength * 2 / 3; ++i) {
+            startBlock(result, 4, "mode_" + i);
+            keyValue(result, 5, "value", Integer.toString(i));
+            keyValue(result, 5, "nameID", "#SFUI_GameMode_" + i);
+            keyValue(result, 5, "descID", "#SFUI_GameModeDesc_" + i);
+            keyValue(result, 5, "maxplayers", Integer.toString(10 + i % 54));
+            startBlock(result, 5, "exec");
+            keyValue(result, 6, "exec", "gamemode_" + i + ".cfg");
+            endBlock(result, 5);
+            startBlock(result, 5, "mapgroupsMP");
+            keyValue(result, 6, "mg_" + i, "");
+            endBlock(result, 5);
+            endBlock(result, 4);
+        }
+        endBlock(result, 3);
+        endBlock(result, 2);
+        endBlock(result, 1);
+
+        startBlock(result, 1, "mapgroups");
+        for (int i = 0; result.length() < minimumLength; ++i) {
+            startBlock(result, 2, "mg_" + i);
+            keyValue(result, 3, "name", "mg_" + i);
+            startBlock(result, 3, "maps");
+            for (String map : MAPS) {
+                keyValue(result, 4, map, "");
+            }
+            endBlock(result, 3);
+            endBlock(result, 2);
+        }
+        endBlock(result, 1);
+        result.append("}\n");
+    }
+
+    private static void startBlock(StringBuilder result, int depth, String key) {
+        indent(result, depth).append('"').append(key).append("\" {\n");
+    }
+
+    private static void endBlock(StringBuilder result, int depth) {
+        indent(result, depth).append("}\n");
+    }
+
+    private static void keyValue(StringBuilder result, int depth, String key, String value) {
+        indent(result, depth).append('"').append(key).append("\" \"").append(value).append("\"\n");
+    }
+
+    private static StringBuilder indent(StringBuilder result, int depth) {
+        for (int i = 0; i < depth; ++i) {
+            result.append(INDENTATION);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,58 @@
+package me.fru1t.csgo_server_manager.files;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * <p>Measures the heap that parsed TextSetting trees hold on to, with and without a
+ * {@link TextSettingSymbolTable}. JMH's gc profiler reports allocation rather than retention, so
+ * this is a standalone program rather than a benchmark. Run it with
+ * {@code gradle jmhFootprint}.</p>
+ * <p>Each file is parsed several times over and kept alive, and the difference in used heap after
+ * a full collection is divided between the copies.</p>
+ */
+public class TextSettingFootprint {
+    private static final int COPIES = 8;
+    private static final int SIZE = 4 * 1024 * 1024;
+
+    public static void main(String[] args) throws Exception {
+        System.out.printf("%-10s %14s %14s %8s%n", "shape", "plain (B)", "interned (B)", "ratio");
+        for (TextSettingCorpus.Shape shape : TextSettingCorpus.Shape.values()) {
+            Path file = TextSettingCorpus.generateFile(shape, SIZE);
+            try {
+                long plain = measure(file, false);
+                long interned = measure(file, true);
+                System.out.printf("%-10s %14d %14d %7.2fx%n", shape, plain, interned,
+                    (double) plain / interned);
+            } finally {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private static long measure(Path file, boolean intern) throws Exception {
+        TextSetting[] trees = new TextSetting[COPIES];
+        long before = usedHeap();
+        for (int i = 0; i < COPIES; ++i) {
+            trees[i] = intern
+                ? TextSettingUtil.processFile(file, new TextSettingSymbolTable())
+                : TextSettingUtil.processFile(file);
+        }
+        long after = usedHeap();
+        if (trees[COPIES - 1] == null) {
+            throw new IllegalStateException("Nothing was parsed from " + file);
+        }
+        return (after - before) / COPIES;
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; ++i) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
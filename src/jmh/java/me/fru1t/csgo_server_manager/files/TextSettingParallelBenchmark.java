@@ -0,0 +1,67 @@
+package me.fru1t.csgo_server_manager.files;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Measures how {@link TextSettingUtil#processFileInParallel(ByteBuffer, ForkJoinPool)} scales
+ * with the number of threads parsing a large file. A single thread parses sequentially, which is
+ * the baseline to compare the others against.</p>
+ * <p>Thread counts beyond the machine's cores only show the overhead of splitting the file. Run
+ * for example {@code -p threads=1,2,4} to match the machine.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class TextSettingParallelBenchmark {
+    @Param({"FLAT", "NESTED", "GAMEMODES"})
+    public TextSettingCorpus.Shape shape;
+
+    @Param({"64MB"})
+    public String size;
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    private Path file;
+    private ByteBuffer content;
+    private ForkJoinPool pool;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = TextSettingCorpus.generateFile(shape, TextSettingCorpus.parseSize(size));
+        content = ByteBuffer.wrap(Files.readAllBytes(file));
+        pool = new ForkJoinPool(threads);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        pool.shutdown();
+        Files.delete(file);
+    }
+
+    @Benchmark
+    public TextSetting parse() throws InvalidFileFormatException {
+        return TextSettingUtil.processFileInParallel(content, pool);
+    }
+}
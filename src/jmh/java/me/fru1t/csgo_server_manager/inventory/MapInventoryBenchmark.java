@@ -0,0 +1,97 @@
+package me.fru1t.csgo_server_manager.inventory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * <p>Measures how long {@link MapInventory} takes to scan a fleet of installs, each with a
+ * number of workshop maps, once they've all been hashed, which is what every scan after the
+ * first, and after a restart, costs. {@code cold} starts without an index, so every map is
+ * hashed.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapInventoryBenchmark {
+    private static final int INSTALL_COUNT = 8;
+    private static final int MAP_BYTES = 1024 * 1024;
+
+    @Param({"1", "4"})
+    public int parallelism;
+
+    @Param({"100"})
+    public int mapsPerInstall;
+
+    private Path directory;
+    private Map<String, Path> installs;
+    private MapInventory inventory;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("MapInventoryBenchmark");
+        installs = new LinkedHashMap<>();
+        Random random = new Random(0);
+        byte[] content = new byte[MAP_BYTES];
+        for (int i = 0; i < INSTALL_COUNT; ++i) {
+            Path install = directory.resolve("server" + i);
+            for (int j = 0; j < mapsPerInstall; ++j) {
+                Path map = install.resolve("csgo/maps/workshop/" + j + "/map" + j + ".bsp");
+                Files.createDirectories(map.getParent());
+                random.nextBytes(content);
+                Files.write(map, content);
+                Files.setLastModifiedTime(map, FileTime.fromMillis(1000 * 1000));
+            }
+            installs.put("server" + i, install);
+        }
+        inventory = new MapInventory(installs, parallelism, null);
+        inventory.scan();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        inventory.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public MapInventory warm() throws IOException {
+        inventory.scan();
+        return inventory;
+    }
+
+    @Benchmark
+    public long cold() throws IOException {
+        try (MapInventory cold = new MapInventory(installs, parallelism, null)) {
+            cold.scan();
+            return cold.getHashCount();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package me.fru1t.csgo_server_manager.logs;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Resources;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>Replays a recorded server log, src/test/resources/sample_server.log repeated to
+ * {@value #LINES} lines, and measures how many lines per second are parsed alone, tailed and
+ * parsed, and taken all the way through a {@link LogPipeline} to a listener.</p>
+ * <p>Run with {@code -prof gc} to check that lines are handled without allocating.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LogPipelineBenchmark {
+    private static final int LINES = 200000;
+
+    private byte[] content;
+    private Path file;
+    private long events;
+    private LogEvent event;
+
+    @Setup
+    public void setUp() throws IOException {
+        byte[] sample = Resources.toByteArray(Resources.getResource("sample_server.log"));
+        int sampleLines = 0;
+        for (byte b : sample) {
+            sampleLines += b == '\n' ? 1 : 0;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; i < LINES / sampleLines; ++i) {
+            out.write(sample);
+        }
+        int remaining = LINES % sampleLines;
+        int end = 0;
+        while (remaining > 0) {
+            remaining -= sample[end++] == '\n' ? 1 : 0;
+        }
+        out.write(sample, 0, end);
+        content = out.toByteArray();
+
+        file = Files.createTempFile("LogPipelineBenchmark", ".log");
+        Files.write(file, content);
+        event = new LogEvent();
+        events = 0;
+        int start = 0;
+        for (int i = 0; i < content.length; ++i) {
+            if (content[i] == '\n') {
+                events += LogLineParser.parse("server", content, start, i - start, event) ? 1 : 0;
+                start = i + 1;
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.delete(file);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public long parse() {
+        long parsed = 0;
+        int start = 0;
+        for (int i = 0; i < content.length; ++i) {
+            if (content[i] == '\n') {
+                parsed += LogLineParser.parse("server", content, start, i - start, event) ? 1 : 0;
+                start = i + 1;
+            }
+        }
+        return parsed;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public long tail() throws IOException {
+        long[] parsed = new long[1];
+        try (LogTailer tailer = new LogTailer(file, false)) {
+            while (tailer.poll((buffer, offset, length) -> parsed[0] +=
+                LogLineParser.parse("server", buffer, offset, length, event) ? 1 : 0,
+                Integer.MAX_VALUE) > 0) {
+                // Read the whole log
+            }
+        }
+        return parsed[0];
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public long pipeline() throws InterruptedException {
+        AtomicLong handled = new AtomicLong();
+        try (LogPipeline pipeline = new LogPipeline(
+            ImmutableList.of(event -> handled.lazySet(handled.get() + 1)))) {
+            pipeline.follow("server", file, false);
+            while (handled.get() < events) {
+                Thread.sleep(1);
+            }
+        }
+        return handled.get();
+    }
+}
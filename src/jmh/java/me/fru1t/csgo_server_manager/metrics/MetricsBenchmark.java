@@ -0,0 +1,69 @@
+package me.fru1t.csgo_server_manager.metrics;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Measures how long recording to each type of metric takes, alone and from four threads at
+ * once.</p>
+ * <p>Run with {@code -prof gc} to check that recording doesn't allocate.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsBenchmark {
+    private Counter counter;
+    private Histogram histogram;
+    private Timer timer;
+    private long value;
+
+    @Setup
+    public void setUp() {
+        MetricRegistry registry = new MetricRegistry();
+        counter = registry.counter("benchmark_total", "Benchmark.");
+        histogram = registry.histogram("benchmark_bytes", "Benchmark.", 1L << 30);
+        timer = registry.timer("benchmark_seconds", "Benchmark.");
+        value = 123456;
+    }
+
+    @Benchmark
+    public void counter() {
+        counter.increment();
+    }
+
+    @Benchmark
+    public void histogram() {
+        histogram.record(value);
+    }
+
+    @Benchmark
+    public void timer() {
+        timer.recordSince(System.nanoTime());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void counter_contended() {
+        counter.increment();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void histogram_contended() {
+        histogram.record(value);
+    }
+}
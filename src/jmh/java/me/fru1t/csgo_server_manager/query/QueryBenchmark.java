@@ -0,0 +1,81 @@
+package me.fru1t.csgo_server_manager.query;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Measures how many ticks per second {@link QueryClient} gets through against local
+ * {@link FakeQueryServer}s, each tick sending A2S_INFO to every server, or A2S_RULES, whose
+ * answers are split across several packets. Multiply by the number of servers for queries per
+ * second.</p>
+ * <p>Challenges are fetched ahead of time, as they would have been by the first tick against real
+ * servers, so every query is a single round trip.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryBenchmark {
+    @Param({"1", "256"})
+    public int serverCount;
+
+    private FakeQueryServer server;
+    private QueryClient client;
+    private List<InetSocketAddress> addresses;
+
+    @Setup
+    public void setUp() throws Exception {
+        server = new FakeQueryServer(serverCount, 10, 200);
+        client = new QueryClient();
+        addresses = server.getAddresses();
+        info();
+        rules();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        client.close();
+        server.close();
+    }
+
+    @Benchmark
+    public void info() throws Exception {
+        List<CompletableFuture<ServerInfo>> futures = new ArrayList<>(addresses.size());
+        for (InetSocketAddress address : addresses) {
+            futures.add(client.queryInfo(address));
+        }
+        for (CompletableFuture<ServerInfo> future : futures) {
+            future.get();
+        }
+    }
+
+    @Benchmark
+    public void rules() throws Exception {
+        List<CompletableFuture<?>> futures = new ArrayList<>(addresses.size());
+        for (InetSocketAddress address : addresses) {
+            futures.add(client.queryRules(address));
+        }
+        for (CompletableFuture<?> future : futures) {
+            future.get();
+        }
+    }
+}
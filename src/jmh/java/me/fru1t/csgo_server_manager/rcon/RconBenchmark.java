@@ -0,0 +1,92 @@
+package me.fru1t.csgo_server_manager.rcon;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Measures how many commands per second {@link RconClient} gets through against a local
+ * {@link FakeRconServer}, sent one at a time, pipelined, or as a single batch.</p>
+ * <p>Over loopback, round trips cost little, so the gap between sending one command at a time and
+ * pipelining them only grows against real servers. Run with {@code -t} to see concurrent callers
+ * share a connection.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RconBenchmark {
+    private static final String PASSWORD = "benchmark";
+    private static final int COMMANDS = 16;
+
+    @Param({"16", "4096"})
+    public int responseBytes;
+
+    private FakeRconServer server;
+    private RconClient client;
+    private List<String> commands;
+
+    @Setup
+    public void setUp() throws Exception {
+        String response = Strings.repeat("x", responseBytes);
+        server = new FakeRconServer(PASSWORD, command -> response);
+        client = new RconClient();
+        commands = new ArrayList<>();
+        for (int i = 0; i < COMMANDS; ++i) {
+            commands.add("status");
+        }
+        commands = ImmutableList.copyOf(commands);
+
+        // Connect and authenticate ahead of time
+        client.execute(server.getAddress(), PASSWORD, "status").get();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        client.close();
+        server.close();
+    }
+
+    @Benchmark
+    public String sequential() throws Exception {
+        return client.execute(server.getAddress(), PASSWORD, "status").get();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COMMANDS)
+    public void pipelined() throws Exception {
+        List<CompletableFuture<String>> futures = new ArrayList<>(COMMANDS);
+        for (String command : commands) {
+            futures.add(client.execute(server.getAddress(), PASSWORD, command));
+        }
+        for (CompletableFuture<String> future : futures) {
+            future.get();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COMMANDS)
+    public List<String> batch() throws Exception {
+        return client.executeAll(server.getAddress(), PASSWORD, commands).get();
+    }
+}
@@ -0,0 +1,93 @@
+package me.fru1t.csgo_server_manager.configs;
+
+import me.fru1t.csgo_server_manager.files.InvalidFileFormatException;
+import me.fru1t.csgo_server_manager.files.InvalidTextSettingException;
+import me.fru1t.csgo_server_manager.files.TextSetting;
+import me.fru1t.csgo_server_manager.files.TextSettingDocument;
+import me.fru1t.csgo_server_manager.files.TextSettingUtil;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * <p>Serves the config files within {@code csgo.configs.directory} at
+ * {@code /configs?file=<path>}, in the valve settings format. Files are read with GET, exactly
+ * as they are on disk, comments and formatting included, and replaced with PUT.</p>
+ * <p>Requests are answered asynchronously, so servlet threads aren't held while the
+ * {@link ConfigRepository} reads or writes the disk. A PUT is answered once its file has been
+ * written.</p>
+ */
+@RestController
+public class ConfigController {
+    private final ConfigRepository repository;
+
+    @Autowired
+    public ConfigController(ConfigRepository repository) {
+        this.repository = repository;
+    }
+
+    @RequestMapping(value = "/configs", method = RequestMethod.GET,
+        produces = MediaType.TEXT_PLAIN_VALUE)
+    public CompletableFuture<ResponseEntity<String>> read(@RequestParam("file") String file) {
+        CompletableFuture<TextSettingDocument> read;
+        try {
+            read = repository.readDocument(file);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(error(HttpStatus.BAD_REQUEST, e));
+        }
+        return read
+            .thenApply(document ->
+                ResponseEntity.ok(new String(document.getContent(), StandardCharsets.UTF_8)))
+            .exceptionally(ConfigController::error);
+    }
+
+    @RequestMapping(value = "/configs", method = RequestMethod.PUT,
+        consumes = MediaType.TEXT_PLAIN_VALUE)
+    public CompletableFuture<ResponseEntity<String>> save(@RequestParam("file") String file,
+        @RequestBody String content) {
+        CompletableFuture<Void> save;
+        try {
+            TextSetting setting = TextSettingUtil.processFile(new Scanner(content));
+            if (setting == null) {
+                return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                    .body("There are no settings to save."));
+            }
+            save = repository.save(file, setting);
+        } catch (InvalidFileFormatException | IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(error(HttpStatus.BAD_REQUEST, e));
+        }
+        return save
+            .thenApply(saved -> ResponseEntity.noContent().<String>build())
+            .exceptionally(ConfigController::error);
+    }
+
+    private static ResponseEntity<String> error(Throwable e) {
+        if (e instanceof CompletionException && e.getCause() != null) {
+            e = e.getCause();
+        }
+        if (e instanceof NoSuchFileException) {
+            return error(HttpStatus.NOT_FOUND, e);
+        }
+        if (e instanceof InvalidFileFormatException || e instanceof InvalidTextSettingException) {
+            return error(HttpStatus.UNPROCESSABLE_ENTITY, e);
+        }
+        return error(HttpStatus.INTERNAL_SERVER_ERROR, e);
+    }
+
+    private static ResponseEntity<String> error(HttpStatus status, Throwable e) {
+        return ResponseEntity.status(status).body(e.getClass().getSimpleName() + ": "
+            + e.getMessage());
+    }
+}
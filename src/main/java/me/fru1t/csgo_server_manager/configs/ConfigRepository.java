@@ -0,0 +1,373 @@
+package me.fru1t.csgo_server_manager.configs;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import me.fru1t.csgo_server_manager.files.InvalidFileFormatException;
+import me.fru1t.csgo_server_manager.files.InvalidTextSettingException;
+import me.fru1t.csgo_server_manager.files.TextSetting;
+import me.fru1t.csgo_server_manager.files.TextSettingCache;
+import me.fru1t.csgo_server_manager.files.TextSettingDocument;
+
+import javax.annotation.Nullable;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * <p>Reads and saves the config files within a directory without blocking the caller, for web
+ * requests that shouldn't hold a servlet thread while the disk works. Every read and write runs
+ * on a fixed number of I/O threads, and is returned as a CompletableFuture.</p>
+ * <p>Concurrent reads of the same file share a single read, and files that haven't changed since
+ * they were last read aren't parsed again. Saves are put off for a short delay, and any further
+ * saves of the file in the meantime are written along with it, so a burst of saves, such as from
+ * an editor saving on every keystroke, turns into a single write. Reads always see the latest
+ * save, written or not.</p>
+ * <p>Files are written as {@link TextSettingDocument#update(TextSetting) updates} to what's on
+ * disk, so only the settings that changed are rewritten, and atomically, so that servers never
+ * read half a file. Writes to the same file happen one at a time, in the order they were saved.</p>
+ * <p>A {@link Listener} is told of every file once it's been written, such as to keep its
+ * history.</p>
+ */
+public class ConfigRepository implements Closeable {
+    public static final int DEFAULT_IO_THREADS = 4;
+    public static final long DEFAULT_SAVE_DELAY_MS = 500;
+    public static final long DEFAULT_CACHE_BYTES = 64 * 1024 * 1024;
+
+    // The longest closing waits for saved files to be written
+    private static final long CLOSE_TIMEOUT_MS = 30 * 1000;
+
+    /**
+     * Receives every file as it's written, on the I/O thread that wrote it, in the order the
+     * file's writes happened. The save is completed once the listener returns.
+     */
+    public interface Listener {
+        /**
+         * @param file The file's absolute path.
+         */
+        void onWritten(Path file, TextSetting setting);
+    }
+
+    // What's going on with a file. Guarded by the repository.
+    private static final class FileState {
+        // The latest setting saved, until it's been written
+        @Nullable
+        TextSetting unwritten;
+
+        // Completed once the next write, which hasn't started yet, is done
+        @Nullable
+        CompletableFuture<Void> nextWrite;
+
+        boolean isWriting;
+
+        @Nullable
+        CompletableFuture<TextSetting> read;
+
+        boolean isIdle() {
+            return unwritten == null && nextWrite == null && !isWriting && read == null;
+        }
+    }
+
+    private final Path root;
+    private final long saveDelayMs;
+    private final Listener listener;
+    private final TextSettingCache cache;
+    private final ExecutorService ioExecutor;
+    private final ScheduledExecutorService saveScheduler;
+
+    // Guarded by this. Only holds files with something going on.
+    private final Map<Path, FileState> files;
+
+    /**
+     * @param root The directory holding the config files.
+     * @param ioThreads The most files to read or write at once.
+     * @param saveDelayMs How long to wait for further saves before writing a saved file.
+     * @param cacheBytes The most bytes worth of files to keep parsed.
+     */
+    public ConfigRepository(Path root, int ioThreads, long saveDelayMs, long cacheBytes) {
+        this(root, ioThreads, saveDelayMs, cacheBytes, (file, setting) -> {});
+    }
+
+    /**
+     * @param root The directory holding the config files.
+     * @param ioThreads The most files to read or write at once.
+     * @param saveDelayMs How long to wait for further saves before writing a saved file.
+     * @param cacheBytes The most bytes worth of files to keep parsed.
+     * @param listener Told of every file once it's been written.
+     */
+    public ConfigRepository(Path root, int ioThreads, long saveDelayMs, long cacheBytes,
+        Listener listener) {
+        this.root = root.toAbsolutePath().normalize();
+        this.saveDelayMs = saveDelayMs;
+        this.listener = listener;
+        cache = new TextSettingCache(cacheBytes);
+        ioExecutor = Executors.newFixedThreadPool(ioThreads, new ThreadFactoryBuilder()
+            .setNameFormat("ConfigRepository-io-%d").setDaemon(true).build());
+        saveScheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+            .setNameFormat("ConfigRepository-saver").setDaemon(true).build());
+        files = new HashMap<>();
+    }
+
+    /**
+     * Reads the given config file.
+     * @param file The file's path, relative to the repository's directory.
+     * @return The file's settings, or null if it has none. Fails with an IOException if the file
+     * can't be read, or an InvalidFileFormatException if it's malformed.
+     * @throws IllegalArgumentException Thrown if the path leads outside the repository's
+     * directory.
+     */
+    public CompletableFuture<TextSetting> read(String file) {
+        Path path = resolve(file);
+        CompletableFuture<TextSetting> read;
+        synchronized (this) {
+            FileState state = files.computeIfAbsent(path, p -> new FileState());
+            if (state.unwritten != null) {
+                return CompletableFuture.completedFuture(state.unwritten);
+            }
+            read = state.read;
+            if (read == null) {
+                CompletableFuture<TextSetting> newRead = new CompletableFuture<>();
+                state.read = newRead;
+                read = newRead;
+                boolean isStarted = execute(newRead, () -> {
+                    try {
+                        newRead.complete(cache.get(path));
+                    } catch (IOException | InvalidFileFormatException | RuntimeException e) {
+                        newRead.completeExceptionally(e);
+                    }
+                    synchronized (this) {
+                        state.read = null;
+                        forgetIfIdle(path, state);
+                    }
+                });
+                if (!isStarted) {
+                    state.read = null;
+                    forgetIfIdle(path, state);
+                }
+            }
+        }
+
+        // Callers are each given their own future, so one cancelling can't fail the others
+        return read.thenApply(Function.identity());
+    }
+
+    /**
+     * Reads the given config file as a document, for its text, comments and formatting as well as
+     * its settings. Unlike {@link #read(String)}, every call reads the file afresh.
+     * @param file The file's path, relative to the repository's directory.
+     * @return The file's document, with any settings saved to it but not yet written applied as
+     * they will be. Fails with an IOException if the file can't be read, or an
+     * InvalidFileFormatException if it's malformed.
+     * @throws IllegalArgumentException Thrown if the path leads outside the repository's
+     * directory.
+     */
+    public CompletableFuture<TextSettingDocument> readDocument(String file) {
+        Path path = resolve(file);
+        TextSetting unwritten;
+        synchronized (this) {
+            FileState state = files.get(path);
+            unwritten = state == null ? null : state.unwritten;
+        }
+        CompletableFuture<TextSettingDocument> read = new CompletableFuture<>();
+        execute(read, () -> {
+            try {
+                read.complete(unwritten == null
+                    ? TextSettingDocument.load(path) : updatedDocument(path, unwritten));
+            } catch (IOException | InvalidFileFormatException | InvalidTextSettingException
+                | RuntimeException e) {
+                read.completeExceptionally(e);
+            }
+        });
+        return read;
+    }
+
+    /**
+     * Saves the given settings to the given config file, replacing whatever it holds. The file's
+     * written after a short delay, with whichever settings were saved to it last by then.
+     * @param file The file's path, relative to the repository's directory. Any missing
+     * directories are created.
+     * @return Completed once the settings, or settings saved after them, have been written. Fails
+     * with an IOException if the file can't be written, or an InvalidTextSettingException if the
+     * settings are invalid.
+     * @throws IllegalArgumentException Thrown if the path leads outside the repository's
+     * directory.
+     */
+    public CompletableFuture<Void> save(String file, TextSetting setting) {
+        Path path = resolve(file);
+        CompletableFuture<Void> write;
+        synchronized (this) {
+            FileState state = files.computeIfAbsent(path, p -> new FileState());
+            state.unwritten = setting;
+            write = state.nextWrite;
+            if (write == null) {
+                write = new CompletableFuture<>();
+                state.nextWrite = write;
+
+                // Otherwise scheduled once the current write's done
+                if (!state.isWriting) {
+                    scheduleWrite(path);
+                }
+            }
+        }
+        return write.thenApply(Function.identity());
+    }
+
+    /**
+     * Writes every saved file that's waiting to be written, then stops reading and writing files.
+     * Waits for writes already started to finish.
+     */
+    @Override
+    public void close() throws IOException {
+        saveScheduler.shutdownNow();
+        List<Path> waiting = new ArrayList<>();
+        synchronized (this) {
+            for (Map.Entry<Path, FileState> file : files.entrySet()) {
+                if (file.getValue().nextWrite != null && !file.getValue().isWriting) {
+                    waiting.add(file.getKey());
+                }
+            }
+        }
+        for (Path path : waiting) {
+            startWrite(path);
+        }
+
+        // Writes that finish may start the next write of their file, which still needs the
+        // executor, so it's only shut down once nothing's left to write
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(CLOSE_TIMEOUT_MS);
+        try {
+            while (System.nanoTime() < deadline) {
+                synchronized (this) {
+                    if (files.values().stream().allMatch(state -> state.nextWrite == null
+                        && !state.isWriting)) {
+                        break;
+                    }
+                    wait(TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()) + 1);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        ioExecutor.shutdown();
+        cache.close();
+    }
+
+    private Path resolve(String file) {
+        Path path = root.resolve(file).normalize();
+        if (!path.startsWith(root) || path.equals(root)) {
+            throw new IllegalArgumentException("Not a file within the config directory: " + file);
+        }
+        return path;
+    }
+
+    private void scheduleWrite(Path path) {
+        try {
+            saveScheduler.schedule(() -> startWrite(path), saveDelayMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Closed, so written straight away instead
+            startWrite(path);
+        }
+    }
+
+    private void startWrite(Path path) {
+        TextSetting setting;
+        CompletableFuture<Void> write;
+        FileState state;
+        synchronized (this) {
+            state = files.get(path);
+            if (state == null || state.nextWrite == null || state.isWriting) {
+                return;
+            }
+            setting = state.unwritten;
+            write = state.nextWrite;
+            state.nextWrite = null;
+            state.isWriting = true;
+        }
+
+        boolean isStarted = execute(write, () -> {
+            try {
+                write(path, setting);
+                listener.onWritten(path, setting);
+                write.complete(null);
+            } catch (IOException | InvalidFileFormatException | InvalidTextSettingException
+                | RuntimeException e) {
+                write.completeExceptionally(e);
+            }
+            finishWrite(path, state, setting);
+        });
+        if (!isStarted) {
+            finishWrite(path, state, setting);
+        }
+    }
+
+    private synchronized void finishWrite(Path path, FileState state, TextSetting setting) {
+        state.isWriting = false;
+        if (state.unwritten == setting) {
+            state.unwritten = null;
+        }
+        if (state.nextWrite != null) {
+            scheduleWrite(path);
+        }
+        forgetIfIdle(path, state);
+        notifyAll();
+    }
+
+    private void write(Path path, TextSetting setting)
+        throws IOException, InvalidFileFormatException, InvalidTextSettingException {
+        Files.createDirectories(path.getParent());
+        updatedDocument(path, setting).save(path);
+
+        // Quick enough successive writes of the same size may not change the modified time
+        cache.invalidate(path);
+    }
+
+    // The given file's document as it'll be once the given setting's written to it
+    private static TextSettingDocument updatedDocument(Path path, TextSetting setting)
+        throws IOException, InvalidFileFormatException, InvalidTextSettingException {
+        TextSettingDocument document = null;
+        if (Files.exists(path)) {
+            try {
+                document = TextSettingDocument.load(path);
+            } catch (InvalidFileFormatException e) {
+                // Nothing worth keeping, so it's written over
+            }
+        }
+        if (document != null) {
+            document.update(setting);
+            return document;
+        }
+        return TextSettingDocument.parse(
+            setting.toFileString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Runs the given task on the I/O threads, or fails the given future if they've stopped.
+     * @return Whether the task will be run.
+     */
+    private boolean execute(CompletableFuture<?> future, Runnable task) {
+        try {
+            ioExecutor.execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(new IOException("The repository has been closed."));
+            return false;
+        }
+    }
+
+    // Must hold the lock
+    private void forgetIfIdle(Path path, FileState state) {
+        if (state.isIdle()) {
+            files.remove(path, state);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package me.fru1t.csgo_server_manager.configs;
+
+import me.fru1t.csgo_server_manager.files.InvalidTextSettingException;
+import me.fru1t.csgo_server_manager.files.TextSetting;
+import me.fru1t.csgo_server_manager.files.TextSettingRevisionStore;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Commits every config file a {@link ConfigRepository} writes to a
+ * {@link TextSettingRevisionStore}, as a revision named after the file's absolute path. A revision
+ * that can't be committed is reported, but doesn't fail the save, as the file's already been
+ * written by then.
+ */
+public class ConfigRevisionRecorder implements ConfigRepository.Listener {
+    private final TextSettingRevisionStore revisions;
+
+    public ConfigRevisionRecorder(TextSettingRevisionStore revisions) {
+        this.revisions = revisions;
+    }
+
+    @Override
+    public void onWritten(Path file, TextSetting setting) {
+        try {
+            revisions.commit(file.toString(), setting);
+        } catch (InvalidTextSettingException | IOException e) {
+            Thread thread = Thread.currentThread();
+            thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+        }
+    }
+}
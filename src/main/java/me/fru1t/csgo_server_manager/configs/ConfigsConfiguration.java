@@ -0,0 +1,28 @@
+package me.fru1t.csgo_server_manager.configs;
+
+import me.fru1t.csgo_server_manager.files.TextSettingRevisionStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Paths;
+
+/**
+ * Creates the application's {@link ConfigRepository} over the config files within
+ * {@code csgo.configs.directory}, reading and writing {@code csgo.configs.ioThreads} files at
+ * once, and writing saved files {@code csgo.configs.saveDelayMs} after they're saved. Every
+ * file written is committed as a revision to the {@link TextSettingRevisionStore}.
+ */
+@Configuration
+public class ConfigsConfiguration {
+    @Bean(destroyMethod = "close")
+    public ConfigRepository configRepository(TextSettingRevisionStore revisions,
+        @Value("${csgo.configs.directory:configs}") String directory,
+        @Value("${csgo.configs.ioThreads:" + ConfigRepository.DEFAULT_IO_THREADS + "}")
+            int ioThreads,
+        @Value("${csgo.configs.saveDelayMs:" + ConfigRepository.DEFAULT_SAVE_DELAY_MS + "}")
+            long saveDelayMs) {
+        return new ConfigRepository(Paths.get(directory), ioThreads, saveDelayMs,
+            ConfigRepository.DEFAULT_CACHE_BYTES, new ConfigRevisionRecorder(revisions));
+    }
+}
@@ -0,0 +1,246 @@
+package me.fru1t.csgo_server_manager.files;
+
+import javax.annotation.Nullable;
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * <p>An immutable map of a block's children that keeps their iteration order, stored as a single
+ * array of alternating keys and values rather than as a table of entry objects.</p>
+ * <p>Most blocks in valve settings files only have a handful of children, where scanning the
+ * array is as quick as hashing. Larger blocks add an open addressing index of plain ints on top.
+ * Keys are compared by reference before equality, which makes lookups with keys from a
+ * {@link TextSettingSymbolTable} especially cheap.</p>
+ */
+final class CompactChildMap extends AbstractMap<String, TextSetting> {
+    /**
+     * Blocks with more children than this are indexed rather than scanned.
+     */
+    static final int MAX_LINEAR_SIZE = 8;
+
+    static final CompactChildMap EMPTY = new CompactChildMap(new Object[0], null);
+
+    // key0, value0, key1, value1...
+    private final Object[] entries;
+
+    // Slots hold an entry's position plus one, or zero if empty
+    @Nullable
+    private final int[] index;
+
+    private CompactChildMap(Object[] entries, @Nullable int[] index) {
+        this.entries = entries;
+        this.index = index;
+    }
+
+    /**
+     * Copies the given map, keeping its iteration order.
+     */
+    static CompactChildMap copyOf(Map<String, TextSetting> children) {
+        Object[] entries = new Object[children.size() * 2];
+        int i = 0;
+        for (Map.Entry<String, TextSetting> child : children.entrySet()) {
+            entries[i++] = child.getKey();
+            entries[i++] = child.getValue();
+        }
+        return wrap(entries);
+    }
+
+    /**
+     * Creates a map over the given alternating keys and values, which must have distinct keys and
+     * not be modified afterwards.
+     */
+    static CompactChildMap wrap(Object[] entries) {
+        int size = entries.length / 2;
+        if (size <= MAX_LINEAR_SIZE) {
+            return new CompactChildMap(entries, null);
+        }
+        int[] index = new int[Integer.highestOneBit(size * 2 - 1) << 1];
+        int mask = index.length - 1;
+        for (int entry = 0; entry < size; ++entry) {
+            int slot = spread(entries[entry * 2].hashCode()) & mask;
+            while (index[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            index[slot] = entry + 1;
+        }
+        return new CompactChildMap(entries, index);
+    }
+
+    /**
+     * Returns the given children as alternating keys and values in iteration order, without
+     * copying if they're already held by a CompactChildMap. The returned array must not be
+     * modified.
+     */
+    static Object[] entriesOf(Map<String, TextSetting> children) {
+        return of(children).entries;
+    }
+
+    // The given children as a CompactChildMap, without copying if they already are one
+    private static CompactChildMap of(Map<String, TextSetting> children) {
+        if (children instanceof TextSettingSnapshot.LazyChildMap) {
+            return ((TextSettingSnapshot.LazyChildMap) children).materialize();
+        }
+        if (children instanceof CompactChildMap) {
+            return (CompactChildMap) children;
+        }
+        return copyOf(children);
+    }
+
+    /**
+     * Returns the given children with the given child added after them, or in place of the child
+     * of the same key, copying only the array of entries. The given children are left as they
+     * were.
+     */
+    static CompactChildMap with(Map<String, TextSetting> children, TextSetting child) {
+        CompactChildMap map = of(children);
+        int i = map.indexOf(child.key);
+        if (i >= 0) {
+            Object[] entries = map.entries.clone();
+            entries[i + 1] = child;
+
+            // The keys haven't changed, so neither has the index
+            return new CompactChildMap(entries, map.index);
+        }
+        Object[] entries = Arrays.copyOf(map.entries, map.entries.length + 2);
+        entries[map.entries.length] = child.key;
+        entries[map.entries.length + 1] = child;
+        return wrap(entries);
+    }
+
+    /**
+     * Returns the given children without the child of the given key, keeping the order of the
+     * rest. The given children are left as they were.
+     */
+    static CompactChildMap without(Map<String, TextSetting> children, String key) {
+        CompactChildMap map = of(children);
+        int i = map.indexOf(key);
+        if (i < 0) {
+            return map;
+        }
+        Object[] entries = new Object[map.entries.length - 2];
+        System.arraycopy(map.entries, 0, entries, 0, i);
+        System.arraycopy(map.entries, i + 2, entries, i, entries.length - i);
+        return wrap(entries);
+    }
+
+    @Override
+    public int size() {
+        return entries.length / 2;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    public TextSetting get(Object key) {
+        int i = indexOf(key);
+        return i < 0 ? null : (TextSetting) entries[i + 1];
+    }
+
+    @Override
+    public Set<Entry<String, TextSetting>> entrySet() {
+        return new AbstractSet<Entry<String, TextSetting>>() {
+            @Override
+            public Iterator<Entry<String, TextSetting>> iterator() {
+                return new EntryIterator<Entry<String, TextSetting>>() {
+                    @Override
+                    Entry<String, TextSetting> get(int i) {
+                        return new SimpleImmutableEntry<>((String) entries[i],
+                            (TextSetting) entries[i + 1]);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return CompactChildMap.this.size();
+            }
+        };
+    }
+
+    @Override
+    public Collection<TextSetting> values() {
+        return new AbstractCollection<TextSetting>() {
+            @Override
+            public Iterator<TextSetting> iterator() {
+                return new EntryIterator<TextSetting>() {
+                    @Override
+                    TextSetting get(int i) {
+                        return (TextSetting) entries[i + 1];
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return CompactChildMap.this.size();
+            }
+        };
+    }
+
+    // Returns the position of the key within entries, or -1
+    private int indexOf(@Nullable Object key) {
+        if (key == null) {
+            return -1;
+        }
+
+        if (index == null) {
+            for (int i = 0; i < entries.length; i += 2) {
+                if (entries[i] == key) {
+                    return i;
+                }
+            }
+            for (int i = 0; i < entries.length; i += 2) {
+                if (entries[i].equals(key)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        int mask = index.length - 1;
+        int slot = spread(key.hashCode()) & mask;
+        while (index[slot] != 0) {
+            int i = (index[slot] - 1) * 2;
+            if (entries[i] == key || entries[i].equals(key)) {
+                return i;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private abstract class EntryIterator<T> implements Iterator<T> {
+        private int next = 0;
+
+        abstract T get(int i);
+
+        @Override
+        public boolean hasNext() {
+            return next < entries.length;
+        }
+
+        @Override
+        public T next() {
+            if (next >= entries.length) {
+                throw new NoSuchElementException();
+            }
+            T result = get(next);
+            next += 2;
+            return result;
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package me.fru1t.csgo_server_manager.files;
+
+import me.fru1t.csgo_server_manager.files.TextSettingUtil.TokenType;
+
+import javax.annotation.Nullable;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * <p>Tokenizes a valve settings file held in a {@link ByteBuffer}, typically one memory-mapped
+ * straight from disk. The file is expected to be UTF-8 encoded.</p>
+ * <p>Every character with meaning to the format is ASCII, and UTF-8 never uses ASCII bytes within
+ * a multi-byte character, so the buffer is scanned byte by byte without decoding it. Tokens are
+ * tracked as offsets into the buffer and only decoded into strings when their content is asked
+ * for, so stepping through tokens doesn't allocate.</p>
+ */
+class MappedTextSettingProcessor implements TextSettingTokenizer {
+    private static final int NO_ERROR = -1;
+
+    private final ByteBuffer buffer;
+    private final int limit;
+    private int position;
+    private int currentLineNumber;
+    private int currentLineStart;
+
+    private TokenType tokenType;
+    private int tokenStart;
+    private int tokenLength;
+    private int markedTokenStart;
+    private int markedTokenLength;
+
+    // Error details are only turned into a message if it's asked for
+    private int errorIndex;
+    private String errorContext;
+
+    @Nullable
+    private TextSettingSymbolTable symbolTable;
+
+    /**
+     * Creates a tokenizer over the remaining bytes of the given buffer. The buffer's position and
+     * limit are left untouched.
+     */
+    MappedTextSettingProcessor(ByteBuffer buffer) {
+        this.buffer = buffer;
+        limit = buffer.limit();
+        position = buffer.position();
+        currentLineNumber = 1;
+        currentLineStart = position;
+        tokenType = TokenType.END_OF_FILE;
+        tokenStart = position;
+        tokenLength = 0;
+        markedTokenStart = position;
+        markedTokenLength = 0;
+        errorIndex = NO_ERROR;
+        errorContext = "";
+        symbolTable = null;
+
+        // Skip the UTF-8 byte order mark some editors like to add
+        if (limit - position >= 3
+            && buffer.get(position) == (byte) 0xEF
+            && buffer.get(position + 1) == (byte) 0xBB
+            && buffer.get(position + 2) == (byte) 0xBF) {
+            position += 3;
+            currentLineStart = position;
+        }
+    }
+
+    @Override
+    public TokenType nextToken() {
+        while (position < limit) {
+            byte b = buffer.get(position);
+            switch (b) {
+                // Begin child
+                case '{':
+                    return setToken(TokenType.BEGIN_CHILD, position++, 1);
+
+                // End child
+                case '}':
+                    return setToken(TokenType.END_CHILD, position++, 1);
+
+                // String
+                case '"':
+                    // Don't include the starting quote mark
+                    int sIndex = ++position;
+
+                    // Find the ending quote mark that's not escaped. Strings can't span lines.
+                    while (position < limit && !isLineBreak(buffer.get(position))) {
+                        if (buffer.get(position) == '"' && buffer.get(position - 1) != '\\') {
+                            return setToken(TokenType.STRING, sIndex, position++ - sIndex);
+                        }
+                        ++position;
+                    }
+                    return setError(position, "There was no ending to the string.");
+
+                // Comment
+                case '/':
+                    // Are we at the end of the current line? If so, this character is invalid
+                    if (++position >= limit || isLineBreak(buffer.get(position))) {
+                        return setError(position, "Thought it was a comment, but "
+                            + "there was only a single slash before the end of the line.");
+                    }
+
+                    // Is the next character another slash? If not, this character is invalid
+                    if (buffer.get(position) != '/') {
+                        return setError(position, "Thought it was a comment, but "
+                            + "there was only a single slash.");
+                    }
+
+                    // Otherwise, the rest of this line is a comment, but don't include the "//"
+                    int cIndex = ++position;
+                    while (position < limit && !isLineBreak(buffer.get(position))) {
+                        ++position;
+                    }
+                    return setToken(TokenType.COMMENT, cIndex, position - cIndex);
+
+                // Line breaks. "\r\n" counts as a single break.
+                case '\r':
+                    if (position + 1 < limit && buffer.get(position + 1) == '\n') {
+                        ++position;
+                    }
+                    // Fall through
+                case '\n':
+                    ++position;
+                    ++currentLineNumber;
+                    currentLineStart = position;
+                    break;
+
+                // Space/tab
+                case ' ':
+                case '\t':
+                    // Ignore whitespace.
+                    ++position;
+                    break;
+
+                // Everything else
+                default:
+                    return setError(position, "It's simply an invalid character.");
+            }
+        }
+        return setToken(TokenType.END_OF_FILE, position, 0);
+    }
+
+    @Override
+    public String getTokenContent() {
+        switch (tokenType) {
+            case BEGIN_CHILD:
+                return "{";
+            case END_CHILD:
+                return "}";
+            case ERROR:
+                return describeError();
+            case END_OF_FILE:
+                return "";
+            case STRING:
+                return decodeString(tokenStart, tokenLength);
+            case COMMENT:
+            default:
+                return decode(tokenStart, tokenLength);
+        }
+    }
+
+    @Override
+    public void markToken() {
+        markedTokenStart = tokenStart;
+        markedTokenLength = tokenLength;
+    }
+
+    @Override
+    public String getMarkedTokenContent() {
+        return decodeString(markedTokenStart, markedTokenLength);
+    }
+
+    @Override
+    public int getCurrentLineNumber() {
+        return currentLineNumber;
+    }
+
+    @Override
+    public int getCurrentColumnNumber() {
+        // Counting characters rather than bytes, which is every byte but UTF-8's continuations
+        int index = tokenType == TokenType.ERROR ? errorIndex : tokenStart;
+        if (tokenType == TokenType.STRING || tokenType == TokenType.COMMENT) {
+            // Back to the quote mark or slashes
+            index -= tokenType == TokenType.STRING ? 1 : 2;
+        }
+        int column = 1;
+        for (int i = currentLineStart; i < index; ++i) {
+            column += (buffer.get(i) & 0xC0) == 0x80 ? 0 : 1;
+        }
+        return column;
+    }
+
+    @Override
+    public String getErrorContext() {
+        return errorContext;
+    }
+
+    @Override
+    public void skipLine() {
+        while (position < limit && !isLineBreak(buffer.get(position))) {
+            ++position;
+        }
+    }
+
+    @Override
+    public void setSymbolTable(@Nullable TextSettingSymbolTable symbolTable) {
+        this.symbolTable = symbolTable;
+    }
+
+    /**
+     * @return The offset within the buffer of the current token's content.
+     */
+    int getTokenStart() {
+        return tokenStart;
+    }
+
+    /**
+     * @return The length in bytes of the current token's content.
+     */
+    int getTokenLength() {
+        return tokenLength;
+    }
+
+    /**
+     * @return The offset within the buffer of the content of the token last passed to
+     * {@link #markToken()}.
+     */
+    int getMarkedTokenStart() {
+        return markedTokenStart;
+    }
+
+    private TokenType setToken(TokenType type, int start, int length) {
+        tokenType = type;
+        tokenStart = start;
+        tokenLength = length;
+        errorIndex = NO_ERROR;
+        return type;
+    }
+
+    private TokenType setError(int index, String context) {
+        errorIndex = index;
+        errorContext = context;
+        tokenType = TokenType.ERROR;
+        tokenStart = index;
+        tokenLength = 0;
+        return tokenType;
+    }
+
+    private String describeError() {
+        int lineEnd = currentLineStart;
+        while (lineEnd < limit && !isLineBreak(buffer.get(lineEnd))) {
+            ++lineEnd;
+        }
+        String fullLine = decode(currentLineStart, lineEnd - currentLineStart);
+
+        if (errorIndex < lineEnd) {
+            return "\tInvalid character: '" + (char) (buffer.get(errorIndex) & 0xFF) + "'"
+                + "\n\tOffset: " + (errorIndex - currentLineStart)
+                + "\n\tFull line: " + fullLine
+                + "\n\tContext: " + errorContext;
+        }
+        return "\tFull line: " + fullLine
+            + "\n\tContext: " + errorContext;
+    }
+
+    private String decodeString(int start, int length) {
+        return symbolTable == null
+            ? decode(start, length) : symbolTable.intern(buffer, start, length);
+    }
+
+    private String decode(int start, int length) {
+        if (buffer.hasArray()) {
+            return new String(buffer.array(), buffer.arrayOffset() + start, length,
+                StandardCharsets.UTF_8);
+        }
+        byte[] bytes = new byte[length];
+        ByteBuffer slice = buffer.duplicate();
+        slice.position(start);
+        slice.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static boolean isLineBreak(byte b) {
+        return b == '\n' || b == '\r';
+    }
+}
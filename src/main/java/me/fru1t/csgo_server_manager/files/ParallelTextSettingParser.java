@@ -0,0 +1,320 @@
+package me.fru1t.csgo_server_manager.files;
+
+import com.google.common.annotations.VisibleForTesting;
+import me.fru1t.csgo_server_manager.files.TextSettingUtil.TokenType;
+
+import javax.annotation.Nullable;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * <p>Parses the common shape of large valve settings files, a single root block, across the
+ * threads of a {@link ForkJoinPool}.</p>
+ * <p>A single pass over the file's tokens, which doesn't decode any strings, tracks brace depth
+ * and keys exactly as {@link TextSettingReader} does. Runs of consecutive children of the root are
+ * cut into segments of roughly equal size, each handed to the pool to be parsed and built into
+ * TextSettings as soon as it's found. Children too large to fit in a segment, like the "items"
+ * block of items_game.txt, are themselves cut up between their own children, down to
+ * {@link #MAX_SPLIT_DEPTH}. Once every segment is parsed, the blocks that were cut up are
+ * reassembled, adding children in file order exactly as a sequential parse would have.</p>
+ * <p>Anything out of the ordinary, such as a malformed file or settings after the root block,
+ * falls back to parsing sequentially. Results and error messages are therefore always the same as
+ * those of {@link TextSettingUtil#processFile(ByteBuffer)}.</p>
+ */
+final class ParallelTextSettingParser {
+    /**
+     * Files smaller than this aren't worth splitting up.
+     */
+    static final int MIN_PARALLEL_BYTES = 256 * 1024;
+
+    /**
+     * The deepest block whose children may be split between segments. The root is at depth 0.
+     */
+    static final int MAX_SPLIT_DEPTH = 4;
+
+    // Segments per thread, so that uneven segments still keep every thread busy
+    private static final int SEGMENTS_PER_THREAD = 4;
+
+    /**
+     * A block whose children are split between segments.
+     */
+    private static final class Block {
+        final String key;
+        final int keyStart;
+
+        // Segments and the blocks that were too large for them, in file order
+        final List<Object> parts;
+
+        // Where the children that aren't yet part of a segment start
+        int pendingStart;
+
+        Block(String key, int keyStart, int pendingStart) {
+            this.key = key;
+            this.keyStart = keyStart;
+            this.pendingStart = pendingStart;
+            parts = new ArrayList<>();
+        }
+    }
+
+    private static final class Segment {
+        final ForkJoinTask<List<TextSetting>> task;
+
+        Segment(ForkJoinTask<List<TextSetting>> task) {
+            this.task = task;
+        }
+    }
+
+    private final ByteBuffer fileBuffer;
+    private final ForkJoinPool pool;
+    private final int targetSegmentBytes;
+    private final List<Segment> segments;
+
+    private ParallelTextSettingParser(ByteBuffer fileBuffer, ForkJoinPool pool) {
+        this.fileBuffer = fileBuffer;
+        this.pool = pool;
+        targetSegmentBytes =
+            fileBuffer.remaining() / (pool.getParallelism() * SEGMENTS_PER_THREAD);
+        segments = new ArrayList<>();
+    }
+
+    /**
+     * Parses the remaining bytes of the given buffer, using the given pool if it's worth doing so.
+     * The buffer's position and limit are left untouched.
+     */
+    @Nullable
+    static TextSetting parse(ByteBuffer fileBuffer, ForkJoinPool pool)
+        throws InvalidFileFormatException {
+        if (pool.getParallelism() < 2 || fileBuffer.remaining() < MIN_PARALLEL_BYTES) {
+            return TextSettingUtil.processFile(fileBuffer);
+        }
+
+        // Let the sequential parse find and describe any problem, and record it
+        long startNanos = System.nanoTime();
+        TextSetting result = tryParse(fileBuffer, pool);
+        if (result == null) {
+            return TextSettingUtil.processFile(fileBuffer);
+        }
+        TextSettingUtil.recordParse(startNanos, fileBuffer.remaining());
+        return result;
+    }
+
+    /**
+     * Parses the remaining bytes of the given buffer on the given pool, regardless of its size.
+     * @return The processed file, or null if it can't be parsed in parallel.
+     */
+    @VisibleForTesting
+    @Nullable
+    static TextSetting tryParse(ByteBuffer fileBuffer, ForkJoinPool pool) {
+        ParallelTextSettingParser parser = new ParallelTextSettingParser(fileBuffer, pool);
+        try {
+            Block root = parser.split();
+            return root == null ? null : assemble(root);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while parsing in parallel.", e);
+        } catch (ExecutionException | InvalidTextSettingException e) {
+            return null;
+        } finally {
+            for (Segment segment : parser.segments) {
+                segment.task.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Steps through every token of the file, handing segments to the pool as they're found.
+     * @return The root block, or null if the file isn't a single valid root block.
+     */
+    @Nullable
+    private Block split() {
+        MappedTextSettingProcessor tokenizer = new MappedTextSettingProcessor(fileBuffer);
+
+        // The root's key and opening brace
+        if (nextSignificantToken(tokenizer) != TokenType.STRING) {
+            return null;
+        }
+        tokenizer.markToken();
+        if (nextSignificantToken(tokenizer) != TokenType.BEGIN_CHILD) {
+            return null;
+        }
+        Block root = new Block(tokenizer.getMarkedTokenContent(),
+            tokenizer.getMarkedTokenStart() - 1, tokenizer.getTokenStart() + 1);
+
+        // Open blocks no deeper than MAX_SPLIT_DEPTH, innermost first. Whenever every open block
+        // is in here, the innermost one's children may be split between segments.
+        Deque<Block> openBlocks = new ArrayDeque<>();
+        openBlocks.push(root);
+        int depth = 1;
+        boolean hasPendingKey = false;
+        while (depth > 0) {
+            switch (tokenizer.nextToken()) {
+                case STRING:
+                    if (!hasPendingKey) {
+                        tokenizer.markToken();
+                        hasPendingKey = true;
+                        break;
+                    }
+                    hasPendingKey = false;
+
+                    // Include the closing quote mark
+                    if (depth == openBlocks.size()) {
+                        childEnded(openBlocks.peek(),
+                            tokenizer.getTokenStart() + tokenizer.getTokenLength() + 1);
+                    }
+                    break;
+
+                case BEGIN_CHILD:
+                    if (!hasPendingKey) {
+                        return null;
+                    }
+                    hasPendingKey = false;
+                    if (depth <= MAX_SPLIT_DEPTH && depth == openBlocks.size()) {
+                        openBlocks.push(new Block(tokenizer.getMarkedTokenContent(),
+                            tokenizer.getMarkedTokenStart() - 1, tokenizer.getTokenStart() + 1));
+                    }
+                    ++depth;
+                    break;
+
+                case END_CHILD:
+                    if (hasPendingKey) {
+                        return null;
+                    }
+                    --depth;
+                    int end = tokenizer.getTokenStart() + 1;
+                    if (depth == openBlocks.size() - 1) {
+                        Block block = openBlocks.pop();
+                        if (block == root) {
+                            flush(root, tokenizer.getTokenStart());
+                        } else if (block.parts.isEmpty()) {
+                            // Small enough to stay within its parent's segment
+                            childEnded(openBlocks.peek(), end);
+                        } else {
+                            flush(block, tokenizer.getTokenStart());
+                            Block parent = openBlocks.peek();
+                            flush(parent, block.keyStart);
+                            parent.parts.add(block);
+                            parent.pendingStart = end;
+                        }
+                    } else if (depth == openBlocks.size()) {
+                        childEnded(openBlocks.peek(), end);
+                    }
+                    break;
+
+                case COMMENT:
+                    break;
+
+                case ERROR:
+                case END_OF_FILE:
+                default:
+                    return null;
+            }
+        }
+
+        // Further top-level settings would be added to the root, so leave those to the
+        // sequential parse
+        if (nextSignificantToken(tokenizer) != TokenType.END_OF_FILE) {
+            return null;
+        }
+        return root;
+    }
+
+    // Cuts a segment once enough of the block's children have gone by
+    private void childEnded(Block block, int end) {
+        if (end - block.pendingStart >= targetSegmentBytes) {
+            flush(block, end);
+        }
+    }
+
+    // Hands the block's pending children up to the given offset to the pool
+    private void flush(Block block, int end) {
+        if (end <= block.pendingStart) {
+            return;
+        }
+        ByteBuffer slice = fileBuffer.duplicate();
+        slice.limit(end);
+        slice.position(block.pendingStart);
+        Segment segment = new Segment(pool.submit(() -> parseSegment(slice)));
+        segments.add(segment);
+        block.parts.add(segment);
+        block.pendingStart = end;
+    }
+
+    /**
+     * Builds the given block out of its parts in file order.
+     * @return The block, or null if any of its segments couldn't be parsed.
+     */
+    @Nullable
+    private static TextSetting assemble(Block block)
+        throws ExecutionException, InterruptedException, InvalidTextSettingException {
+        TextSetting.TextSettingBuilder builder =
+            TextSetting.builder().key(block.key).startChildBlock();
+        for (Object part : block.parts) {
+            if (part instanceof Block) {
+                TextSetting child = assemble((Block) part);
+                if (child == null) {
+                    return null;
+                }
+                builder.addChild(child);
+                continue;
+            }
+
+            List<TextSetting> children = ((Segment) part).task.get();
+            if (children == null) {
+                return null;
+            }
+            for (TextSetting child : children) {
+                builder.addChild(child);
+            }
+        }
+        return builder.build();
+    }
+
+    private static TokenType nextSignificantToken(MappedTextSettingProcessor tokenizer) {
+        TokenType type;
+        do {
+            type = tokenizer.nextToken();
+        } while (type == TokenType.COMMENT);
+        return type;
+    }
+
+    /**
+     * @return The top-level settings within the segment in file order, or null if the segment
+     * couldn't be parsed.
+     */
+    @Nullable
+    private static List<TextSetting> parseSegment(ByteBuffer segment) {
+        TextSettingReader reader = new TextSettingReader(segment);
+        SegmentHandler handler = new SegmentHandler(reader);
+        try {
+            TextSettingUtil.processFile(reader, handler);
+        } catch (InvalidFileFormatException e) {
+            return null;
+        }
+        return handler.settings;
+    }
+
+    private static final class SegmentHandler extends TextSettingUtil.TreeBuildingHandler {
+        final List<TextSetting> settings;
+
+        SegmentHandler(TextSettingReader reader) {
+            super(reader);
+            settings = new ArrayList<>();
+        }
+
+        @Override
+        void addTopLevel(TextSetting.TextSettingBuilder setting)
+            throws InvalidFileFormatException {
+            try {
+                settings.add(setting.build());
+            } catch (InvalidTextSettingException e) {
+                throw new InvalidFileFormatException(e.getMessage());
+            }
+        }
+    }
+}
@@ -4,11 +4,14 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableMap;
 import lombok.Getter;
 import me.fru1t.commons.lang.Result;
-import org.apache.commons.lang3.StringUtils;
+import me.fru1t.csgo_server_manager.metrics.Counter;
+import me.fru1t.csgo_server_manager.metrics.MetricRegistry;
+import me.fru1t.csgo_server_manager.metrics.Timer;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
-import java.util.HashMap;
+import java.io.IOException;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
@@ -31,6 +34,11 @@ import java.util.Map;
  * <i>key</i> field, and optional <i>value</i> and <i>children</i> fields. Each key corresponds to
  * a single TextSetting object, where either the value is set, or in the case of a block, the
  * children are set.</p>
+ * <p>Built settings aren't modified. Instead, {@link #with(String, String)} and
+ * {@link #without(String)} return a new tree with a single setting changed, which shares every
+ * setting off the changed path with the original. A change only copies the blocks along its path,
+ * so trees may be changed and kept as snapshots cheaply, and read from any thread while they
+ * are.</p>
  */
 public class TextSetting {
     public static class TextSettingBuilder {
@@ -90,7 +98,9 @@ public class TextSetting {
 
         /**
          * Adds a child to this builder, if {@link #startChildBlock()} has been called. Otherwise,
-         * ignores any given child.
+         * ignores any given child. Children keep the order they're added in, so settings parsed
+         * from a file are written back in the file's order. A child with the same key as one
+         * already added replaces it, keeping its place.
          */
         public TextSettingBuilder addChild(TextSetting child) {
             if (children != null) {
@@ -100,7 +110,7 @@ public class TextSetting {
         }
 
         public TextSettingBuilder startChildBlock() {
-            children = new HashMap<>();
+            children = new LinkedHashMap<>();
             return this;
         }
 
@@ -120,7 +130,7 @@ public class TextSetting {
 
             TextSetting result = new TextSetting();
             result.key = key;
-            result.children = children == null ? null : ImmutableMap.copyOf(children);
+            result.children = children == null ? null : CompactChildMap.copyOf(children);
             result.value = value;
             return result;
         }
@@ -135,8 +145,13 @@ public class TextSetting {
         }
     }
 
+    private static final Timer WRITE_TIMER = MetricRegistry.global().timer(
+        "csgo_textsetting_write_seconds", "Time taken to write TextSettings as file strings.");
+    private static final Counter WRITE_CHARS = MetricRegistry.global().counter(
+        "csgo_textsetting_write_chars_total", "Characters of TextSetting file strings written.");
+
     protected static final String INDENTATION_PATTERN = "  ";
-    private static final String KEY_VALUE_DELIMITER = " ";
+    static final String KEY_VALUE_DELIMITER = " ";
 
     public static TextSettingBuilder builder() {
         return new TextSettingBuilder();
@@ -180,6 +195,50 @@ public class TextSetting {
         return Result.pass();
     }
 
+    /**
+     * @see #with(TextSettingQuery, String)
+     * @throws IllegalArgumentException Thrown if the path is invalid or has wildcards.
+     */
+    public TextSetting with(String path, String value) throws InvalidTextSettingException {
+        return with(TextSettingQuery.compile(path), value);
+    }
+
+    /**
+     * Sets the value at the given path, relative to this block, adding it after this block's
+     * other children if there isn't one, along with any blocks along the path that are missing.
+     * This setting is left as it was.
+     * @return A copy of this block with the value set, sharing every setting off the path, or
+     * this block itself if the value's already set.
+     * @throws IllegalArgumentException Thrown if the path has wildcards.
+     * @throws InvalidTextSettingException Thrown if this setting, or any setting along the path
+     * before its last key, is a value rather than a block.
+     */
+    public TextSetting with(TextSettingQuery path, String value)
+        throws InvalidTextSettingException {
+        checkExact(path);
+        return with(path, 0, value);
+    }
+
+    /**
+     * @see #without(TextSettingQuery)
+     * @throws IllegalArgumentException Thrown if the path is invalid or has wildcards.
+     */
+    public TextSetting without(String path) {
+        return without(TextSettingQuery.compile(path));
+    }
+
+    /**
+     * Removes the setting at the given path, relative to this block, keeping the order of its
+     * siblings. Blocks left empty are kept. This setting is left as it was.
+     * @return A copy of this block without the setting, sharing every setting off the path, or
+     * this block itself if there's no setting at the path.
+     * @throws IllegalArgumentException Thrown if the path has wildcards.
+     */
+    public TextSetting without(TextSettingQuery path) {
+        checkExact(path);
+        return without(path, 0);
+    }
+
     /**
      * @return An attempt at {@link #toFileString()}. This will fail silently and return an
      * empty string if it does.
@@ -196,46 +255,83 @@ public class TextSetting {
     }
 
     /**
-     * @return A file write-able string of this TextSetting container. Recursively navigates
-     * through children.
+     * @return A file write-able string of this TextSetting container, including all of its
+     * children. How long this takes is recorded in the {@link MetricRegistry#global() global}
+     * metrics.
      * @throws InvalidTextSettingException Thrown if any TextSetting within this hierarchy is
      * invalid.
+     * @see TextSettingWriter
      */
     public String toFileString() throws InvalidTextSettingException {
-        StringBuilder result = new StringBuilder();
-        toFileString(0, result);
-        return result.toString();
-    }
+        long startNanos = System.nanoTime();
 
-    private void toFileString(int tabs, StringBuilder result) throws InvalidTextSettingException {
-        // Sanity check
-        Result r = isValid();
-        if (!r.passed) {
-            throw new InvalidTextSettingException("An error occurred while converting this "
-                + "TextSetting to a file string. Please check where it's being created and that it "
-                + "adheres to the following error: " + r.context);
+        // Sizing the builder exactly avoids repeatedly copying it as it grows, which for large
+        // trees means several large short-lived arrays. This also validates the whole hierarchy.
+        long length = TextSettingWriter.computeLength(this);
+        StringBuilder result = new StringBuilder((int) Math.min(length, Integer.MAX_VALUE - 8));
+        try {
+            new TextSettingWriter(result).write(this);
+        } catch (IOException e) {
+            // StringBuilders don't throw
+            throw new IllegalStateException(e);
         }
+        String fileString = result.toString();
+        WRITE_TIMER.recordSince(startNanos);
+        WRITE_CHARS.add(fileString.length());
+        return fileString;
+    }
 
-        String indentation = StringUtils.repeat(INDENTATION_PATTERN, tabs);
-
-        // Always show key
-        result.append(indentation).append("\"").append(key).append("\"");
-
-        // Check if value
-        if (value != null) {
-            result.append(KEY_VALUE_DELIMITER).append("\"").append(value).append("\"\n");
-            return;
+    private TextSetting with(TextSettingQuery path, int depth, String value)
+        throws InvalidTextSettingException {
+        if (children == null) {
+            throw new InvalidTextSettingException("Can't set " + path + ", as " + key
+                + " is a value rather than a block.");
         }
+        TextSetting child = children.get(path.getKey(depth));
+        TextSetting changed;
+        if (depth == path.size() - 1) {
+            if (child != null && value.equals(child.value)) {
+                return this;
+            }
+            changed = new TextSetting();
+            changed.key = child == null ? path.getKey(depth) : child.key;
+            changed.value = value;
+        } else if (child == null) {
+            changed = block(path.getKey(depth), CompactChildMap.EMPTY).with(path, depth + 1, value);
+        } else {
+            changed = child.with(path, depth + 1, value);
+            if (changed == child) {
+                return this;
+            }
+        }
+        return block(key, CompactChildMap.with(children, changed));
+    }
 
-        // Otherwise, it's a child-bearing settings block
-        result.append(" {\n");
+    private TextSetting without(TextSettingQuery path, int depth) {
+        if (children == null) {
+            return this;
+        }
+        TextSetting child = children.get(path.getKey(depth));
+        if (child == null) {
+            return this;
+        }
+        if (depth == path.size() - 1) {
+            return block(key, CompactChildMap.without(children, child.key));
+        }
+        TextSetting changed = child.without(path, depth + 1);
+        return changed == child ? this : block(key, CompactChildMap.with(children, changed));
+    }
 
-        if (children != null) {
-            for (TextSetting child : children.values()) {
-                child.toFileString(tabs + 1, result);
-            }
+    private static void checkExact(TextSettingQuery path) {
+        if (path.hasWildcards()) {
+            throw new IllegalArgumentException("Paths to change can't have wildcards: " + path);
         }
+    }
 
-        result.append(indentation).append("}\n");
+    private static TextSetting block(String key, Map<String, TextSetting> children) {
+        TextSetting result = new TextSetting();
+        result.key = key;
+        result.children = children;
+        return result;
     }
 }
@@ -0,0 +1,292 @@
+package me.fru1t.csgo_server_manager.files;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import javax.annotation.Nullable;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>Caches parsed TextSetting trees so that files read over and over, such as on every page
+ * render or by every server instance, are only parsed once. TextSettings are never modified once
+ * built, so the same tree is handed out to every caller.</p>
+ * <p>A cached tree is reused as long as its file's modified time and size haven't changed. If
+ * they have, the file is hashed, and the tree is still reused if its contents turn out to be the
+ * same, either as before or as another cached file's. Trees are evicted least recently used first
+ * once the files they were parsed from add up to more than the configured number of bytes.</p>
+ * <p>Directories may also be {@link #watch(Path) watched}, in which case entries are dropped as
+ * soon as their file changes rather than when they're next asked for.</p>
+ * <p>Caches may also keep {@link TextSettingSnapshot snapshots} of the files they parse, so that
+ * files aren't parsed again after a restart either.</p>
+ */
+public class TextSettingCache implements Closeable {
+    private static final HashFunction CONTENT_HASH = Hashing.murmur3_128();
+
+    private static final class Entry {
+        final long modifiedTime;
+        final long size;
+        final HashCode contentHash;
+        @Nullable
+        final TextSetting setting;
+
+        Entry(long modifiedTime, long size, HashCode contentHash, @Nullable TextSetting setting) {
+            this.modifiedTime = modifiedTime;
+            this.size = size;
+            this.contentHash = contentHash;
+            this.setting = setting;
+        }
+    }
+
+    private final long maxBytes;
+    private final boolean useSnapshots;
+
+    // Guarded by this. Iterates least recently used first.
+    private final LinkedHashMap<Path, Entry> entries;
+    private final Map<HashCode, Entry> entriesByHash;
+    private long currentBytes;
+
+    private final AtomicLong hitCount;
+    private final AtomicLong missCount;
+    private final AtomicLong evictionCount;
+
+    @Nullable
+    private WatchService watchService;
+
+    /**
+     * @param maxBytes The most bytes worth of files to keep parsed trees of.
+     */
+    public TextSettingCache(long maxBytes) {
+        this(maxBytes, false);
+    }
+
+    /**
+     * @param maxBytes The most bytes worth of files to keep parsed trees of.
+     * @param useSnapshots Whether to load files from their snapshots when they're up to date, and
+     * save snapshots of files that have to be parsed.
+     */
+    public TextSettingCache(long maxBytes, boolean useSnapshots) {
+        this.maxBytes = maxBytes;
+        this.useSnapshots = useSnapshots;
+        entries = new LinkedHashMap<>(16, 0.75f, true);
+        entriesByHash = new HashMap<>();
+        currentBytes = 0;
+        hitCount = new AtomicLong();
+        missCount = new AtomicLong();
+        evictionCount = new AtomicLong();
+        watchService = null;
+    }
+
+    /**
+     * Returns the parsed contents of the given UTF-8 encoded file, parsing it only if it's changed
+     * since it was last asked for.
+     * @return The processed file in TextSetting form, or null if the file contains no settings.
+     * @throws IOException Thrown if the file can't be read.
+     */
+    @Nullable
+    public TextSetting get(Path file) throws IOException, InvalidFileFormatException {
+        Path path = file.toAbsolutePath().normalize();
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        long modifiedTime = attributes.lastModifiedTime().toMillis();
+        long size = attributes.size();
+
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(path);
+        }
+        if (entry != null && entry.modifiedTime == modifiedTime && entry.size == size) {
+            hitCount.incrementAndGet();
+            return entry.setting;
+        }
+
+        // The file may have only been touched, or may be a copy of another cached file
+        byte[] content = Files.readAllBytes(path);
+        HashCode contentHash = CONTENT_HASH.hashBytes(content);
+        synchronized (this) {
+            Entry sameContent = entry != null && entry.contentHash.equals(contentHash)
+                ? entry : entriesByHash.get(contentHash);
+            if (sameContent != null) {
+                hitCount.incrementAndGet();
+                put(path, new Entry(modifiedTime, content.length, contentHash,
+                    sameContent.setting));
+                return sameContent.setting;
+            }
+        }
+
+        missCount.incrementAndGet();
+        TextSetting setting = useSnapshots
+            ? TextSettingSnapshot.load(path, modifiedTime, content.length, contentHash) : null;
+        if (setting == null) {
+            setting = TextSettingUtil.processFile(ByteBuffer.wrap(content));
+            if (useSnapshots && setting != null) {
+                TextSettingSnapshot.tryWrite(path, setting, modifiedTime, content.length,
+                    contentHash);
+            }
+        }
+        synchronized (this) {
+            put(path, new Entry(modifiedTime, content.length, contentHash, setting));
+        }
+        return setting;
+    }
+
+    /**
+     * Drops the cached tree for the given file, if there is one.
+     */
+    public synchronized void invalidate(Path file) {
+        Entry entry = entries.remove(file.toAbsolutePath().normalize());
+        if (entry != null) {
+            removed(entry);
+        }
+    }
+
+    /**
+     * Drops every cached tree.
+     */
+    public synchronized void invalidateAll() {
+        entries.clear();
+        entriesByHash.clear();
+        currentBytes = 0;
+    }
+
+    /**
+     * Starts dropping cached trees as soon as their file within the given directory is modified
+     * or deleted. Subdirectories aren't watched.
+     * @throws IOException Thrown if the directory can't be watched.
+     */
+    public void watch(Path directory) throws IOException {
+        WatchService service;
+        synchronized (this) {
+            if (watchService == null) {
+                watchService = FileSystems.getDefault().newWatchService();
+                Thread watcher = new Thread(this::processWatchEvents, "TextSettingCache-watcher");
+                watcher.setDaemon(true);
+                watcher.start();
+            }
+            service = watchService;
+        }
+        directory.toAbsolutePath().normalize().register(service,
+            StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE,
+            StandardWatchEventKinds.ENTRY_CREATE);
+    }
+
+    /**
+     * Stops watching directories. Cached trees are kept.
+     */
+    @Override
+    public void close() throws IOException {
+        WatchService service;
+        synchronized (this) {
+            service = watchService;
+            watchService = null;
+        }
+        if (service != null) {
+            service.close();
+        }
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    /**
+     * @return The number of bytes worth of files currently cached.
+     */
+    public synchronized long getCachedBytes() {
+        return currentBytes;
+    }
+
+    private void processWatchEvents() {
+        WatchService service;
+        synchronized (this) {
+            service = watchService;
+        }
+        if (service == null) {
+            return;
+        }
+
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                Path directory = (Path) key.watchable();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        invalidateDirectory(directory);
+                    } else {
+                        invalidate(directory.resolve((Path) event.context()));
+                    }
+                }
+                key.reset();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Done watching
+        }
+    }
+
+    private synchronized void invalidateDirectory(Path directory) {
+        Iterator<Map.Entry<Path, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Path, Entry> entry = it.next();
+            if (directory.equals(entry.getKey().getParent())) {
+                it.remove();
+                removed(entry.getValue());
+            }
+        }
+    }
+
+    // Must hold the lock
+    private void put(Path path, Entry entry) {
+        Entry previous = entries.remove(path);
+        if (previous != null) {
+            removed(previous);
+        }
+
+        // Files too large to ever fit are simply not cached
+        if (entry.size > maxBytes) {
+            return;
+        }
+
+        entries.put(path, entry);
+        entriesByHash.put(entry.contentHash, entry);
+        currentBytes += entry.size;
+
+        Iterator<Entry> it = entries.values().iterator();
+        while (currentBytes > maxBytes && it.hasNext()) {
+            Entry eldest = it.next();
+            it.remove();
+            removed(eldest);
+            evictionCount.incrementAndGet();
+        }
+    }
+
+    // Must hold the lock
+    private void removed(Entry entry) {
+        currentBytes -= entry.size;
+        if (entriesByHash.get(entry.contentHash) == entry) {
+            entriesByHash.remove(entry.contentHash);
+        }
+    }
+}
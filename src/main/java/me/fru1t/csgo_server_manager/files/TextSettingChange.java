@@ -0,0 +1,43 @@
+package me.fru1t.csgo_server_manager.files;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import javax.annotation.Nullable;
+
+/**
+ * A difference between two revisions of a TextSetting tree, as found by
+ * {@link TextSettingRevisionStore#diff(TextSettingRevision, TextSettingRevision)}.
+ */
+@Getter
+@RequiredArgsConstructor
+public final class TextSettingChange {
+    public enum Type {
+        ADDED, REMOVED, CHANGED
+    }
+
+    private final Type type;
+
+    /**
+     * The setting's path relative to the root, as {@link TextSettingQuery#toString()} gives it, or
+     * empty if the root itself changed.
+     */
+    private final String path;
+
+    /**
+     * The setting before the change, or null if it was added.
+     */
+    @Nullable
+    private final TextSetting before;
+
+    /**
+     * The setting after the change, or null if it was removed.
+     */
+    @Nullable
+    private final TextSetting after;
+
+    @Override
+    public String toString() {
+        return type + " " + path;
+    }
+}
@@ -0,0 +1,32 @@
+package me.fru1t.csgo_server_manager.files;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * A problem found in a valve settings file by a lenient {@link TextSettingReader}, and where it
+ * was found.
+ */
+@Getter
+@RequiredArgsConstructor
+public final class TextSettingDiagnostic {
+    /**
+     * 1-based.
+     */
+    private final int line;
+
+    /**
+     * 1-based, in characters.
+     */
+    private final int column;
+
+    private final String message;
+
+    /**
+     * @return As in "Line 3, column 5: It's simply an invalid character."
+     */
+    @Override
+    public String toString() {
+        return "Line " + line + ", column " + column + ": " + message;
+    }
+}
@@ -0,0 +1,667 @@
+package me.fru1t.csgo_server_manager.files;
+
+import com.google.common.base.Preconditions;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * <p>A valve settings file that's kept alongside its original bytes, for files that are edited
+ * and saved over and over. Every setting remembers the byte range it was parsed from, so an edit
+ * only re-tokenizes the few settings around it and everything else in the file keeps its original
+ * bytes, formatting and comments. The cost of an edit scales with the size of the edit rather
+ * than the size of the file.</p>
+ * <p>Byte ranges are stored relative to the enclosing block, so an edit only has to adjust the
+ * blocks it's nested in and the settings that follow it within each of those blocks.</p>
+ * <p>Paths are lists of keys starting below the root setting. As with
+ * {@link TextSettingUtil#processFile(Path)}, when a key is repeated within a block, the last one
+ * wins.</p>
+ * <p>A document makes a lossless round trip of a file. Its contents keep every comment, blank
+ * line, repeated key and the original whitespace, and {@link #update(TextSetting)} with an edited
+ * copy of its root only rewrites the settings that were edited. Saving a file that hasn't changed
+ * writes back the same bytes, and saving one that has only differs where it changed, so change
+ * detection and delta syncing to servers see only real changes.</p>
+ */
+public class TextSettingDocument {
+    private static final class Node {
+        // Null for the node representing the whole document
+        @Nullable
+        final String key;
+
+        // Offset of the key's opening quote mark, relative to the parent's start
+        int start;
+
+        // Through the value's closing quote mark, or the block's closing brace
+        int length;
+
+        // Relative to this node's start. Values point at the value's content, blocks at the
+        // opening brace.
+        int valueStart;
+        int valueLength;
+
+        // In file order, including duplicate keys. Null for values.
+        @Nullable
+        List<Node> children;
+
+        @Nullable
+        TextSetting setting;
+
+        Node(@Nullable String key) {
+            this.key = key;
+        }
+
+        int end() {
+            return start + length;
+        }
+    }
+
+    private byte[] content;
+    private Node document;
+    @Nullable
+    private TextSetting root;
+
+    private TextSettingDocument(byte[] content, List<Node> topLevel)
+        throws InvalidFileFormatException {
+        setDocument(content, topLevel);
+    }
+
+    /**
+     * Parses the given UTF-8 encoded file contents into a document.
+     */
+    public static TextSettingDocument parse(byte[] content) throws InvalidFileFormatException {
+        byte[] copy = Arrays.copyOf(content, content.length);
+        return new TextSettingDocument(copy, parseEntries(copy, 0, copy.length, 0));
+    }
+
+    /**
+     * Reads and parses the given UTF-8 encoded file into a document.
+     * @throws IOException Thrown if the file can't be read.
+     */
+    public static TextSettingDocument load(Path file)
+        throws IOException, InvalidFileFormatException {
+        byte[] content = Files.readAllBytes(file);
+        return new TextSettingDocument(content, parseEntries(content, 0, content.length, 0));
+    }
+
+    /**
+     * @return The settings in this document, exactly as {@link TextSettingUtil#processFile(Path)}
+     * would return them for the document's current contents.
+     */
+    @Nullable
+    public TextSetting getRoot() {
+        return root;
+    }
+
+    /**
+     * @return A copy of the document's current contents.
+     */
+    public byte[] getContent() {
+        return Arrays.copyOf(content, content.length);
+    }
+
+    /**
+     * @return The size of the document's current contents in bytes.
+     */
+    public int size() {
+        return content.length;
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(content);
+    }
+
+    /**
+     * Writes the document's current contents to the given file, replacing it atomically, as
+     * {@link TextSettingUtil#writeFile(Path, TextSetting)} does.
+     */
+    public void save(Path file) throws IOException {
+        TextSettingUtil.writeFileAtomically(file, ByteBuffer.wrap(content));
+    }
+
+    /**
+     * Replaces a range of the document's contents, as a text editor would, and brings the parsed
+     * settings up to date by re-tokenizing only the settings that the edit touches.
+     * @param offset The byte offset to start replacing at.
+     * @param length The number of bytes to replace.
+     * @param replacement The text to put in their place.
+     * @throws InvalidFileFormatException Thrown if the edit leaves the file malformed. The
+     * document is left unchanged.
+     */
+    public void applyEdit(int offset, int length, String replacement)
+        throws InvalidFileFormatException {
+        Preconditions.checkPositionIndexes(offset, offset + length, content.length);
+        byte[] replacementBytes = replacement.getBytes(StandardCharsets.UTF_8);
+        int delta = replacementBytes.length - length;
+        byte[] newContent = new byte[content.length + delta];
+        System.arraycopy(content, 0, newContent, 0, offset);
+        System.arraycopy(replacementBytes, 0, newContent, offset, replacementBytes.length);
+        System.arraycopy(content, offset + length, newContent, offset + replacementBytes.length,
+            content.length - offset - length);
+
+        // Find the innermost block that wholly contains the edit, along with the blocks it's
+        // nested in and where each sits within its parent
+        List<Node> chain = new ArrayList<>();
+        List<Integer> chainIndices = new ArrayList<>();
+        chain.add(document);
+        chainIndices.add(-1);
+        Node container = document;
+        int containerStart = 0;
+        while (true) {
+            int index = findContainingBlock(container, containerStart, offset, offset + length);
+            if (index < 0) {
+                break;
+            }
+            container = container.children.get(index);
+            containerStart += container.start;
+            chain.add(container);
+            chainIndices.add(index);
+        }
+
+        // Grow the edited range out to whole lines and whole settings, so re-tokenizing it can't
+        // start or end partway through a string, comment or setting. Line breaks can't be inside
+        // either, and a block's braces are always tokens of their own.
+        List<Node> children = container.children;
+        int interiorStart = containerStart + container.valueStart + 1;
+        int interiorEnd = containerStart + container.length - 1;
+        int regionStart = offset;
+        int regionEnd = offset + length;
+        int first;
+        int last;
+        while (true) {
+            int newStart = Math.max(lineStart(content, regionStart), interiorStart);
+            int newEnd = Math.min(lineEnd(content, regionEnd), interiorEnd);
+            first = firstChildEndingAtOrAfter(children, newStart - containerStart);
+            last = first;
+            while (last < children.size() && containerStart + children.get(last).start <= newEnd) {
+                ++last;
+            }
+            if (first < last) {
+                newStart = Math.min(newStart, containerStart + children.get(first).start);
+                newEnd = Math.max(newEnd, containerStart + children.get(last - 1).end());
+            }
+            if (newStart == regionStart && newEnd == regionEnd) {
+                break;
+            }
+            regionStart = newStart;
+            regionEnd = newEnd;
+        }
+
+        List<Node> replacementNodes;
+        try {
+            replacementNodes =
+                parseEntries(newContent, regionStart, regionEnd + delta, containerStart);
+        } catch (InvalidFileFormatException e) {
+            // The edit changed the structure beyond the settings around it, for example by
+            // unbalancing a brace. Fall back to parsing the whole file, which also reports the
+            // problem with an accurate line number if the file really is malformed.
+            setDocument(newContent, parseEntries(newContent, 0, newContent.length, 0));
+            return;
+        }
+
+        // Splice in the re-tokenized settings and shift everything after them
+        content = newContent;
+        children.subList(first, last).clear();
+        children.addAll(first, replacementNodes);
+        for (int i = first + replacementNodes.size(); i < children.size(); ++i) {
+            children.get(i).start += delta;
+        }
+        for (int i = chain.size() - 1; i > 0; --i) {
+            List<Node> siblings = chain.get(i - 1).children;
+            for (int j = chainIndices.get(i) + 1; j < siblings.size(); ++j) {
+                siblings.get(j).start += delta;
+            }
+        }
+        for (int i = chain.size() - 1; i >= 0; --i) {
+            Node node = chain.get(i);
+            node.length += delta;
+            if (node != document) {
+                node.setting = buildSetting(node);
+            }
+        }
+        root = buildRoot();
+    }
+
+    /**
+     * Sets the value of an existing key-value setting, leaving the rest of the file untouched.
+     * @throws IllegalArgumentException Thrown if the path doesn't lead to a key-value setting.
+     */
+    public void setValue(List<String> path, String value) throws InvalidFileFormatException {
+        int[] nodeStart = new int[1];
+        Node node = find(path, nodeStart);
+        if (node == null || node.children != null) {
+            throw new IllegalArgumentException("No key-value setting at " + path);
+        }
+        applyEdit(nodeStart[0] + node.valueStart, node.valueLength, value);
+    }
+
+    /**
+     * Adds a setting to a block, or replaces the setting with the same key if there's already one.
+     * Only the given setting is serialized; the rest of the file is left untouched.
+     * @param parentPath The path to the block to put the setting in. An empty path is the root.
+     * @throws IllegalArgumentException Thrown if the path doesn't lead to a block.
+     * @throws InvalidTextSettingException Thrown if the given setting is invalid.
+     */
+    public void put(List<String> parentPath, TextSetting setting)
+        throws InvalidFileFormatException, InvalidTextSettingException {
+        int[] parentStart = new int[1];
+        Node parent = find(parentPath, parentStart);
+        if (parent == null || parent.children == null) {
+            throw new IllegalArgumentException("No block at " + parentPath);
+        }
+
+        // Replace an existing setting in place
+        List<Node> siblings = childrenOf(parent);
+        for (int i = siblings.size() - 1; i >= 0; --i) {
+            Node existing = siblings.get(i);
+            if (setting.getKey().equals(existing.key)) {
+                int existingStart = childStart(parent, parentStart[0], existing);
+                String indentation = indentationAt(existingStart);
+                applyEdit(existingStart, existing.length, serialize(setting, indentation));
+                return;
+            }
+        }
+
+        // Otherwise add it to the end of the block, matching the indentation of its siblings
+        int closingBrace = parentStart[0] + parent.length - 1;
+        String indentation;
+        if (!parent.children.isEmpty()) {
+            Node lastChild = parent.children.get(parent.children.size() - 1);
+            indentation = indentationAt(parentStart[0] + lastChild.start);
+        } else {
+            indentation = indentationAt(parentStart[0]) + TextSetting.INDENTATION_PATTERN;
+        }
+        int lineStart = lineStart(content, closingBrace);
+        if (isBlank(lineStart, closingBrace)) {
+            applyEdit(lineStart, 0, indentation + serialize(setting, indentation) + "\n");
+        } else {
+            applyEdit(closingBrace, 0, " " + serialize(setting, indentation) + " ");
+        }
+    }
+
+    /**
+     * Removes the setting at the given path, along with any earlier settings of the same key in
+     * its block, which the last one had hidden. Settings on lines of their own are removed with
+     * their whole line, including any comment after them. The rest of the file is left
+     * untouched.
+     * @return Whether there was a setting to remove.
+     * @throws IllegalArgumentException Thrown if the path is empty, as the root can't be removed.
+     */
+    public boolean remove(List<String> path) throws InvalidFileFormatException {
+        if (path.isEmpty()) {
+            throw new IllegalArgumentException("The root setting can't be removed.");
+        }
+        boolean isRemoved = false;
+        int[] nodeStart = new int[1];
+        Node node;
+        while ((node = find(path, nodeStart)) != null) {
+            int start = nodeStart[0];
+            int end = start + node.length;
+            int lineStart = lineStart(content, start);
+            int lineEnd = lineEnd(content, end);
+            if (isBlank(lineStart, start) && isBlankOrComment(end, lineEnd)) {
+                start = lineStart;
+                end = lineEnd;
+                if (end < content.length && content[end] == '\r') {
+                    ++end;
+                }
+                if (end < content.length && content[end] == '\n') {
+                    ++end;
+                }
+            }
+            applyEdit(start, end - start, "");
+            isRemoved = true;
+        }
+        return isRemoved;
+    }
+
+    /**
+     * Brings the document up to date with the given root setting, usually an edited copy of
+     * {@link #getRoot()}, by only editing the settings that differ, as {@link #setValue},
+     * {@link #put} and {@link #remove} would. Settings that are the same, which
+     * {@link TextSetting#with(String, String)} and {@link TextSettingPatch} share with the
+     * original, keep their bytes, so updating a document with its own root leaves it exactly as
+     * it was. Settings keep their place in the file, and new settings are added to the end of
+     * their block. A root with a different key, or that isn't a block, replaces the whole root.
+     * @throws InvalidTextSettingException Thrown if any changed setting is invalid. The document
+     * is left unchanged.
+     */
+    public void update(TextSetting setting)
+        throws InvalidFileFormatException, InvalidTextSettingException {
+        TextSetting current = root;
+        if (current == setting) {
+            return;
+        }
+        byte[] original = content;
+        try {
+            if (current == null || !current.key.equals(setting.key) || current.children == null
+                || setting.children == null) {
+                replaceRoot(setting);
+            } else {
+                update(new ArrayList<>(), current, setting);
+            }
+        } catch (InvalidFileFormatException | InvalidTextSettingException | RuntimeException e) {
+            // Edits mutate the parsed settings in place, so they're parsed again from scratch
+            setDocument(original, parseEntries(original, 0, original.length, 0));
+            throw e;
+        }
+    }
+
+    private void update(List<String> path, TextSetting current, TextSetting updated)
+        throws InvalidFileFormatException, InvalidTextSettingException {
+        if (current == updated) {
+            return;
+        }
+        if (!updated.isValid().passed) {
+            throw new InvalidTextSettingException(
+                "Can't update with an invalid setting: " + updated.key);
+        }
+        if (updated.children == null) {
+            if (!updated.value.equals(current.value)) {
+                setValue(path, updated.value);
+            }
+            return;
+        }
+
+        for (String key : current.children.keySet()) {
+            if (!updated.children.containsKey(key)) {
+                path.add(key);
+                remove(path);
+                path.remove(path.size() - 1);
+            }
+        }
+        for (TextSetting child : updated.children.values()) {
+            TextSetting existing = current.children.get(child.key);
+            if (existing == null || (existing.children == null) != (child.children == null)) {
+                put(path, child);
+                continue;
+            }
+            path.add(child.key);
+            update(path, existing, child);
+            path.remove(path.size() - 1);
+        }
+    }
+
+    // Replaces the root and any top-level settings after it, keeping anything before the root,
+    // such as a leading comment
+    private void replaceRoot(TextSetting setting)
+        throws InvalidFileFormatException, InvalidTextSettingException {
+        String serialized = serialize(setting, "");
+        Node rootNode = root();
+        if (rootNode == null) {
+            int end = content.length;
+            boolean needsLineBreak = end > 0 && content[end - 1] != '\n';
+            applyEdit(end, 0, (needsLineBreak ? "\n" : "") + serialized + "\n");
+            return;
+        }
+        Node last = document.children.get(document.children.size() - 1);
+        applyEdit(rootNode.start, last.end() - rootNode.start, serialized);
+    }
+
+    private void setDocument(byte[] content, List<Node> topLevel)
+        throws InvalidFileFormatException {
+        Node document = new Node(null);
+        document.start = 0;
+        document.valueStart = -1;
+        document.length = content.length + 1;
+        document.children = topLevel;
+        this.content = content;
+        this.document = document;
+        root = buildRoot();
+    }
+
+    @Nullable
+    private Node root() {
+        return document.children.isEmpty() ? null : document.children.get(0);
+    }
+
+    // The root's children, followed by any top-level settings after the root, which are treated as
+    // its children too
+    private List<Node> childrenOf(Node node) {
+        if (node != root() || document.children.size() == 1) {
+            return node.children;
+        }
+        List<Node> result = new ArrayList<>(node.children);
+        result.addAll(document.children.subList(1, document.children.size()));
+        return result;
+    }
+
+    // Finds a node by path. The absolute start of the found node is written to nodeStart.
+    @Nullable
+    private Node find(List<String> path, int[] nodeStart) {
+        Node node = root();
+        if (node == null) {
+            return null;
+        }
+        int start = node.start;
+        for (int i = 0; i < path.size(); ++i) {
+            if (node.children == null) {
+                return null;
+            }
+            List<Node> candidates = i == 0 ? childrenOf(node) : node.children;
+            Node found = null;
+            for (int j = candidates.size() - 1; j >= 0 && found == null; --j) {
+                if (path.get(i).equals(candidates.get(j).key)) {
+                    found = candidates.get(j);
+                }
+            }
+            if (found == null) {
+                return null;
+            }
+
+            start = childStart(node, start, found);
+            node = found;
+        }
+        nodeStart[0] = start;
+        return node;
+    }
+
+    // Top-level settings after the root are treated as its children, but are positioned relative
+    // to the document
+    private int childStart(Node parent, int parentStart, Node child) {
+        return parent == root() && !parent.children.contains(child)
+            ? child.start : parentStart + child.start;
+    }
+
+    // Children are in file order, so their ends are sorted too
+    private static int firstChildEndingAtOrAfter(List<Node> children, int offset) {
+        int low = 0;
+        int high = children.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (children.get(mid).end() < offset) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Returns the index of the child block whose interior wholly contains the given range, or -1
+    private static int findContainingBlock(Node container, int containerStart, int from, int to) {
+        List<Node> children = container.children;
+        int low = 0;
+        int high = children.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            Node child = children.get(mid);
+            int childStart = containerStart + child.start;
+            if (childStart + child.length <= from) {
+                low = mid + 1;
+            } else if (childStart > to) {
+                high = mid - 1;
+            } else {
+                return child.children != null
+                    && childStart + child.valueStart + 1 <= from
+                    && to <= childStart + child.length - 1 ? mid : -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Parses the settings within the given range of the content, which must hold nothing but
+     * complete settings. The returned nodes are positioned relative to parentStart.
+     */
+    private static List<Node> parseEntries(byte[] content, int from, int to, int parentStart)
+        throws InvalidFileFormatException {
+        MappedTextSettingProcessor processor =
+            new MappedTextSettingProcessor(ByteBuffer.wrap(content, from, to - from));
+        TextSettingReader reader = new TextSettingReader(processor);
+        Deque<Node> openBlocks = new ArrayDeque<>();
+        List<Node> result = new ArrayList<>();
+        while (true) {
+            Node node;
+            switch (reader.next()) {
+                case START_BLOCK:
+                    // Blocks are kept positioned absolutely until they're closed
+                    node = new Node(reader.getKey());
+                    node.start = processor.getMarkedTokenStart() - 1;
+                    node.valueStart = processor.getTokenStart() - node.start;
+                    node.children = new ArrayList<>();
+                    openBlocks.push(node);
+                    continue;
+
+                case KEY_VALUE:
+                    node = new Node(reader.getKey());
+                    node.start = processor.getMarkedTokenStart() - 1;
+                    node.valueStart = processor.getTokenStart() - node.start;
+                    node.valueLength = processor.getTokenLength();
+                    node.length = node.valueStart + node.valueLength + 1;
+                    try {
+                        node.setting = TextSetting.builder()
+                            .key(node.key)
+                            .value(reader.getValue())
+                            .build();
+                    } catch (InvalidTextSettingException e) {
+                        throw new InvalidFileFormatException(e.getMessage());
+                    }
+                    break;
+
+                case END_BLOCK:
+                    node = openBlocks.pop();
+                    node.length = processor.getTokenStart() + 1 - node.start;
+                    for (Node child : node.children) {
+                        child.start -= node.start;
+                    }
+                    node.setting = buildSetting(node);
+                    break;
+
+                case COMMENT:
+                    // A comment running right up to the end of a partial range would have
+                    // swallowed whatever follows it on the same line
+                    int commentEnd = processor.getTokenStart() + processor.getTokenLength();
+                    if (commentEnd == to && to < content.length
+                        && content[to] != '\n' && content[to] != '\r') {
+                        throw new InvalidFileFormatException("Comment runs past the parsed range.");
+                    }
+                    continue;
+
+                case END_OF_FILE:
+                default:
+                    return result;
+            }
+
+            if (openBlocks.isEmpty()) {
+                node.start -= parentStart;
+                result.add(node);
+            } else {
+                openBlocks.peek().children.add(node);
+            }
+        }
+    }
+
+    // Rebuilds a block's setting from its children's
+    private static TextSetting buildSetting(Node node) throws InvalidFileFormatException {
+        if (node.children == null) {
+            return node.setting;
+        }
+        try {
+            TextSetting.TextSettingBuilder builder =
+                TextSetting.builder().key(node.key).startChildBlock();
+            for (Node child : node.children) {
+                builder.addChild(child.setting);
+            }
+            return builder.build();
+        } catch (InvalidTextSettingException e) {
+            throw new InvalidFileFormatException(e.getMessage());
+        }
+    }
+
+    @Nullable
+    private TextSetting buildRoot() throws InvalidFileFormatException {
+        Node rootNode = root();
+        if (rootNode == null) {
+            return null;
+        }
+        if (document.children.size() == 1 || rootNode.children == null) {
+            return rootNode.setting;
+        }
+        try {
+            TextSetting.TextSettingBuilder builder =
+                TextSetting.builder().key(rootNode.key).startChildBlock();
+            for (Node child : childrenOf(rootNode)) {
+                builder.addChild(child.setting);
+            }
+            return builder.build();
+        } catch (InvalidTextSettingException e) {
+            throw new InvalidFileFormatException(e.getMessage());
+        }
+    }
+
+    private String serialize(TextSetting setting, String indentation)
+        throws InvalidTextSettingException {
+        String result = setting.toFileString();
+        result = result.substring(0, result.length() - 1);
+        return result.replace("\n", "\n" + indentation);
+    }
+
+    // The whitespace between the start of the line and the given offset, or nothing if there's
+    // more than whitespace
+    private String indentationAt(int offset) {
+        int lineStart = lineStart(content, offset);
+        return isBlank(lineStart, offset)
+            ? new String(content, lineStart, offset - lineStart, StandardCharsets.UTF_8) : "";
+    }
+
+    private boolean isBlank(int from, int to) {
+        for (int i = from; i < to; ++i) {
+            if (content[i] != ' ' && content[i] != '\t') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Whether there's nothing in the given range but whitespace and perhaps a comment
+    private boolean isBlankOrComment(int from, int to) {
+        while (from < to && (content[from] == ' ' || content[from] == '\t')) {
+            ++from;
+        }
+        return from == to || (from + 1 < to && content[from] == '/' && content[from + 1] == '/');
+    }
+
+    private static int lineStart(byte[] content, int offset) {
+        while (offset > 0 && content[offset - 1] != '\n' && content[offset - 1] != '\r') {
+            --offset;
+        }
+        return offset;
+    }
+
+    private static int lineEnd(byte[] content, int offset) {
+        while (offset < content.length && content[offset] != '\n' && content[offset] != '\r') {
+            ++offset;
+        }
+        return offset;
+    }
+}
@@ -0,0 +1,29 @@
+package me.fru1t.csgo_server_manager.files;
+
+/**
+ * Receives the contents of a valve settings file as a stream of events, in file order. Used with
+ * {@link TextSettingUtil#processFile(java.util.Scanner, TextSettingHandler)} to consume files that
+ * are too large to comfortably hold as a single {@link TextSetting} tree.
+ */
+public interface TextSettingHandler {
+    /**
+     * Called when a key that begins a child block is read. Every call is eventually matched by a
+     * call to {@link #endBlock()}.
+     */
+    void startBlock(String key) throws InvalidFileFormatException;
+
+    /**
+     * Called when a key and its value are read.
+     */
+    void keyValue(String key, String value) throws InvalidFileFormatException;
+
+    /**
+     * Called when the most recently started, unclosed child block ends.
+     */
+    void endBlock() throws InvalidFileFormatException;
+
+    /**
+     * Called when a comment is read. The text doesn't include the leading "//".
+     */
+    void comment(String text) throws InvalidFileFormatException;
+}
@@ -0,0 +1,90 @@
+package me.fru1t.csgo_server_manager.files;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import lombok.Getter;
+
+import javax.annotation.Nullable;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>Every setting within a TextSetting tree by its path, so that settings looked up over and
+ * over, such as on every page render, are found in constant time rather than by walking the tree
+ * each time.</p>
+ * <p>Paths are as {@link TextSettingQuery#toString()} gives them, relative to the root. Building
+ * an index walks and holds a path for every setting in the tree, so it's best kept alongside the
+ * tree for as long as the tree's used, rather than rebuilt.</p>
+ */
+public final class TextSettingIndex {
+    @Getter
+    private final TextSetting root;
+    private final ImmutableMap<String, TextSetting> settings;
+
+    private TextSettingIndex(TextSetting root, ImmutableMap<String, TextSetting> settings) {
+        this.root = root;
+        this.settings = settings;
+    }
+
+    /**
+     * Indexes every setting within the given tree, excluding the root itself.
+     */
+    public static TextSettingIndex of(TextSetting root) {
+        ImmutableMap.Builder<String, TextSetting> settings = ImmutableMap.builder();
+
+        // Blocks still to be indexed, by the prefix of their children's paths
+        Deque<Map.Entry<String, TextSetting>> blocks = new ArrayDeque<>();
+        if (root.children != null) {
+            blocks.push(new SimpleImmutableEntry<>("", root));
+        }
+        while (!blocks.isEmpty()) {
+            Map.Entry<String, TextSetting> block = blocks.pop();
+            for (TextSetting child : block.getValue().children.values()) {
+                String path = block.getKey() + TextSettingQuery.escape(child.key);
+                settings.put(path, child);
+                if (child.children != null) {
+                    blocks.push(new SimpleImmutableEntry<>(path + "/", child));
+                }
+            }
+        }
+        return new TextSettingIndex(root, settings.build());
+    }
+
+    /**
+     * @return The setting at the given path, or null if there's none. Wildcards aren't expanded.
+     */
+    @Nullable
+    public TextSetting get(String path) {
+        return settings.get(path);
+    }
+
+    /**
+     * @return The first setting the given query matches, or null if there are none. Queries
+     * without wildcards are answered from the index; the rest are evaluated against the root.
+     */
+    @Nullable
+    public TextSetting get(TextSettingQuery query) {
+        return query.hasWildcards() ? query.first(root) : settings.get(query.toString());
+    }
+
+    /**
+     * @return Every setting the given query matches, in iteration order.
+     */
+    public List<TextSetting> getAll(TextSettingQuery query) {
+        if (query.hasWildcards()) {
+            return query.all(root);
+        }
+        TextSetting setting = settings.get(query.toString());
+        return setting == null ? ImmutableList.of() : ImmutableList.of(setting);
+    }
+
+    /**
+     * @return The number of settings indexed.
+     */
+    public int size() {
+        return settings.size();
+    }
+}
@@ -0,0 +1,48 @@
+package me.fru1t.csgo_server_manager.files;
+
+import com.google.common.collect.ImmutableList;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import javax.annotation.Nullable;
+import java.util.Map;
+
+/**
+ * What a lenient parse made of a file: every setting that could be read, and every problem found
+ * along the way. See {@link TextSettingUtil#processFileLeniently(java.nio.file.Path)}.
+ */
+@RequiredArgsConstructor
+public final class TextSettingParseResult {
+    /**
+     * Every setting that could be read, or null if none could.
+     */
+    @Getter
+    @Nullable
+    private final TextSetting setting;
+
+    /**
+     * In the order they were found, which is file order.
+     */
+    @Getter
+    private final ImmutableList<TextSettingDiagnostic> diagnostics;
+
+    // By identity, for every setting within the tree
+    private final Map<TextSetting, TextSettingPosition> positions;
+
+    /**
+     * @return Where the given setting, from within this result's tree, was read from, or null if
+     * it isn't from this result.
+     */
+    @Nullable
+    public TextSettingPosition getPosition(TextSetting setting) {
+        return positions.get(setting);
+    }
+
+    /**
+     * @return Whether the file parsed without problems, in which case the setting is exactly what
+     * a strict parse would have made of it.
+     */
+    public boolean isClean() {
+        return diagnostics.isEmpty();
+    }
+}
@@ -0,0 +1,76 @@
+package me.fru1t.csgo_server_manager.files;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <p>Overlays one TextSetting tree, a patch, onto another. Every value in the patch is set at the
+ * same path in the target, replacing whatever was there, and every block in the patch is merged
+ * into the target's block of the same key, or added if there isn't one. Nothing's removed. For
+ * example, patching a {@code gamemodes_server.txt} with:</p>
+ * <pre>
+ * "GameModes_Server.txt"
+ * {
+ *   "gameTypes" { "classic" { "gameModes" { "competitive" { "maxplayers" "12" } } } }
+ * }
+ * </pre>
+ * <p>only changes competitive's {@code maxplayers}, and keeps every other setting.</p>
+ * <p>Patching builds new blocks only along the paths the patch changes, and shares every other
+ * setting with the target, which is left as it was.</p>
+ */
+public final class TextSettingPatch {
+    // Uninstantiable
+    private TextSettingPatch() { }
+
+    /**
+     * @return The target with the patch overlaid, or the target itself if the patch changes
+     * nothing.
+     * @throws InvalidTextSettingException Thrown if the patch and target have different keys, or
+     * either is invalid.
+     */
+    public static TextSetting apply(TextSetting target, TextSetting patch)
+        throws InvalidTextSettingException {
+        if (!target.key.equals(patch.key)) {
+            throw new InvalidTextSettingException("Can't patch " + target.key + " with "
+                + patch.key + ", as their keys differ.");
+        }
+        if (!patch.isValid().passed || !target.isValid().passed) {
+            throw new InvalidTextSettingException("Can't patch with or onto an invalid setting: "
+                + patch.key);
+        }
+        return merge(target, patch);
+    }
+
+    private static TextSetting merge(TextSetting target, TextSetting patch)
+        throws InvalidTextSettingException {
+        if (patch.children == null || target.children == null) {
+            return patch.value != null && patch.value.equals(target.value) ? target : patch;
+        }
+
+        Map<String, TextSetting> children = null;
+        for (TextSetting patchChild : patch.children.values()) {
+            if (!patchChild.isValid().passed) {
+                throw new InvalidTextSettingException(
+                    "Can't patch with an invalid setting: " + patchChild.key);
+            }
+            TextSetting targetChild = target.children.get(patchChild.key);
+            TextSetting merged =
+                targetChild == null ? patchChild : merge(targetChild, patchChild);
+            if (merged == targetChild) {
+                continue;
+            }
+            if (children == null) {
+                children = new LinkedHashMap<>(target.children);
+            }
+            children.put(patchChild.key, merged);
+        }
+        if (children == null) {
+            return target;
+        }
+
+        TextSetting result = new TextSetting();
+        result.key = target.key;
+        result.children = CompactChildMap.copyOf(children);
+        return result;
+    }
+}
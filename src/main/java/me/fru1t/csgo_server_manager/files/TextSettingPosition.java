@@ -0,0 +1,22 @@
+package me.fru1t.csgo_server_manager.files;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Where a setting was read from in a valve settings file: its value's opening quote mark, or its
+ * block's opening brace.
+ */
+@Getter
+@RequiredArgsConstructor
+public final class TextSettingPosition {
+    /**
+     * 1-based.
+     */
+    private final int line;
+
+    /**
+     * 1-based, in characters.
+     */
+    private final int column;
+}
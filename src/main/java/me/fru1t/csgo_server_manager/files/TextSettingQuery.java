@@ -0,0 +1,315 @@
+package me.fru1t.csgo_server_manager.files;
+
+import com.google.common.collect.ImmutableList;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * <p>A compiled path to settings within a TextSetting tree, such as
+ * {@code gameTypes/classic/gameModes/competitive/maxplayers}. Paths are relative to the setting
+ * they're evaluated against, so the first key is that of one of its children.</p>
+ * <p>A key of {@code *} matches every child at that level, for example
+ * <code>gameTypes/classic/gameModes/&#42;/maxplayers</code>. Keys containing
+ * {@code /}, {@code *} or {@code \} escape them with a backslash, which {@link #escape(String)}
+ * does.</p>
+ * <p>Queries are immutable, so may be compiled once and shared. Finding a setting with a query
+ * that has no wildcards allocates nothing.</p>
+ */
+public final class TextSettingQuery {
+    private static final char SEPARATOR = '/';
+    private static final char ESCAPE = '\\';
+    private static final char WILDCARD = '*';
+
+    // Null keys are wildcards
+    private final String[] keys;
+    private final boolean hasWildcards;
+    private final String path;
+
+    private TextSettingQuery(String[] keys, boolean hasWildcards) {
+        this.keys = keys;
+        this.hasWildcards = hasWildcards;
+
+        StringBuilder path = new StringBuilder();
+        for (String key : keys) {
+            if (path.length() > 0) {
+                path.append(SEPARATOR);
+            }
+            path.append(key == null ? WILDCARD : escape(key));
+        }
+        this.path = path.toString();
+    }
+
+    /**
+     * Compiles the given path into a query.
+     * @throws IllegalArgumentException Thrown if the path is empty, contains an empty key, ends in
+     * an escape, or uses a wildcard as only part of a key.
+     */
+    public static TextSettingQuery compile(String path) {
+        List<String> keys = new ArrayList<>();
+        boolean hasWildcards = false;
+        StringBuilder key = new StringBuilder();
+        boolean hasUnescapedWildcard = false;
+        for (int i = 0; i <= path.length(); ++i) {
+            char c = i < path.length() ? path.charAt(i) : SEPARATOR;
+            if (c == ESCAPE) {
+                if (++i >= path.length()) {
+                    throw new IllegalArgumentException("Nothing to escape at the end: " + path);
+                }
+                key.append(path.charAt(i));
+                continue;
+            }
+            if (c != SEPARATOR) {
+                hasUnescapedWildcard |= c == WILDCARD;
+                key.append(c);
+                continue;
+            }
+
+            // End of a key
+            if (key.length() == 0) {
+                throw new IllegalArgumentException("Keys can't be empty: " + path);
+            }
+            if (hasUnescapedWildcard) {
+                if (key.length() != 1) {
+                    throw new IllegalArgumentException(
+                        "Wildcards must make up a whole key: " + path);
+                }
+                keys.add(null);
+                hasWildcards = true;
+            } else {
+                keys.add(key.toString());
+            }
+            key.setLength(0);
+            hasUnescapedWildcard = false;
+        }
+        return new TextSettingQuery(keys.toArray(new String[keys.size()]), hasWildcards);
+    }
+
+    /**
+     * Creates a query for the exact given keys, without any wildcards or escaping.
+     * @throws IllegalArgumentException Thrown if there are no keys, or any are empty.
+     */
+    public static TextSettingQuery of(String... keys) {
+        if (keys.length == 0) {
+            throw new IllegalArgumentException("Queries must have at least one key.");
+        }
+        for (String key : keys) {
+            if (key.isEmpty()) {
+                throw new IllegalArgumentException("Keys can't be empty.");
+            }
+        }
+        return new TextSettingQuery(keys.clone(), false);
+    }
+
+    /**
+     * @return The given key with any characters that have meaning within a path escaped.
+     */
+    public static String escape(String key) {
+        for (int i = 0; i < key.length(); ++i) {
+            char c = key.charAt(i);
+            if (c == SEPARATOR || c == ESCAPE || c == WILDCARD) {
+                StringBuilder escaped = new StringBuilder(key.length() + 4).append(key, 0, i);
+                for (; i < key.length(); ++i) {
+                    c = key.charAt(i);
+                    if (c == SEPARATOR || c == ESCAPE || c == WILDCARD) {
+                        escaped.append(ESCAPE);
+                    }
+                    escaped.append(c);
+                }
+                return escaped.toString();
+            }
+        }
+        return key;
+    }
+
+    /**
+     * @return The first setting this query matches within the given one, in iteration order, or
+     * null if there are none.
+     */
+    @Nullable
+    public TextSetting first(TextSetting setting) {
+        return first(setting, 0);
+    }
+
+    /**
+     * @return The value of the first setting this query matches within the given one, or null if
+     * there is none or it's a block.
+     */
+    @Nullable
+    public String value(TextSetting setting) {
+        TextSetting match = first(setting, 0);
+        return match == null ? null : match.value;
+    }
+
+    /**
+     * @return Every setting this query matches within the given one, in iteration order.
+     */
+    public List<TextSetting> all(TextSetting setting) {
+        ImmutableList.Builder<TextSetting> matches = ImmutableList.builder();
+        forEach(setting, matches::add);
+        return matches.build();
+    }
+
+    /**
+     * Passes every setting this query matches within the given one to the consumer, in iteration
+     * order.
+     */
+    public void forEach(TextSetting setting, Consumer<? super TextSetting> consumer) {
+        forEach(setting, 0, consumer);
+    }
+
+    /**
+     * Like {@link #forEach(TextSetting, Consumer)}, but also passes each match's path relative to
+     * the given setting, with keys escaped, such as {@code gameTypes/classic/gameModes/casual}.
+     */
+    public void forEachWithPath(TextSetting setting,
+        BiConsumer<String, ? super TextSetting> consumer) {
+        forEachWithPath(setting, 0, "", consumer);
+    }
+
+    public boolean hasWildcards() {
+        return hasWildcards;
+    }
+
+    /**
+     * @return The number of keys in this query's path.
+     */
+    public int size() {
+        return keys.length;
+    }
+
+    /**
+     * @return The key at the given depth of this query's path, or null if it's a wildcard.
+     */
+    @Nullable
+    String getKey(int depth) {
+        return keys[depth];
+    }
+
+    /**
+     * @return A query for every key of this one but the last, or null if it only has one.
+     */
+    @Nullable
+    TextSettingQuery getParent() {
+        if (keys.length == 1) {
+            return null;
+        }
+        String[] parentKeys = Arrays.copyOf(keys, keys.length - 1);
+        boolean parentHasWildcards = false;
+        for (String key : parentKeys) {
+            parentHasWildcards |= key == null;
+        }
+        return new TextSettingQuery(parentKeys, parentHasWildcards);
+    }
+
+    /**
+     * @return The last key of this query, or null if it's a wildcard.
+     */
+    @Nullable
+    String getLastKey() {
+        return keys[keys.length - 1];
+    }
+
+    /**
+     * @return The path this query was compiled from, with keys escaped.
+     */
+    @Override
+    public String toString() {
+        return path;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof TextSettingQuery && path.equals(((TextSettingQuery) o).path);
+    }
+
+    @Override
+    public int hashCode() {
+        return path.hashCode();
+    }
+
+    @Nullable
+    private TextSetting first(TextSetting setting, int depth) {
+        // Follow exact keys without recursing
+        while (depth < keys.length && keys[depth] != null) {
+            if (setting.children == null) {
+                return null;
+            }
+            setting = setting.children.get(keys[depth++]);
+            if (setting == null) {
+                return null;
+            }
+        }
+        if (depth == keys.length) {
+            return setting;
+        }
+        if (setting.children == null) {
+            return null;
+        }
+
+        Object[] entries = CompactChildMap.entriesOf(setting.children);
+        for (int i = 1; i < entries.length; i += 2) {
+            TextSetting match = first((TextSetting) entries[i], depth + 1);
+            if (match != null) {
+                return match;
+            }
+        }
+        return null;
+    }
+
+    private void forEach(TextSetting setting, int depth, Consumer<? super TextSetting> consumer) {
+        while (depth < keys.length && keys[depth] != null) {
+            if (setting.children == null) {
+                return;
+            }
+            setting = setting.children.get(keys[depth++]);
+            if (setting == null) {
+                return;
+            }
+        }
+        if (depth == keys.length) {
+            consumer.accept(setting);
+            return;
+        }
+        if (setting.children == null) {
+            return;
+        }
+
+        Object[] entries = CompactChildMap.entriesOf(setting.children);
+        for (int i = 1; i < entries.length; i += 2) {
+            forEach((TextSetting) entries[i], depth + 1, consumer);
+        }
+    }
+
+    private void forEachWithPath(TextSetting setting, int depth, String prefix,
+        BiConsumer<String, ? super TextSetting> consumer) {
+        if (depth == keys.length) {
+            consumer.accept(prefix, setting);
+            return;
+        }
+        if (setting.children == null) {
+            return;
+        }
+        if (keys[depth] != null) {
+            TextSetting child = setting.children.get(keys[depth]);
+            if (child != null) {
+                forEachWithPath(child, depth + 1, append(prefix, keys[depth]), consumer);
+            }
+            return;
+        }
+
+        Object[] entries = CompactChildMap.entriesOf(setting.children);
+        for (int i = 0; i < entries.length; i += 2) {
+            forEachWithPath((TextSetting) entries[i + 1], depth + 1,
+                append(prefix, (String) entries[i]), consumer);
+        }
+    }
+
+    private static String append(String prefix, String key) {
+        return prefix.isEmpty() ? escape(key) : prefix + SEPARATOR + escape(key);
+    }
+}
@@ -0,0 +1,303 @@
+package me.fru1t.csgo_server_manager.files;
+
+import com.google.common.collect.ImmutableList;
+import me.fru1t.csgo_server_manager.files.TextSettingUtil.TextSettingProcessor;
+import me.fru1t.csgo_server_manager.files.TextSettingUtil.TokenType;
+
+import javax.annotation.Nullable;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+
+/**
+ * <p>A pull parser over the valve settings format. Rather than building a {@link TextSetting}
+ * tree, each call to {@link #next()} advances to the next event in the file, whose details may
+ * then be queried from this reader. For example, the following file:</p>
+ * <pre>
+ *     "key1" {
+ *         "key2" "value" // comment
+ *     }
+ * </pre>
+ * <p>produces START_BLOCK (key1), KEY_VALUE (key2, value), COMMENT ( comment), END_BLOCK and
+ * finally END_OF_FILE.</p>
+ * <p>The reader doesn't recurse and only tracks the current nesting depth, so its memory use is
+ * constant regardless of how large or how deeply nested the file is. Keys, values and comments
+ * are only turned into strings when they're asked for; when reading from a {@link ByteBuffer},
+ * stepping through events doesn't allocate at all.</p>
+ */
+public class TextSettingReader {
+    public enum Event {
+        START_BLOCK, KEY_VALUE, END_BLOCK, COMMENT, END_OF_FILE
+    }
+
+    private final TextSettingTokenizer tokenizer;
+    private int depth;
+    private boolean hasPendingKey;
+    @Nullable
+    private Event event;
+
+    private boolean isLenient;
+    private final List<TextSettingDiagnostic> diagnostics;
+    private int skippedDepth;
+    private boolean hasClosedOpenBlocks;
+
+    public TextSettingReader(Scanner fileScanner) {
+        this(new TextSettingProcessor(fileScanner));
+    }
+
+    /**
+     * Creates a reader over the remaining bytes of the given UTF-8 encoded buffer, such as a
+     * memory-mapped file. The buffer's position and limit are left untouched.
+     */
+    public TextSettingReader(ByteBuffer fileBuffer) {
+        this(new MappedTextSettingProcessor(fileBuffer));
+    }
+
+    /**
+     * Creates a reader that interns keys and values through the given symbol table.
+     */
+    public TextSettingReader(Scanner fileScanner, TextSettingSymbolTable symbolTable) {
+        this(new TextSettingProcessor(fileScanner));
+        tokenizer.setSymbolTable(symbolTable);
+    }
+
+    /**
+     * Creates a reader over a UTF-8 encoded buffer that interns keys and values through the given
+     * symbol table. Keys and values that are already in the table are found without decoding them.
+     */
+    public TextSettingReader(ByteBuffer fileBuffer, TextSettingSymbolTable symbolTable) {
+        this(new MappedTextSettingProcessor(fileBuffer));
+        tokenizer.setSymbolTable(symbolTable);
+    }
+
+    TextSettingReader(TextSettingTokenizer tokenizer) {
+        this.tokenizer = tokenizer;
+        depth = 0;
+        hasPendingKey = false;
+        event = null;
+        isLenient = false;
+        diagnostics = new ArrayList<>();
+        skippedDepth = 0;
+        hasClosedOpenBlocks = false;
+    }
+
+    /**
+     * <p>Sets whether to recover from problems in the file rather than throwing, so that every
+     * problem is found in a single pass. Each problem is recorded in
+     * {@link #getDiagnostics()}, and the reader carries on from the nearest point it can make
+     * sense of again:</p>
+     * <ul>
+     *     <li>Invalid characters and unfinished strings or comments skip the rest of their line,
+     *     along with any key on it that's still waiting for its value.</li>
+     *     <li>Child blocks without a key are skipped through to their closing brace.</li>
+     *     <li>Keys without a value before the end of their block, and closing braces without an
+     *     opening one, are skipped.</li>
+     *     <li>Blocks left open at the end of the file are closed.</li>
+     * </ul>
+     * <p>Events are only ever returned for well-formed settings, so the events of a lenient
+     * reader always make up a valid tree, missing whatever was skipped.</p>
+     */
+    public void setLenient(boolean isLenient) {
+        this.isLenient = isLenient;
+    }
+
+    /**
+     * @return Every problem found so far by a lenient reader, in file order.
+     */
+    public ImmutableList<TextSettingDiagnostic> getDiagnostics() {
+        return ImmutableList.copyOf(diagnostics);
+    }
+
+    /**
+     * Advances to the next event in the file. Once END_OF_FILE is reached, further calls
+     * continue to return END_OF_FILE.
+     * @throws InvalidFileFormatException Thrown if the file is malformed at this point.
+     */
+    public Event next() throws InvalidFileFormatException {
+        if (event == Event.END_OF_FILE) {
+            return event;
+        }
+
+        while (true) {
+            TokenType token = tokenizer.nextToken();
+            if (skippedDepth > 0 && token != TokenType.END_OF_FILE && token != TokenType.ERROR) {
+                // Within a block without a key, which lenient readers skip
+                skippedDepth += token == TokenType.BEGIN_CHILD ? 1
+                    : token == TokenType.END_CHILD ? -1 : 0;
+                continue;
+            }
+
+            switch (token) {
+                case STRING:
+                    if (!hasPendingKey) {
+                        // It's a key, its value or block is yet to come
+                        tokenizer.markToken();
+                        hasPendingKey = true;
+                        break;
+                    }
+
+                    // It's a value
+                    hasPendingKey = false;
+                    return event = Event.KEY_VALUE;
+
+                case COMMENT:
+                    return event = Event.COMMENT;
+
+                case BEGIN_CHILD:
+                    if (!hasPendingKey) {
+                        // There's no key to this child block. It's invalid to start one.
+                        if (!isLenient) {
+                            throw new InvalidFileFormatException(
+                                "Expected a key, but found the start to a child block instead. "
+                                    + "Line " + getLineNumber());
+                        }
+                        report("Expected a key, but found the start to a child block instead. "
+                            + "Skipping the block.");
+                        skippedDepth = 1;
+                        break;
+                    }
+                    hasPendingKey = false;
+                    ++depth;
+                    return event = Event.START_BLOCK;
+
+                case END_CHILD:
+                    if (hasPendingKey) {
+                        // We're in the middle of a key-value pair, it's invalid to end the block
+                        if (!isLenient) {
+                            throw new InvalidFileFormatException("Expected a value or begin "
+                                + "child marker, but found a end marker for a child block "
+                                + "instead. Line " + getLineNumber());
+                        }
+                        report("Expected a value or the start to a child block, but found the "
+                            + "end of a child block instead. Skipping the key.");
+                        hasPendingKey = false;
+                    }
+                    if (depth == 0) {
+                        if (!isLenient) {
+                            throw new InvalidFileFormatException("Found an end marker for a "
+                                + "child block that was never started. There's an imbalance of "
+                                + "braces somewhere in your file. Line " + getLineNumber());
+                        }
+                        report("Found the end of a child block that was never started. "
+                            + "Skipping it.");
+                        break;
+                    }
+                    --depth;
+                    return event = Event.END_BLOCK;
+
+                case END_OF_FILE:
+                    if (skippedDepth > 0) {
+                        report("Unexpected end of file, within a child block without a key.");
+                        skippedDepth = 0;
+                    }
+                    if (hasPendingKey) {
+                        if (!isLenient) {
+                            throw new InvalidFileFormatException("Unexpected end of file. "
+                                + "There's an imbalance of key-value pairs somewhere in your "
+                                + "file.");
+                        }
+                        report("Unexpected end of file, before the last key's value. Skipping "
+                            + "the key.");
+                        hasPendingKey = false;
+                    }
+                    if (depth != 0) {
+                        if (!isLenient) {
+                            throw new InvalidFileFormatException("Unexpected end of file. "
+                                + "There's an imbalance of braces somewhere in your file. We "
+                                + "can't pinpoint where it is, because to us, it looks like the "
+                                + "end of the file.");
+                        }
+
+                        // Close every open block, one at a time, so that their contents are kept
+                        if (!hasClosedOpenBlocks) {
+                            report("Unexpected end of file, with " + depth + " child blocks "
+                                + "still open. Closing them.");
+                            hasClosedOpenBlocks = true;
+                        }
+                        --depth;
+                        return event = Event.END_BLOCK;
+                    }
+                    return event = Event.END_OF_FILE;
+
+                case ERROR:
+                default:
+                    if (!isLenient) {
+                        throw new InvalidFileFormatException(
+                            "There was an error processing the file: \n\n%s"
+                                + "\n\tLine: " + getLineNumber()
+                                + "\n", tokenizer.getTokenContent());
+                    }
+                    // A key on the line is lost along with the rest of it
+                    report(tokenizer.getErrorContext() + " Skipping the rest of the line.");
+                    tokenizer.skipLine();
+                    hasPendingKey = false;
+                    break;
+            }
+        }
+    }
+
+    /**
+     * @return The event most recently returned by {@link #next()}, or null if it hasn't been
+     * called yet.
+     */
+    @Nullable
+    public Event getEvent() {
+        return event;
+    }
+
+    /**
+     * @return The key of the current START_BLOCK or KEY_VALUE event, otherwise null.
+     */
+    @Nullable
+    public String getKey() {
+        return event == Event.START_BLOCK || event == Event.KEY_VALUE
+            ? tokenizer.getMarkedTokenContent() : null;
+    }
+
+    /**
+     * @return The value of the current KEY_VALUE event, otherwise null.
+     */
+    @Nullable
+    public String getValue() {
+        return event == Event.KEY_VALUE ? tokenizer.getTokenContent() : null;
+    }
+
+    /**
+     * @return The text of the current COMMENT event, excluding the leading "//", otherwise null.
+     */
+    @Nullable
+    public String getComment() {
+        return event == Event.COMMENT ? tokenizer.getTokenContent() : null;
+    }
+
+    /**
+     * @return The number of child blocks that are currently open. Top-level settings are at
+     * depth 0.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * @return The 1-based line number the reader is currently at.
+     */
+    public int getLineNumber() {
+        return tokenizer.getCurrentLineNumber();
+    }
+
+    /**
+     * @return The 1-based column number, in characters, of the start of the token the reader is
+     * currently at, such as a value's opening quote mark.
+     */
+    public int getColumnNumber() {
+        return tokenizer.getCurrentColumnNumber();
+    }
+
+    /**
+     * Records a problem at the current token. Only for lenient readers.
+     */
+    void report(String message) {
+        diagnostics.add(new TextSettingDiagnostic(getLineNumber(), getColumnNumber(), message));
+    }
+}
@@ -0,0 +1,26 @@
+package me.fru1t.csgo_server_manager.files;
+
+import com.google.common.hash.HashCode;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * A revision of a named TextSetting tree, as committed to a {@link TextSettingRevisionStore}.
+ */
+@Getter
+@RequiredArgsConstructor
+public final class TextSettingRevision {
+    private final String name;
+
+    /**
+     * The revision's position in its name's history, starting from 0.
+     */
+    private final int number;
+
+    /**
+     * The hash of the tree's root, which identifies the whole tree.
+     */
+    private final HashCode rootHash;
+
+    private final long committedAtMillis;
+}
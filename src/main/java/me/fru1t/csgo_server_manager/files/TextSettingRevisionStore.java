@@ -0,0 +1,462 @@
+package me.fru1t.csgo_server_manager.files;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import javax.annotation.Nullable;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>Keeps every committed revision of named TextSetting trees, such as each server's
+ * {@code gamemodes.txt}, so that any of them may be restored or compared with another.</p>
+ * <p>Trees are stored as Merkle trees. Each setting is identified by a hash of its key and value,
+ * or of its key and its children's hashes, and is only stored once however many revisions, or
+ * trees, it appears in. Committing a tree that differs from the last revision in one setting only
+ * stores the settings on the path down to it. Two revisions are compared by walking both trees
+ * from the root, skipping every pair of blocks with the same hash without looking inside
+ * them.</p>
+ * <p>TextSettings are never modified once built, so the hash of each tree committed or restored
+ * is remembered for as long as the tree's in use, and committing it again, or a tree sharing most
+ * of its blocks with it, only hashes what's new. Likewise, restoring a revision whose tree is
+ * still in use hands back that very tree, and settings rebuilt from the store are shared by
+ * every revision they appear in, so restoring a revision much like one restored before is
+ * cheap.</p>
+ * <p>A block's order of children isn't part of its hash, as it has no meaning in valve settings
+ * files. Blocks rebuilt from the store have their children in order of key, but a block that's
+ * handed back because it's still in use keeps the order it was committed in.</p>
+ * <p>Revisions are kept by a {@link Storage}, such as a database, so that history outlasts the
+ * store. Everything stored is read back, and hashed again to check it's intact, when the store's
+ * {@link #load(Storage) loaded}, and each commit writes the new revision along with only the
+ * settings it's the first to use. A store created without storage keeps history in memory
+ * only.</p>
+ */
+public final class TextSettingRevisionStore {
+    private static final HashFunction NODE_HASH = Hashing.sha256();
+    private static final byte VALUE_TAG = 0;
+    private static final byte BLOCK_TAG = 1;
+
+    /**
+     * Keeps a store's revisions, and the settings within them, for good.
+     */
+    public interface Storage {
+        /**
+         * @return Every stored setting, by hash, as {@link #add} was given them.
+         */
+        Map<HashCode, byte[]> loadNodes() throws IOException;
+
+        /**
+         * @return Every stored revision, in the order they were committed for any one name.
+         */
+        List<TextSettingRevision> loadRevisions() throws IOException;
+
+        /**
+         * Stores the given revision along with the given settings, which haven't been stored
+         * before, all or none of them.
+         */
+        void add(TextSettingRevision revision, Map<HashCode, byte[]> nodes) throws IOException;
+    }
+
+    private static final Storage MEMORY_ONLY = new Storage() {
+        @Override
+        public Map<HashCode, byte[]> loadNodes() {
+            return ImmutableMap.of();
+        }
+
+        @Override
+        public List<TextSettingRevision> loadRevisions() {
+            return ImmutableList.of();
+        }
+
+        @Override
+        public void add(TextSettingRevision revision, Map<HashCode, byte[]> nodes) {}
+    };
+
+    // A stored setting, with its children sorted by key
+    private static final class Node {
+        final String key;
+        @Nullable
+        final String value;
+        @Nullable
+        final String[] childKeys;
+        @Nullable
+        final HashCode[] childHashes;
+
+        Node(String key, @Nullable String value, @Nullable String[] childKeys,
+            @Nullable HashCode[] childHashes) {
+            this.key = key;
+            this.value = value;
+            this.childKeys = childKeys;
+            this.childHashes = childHashes;
+        }
+    }
+
+    private final Storage storage;
+    private final Map<HashCode, Node> nodes;
+
+    // Hashes are kept by identity for as long as their settings are in use elsewhere, and
+    // restored settings for as long as memory allows
+    private final Cache<TextSetting, HashCode> hashes;
+    private final Cache<HashCode, TextSetting> restored;
+
+    // Guarded by this
+    private final Map<String, List<TextSettingRevision>> revisions;
+
+    /**
+     * Creates a store that keeps history in memory only.
+     */
+    public TextSettingRevisionStore() {
+        this(MEMORY_ONLY);
+    }
+
+    private TextSettingRevisionStore(Storage storage) {
+        this.storage = storage;
+        nodes = new ConcurrentHashMap<>();
+        hashes = CacheBuilder.newBuilder().weakKeys().build();
+        restored = CacheBuilder.newBuilder().softValues().build();
+        revisions = new HashMap<>();
+    }
+
+    /**
+     * Creates a store holding everything already in the given storage, which it'll keep every
+     * commit in from now on.
+     * @throws IOException Thrown if the storage can't be read, or holds settings that aren't as
+     * they were stored.
+     */
+    public static TextSettingRevisionStore load(Storage storage) throws IOException {
+        TextSettingRevisionStore store = new TextSettingRevisionStore(storage);
+        for (Map.Entry<HashCode, byte[]> stored : storage.loadNodes().entrySet()) {
+            Node node = decode(stored.getValue());
+            if (!hashOf(node).equals(stored.getKey())) {
+                throw new IOException("The stored setting " + stored.getKey() + " for "
+                    + node.key + " doesn't match its hash.");
+            }
+            store.nodes.put(stored.getKey(), node);
+        }
+        for (TextSettingRevision revision : storage.loadRevisions()) {
+            List<TextSettingRevision> history =
+                store.revisions.computeIfAbsent(revision.getName(), n -> new ArrayList<>());
+            if (revision.getNumber() != history.size()
+                || !store.nodes.containsKey(revision.getRootHash())) {
+                throw new IOException("Revision " + revision.getNumber() + " of "
+                    + revision.getName() + " is out of order or missing its settings.");
+            }
+            history.add(revision);
+        }
+        return store;
+    }
+
+    /**
+     * Stores the given tree as the latest revision of the given name, unless it's the same as the
+     * latest revision already.
+     * @return The new revision, or the latest if the tree was the same.
+     * @throws InvalidTextSettingException Thrown if any setting within the tree is invalid, in
+     * which case nothing's committed.
+     * @throws IOException Thrown if the revision couldn't be stored, in which case nothing's
+     * committed.
+     */
+    public TextSettingRevision commit(String name, TextSetting setting)
+        throws InvalidTextSettingException, IOException {
+        Map<HashCode, Node> added = new HashMap<>();
+        HashCode rootHash = hash(setting, added);
+
+        synchronized (this) {
+            List<TextSettingRevision> history =
+                revisions.computeIfAbsent(name, n -> new ArrayList<>());
+            if (!history.isEmpty()
+                && history.get(history.size() - 1).getRootHash().equals(rootHash)) {
+                return history.get(history.size() - 1);
+            }
+
+            // Another commit may have stored some of the same settings since they were hashed
+            added.keySet().removeIf(nodes::containsKey);
+            Map<HashCode, byte[]> encoded = new HashMap<>();
+            for (Map.Entry<HashCode, Node> node : added.entrySet()) {
+                encoded.put(node.getKey(), encode(node.getValue()));
+            }
+            TextSettingRevision revision = new TextSettingRevision(name, history.size(), rootHash,
+                System.currentTimeMillis());
+            storage.add(revision, encoded);
+            nodes.putAll(added);
+            history.add(revision);
+            return revision;
+        }
+    }
+
+    /**
+     * @return Every revision of the given name, oldest first.
+     */
+    public synchronized ImmutableList<TextSettingRevision> getRevisions(String name) {
+        List<TextSettingRevision> history = revisions.get(name);
+        return history == null ? ImmutableList.of() : ImmutableList.copyOf(history);
+    }
+
+    /**
+     * @return The given revision of the given name, or null if there's no such revision.
+     */
+    @Nullable
+    public synchronized TextSettingRevision getRevision(String name, int number) {
+        List<TextSettingRevision> history = revisions.get(name);
+        return history == null || number < 0 || number >= history.size()
+            ? null : history.get(number);
+    }
+
+    /**
+     * @return The latest revision of the given name, or null if it has none.
+     */
+    @Nullable
+    public synchronized TextSettingRevision getLatest(String name) {
+        List<TextSettingRevision> history = revisions.get(name);
+        return history == null ? null : history.get(history.size() - 1);
+    }
+
+    /**
+     * @return The number of distinct settings stored, across every revision.
+     */
+    public int getNodeCount() {
+        return nodes.size();
+    }
+
+    /**
+     * @return The tree as it was at the given revision. Blocks have their children in order of key,
+     * other than any still in use from being committed, which are handed back as they are.
+     * @throws IllegalArgumentException Thrown if the revision isn't from this store.
+     */
+    public TextSetting restore(TextSettingRevision revision) {
+        return restore(getNode(revision.getRootHash()), revision.getRootHash());
+    }
+
+    /**
+     * @return Every difference between the two revisions' trees, by path relative to their roots,
+     * in order of path. Settings within added or removed blocks aren't listed separately. A
+     * setting that's changed from a value to a block, or the other way around, is listed as
+     * changed.
+     * @throws IllegalArgumentException Thrown if either revision isn't from this store.
+     */
+    public ImmutableList<TextSettingChange> diff(TextSettingRevision from,
+        TextSettingRevision to) {
+        ImmutableList.Builder<TextSettingChange> changes = ImmutableList.builder();
+        HashCode fromHash = from.getRootHash();
+        HashCode toHash = to.getRootHash();
+        Node fromNode = getNode(fromHash);
+        Node toNode = getNode(toHash);
+        if (!fromHash.equals(toHash)) {
+            if (!fromNode.key.equals(toNode.key)
+                || fromNode.childKeys == null || toNode.childKeys == null) {
+                changes.add(new TextSettingChange(TextSettingChange.Type.CHANGED, "",
+                    restore(fromNode, fromHash), restore(toNode, toHash)));
+            } else {
+                diff("", fromNode, toNode, changes);
+            }
+        }
+        return changes.build();
+    }
+
+    // Compares two blocks of the same key and different hashes
+    private void diff(String prefix, Node from, Node to,
+        ImmutableList.Builder<TextSettingChange> changes) {
+        int i = 0;
+        int j = 0;
+        while (i < from.childKeys.length || j < to.childKeys.length) {
+            int order = i == from.childKeys.length ? 1 : j == to.childKeys.length ? -1
+                : from.childKeys[i].compareTo(to.childKeys[j]);
+            if (order < 0) {
+                String path = prefix + TextSettingQuery.escape(from.childKeys[i]);
+                changes.add(new TextSettingChange(TextSettingChange.Type.REMOVED, path,
+                    restore(from.childHashes[i]), null));
+                ++i;
+            } else if (order > 0) {
+                String path = prefix + TextSettingQuery.escape(to.childKeys[j]);
+                changes.add(new TextSettingChange(TextSettingChange.Type.ADDED, path, null,
+                    restore(to.childHashes[j])));
+                ++j;
+            } else {
+                HashCode fromHash = from.childHashes[i];
+                HashCode toHash = to.childHashes[j];
+                if (!fromHash.equals(toHash)) {
+                    String path = prefix + TextSettingQuery.escape(from.childKeys[i]);
+                    Node fromChild = getNode(fromHash);
+                    Node toChild = getNode(toHash);
+                    if (fromChild.childKeys != null && toChild.childKeys != null) {
+                        diff(path + "/", fromChild, toChild, changes);
+                    } else {
+                        changes.add(new TextSettingChange(TextSettingChange.Type.CHANGED, path,
+                            restore(fromChild, fromHash), restore(toChild, toHash)));
+                    }
+                }
+                ++i;
+                ++j;
+            }
+        }
+    }
+
+    // Hashes the given setting, adding any settings that aren't stored yet to the given map
+    private HashCode hash(TextSetting setting, Map<HashCode, Node> added)
+        throws InvalidTextSettingException {
+        HashCode known = hashes.getIfPresent(setting);
+        if (known != null && (nodes.containsKey(known) || added.containsKey(known))) {
+            return known;
+        }
+        if (setting.key.isEmpty() || (setting.value == null) == (setting.children == null)) {
+            throw new InvalidTextSettingException(
+                "TextSettings must have a key, and either a value or children: " + setting.key);
+        }
+
+        Node node;
+        if (setting.value != null) {
+            node = new Node(setting.key, setting.value, null, null);
+        } else {
+            String[] childKeys = setting.children.keySet().toArray(new String[0]);
+            Arrays.sort(childKeys);
+            HashCode[] childHashes = new HashCode[childKeys.length];
+            for (int i = 0; i < childKeys.length; ++i) {
+                childHashes[i] = hash(setting.children.get(childKeys[i]), added);
+            }
+            node = new Node(setting.key, null, childKeys, childHashes);
+        }
+
+        HashCode hash = hashOf(node);
+        if (!nodes.containsKey(hash)) {
+            added.put(hash, node);
+        }
+        hashes.put(setting, hash);
+        restored.asMap().putIfAbsent(hash, setting);
+        return hash;
+    }
+
+    // A setting's key, then either its value or its children's hashes in order of key
+    private static HashCode hashOf(Node node) {
+        Hasher hasher = NODE_HASH.newHasher();
+        putString(hasher, node.key);
+        if (node.value != null) {
+            hasher.putByte(VALUE_TAG);
+            putString(hasher, node.value);
+        } else {
+            hasher.putByte(BLOCK_TAG);
+            hasher.putInt(node.childHashes.length);
+            for (HashCode childHash : node.childHashes) {
+                hasher.putBytes(childHash.asBytes());
+            }
+        }
+        return hasher.hash();
+    }
+
+    private TextSetting restore(HashCode hash) {
+        return restore(getNode(hash), hash);
+    }
+
+    private TextSetting restore(Node node, HashCode hash) {
+        TextSetting setting = restored.getIfPresent(hash);
+        if (setting != null) {
+            return setting;
+        }
+
+        setting = new TextSetting();
+        setting.key = node.key;
+        if (node.value != null) {
+            setting.value = node.value;
+        } else {
+            Map<String, TextSetting> children = new LinkedHashMap<>();
+            for (int i = 0; i < node.childKeys.length; ++i) {
+                children.put(node.childKeys[i], restore(node.childHashes[i]));
+            }
+            setting.children = CompactChildMap.copyOf(children);
+        }
+        hashes.put(setting, hash);
+        restored.put(hash, setting);
+        return setting;
+    }
+
+    private Node getNode(HashCode hash) {
+        Node node = nodes.get(hash);
+        if (node == null) {
+            throw new IllegalArgumentException("No such revision in this store: " + hash);
+        }
+        return node;
+    }
+
+    // Stored as a tag, the key, then either the value or each child's key and hash
+    private static byte[] encode(Node node) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writeString(out, node.key);
+            if (node.value != null) {
+                out.writeByte(VALUE_TAG);
+                writeString(out, node.value);
+            } else {
+                out.writeByte(BLOCK_TAG);
+                out.writeInt(node.childKeys.length);
+                for (int i = 0; i < node.childKeys.length; ++i) {
+                    writeString(out, node.childKeys[i]);
+                    out.write(node.childHashes[i].asBytes());
+                }
+            }
+        } catch (IOException e) {
+            // Never thrown writing to memory
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Node decode(byte[] bytes) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        String key = readString(in);
+        byte tag = in.readByte();
+        if (tag == VALUE_TAG) {
+            return new Node(key, readString(in), null, null);
+        }
+        if (tag != BLOCK_TAG) {
+            throw new IOException("Unknown setting tag " + tag + " for " + key);
+        }
+        int count = in.readInt();
+        String[] childKeys = new String[count];
+        HashCode[] childHashes = new HashCode[count];
+        byte[] hash = new byte[NODE_HASH.bits() / Byte.SIZE];
+        for (int i = 0; i < count; ++i) {
+            childKeys[i] = readString(in);
+            if (i > 0 && childKeys[i - 1].compareTo(childKeys[i]) >= 0) {
+                throw new IOException("Children of " + key + " aren't in order of key.");
+            }
+            in.readFully(hash);
+            childHashes[i] = HashCode.fromBytes(hash);
+        }
+        return new Node(key, null, childKeys, childHashes);
+    }
+
+    private static void writeString(DataOutputStream out, String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Length-prefixed, so that no two different sequences of strings hash the same
+    private static void putString(Hasher hasher, String string) {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        hasher.putInt(bytes.length);
+        hasher.putBytes(bytes);
+    }
+}
@@ -0,0 +1,268 @@
+package me.fru1t.csgo_server_manager.files;
+
+import com.google.common.collect.ImmutableList;
+
+import javax.annotation.Nullable;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * <p>Describes what a kind of valve settings file must hold, such as every game mode in
+ * {@code gamemodes.txt} having a numeric {@code maxplayers} between 1 and 64, so that files may
+ * be checked before they're handed to a server.</p>
+ * <p>Each rule applies to a path, as in {@link TextSettingQuery}, relative to the root setting of
+ * the file, and wildcards apply it to every match. For example:</p>
+ * <pre>
+ * TextSettingSchema.builder()
+ *     .require("gameTypes")
+ *     .type("gameTypes", TextSettingSchema.ValueType.BLOCK)
+ *     .range("gameTypes/&#42;/gameModes/&#42;/maxplayers", 1, 64)
+ *     .build();
+ * </pre>
+ * <p>Schemas are immutable, so may be built once and shared.</p>
+ */
+public final class TextSettingSchema {
+    // Plain decimals only, as servers read them. No exponents, hexadecimal, type suffixes, NaN or
+    // infinities.
+    private static final Pattern DECIMAL = Pattern.compile("[-+]?(?:\\d+(?:\\.\\d*)?|\\.\\d+)");
+
+    /**
+     * What a setting may hold.
+     */
+    public enum ValueType {
+        STRING("a value"),
+        INTEGER("an integer"),
+        DECIMAL("a number"),
+        BOOLEAN("0 or 1"),
+        BLOCK("a block");
+
+        private final String description;
+
+        ValueType(String description) {
+            this.description = description;
+        }
+    }
+
+    /**
+     * Receives each problem found, along with the setting at fault, such as to find where it is in
+     * the file. For a missing setting, that's the block it's missing from.
+     */
+    public interface ProblemHandler {
+        /**
+         * @param problem As returned by {@link #check(TextSetting)}.
+         */
+        void onProblem(TextSetting setting, String problem);
+    }
+
+    public static class TextSettingSchemaBuilder {
+        private final List<Rule> rules;
+
+        TextSettingSchemaBuilder() {
+            rules = new ArrayList<>();
+        }
+
+        /**
+         * Requires the setting at the given path to exist wherever its parent does. A wildcard
+         * as the last key requires its parent to have at least one child.
+         * @throws IllegalArgumentException Thrown if the path is invalid.
+         */
+        public TextSettingSchemaBuilder require(String path) {
+            rules.add(new Rule(TextSettingQuery.compile(path), true, null, null, null));
+            return this;
+        }
+
+        /**
+         * Requires the setting at the given path, wherever it exists, to be of the given type.
+         * @throws IllegalArgumentException Thrown if the path is invalid.
+         */
+        public TextSettingSchemaBuilder type(String path, ValueType type) {
+            rules.add(new Rule(TextSettingQuery.compile(path), false, type, null, null));
+            return this;
+        }
+
+        /**
+         * Requires the setting at the given path, wherever it exists, to be a number within the
+         * given range, inclusive.
+         * @throws IllegalArgumentException Thrown if the path is invalid, or the range is empty.
+         */
+        public TextSettingSchemaBuilder range(String path, double min, double max) {
+            if (min > max) {
+                throw new IllegalArgumentException(
+                    "Ranges must have a minimum no greater than their maximum: " + path);
+            }
+            rules.add(new Rule(TextSettingQuery.compile(path), false, ValueType.DECIMAL, min, max));
+            return this;
+        }
+
+        public TextSettingSchema build() {
+            return new TextSettingSchema(ImmutableList.copyOf(rules));
+        }
+    }
+
+    private static final class Rule {
+        final TextSettingQuery query;
+        final boolean isRequired;
+        @Nullable
+        final ValueType type;
+        @Nullable
+        final Double min;
+        @Nullable
+        final Double max;
+
+        Rule(TextSettingQuery query, boolean isRequired, @Nullable ValueType type,
+            @Nullable Double min, @Nullable Double max) {
+            this.query = query;
+            this.isRequired = isRequired;
+            this.type = type;
+            this.min = min;
+            this.max = max;
+        }
+    }
+
+    private final ImmutableList<Rule> rules;
+
+    private TextSettingSchema(ImmutableList<Rule> rules) {
+        this.rules = rules;
+    }
+
+    public static TextSettingSchemaBuilder builder() {
+        return new TextSettingSchemaBuilder();
+    }
+
+    /**
+     * Checks the given root setting of a file against every rule. Settings found to be of the
+     * wrong type aren't checked against later rules, so a non-numeric value with both a type and a
+     * range is reported once.
+     * @return Every problem found, in order of rule, each as the path of the setting at fault and
+     * what's wrong with it, such as
+     * {@code "gameTypes/classic/gameModes/casual/maxplayers: Expected an integer, but was 'ten'."}
+     */
+    public ImmutableList<String> check(TextSetting setting) {
+        ImmutableList.Builder<String> problems = ImmutableList.builder();
+        check(setting, (at, problem) -> problems.add(problem));
+        return problems.build();
+    }
+
+    /**
+     * Checks the given root setting of a file against every rule, as {@link #check(TextSetting)}
+     * does, handing each problem to the given handler as it's found.
+     */
+    public void check(TextSetting setting, ProblemHandler problems) {
+        // By identity, as equal settings may be at different paths
+        Set<TextSetting> wrongTypes = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Rule rule : rules) {
+            if (rule.isRequired) {
+                checkRequired(setting, rule.query, problems);
+            } else {
+                rule.query.forEachWithPath(setting, (path, match) -> {
+                    if (!wrongTypes.contains(match) && !checkValue(path, match, rule, problems)) {
+                        wrongTypes.add(match);
+                    }
+                });
+            }
+        }
+    }
+
+    private static void checkRequired(TextSetting setting, TextSettingQuery query,
+        ProblemHandler problems) {
+        TextSettingQuery parentQuery = query.getParent();
+        String lastKey = query.getLastKey();
+        String lastPath = lastKey == null ? "*" : TextSettingQuery.escape(lastKey);
+        if (parentQuery == null) {
+            checkRequired("", setting, lastKey, lastPath, problems);
+            return;
+        }
+        parentQuery.forEachWithPath(setting,
+            (path, parent) -> checkRequired(path, parent, lastKey, lastPath, problems));
+    }
+
+    private static void checkRequired(String parentPath, TextSetting parent,
+        @Nullable String key, String lastPath, ProblemHandler problems) {
+        boolean exists = parent.children != null
+            && (key == null ? !parent.children.isEmpty() : parent.children.containsKey(key));
+        if (!exists) {
+            problems.onProblem(parent,
+                (parentPath.isEmpty() ? lastPath : parentPath + "/" + lastPath)
+                    + ": Required, but missing.");
+        }
+    }
+
+    // Returns whether the setting is of the rule's type, whether or not it's within its range
+    private static boolean checkValue(String path, TextSetting setting, Rule rule,
+        ProblemHandler problems) {
+        if (rule.type == ValueType.BLOCK) {
+            if (setting.children == null) {
+                problems.onProblem(setting,
+                    path + ": Expected a block, but was '" + setting.value + "'.");
+                return false;
+            }
+            return true;
+        }
+        if (setting.value == null) {
+            problems.onProblem(setting,
+                path + ": Expected " + rule.type.description + ", but was a block.");
+            return false;
+        }
+
+        String value = setting.value.trim();
+        boolean isValid;
+        switch (rule.type) {
+            case INTEGER:
+                isValid = isInteger(value);
+                break;
+            case DECIMAL:
+                isValid = parseDecimal(value) != null;
+                break;
+            case BOOLEAN:
+                isValid = value.equals("0") || value.equals("1");
+                break;
+            case STRING:
+            default:
+                isValid = true;
+                break;
+        }
+        if (!isValid) {
+            problems.onProblem(setting, path + ": Expected " + rule.type.description
+                + ", but was '" + setting.value + "'.");
+            return false;
+        }
+
+        if (rule.min != null && rule.max != null) {
+            double number = parseDecimal(value);
+            if (number < rule.min || number > rule.max) {
+                problems.onProblem(setting, path + ": Expected between " + format(rule.min)
+                    + " and " + format(rule.max) + ", but was " + value + ".");
+            }
+        }
+        return true;
+    }
+
+    private static boolean isInteger(String value) {
+        try {
+            Long.parseLong(value);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    // Checked against the pattern first, as Double.parseDouble takes "64f", "0x1p3" and "NaN"
+    @Nullable
+    private static Double parseDecimal(String value) {
+        if (!DECIMAL.matcher(value).matches()) {
+            return null;
+        }
+        return new BigDecimal(value).doubleValue();
+    }
+
+    // As in "64" rather than "64.0"
+    private static String format(double number) {
+        return number == Math.rint(number) && Math.abs(number) < 1e15
+            ? Long.toString((long) number) : Double.toString(number);
+    }
+}
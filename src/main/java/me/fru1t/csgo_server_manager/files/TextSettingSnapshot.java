@@ -0,0 +1,433 @@
+package me.fru1t.csgo_server_manager.files;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import javax.annotation.Nullable;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <p>Parsed TextSetting trees saved in a compact binary form next to the files they were parsed
+ * from, so that restarting the manager doesn't mean parsing every file all over again. Loading a
+ * snapshot memory-maps it and skips tokenizing entirely.</p>
+ * <p>A snapshot of {@code gamemodes.txt} is saved as {@code gamemodes.txt.tsnap}. It records the
+ * source file's modified time, size and hash, and is only used while those still match. A
+ * snapshot whose source was merely touched is still used once the source's contents are hashed
+ * and found to be the same.</p>
+ * <p>Loaded trees are built lazily. A block's children are only read from the snapshot the first
+ * time they're asked for, and each distinct string is decoded at most once, so looking up a
+ * handful of settings in a large file only ever reads a small part of its snapshot.</p>
+ * <p>Snapshots consist of a header, a table of string offsets, a table of nodes and the strings'
+ * UTF-8 bytes. Repeated strings are only stored once. Nodes are laid out breadth first, so each
+ * block's children are consecutive, and refer to them by the index of the first child and their
+ * count.</p>
+ */
+public final class TextSettingSnapshot {
+    public static final String FILE_EXTENSION = ".tsnap";
+
+    private static final int MAGIC = 0x54534E50; // "TSNP"
+    private static final int VERSION = 1;
+    private static final HashFunction SOURCE_HASH = Hashing.murmur3_128();
+
+    // Header layout
+    private static final int HEADER_BYTES = 64;
+    private static final int MODIFIED_TIME_OFFSET = 8;
+    private static final int SIZE_OFFSET = 16;
+    private static final int HASH_OFFSET = 24;
+    private static final int HASH_BYTES = 16;
+    private static final int STRING_COUNT_OFFSET = 40;
+    private static final int NODE_COUNT_OFFSET = 44;
+    private static final int STRING_OFFSETS_POSITION_OFFSET = 48;
+    private static final int NODES_POSITION_OFFSET = 52;
+    private static final int STRING_DATA_POSITION_OFFSET = 56;
+    private static final int STRING_DATA_LENGTH_OFFSET = 60;
+
+    // Node layout: key, value or NO_VALUE, first child, child count
+    private static final int NODE_BYTES = 16;
+    private static final int NO_VALUE = -1;
+
+    // Files modified this recently may still be modified again without their modified time
+    // changing, so their snapshots always check the hash
+    private static final long MODIFIED_TIME_GRANULARITY_MS = 2000;
+    private static final long UNTRUSTED_MODIFIED_TIME = Long.MIN_VALUE;
+
+    private final ByteBuffer buffer;
+    private final int stringOffsetsPosition;
+    private final int nodesPosition;
+    private final int stringDataPosition;
+
+    // Decoded as they're first needed
+    private final String[] strings;
+
+    private TextSettingSnapshot(ByteBuffer buffer) {
+        this.buffer = buffer;
+        stringOffsetsPosition = buffer.getInt(STRING_OFFSETS_POSITION_OFFSET);
+        nodesPosition = buffer.getInt(NODES_POSITION_OFFSET);
+        stringDataPosition = buffer.getInt(STRING_DATA_POSITION_OFFSET);
+        strings = new String[buffer.getInt(STRING_COUNT_OFFSET)];
+    }
+
+    /**
+     * @return Where the snapshot of the given source file is kept.
+     */
+    public static Path pathFor(Path source) {
+        return source.resolveSibling(source.getFileName() + FILE_EXTENSION);
+    }
+
+    /**
+     * Loads the snapshot of the given source file, as long as it's up to date.
+     * @return The tree saved in the snapshot, or null if there's no snapshot, it's out of date, or
+     * it's unreadable.
+     * @throws IOException Thrown if the source file can't be read.
+     */
+    @Nullable
+    public static TextSetting load(Path source) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(source, BasicFileAttributes.class);
+        return load(source, attributes.lastModifiedTime().toMillis(), attributes.size(), null);
+    }
+
+    /**
+     * Loads the snapshot of the given source file if it's up to date, otherwise parses the source
+     * file and saves a snapshot of it for next time. Failing to save the snapshot isn't an error.
+     * @return The processed file in TextSetting form, or null if the file contains no settings.
+     * @throws IOException Thrown if the source file can't be read.
+     */
+    @Nullable
+    public static TextSetting loadOrParse(Path source)
+        throws IOException, InvalidFileFormatException {
+        BasicFileAttributes attributes = Files.readAttributes(source, BasicFileAttributes.class);
+        long modifiedTime = attributes.lastModifiedTime().toMillis();
+        TextSetting setting = load(source, modifiedTime, attributes.size(), null);
+        if (setting != null) {
+            return setting;
+        }
+
+        byte[] content = Files.readAllBytes(source);
+        setting = TextSettingUtil.processFile(ByteBuffer.wrap(content));
+        if (setting != null) {
+            tryWrite(source, setting, modifiedTime, content.length,
+                SOURCE_HASH.hashBytes(content));
+        }
+        return setting;
+    }
+
+    /**
+     * Saves a snapshot of the given tree, as parsed from the given source file's current
+     * contents. Any previous snapshot is replaced atomically.
+     * @throws IOException Thrown if the source file can't be read or the snapshot can't be
+     * written.
+     * @throws InvalidTextSettingException Thrown if any TextSetting within the tree is invalid.
+     */
+    public static void write(Path source, TextSetting setting)
+        throws IOException, InvalidTextSettingException {
+        BasicFileAttributes attributes = Files.readAttributes(source, BasicFileAttributes.class);
+        byte[] content = Files.readAllBytes(source);
+        write(source, setting, attributes.lastModifiedTime().toMillis(), content.length,
+            SOURCE_HASH.hashBytes(content));
+    }
+
+    /**
+     * Loads the snapshot of the given source file if it matches the given attributes.
+     * @param contentHash The source's {@link Hashing#murmur3_128()} hash if it's already known,
+     * otherwise the source is read and hashed only if needed.
+     */
+    @Nullable
+    static TextSetting load(Path source, long modifiedTime, long size,
+        @Nullable HashCode contentHash) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(pathFor(source), StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES || channel.size() > Integer.MAX_VALUE) {
+                return null;
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        if (!isValid(buffer) || buffer.getLong(SIZE_OFFSET) != size) {
+            return null;
+        }
+
+        if (buffer.getLong(MODIFIED_TIME_OFFSET) != modifiedTime
+            || modifiedTime == UNTRUSTED_MODIFIED_TIME) {
+            if (contentHash == null) {
+                contentHash = SOURCE_HASH.hashBytes(Files.readAllBytes(source));
+            }
+            byte[] snapshotHash = new byte[HASH_BYTES];
+            for (int i = 0; i < HASH_BYTES; ++i) {
+                snapshotHash[i] = buffer.get(HASH_OFFSET + i);
+            }
+            if (!Arrays.equals(snapshotHash, contentHash.asBytes())) {
+                return null;
+            }
+        }
+        return new TextSettingSnapshot(buffer).node(0);
+    }
+
+    /**
+     * Like {@link #write(Path, TextSetting)} with the source's attributes already known, but
+     * ignores any failure to save the snapshot, which is only ever an optimization.
+     */
+    static void tryWrite(Path source, TextSetting setting, long modifiedTime, long size,
+        HashCode contentHash) {
+        try {
+            write(source, setting, modifiedTime, size, contentHash);
+        } catch (IOException | InvalidTextSettingException e) {
+            // Parsing again next time is fine
+        }
+    }
+
+    private static void write(Path source, TextSetting root, long modifiedTime, long size,
+        HashCode contentHash) throws IOException, InvalidTextSettingException {
+        // Lay nodes out breadth first, so that every block's children are consecutive
+        List<TextSetting> nodes = new ArrayList<>();
+        Map<String, Integer> stringIndices = new HashMap<>();
+        List<byte[]> strings = new ArrayList<>();
+        nodes.add(root);
+        int[] nodeTable = new int[64];
+        for (int i = 0; i < nodes.size(); ++i) {
+            TextSetting node = nodes.get(i);
+            if (node.key.isEmpty() || (node.value == null) == (node.children == null)) {
+                throw new InvalidTextSettingException("Can't save an invalid TextSetting: "
+                    + node.isValid().context);
+            }
+
+            if (nodeTable.length < (i + 1) * 4) {
+                nodeTable = Arrays.copyOf(nodeTable, nodeTable.length * 2);
+            }
+            nodeTable[i * 4] = stringIndex(node.key, stringIndices, strings);
+            if (node.value != null) {
+                nodeTable[i * 4 + 1] = stringIndex(node.value, stringIndices, strings);
+            } else {
+                nodeTable[i * 4 + 1] = NO_VALUE;
+                nodeTable[i * 4 + 2] = nodes.size();
+                nodeTable[i * 4 + 3] = node.children.size();
+                nodes.addAll(node.children.values());
+            }
+        }
+
+        // A file modified just now may be modified again within the same tick
+        if (System.currentTimeMillis() - modifiedTime < MODIFIED_TIME_GRANULARITY_MS) {
+            modifiedTime = UNTRUSTED_MODIFIED_TIME;
+        }
+
+        int stringOffsetsPosition = HEADER_BYTES;
+        int nodesPosition = stringOffsetsPosition + (strings.size() + 1) * 4;
+        int stringDataPosition = nodesPosition + nodes.size() * NODE_BYTES;
+        long stringDataLength = 0;
+        for (byte[] string : strings) {
+            stringDataLength += string.length;
+        }
+        if (stringDataPosition + stringDataLength > Integer.MAX_VALUE) {
+            throw new IOException("The snapshot of " + source + " would be too large.");
+        }
+
+        Path snapshot = pathFor(source);
+        Path temp = Files.createTempFile(snapshot.toAbsolutePath().getParent(),
+            snapshot.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(modifiedTime);
+                out.writeLong(size);
+                out.write(contentHash.asBytes(), 0, HASH_BYTES);
+                out.writeInt(strings.size());
+                out.writeInt(nodes.size());
+                out.writeInt(stringOffsetsPosition);
+                out.writeInt(nodesPosition);
+                out.writeInt(stringDataPosition);
+                out.writeInt((int) stringDataLength);
+
+                int offset = 0;
+                for (byte[] string : strings) {
+                    out.writeInt(offset);
+                    offset += string.length;
+                }
+                out.writeInt(offset);
+                for (int i = 0; i < nodes.size() * 4; ++i) {
+                    out.writeInt(nodeTable[i]);
+                }
+                for (byte[] string : strings) {
+                    out.write(string);
+                }
+            }
+            Files.move(temp, snapshot, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static int stringIndex(String string, Map<String, Integer> stringIndices,
+        List<byte[]> strings) {
+        Integer index = stringIndices.get(string);
+        if (index == null) {
+            index = strings.size();
+            stringIndices.put(string, index);
+            strings.add(string.getBytes(StandardCharsets.UTF_8));
+        }
+        return index;
+    }
+
+    /**
+     * Checks that everything in the snapshot refers to something within it, so that a damaged
+     * snapshot is simply treated as out of date rather than failing once it's being read from.
+     */
+    private static boolean isValid(ByteBuffer buffer) {
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            return false;
+        }
+        long stringCount = buffer.getInt(STRING_COUNT_OFFSET);
+        long nodeCount = buffer.getInt(NODE_COUNT_OFFSET);
+        long stringOffsetsPosition = buffer.getInt(STRING_OFFSETS_POSITION_OFFSET);
+        long nodesPosition = buffer.getInt(NODES_POSITION_OFFSET);
+        long stringDataPosition = buffer.getInt(STRING_DATA_POSITION_OFFSET);
+        long stringDataLength = buffer.getInt(STRING_DATA_LENGTH_OFFSET);
+        if (stringCount < 0 || nodeCount < 1 || stringDataLength < 0
+            || stringOffsetsPosition != HEADER_BYTES
+            || nodesPosition != stringOffsetsPosition + (stringCount + 1) * 4
+            || stringDataPosition != nodesPosition + nodeCount * NODE_BYTES
+            || stringDataPosition + stringDataLength != buffer.limit()) {
+            return false;
+        }
+
+        int previousOffset = 0;
+        for (int i = 0; i <= stringCount; ++i) {
+            int offset = buffer.getInt((int) stringOffsetsPosition + i * 4);
+            if (offset < previousOffset || offset > stringDataLength) {
+                return false;
+            }
+            previousOffset = offset;
+        }
+        if (previousOffset != stringDataLength) {
+            return false;
+        }
+
+        // Children always come after their parent, so there can't be any cycles
+        for (int i = 0; i < nodeCount; ++i) {
+            int node = (int) nodesPosition + i * NODE_BYTES;
+            int key = buffer.getInt(node);
+            int value = buffer.getInt(node + 4);
+            long firstChild = buffer.getInt(node + 8);
+            long childCount = buffer.getInt(node + 12);
+            if (key < 0 || key >= stringCount || value < NO_VALUE || value >= stringCount) {
+                return false;
+            }
+            if (value == NO_VALUE
+                && (firstChild <= i || childCount < 0 || firstChild + childCount > nodeCount)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private TextSetting node(int index) {
+        int position = nodesPosition + index * NODE_BYTES;
+        TextSetting setting = new TextSetting();
+        setting.key = string(buffer.getInt(position));
+        int value = buffer.getInt(position + 4);
+        if (value != NO_VALUE) {
+            setting.value = string(value);
+        } else {
+            setting.children = new LazyChildMap(this, buffer.getInt(position + 8),
+                buffer.getInt(position + 12));
+        }
+        return setting;
+    }
+
+    private String string(int index) {
+        String string = strings[index];
+        if (string == null) {
+            int start = buffer.getInt(stringOffsetsPosition + index * 4);
+            byte[] bytes = new byte[buffer.getInt(stringOffsetsPosition + index * 4 + 4) - start];
+            ByteBuffer data = buffer.duplicate();
+            data.position(stringDataPosition + start);
+            data.get(bytes);
+
+            // Racing threads decode equal strings, so there's no harm in either one winning
+            string = new String(bytes, StandardCharsets.UTF_8);
+            strings[index] = string;
+        }
+        return string;
+    }
+
+    /**
+     * A block's children within a snapshot, read from it the first time they're asked for.
+     */
+    static final class LazyChildMap extends AbstractMap<String, TextSetting> {
+        private final TextSettingSnapshot snapshot;
+        private final int firstChild;
+        private final int childCount;
+
+        @Nullable
+        private volatile CompactChildMap children;
+
+        LazyChildMap(TextSettingSnapshot snapshot, int firstChild, int childCount) {
+            this.snapshot = snapshot;
+            this.firstChild = firstChild;
+            this.childCount = childCount;
+            children = null;
+        }
+
+        CompactChildMap materialize() {
+            CompactChildMap result = children;
+            if (result == null) {
+                Object[] entries = new Object[childCount * 2];
+                for (int i = 0; i < childCount; ++i) {
+                    TextSetting child = snapshot.node(firstChild + i);
+                    entries[i * 2] = child.key;
+                    entries[i * 2 + 1] = child;
+                }
+                result = CompactChildMap.wrap(entries);
+                children = result;
+            }
+            return result;
+        }
+
+        @Override
+        public int size() {
+            return childCount;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return materialize().containsKey(key);
+        }
+
+        @Override
+        public TextSetting get(Object key) {
+            return materialize().get(key);
+        }
+
+        @Override
+        public Set<Entry<String, TextSetting>> entrySet() {
+            return materialize().entrySet();
+        }
+
+        @Override
+        public Collection<TextSetting> values() {
+            return materialize().values();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package me.fru1t.csgo_server_manager.files;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * <p>Shares a single String instance between every occurrence of the same key or value while
+ * parsing. Valve settings files repeat the same handful of keys and values thousands of times
+ * ("name", "value", "maps", "" and so on), so this considerably cuts down the heap that a parsed
+ * tree holds on to.</p>
+ * <p>Usually one table is used per parse, and dropped once the parse is done, although a table may
+ * be reused to share strings between trees. When used with a memory-mapped file, strings that have
+ * been seen before are found straight from the file's bytes without decoding them.</p>
+ * <p>Tables aren't thread safe.</p>
+ */
+public class TextSettingSymbolTable {
+    private static final int INITIAL_CAPACITY = 256;
+
+    // Open addressing with linear probing. Capacity is always a power of two.
+    private String[] symbols;
+    private byte[][] encodedSymbols;
+    private int[] hashes;
+    private int size;
+
+    public TextSettingSymbolTable() {
+        symbols = new String[INITIAL_CAPACITY];
+        encodedSymbols = new byte[INITIAL_CAPACITY][];
+        hashes = new int[INITIAL_CAPACITY];
+        size = 0;
+    }
+
+    /**
+     * @return The table's instance of the given string, adding it to the table if it's new.
+     */
+    public String intern(String s) {
+        byte[] encoded = s.getBytes(StandardCharsets.UTF_8);
+        return intern(ByteBuffer.wrap(encoded), 0, encoded.length, s);
+    }
+
+    /**
+     * @return The number of distinct strings in the table.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Looks up a UTF-8 encoded string by its bytes, only decoding it if it's new to the table.
+     */
+    String intern(ByteBuffer buffer, int start, int length) {
+        return intern(buffer, start, length, null);
+    }
+
+    private String intern(ByteBuffer buffer, int start, int length, String decoded) {
+        int hash = hash(buffer, start, length);
+        int mask = symbols.length - 1;
+        int index = hash & mask;
+        while (symbols[index] != null) {
+            if (hashes[index] == hash && matches(encodedSymbols[index], buffer, start, length)) {
+                return symbols[index];
+            }
+            index = (index + 1) & mask;
+        }
+
+        byte[] encoded = new byte[length];
+        for (int i = 0; i < length; ++i) {
+            encoded[i] = buffer.get(start + i);
+        }
+        String symbol = decoded != null ? decoded : new String(encoded, StandardCharsets.UTF_8);
+        symbols[index] = symbol;
+        encodedSymbols[index] = encoded;
+        hashes[index] = hash;
+        if (++size * 2 > symbols.length) {
+            grow();
+        }
+        return symbol;
+    }
+
+    private void grow() {
+        String[] oldSymbols = symbols;
+        byte[][] oldEncodedSymbols = encodedSymbols;
+        int[] oldHashes = hashes;
+        symbols = new String[oldSymbols.length * 2];
+        encodedSymbols = new byte[oldSymbols.length * 2][];
+        hashes = new int[oldSymbols.length * 2];
+
+        int mask = symbols.length - 1;
+        for (int i = 0; i < oldSymbols.length; ++i) {
+            if (oldSymbols[i] == null) {
+                continue;
+            }
+            int index = oldHashes[i] & mask;
+            while (symbols[index] != null) {
+                index = (index + 1) & mask;
+            }
+            symbols[index] = oldSymbols[i];
+            encodedSymbols[index] = oldEncodedSymbols[i];
+            hashes[index] = oldHashes[i];
+        }
+    }
+
+    private static int hash(ByteBuffer buffer, int start, int length) {
+        int hash = 0;
+        for (int i = 0; i < length; ++i) {
+            hash = 31 * hash + buffer.get(start + i);
+        }
+        // Spread the low bits, which are all that's used to pick a slot
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean matches(byte[] encoded, ByteBuffer buffer, int start, int length) {
+        if (encoded.length != length) {
+            return false;
+        }
+        for (int i = 0; i < length; ++i) {
+            if (encoded[i] != buffer.get(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
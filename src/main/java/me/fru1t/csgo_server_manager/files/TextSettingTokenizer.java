@@ -0,0 +1,62 @@
+package me.fru1t.csgo_server_manager.files;
+
+import me.fru1t.csgo_server_manager.files.TextSettingUtil.TokenType;
+
+import javax.annotation.Nullable;
+
+/**
+ * Splits a valve settings file into tokens. Implementations may defer creating token strings until
+ * they're asked for, so callers that only inspect token types don't pay for them.
+ */
+interface TextSettingTokenizer {
+    /**
+     * Advances to the next token in the file.
+     * @return The type of the token that was advanced to.
+     */
+    TokenType nextToken();
+
+    /**
+     * @return The content of the current token. For strings and comments this excludes the
+     * surrounding quote marks and leading "//". For errors, this is a description of the error.
+     */
+    String getTokenContent();
+
+    /**
+     * Remembers the current token so that its content is still available through
+     * {@link #getMarkedTokenContent()} after advancing past it. Only one token is remembered at a
+     * time.
+     */
+    void markToken();
+
+    /**
+     * @return The content of the token last passed to {@link #markToken()}.
+     */
+    String getMarkedTokenContent();
+
+    /**
+     * @return The 1-based line number of the current token.
+     */
+    int getCurrentLineNumber();
+
+    /**
+     * @return The 1-based column number, in characters, of the start of the current token, or for
+     * errors, of the character in error.
+     */
+    int getCurrentColumnNumber();
+
+    /**
+     * @return For errors, a short description of what's wrong, without the line it's on.
+     */
+    String getErrorContext();
+
+    /**
+     * Skips the rest of the current line, so that the next token is the first on a later line.
+     * Used to recover from errors.
+     */
+    void skipLine();
+
+    /**
+     * Sets the table that string token contents are interned through, or null to not intern them.
+     */
+    void setSymbolTable(@Nullable TextSettingSymbolTable symbolTable);
+}
@@ -1,43 +1,135 @@
 package me.fru1t.csgo_server_manager.files;
 
+import com.google.common.collect.ImmutableList;
 import lombok.RequiredArgsConstructor;
+import me.fru1t.csgo_server_manager.metrics.Counter;
+import me.fru1t.csgo_server_manager.metrics.MetricRegistry;
+import me.fru1t.csgo_server_manager.metrics.Timer;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
-import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Map;
 import java.util.Scanner;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 /**
- * Utility methods for encoding and decoding files to/from TextSetting objects.
+ * <p>Utility methods for encoding and decoding files to/from TextSetting objects.</p>
+ * <p>Every parse is recorded in the {@link MetricRegistry#global() global} metrics: how long it
+ * took, how many bytes it read, for files and buffers, and how many settings, block ends and
+ * comments it found. Parse rates, such as bytes per second, are left to whatever reads the
+ * counters, such as Prometheus' {@code rate()}.</p>
  */
 public class TextSettingUtil {
-    private enum TokenType {
+    private static final long UNKNOWN_BYTES = -1;
+    private static final Timer PARSE_TIMER = MetricRegistry.global().timer(
+        "csgo_textsetting_parse_seconds", "Time taken to parse TextSetting files.");
+    private static final Counter PARSE_BYTES = MetricRegistry.global().counter(
+        "csgo_textsetting_parse_bytes_total", "Bytes of TextSetting files parsed.");
+    private static final Counter PARSE_EVENTS = MetricRegistry.global().counter(
+        "csgo_textsetting_parse_events_total",
+        "Settings, block ends and comments read from TextSetting files.");
+    private static final Counter PARSE_ERRORS = MetricRegistry.global().counter(
+        "csgo_textsetting_parse_errors_total", "TextSetting files that failed to parse.");
+
+    enum TokenType {
         BEGIN_CHILD, END_CHILD, STRING, COMMENT, ERROR, END_OF_FILE
     }
 
     @RequiredArgsConstructor
-    private static class Token {
+    static class Token {
         @Nonnull TokenType type;
         @Nonnull String content;
     }
 
-    private static class TextSettingProcessor {
+    static class TextSettingProcessor implements TextSettingTokenizer {
         private char[] currentLine;
         private int nextUnusedIndex;
         private Scanner contentScanner;
         private int currentLineNumber;
+        private Token currentToken;
+        private Token markedToken;
+        @Nullable
+        private TextSettingSymbolTable symbolTable;
+
+        // Where the current token starts, or where its error is, within the current line
+        private int tokenIndex;
+        private String errorContext;
 
         TextSettingProcessor(Scanner contentScanner) {
             this.contentScanner = contentScanner;
             nextUnusedIndex = 0;
             currentLine = new char[]{};
             currentLineNumber = 0;
+            currentToken = new Token(TokenType.END_OF_FILE, "");
+            markedToken = currentToken;
+            symbolTable = null;
+            tokenIndex = 0;
+            errorContext = "";
+        }
+
+        @Override
+        public TokenType nextToken() {
+            // Advance line by line rather than recursing, so long runs of blank lines can't
+            // overflow the stack
+            Token token;
+            while ((token = nextTokenOnCurrentLine()) == null) {
+                if (!contentScanner.hasNext()) {
+                    currentToken = new Token(TokenType.END_OF_FILE, "");
+                    tokenIndex = currentLine.length;
+                    return currentToken.type;
+                }
+                ++currentLineNumber;
+                currentLine = contentScanner.nextLine().toCharArray();
+                nextUnusedIndex = -1;
+            }
+            currentToken = token;
+            return currentToken.type;
+        }
+
+        @Override
+        public String getTokenContent() {
+            return currentToken.type == TokenType.STRING && symbolTable != null
+                ? symbolTable.intern(currentToken.content) : currentToken.content;
+        }
+
+        @Override
+        public void markToken() {
+            markedToken = currentToken;
+        }
+
+        @Override
+        public String getMarkedTokenContent() {
+            return symbolTable != null
+                ? symbolTable.intern(markedToken.content) : markedToken.content;
         }
 
-        Token nextToken() {
+        @Override
+        public void setSymbolTable(@Nullable TextSettingSymbolTable symbolTable) {
+            this.symbolTable = symbolTable;
+        }
+
+        // Returns null if the rest of the current line holds no tokens
+        @Nullable
+        private Token nextTokenOnCurrentLine() {
             // Find start of next token
             while (++nextUnusedIndex < currentLine.length) {
+                tokenIndex = nextUnusedIndex;
                 switch (currentLine[nextUnusedIndex]) {
                     // Begin child
                     case '{':
@@ -90,24 +182,39 @@ public class TextSettingUtil {
 
                     // Everything else
                     default:
-                        // Error. In a more lenient mode, this could be a break statement to ignore
-                        // unexpected/invalid characters.
+                        // Error. Lenient readers skip the rest of the line.
                         return detailedTokenError("It's simply an invalid character.");
                 }
             }
 
             // If we didn't find anything at all, it means we reached the end of the current line
             // and need to queue the next from the scanner
-            if (!contentScanner.hasNext()) {
-                return new Token(TokenType.END_OF_FILE, "");
-            }
-            ++currentLineNumber;
-            currentLine = contentScanner.nextLine().toCharArray();
-            nextUnusedIndex = -1;
-            return nextToken();
+            return null;
+        }
+
+        @Override
+        public int getCurrentLineNumber() {
+            return currentLineNumber;
+        }
+
+        @Override
+        public int getCurrentColumnNumber() {
+            return tokenIndex + 1;
+        }
+
+        @Override
+        public String getErrorContext() {
+            return errorContext;
+        }
+
+        @Override
+        public void skipLine() {
+            nextUnusedIndex = currentLine.length;
         }
 
         Token detailedTokenError(String context) {
+            tokenIndex = Math.max(0, nextUnusedIndex);
+            errorContext = context;
             if (nextUnusedIndex >= 0 && nextUnusedIndex < currentLine.length) {
                 return new Token(TokenType.ERROR,
                     "\tInvalid character: '" + currentLine[nextUnusedIndex] + "'"
@@ -127,103 +234,448 @@ public class TextSettingUtil {
     /**
      * Attempts to process a given file into a TextSetting object.
      * @param fileScanner The file to process.
-     * @return The processed file in TextSetting form.
+     * @return The processed file in TextSetting form, or null if the file contains no settings.
      */
+    @Nullable
     public static TextSetting processFile(Scanner fileScanner) throws InvalidFileFormatException {
-        TextSettingProcessor processor = new TextSettingProcessor(fileScanner);
-        return processFile(null, processor);
+        return buildTree(new TextSettingReader(fileScanner), UNKNOWN_BYTES);
+    }
+
+    /**
+     * Attempts to process a given UTF-8 encoded file into a TextSetting object. The file is
+     * memory-mapped rather than read through a {@link Scanner}, which is considerably faster and
+     * lighter on the heap for large files.
+     * @param file The file to process.
+     * @return The processed file in TextSetting form, or null if the file contains no settings.
+     * @throws IOException Thrown if the file can't be read.
+     */
+    @Nullable
+    public static TextSetting processFile(Path file)
+        throws IOException, InvalidFileFormatException {
+        ByteBuffer fileBuffer = mapFile(file);
+        return buildTree(new TextSettingReader(fileBuffer), fileBuffer.remaining());
+    }
+
+    /**
+     * Attempts to process the remaining bytes of a UTF-8 encoded buffer into a TextSetting object.
+     * The buffer's position and limit are left untouched.
+     * @param fileBuffer The file contents to process.
+     * @return The processed file in TextSetting form, or null if the file contains no settings.
+     */
+    @Nullable
+    public static TextSetting processFile(ByteBuffer fileBuffer)
+        throws InvalidFileFormatException {
+        return buildTree(new TextSettingReader(fileBuffer), fileBuffer.remaining());
     }
 
-    // Each call to processFileHelper should handle a single block of key-value pairs from the
-    // processor.
+    /**
+     * Like {@link #processFile(Scanner)}, but shares String instances between repeated keys and
+     * values through the given symbol table, which considerably shrinks large trees.
+     */
     @Nullable
-    private static TextSetting processFile(@Nullable TextSetting.TextSettingBuilder root,
-        TextSettingProcessor processor)
+    public static TextSetting processFile(Scanner fileScanner, TextSettingSymbolTable symbolTable)
         throws InvalidFileFormatException {
-        @Nullable TextSetting.TextSettingBuilder current = null;
+        return buildTree(new TextSettingReader(fileScanner, symbolTable), UNKNOWN_BYTES);
+    }
 
+    /**
+     * Like {@link #processFile(Path)}, but shares String instances between repeated keys and
+     * values through the given symbol table, which considerably shrinks large trees.
+     */
+    @Nullable
+    public static TextSetting processFile(Path file, TextSettingSymbolTable symbolTable)
+        throws IOException, InvalidFileFormatException {
+        ByteBuffer fileBuffer = mapFile(file);
+        return buildTree(new TextSettingReader(fileBuffer, symbolTable), fileBuffer.remaining());
+    }
+
+    /**
+     * Like {@link #processFile(ByteBuffer)}, but shares String instances between repeated keys
+     * and values through the given symbol table, which considerably shrinks large trees.
+     */
+    @Nullable
+    public static TextSetting processFile(ByteBuffer fileBuffer,
+        TextSettingSymbolTable symbolTable) throws InvalidFileFormatException {
+        return buildTree(new TextSettingReader(fileBuffer, symbolTable), fileBuffer.remaining());
+    }
+
+    /**
+     * Like {@link #processFile(Path)}, but parses large files across the threads of the common
+     * {@link ForkJoinPool}. The result, or any error, is always the same as a sequential parse's.
+     * @see #processFileInParallel(ByteBuffer, ForkJoinPool)
+     */
+    @Nullable
+    public static TextSetting processFileInParallel(Path file)
+        throws IOException, InvalidFileFormatException {
+        return ParallelTextSettingParser.parse(mapFile(file), ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Like {@link #processFile(Path)}, but parses large files across the threads of the given
+     * pool. The result, or any error, is always the same as a sequential parse's.
+     * @see #processFileInParallel(ByteBuffer, ForkJoinPool)
+     */
+    @Nullable
+    public static TextSetting processFileInParallel(Path file, ForkJoinPool pool)
+        throws IOException, InvalidFileFormatException {
+        return ParallelTextSettingParser.parse(mapFile(file), pool);
+    }
+
+    /**
+     * <p>Like {@link #processFile(ByteBuffer)}, but parses large files across the threads of the
+     * given pool. The result, or any error, is always the same as a sequential parse's.</p>
+     * <p>Only files consisting of a single root block, like gamemodes.txt or items_game.txt, are
+     * split up, at the boundaries between the root's children. Small files, and anything else,
+     * are simply parsed on the calling thread.</p>
+     * @param fileBuffer The file contents to process. Its position and limit are left untouched.
+     * @param pool The pool to parse on.
+     * @return The processed file in TextSetting form, or null if the file contains no settings.
+     */
+    @Nullable
+    public static TextSetting processFileInParallel(ByteBuffer fileBuffer, ForkJoinPool pool)
+        throws InvalidFileFormatException {
+        return ParallelTextSettingParser.parse(fileBuffer, pool);
+    }
+
+    /**
+     * <p>Like {@link #processFile(Path)}, but carries on past problems in the file rather than
+     * stopping at the first, so that every problem is found in a single pass. Whatever couldn't be
+     * read is skipped, as described in {@link TextSettingReader#setLenient(boolean)}, and every
+     * other setting is kept.</p>
+     * <p>Files without problems give exactly the same setting as a strict parse.</p>
+     * @param file The file to process.
+     * @return Every setting that could be read, and every problem found, with its line and column.
+     * @throws IOException Thrown if the file can't be read.
+     */
+    public static TextSettingParseResult processFileLeniently(Path file) throws IOException {
+        ByteBuffer fileBuffer;
         try {
-            while (true) {
-                Token token = processor.nextToken();
-                switch (token.type) {
-                    case STRING:
-                        if (current == null) {
-                            // It's a key
-                            current = TextSetting.builder().key(token.content);
-                        } else {
-                            // It's a value
-                            if (root == null) {
-                                // Set as root
-                                root = current;
-                            } else {
-                                // Otherwise add it as a child
-                                root.addChild(current.value(token.content).build());
-                            }
-                            current = null;
-                        }
-                        break;
+            fileBuffer = mapFile(file);
+        } catch (InvalidFileFormatException e) {
+            return new TextSettingParseResult(null,
+                ImmutableList.of(new TextSettingDiagnostic(1, 1, e.getMessage())),
+                Collections.emptyMap());
+        }
+        return buildTreeLeniently(new TextSettingReader(fileBuffer), fileBuffer.remaining());
+    }
 
-                    case COMMENT:
-                        // Ignore comments
-                        break;
+    /**
+     * Like {@link #processFileLeniently(Path)}, but for the remaining bytes of a UTF-8 encoded
+     * buffer. The buffer's position and limit are left untouched.
+     */
+    public static TextSettingParseResult processFileLeniently(ByteBuffer fileBuffer) {
+        return buildTreeLeniently(new TextSettingReader(fileBuffer), fileBuffer.remaining());
+    }
 
-                    case END_CHILD:
-                        if (current != null) {
-                            // We're in the middle of a key-value pair, it's invalid to end the block
-                            throw new InvalidFileFormatException("Expected a value or begin child "
-                                + "marker, but found a end marker for a child block instead. Line "
-                                + processor.currentLineNumber);
-                        }
+    /**
+     * Like {@link #processFileLeniently(Path)}, but for a file read through a {@link Scanner}.
+     */
+    public static TextSettingParseResult processFileLeniently(Scanner fileScanner) {
+        return buildTreeLeniently(new TextSettingReader(fileScanner), UNKNOWN_BYTES);
+    }
 
-                        // Otherwise, it's a valid end, so we're done with this recursive loop
-                        return null;
+    /**
+     * Streams a given file through a {@link TextSettingHandler} without building a TextSetting
+     * tree. Memory use is constant with respect to both the size and the nesting depth of the file.
+     * @param fileScanner The file to process.
+     * @param handler Receives each setting as it's read from the file.
+     */
+    public static void processFile(Scanner fileScanner, TextSettingHandler handler)
+        throws InvalidFileFormatException {
+        stream(new TextSettingReader(fileScanner), handler, UNKNOWN_BYTES);
+    }
 
-                    case BEGIN_CHILD:
-                        if (current == null) {
-                            // There's no key to this child block. It's invalid to start one.
-                            throw new InvalidFileFormatException(
-                                "Expected a key, but found the start to a child block instead. "
-                                    + "Line " + processor.currentLineNumber);
-                        }
+    /**
+     * Memory-maps and streams a given UTF-8 encoded file through a {@link TextSettingHandler}
+     * without building a TextSetting tree.
+     * @param file The file to process.
+     * @param handler Receives each setting as it's read from the file.
+     * @throws IOException Thrown if the file can't be read.
+     */
+    public static void processFile(Path file, TextSettingHandler handler)
+        throws IOException, InvalidFileFormatException {
+        ByteBuffer fileBuffer = mapFile(file);
+        stream(new TextSettingReader(fileBuffer), handler, fileBuffer.remaining());
+    }
 
-                        // Otherwise recurse down the child
-                        current.startChildBlock();
-                        if (processFile(current, processor) != null) {
-                            throw new InvalidFileFormatException("Unexpected end of file. There's "
-                                + "an imbalance of braces somewhere in your file. We can't "
-                                + "pinpoint where it is, because to us, it looks like the end of "
-                                + "the file.");
-                        }
-                        if (root == null) {
-                            root = current;
-                        } else {
-                            TextSetting built = current.build();
-                            root.addChild(built);
-                        }
-                        current = null;
-                        break;
+    /**
+     * Writes the given setting to the given file, UTF-8 encoded, replacing it atomically. The
+     * setting's written to a temporary file alongside, flushed to disk, then moved over the file,
+     * so that anything reading the file, such as a server, sees either all of the old file or all
+     * of the new one.
+     * @throws InvalidTextSettingException Thrown if any TextSetting within the hierarchy is
+     * invalid, in which case the file's left as it was.
+     */
+    public static void writeFile(Path file, TextSetting setting)
+        throws IOException, InvalidTextSettingException {
+        writeFileAtomically(file, StandardCharsets.UTF_8.encode(setting.toFileString()));
+    }
 
-                    case END_OF_FILE:
-                        if (current != null) {
-                            throw new InvalidFileFormatException("Unexpected end of file. There's "
-                                + "an imbalance of key-value pairs somewhere in your file.");
-                        }
-                        if (root != null) {
-                            return root.build();
-                        }
-                        return null;
+    /**
+     * Writes the given bytes to the given file, replacing it atomically, as
+     * {@link #writeFile(Path, TextSetting)} does. The file keeps its permissions, where the file
+     * system has POSIX ones.
+     */
+    static void writeFileAtomically(Path file, ByteBuffer content) throws IOException {
+        Path temp = Files.createTempFile(file.toAbsolutePath().getParent(),
+            file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                while (content.hasRemaining()) {
+                    channel.write(content);
+                }
+                channel.force(false);
+            }
+            copyPermissions(file, temp);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
 
-                    case ERROR:
-                    default:
-                        throw new InvalidFileFormatException(
-                            "There was an error processing the file: \n\n%s"
-                                + "\n\tLine: " + processor.currentLineNumber
-                                + "\n", token.content);
+    // Temporary files are only readable by their owner, which would otherwise lock out a server
+    // running as another user once moved over its config
+    private static void copyPermissions(Path from, Path to) throws IOException {
+        PosixFileAttributeView view =
+            Files.getFileAttributeView(from, PosixFileAttributeView.class);
+        if (view == null) {
+            return;
+        }
+        Set<PosixFilePermission> permissions;
+        try {
+            permissions = view.readAttributes().permissions();
+        } catch (NoSuchFileException e) {
+            // A new file, with nothing to keep
+            return;
+        }
+        Files.setPosixFilePermissions(to, permissions);
+    }
+
+    // Mappings stay valid after the channel is closed, and are released once they're garbage
+    // collected.
+    private static ByteBuffer mapFile(Path file) throws IOException, InvalidFileFormatException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new InvalidFileFormatException("%s is too large to process (%d bytes).",
+                    file, size);
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+    }
+
+    @Nullable
+    private static TextSetting buildTree(TextSettingReader reader, long bytes)
+        throws InvalidFileFormatException {
+        long startNanos = System.nanoTime();
+        try {
+            TreeBuildingHandler handler = new TreeBuildingHandler(reader);
+            PARSE_EVENTS.add(processFile(reader, handler));
+            TextSetting setting = handler.build();
+            recordParse(startNanos, bytes);
+            return setting;
+        } catch (InvalidFileFormatException e) {
+            PARSE_ERRORS.increment();
+            throw e;
+        }
+    }
+
+    private static TextSettingParseResult buildTreeLeniently(TextSettingReader reader,
+        long bytes) {
+        long startNanos = System.nanoTime();
+        reader.setLenient(true);
+        Map<TextSetting, TextSettingPosition> positions = new IdentityHashMap<>();
+        TextSetting setting;
+        try {
+            TreeBuildingHandler handler = new TreeBuildingHandler(reader, positions);
+            PARSE_EVENTS.add(processFile(reader, handler));
+            setting = handler.build();
+        } catch (InvalidFileFormatException e) {
+            // Lenient readers don't throw, but building the tree from what they read still may
+            reader.report(e.getMessage());
+            setting = null;
+        }
+        recordParse(startNanos, bytes);
+
+        ImmutableList<TextSettingDiagnostic> diagnostics = reader.getDiagnostics();
+        if (!diagnostics.isEmpty()) {
+            PARSE_ERRORS.increment();
+        }
+        return new TextSettingParseResult(setting, diagnostics,
+            Collections.unmodifiableMap(positions));
+    }
+
+    private static void stream(TextSettingReader reader, TextSettingHandler handler, long bytes)
+        throws InvalidFileFormatException {
+        long startNanos = System.nanoTime();
+        try {
+            PARSE_EVENTS.add(processFile(reader, handler));
+            recordParse(startNanos, bytes);
+        } catch (InvalidFileFormatException e) {
+            PARSE_ERRORS.increment();
+            throw e;
+        }
+    }
+
+    /**
+     * Records a successful parse of the given number of bytes, or of an unknown number if
+     * negative, that started at the given time.
+     */
+    static void recordParse(long startNanos, long bytes) {
+        PARSE_TIMER.recordSince(startNanos);
+        if (bytes >= 0) {
+            PARSE_BYTES.add(bytes);
+        }
+    }
+
+    /**
+     * Passes every event in the file to the given handler.
+     * @return The number of events, not counting the end of the file.
+     */
+    static int processFile(TextSettingReader reader, TextSettingHandler handler)
+        throws InvalidFileFormatException {
+        int events = 0;
+        while (true) {
+            ++events;
+            switch (reader.next()) {
+                case START_BLOCK:
+                    handler.startBlock(reader.getKey());
+                    break;
+
+                case KEY_VALUE:
+                    handler.keyValue(reader.getKey(), reader.getValue());
+                    break;
+
+                case END_BLOCK:
+                    handler.endBlock();
+                    break;
+
+                case COMMENT:
+                    handler.comment(reader.getComment());
+                    break;
+
+                case END_OF_FILE:
+                default:
+                    return events - 1;
+            }
+        }
+    }
+
+    /**
+     * Assembles {@link TextSettingReader} events back into a TextSetting tree. The first top-level
+     * setting becomes the root; any top-level settings after it are added as its children.
+     */
+    static class TreeBuildingHandler implements TextSettingHandler {
+        private final TextSettingReader reader;
+        private final Deque<TextSetting.TextSettingBuilder> openBlocks;
+        @Nullable
+        private TextSetting.TextSettingBuilder root;
+
+        // Where each setting was read, if asked for, first by builder until each is built
+        @Nullable
+        private final Map<TextSetting, TextSettingPosition> positions;
+        @Nullable
+        private final Map<TextSetting.TextSettingBuilder, TextSettingPosition> builderPositions;
+
+        TreeBuildingHandler(TextSettingReader reader) {
+            this(reader, null);
+        }
+
+        /**
+         * @param positions Given where every setting built was read, by identity.
+         */
+        TreeBuildingHandler(TextSettingReader reader,
+            @Nullable Map<TextSetting, TextSettingPosition> positions) {
+            this.reader = reader;
+            this.positions = positions;
+            builderPositions = positions == null ? null : new IdentityHashMap<>();
+            openBlocks = new ArrayDeque<>();
+            root = null;
+        }
+
+        @Override
+        public void startBlock(String key) {
+            openBlocks.push(remember(TextSetting.builder().key(key).startChildBlock()));
+        }
+
+        @Override
+        public void keyValue(String key, String value) throws InvalidFileFormatException {
+            TextSetting.TextSettingBuilder setting =
+                remember(TextSetting.builder().key(key).value(value));
+            if (openBlocks.isEmpty()) {
+                addTopLevel(setting);
+                return;
+            }
+            addChild(openBlocks.peek(), setting);
+        }
+
+        @Override
+        public void endBlock() throws InvalidFileFormatException {
+            TextSetting.TextSettingBuilder block = openBlocks.pop();
+            if (openBlocks.isEmpty()) {
+                addTopLevel(block);
+                return;
+            }
+            addChild(openBlocks.peek(), block);
+        }
+
+        @Override
+        public void comment(String text) {
+            // Ignore comments
+        }
+
+        @Nullable
+        TextSetting build() throws InvalidFileFormatException {
+            if (root == null) {
+                return null;
+            }
+            try {
+                return build(root);
+            } catch (InvalidTextSettingException e) {
+                throw new InvalidFileFormatException(e.getMessage() + "\nLine: "
+                    + reader.getLineNumber());
+            }
+        }
+
+        void addTopLevel(TextSetting.TextSettingBuilder setting)
+            throws InvalidFileFormatException {
+            if (root == null) {
+                root = setting;
+            } else {
+                addChild(root, setting);
+            }
+        }
+
+        private void addChild(TextSetting.TextSettingBuilder parent,
+            TextSetting.TextSettingBuilder child) throws InvalidFileFormatException {
+            try {
+                parent.addChild(build(child));
+            } catch (InvalidTextSettingException e) {
+                throw new InvalidFileFormatException(e.getMessage() + "\nLine: "
+                    + reader.getLineNumber());
+            }
+        }
+
+        // Where the reader is now, at the setting's value or opening brace
+        private TextSetting.TextSettingBuilder remember(TextSetting.TextSettingBuilder builder) {
+            if (builderPositions != null) {
+                builderPositions.put(builder,
+                    new TextSettingPosition(reader.getLineNumber(), reader.getColumnNumber()));
+            }
+            return builder;
+        }
+
+        private TextSetting build(TextSetting.TextSettingBuilder builder)
+            throws InvalidTextSettingException {
+            TextSetting setting = builder.build();
+            if (builderPositions != null) {
+                TextSettingPosition position = builderPositions.remove(builder);
+                if (position != null) {
+                    positions.put(setting, position);
                 }
             }
-        } catch (InvalidTextSettingException e) {
-            throw new InvalidFileFormatException(e.getMessage() + "\nLine: "
-                + processor.currentLineNumber);
+            return setting;
         }
     }
 }
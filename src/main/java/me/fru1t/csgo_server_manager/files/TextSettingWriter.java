@@ -0,0 +1,199 @@
+package me.fru1t.csgo_server_manager.files;
+
+import com.google.common.base.Strings;
+import me.fru1t.commons.lang.Result;
+
+import javax.annotation.Nullable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * <p>Writes TextSettings out in the valve settings format, producing exactly what
+ * {@link TextSetting#toFileString()} does, but straight to a {@link Writer}, channel or any other
+ * {@link Appendable}. Large trees can be written to disk without first being built up as a single
+ * String.</p>
+ * <p>Trees are walked with an explicit stack rather than recursively, so deeply nested trees
+ * can't overflow the stack, and each setting is validated as it's written. If a setting turns out
+ * to be invalid, everything before it will have already been written.</p>
+ */
+public class TextSettingWriter implements Flushable {
+    private final Appendable out;
+
+    // Indentation for any depth is a prefix of this, grown as deeper settings are written
+    private String indentation;
+
+    public TextSettingWriter(Appendable out) {
+        this.out = out;
+        indentation = Strings.repeat(TextSetting.INDENTATION_PATTERN, 16);
+    }
+
+    /**
+     * Creates a writer that encodes its output as UTF-8 to the given channel. Output is buffered,
+     * so the writer must be {@link #flush() flushed} once done.
+     */
+    public TextSettingWriter(WritableByteChannel channel) {
+        this(Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), -1));
+    }
+
+    /**
+     * Writes the given TextSetting and all of its children.
+     * @throws InvalidTextSettingException Thrown if any TextSetting within this hierarchy is
+     * invalid.
+     */
+    public void write(TextSetting setting) throws IOException, InvalidTextSettingException {
+        if (!writeSetting(setting, 0)) {
+            return;
+        }
+
+        Walk walk = new Walk(setting);
+        while (walk.depth > 0) {
+            TextSetting child = walk.next();
+            if (child == null) {
+                appendIndentation(walk.depth);
+                out.append("}\n");
+            } else if (writeSetting(child, walk.depth)) {
+                walk.open(child);
+            }
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (out instanceof Flushable) {
+            ((Flushable) out).flush();
+        }
+    }
+
+    /**
+     * Calculates the number of characters that writing the given TextSetting produces, without
+     * producing them. This also validates the whole hierarchy.
+     * @throws InvalidTextSettingException Thrown if any TextSetting within this hierarchy is
+     * invalid.
+     */
+    public static long computeLength(TextSetting setting) throws InvalidTextSettingException {
+        long length = settingLength(setting, 0);
+        if (setting.children == null) {
+            return length;
+        }
+
+        Walk walk = new Walk(setting);
+        while (walk.depth > 0) {
+            TextSetting child = walk.next();
+            if (child == null) {
+                length += walk.depth * TextSetting.INDENTATION_PATTERN.length() + 2;
+            } else {
+                length += settingLength(child, walk.depth);
+                if (child.children != null) {
+                    walk.open(child);
+                }
+            }
+        }
+        return length;
+    }
+
+    // Writes the setting's own line, returning whether it opened a block
+    private boolean writeSetting(TextSetting setting, int depth)
+        throws IOException, InvalidTextSettingException {
+        checkValid(setting);
+
+        // Always show key
+        appendIndentation(depth);
+        out.append('"').append(setting.key).append('"');
+
+        // Check if value
+        if (setting.value != null) {
+            out.append(TextSetting.KEY_VALUE_DELIMITER)
+                .append('"').append(setting.value).append("\"\n");
+            return false;
+        }
+
+        // Otherwise, it's a child-bearing settings block
+        out.append(" {\n");
+        return true;
+    }
+
+    private static long settingLength(TextSetting setting, int depth)
+        throws InvalidTextSettingException {
+        checkValid(setting);
+        long length = depth * TextSetting.INDENTATION_PATTERN.length() + setting.key.length() + 2;
+        if (setting.value != null) {
+            return length + TextSetting.KEY_VALUE_DELIMITER.length() + setting.value.length() + 3;
+        }
+        return length + 3;
+    }
+
+    // Only builds a Result to describe the problem once there is one
+    private static void checkValid(TextSetting setting) throws InvalidTextSettingException {
+        if (!setting.key.isEmpty() && (setting.value == null) != (setting.children == null)) {
+            return;
+        }
+        Result r = setting.isValid();
+        throw new InvalidTextSettingException("An error occurred while converting this "
+            + "TextSetting to a file string. Please check where it's being created and that it "
+            + "adheres to the following error: " + r.context);
+    }
+
+    private void appendIndentation(int depth) throws IOException {
+        int length = depth * TextSetting.INDENTATION_PATTERN.length();
+        while (indentation.length() < length) {
+            indentation = indentation + indentation;
+        }
+
+        // Writers copy subsequences they're given, so have them write the range directly
+        if (out instanceof Writer) {
+            ((Writer) out).write(indentation, 0, length);
+        } else {
+            out.append(indentation, 0, length);
+        }
+    }
+
+    /**
+     * Steps through a tree depth first over the children arrays directly, rather than through
+     * an iterator per block.
+     */
+    private static final class Walk {
+        private Object[][] blocks;
+        private int[] positions;
+
+        // The number of blocks currently open
+        int depth;
+
+        Walk(TextSetting root) {
+            blocks = new Object[16][];
+            positions = new int[16];
+            depth = 0;
+            open(root);
+        }
+
+        void open(TextSetting block) {
+            if (depth == blocks.length) {
+                blocks = Arrays.copyOf(blocks, depth * 2);
+                positions = Arrays.copyOf(positions, depth * 2);
+            }
+            blocks[depth] = CompactChildMap.entriesOf(block.children);
+            positions[depth] = 1;
+            ++depth;
+        }
+
+        /**
+         * @return The next child of the innermost open block, or null if it has no more, in which
+         * case it's closed and {@link #depth} is that of its closing brace.
+         */
+        @Nullable
+        TextSetting next() {
+            Object[] entries = blocks[depth - 1];
+            int position = positions[depth - 1];
+            if (position >= entries.length) {
+                blocks[--depth] = null;
+                return null;
+            }
+            positions[depth - 1] = position + 2;
+            return (TextSetting) entries[position];
+        }
+    }
+}
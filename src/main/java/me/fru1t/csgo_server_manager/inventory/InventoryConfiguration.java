@@ -0,0 +1,38 @@
+package me.fru1t.csgo_server_manager.inventory;
+
+import me.fru1t.csgo_server_manager.server.ServerConfig;
+import me.fru1t.csgo_server_manager.server.ServerSupervisor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Creates the application's {@link MapInventory} over the install directory of every supervised
+ * server, walking {@code csgo.inventory.parallelism} directories at once, and saving its index to
+ * {@code csgo.inventory.indexFile}, if set. The installs are watched for changes from then on.
+ */
+@Configuration
+public class InventoryConfiguration {
+    @Bean(destroyMethod = "close")
+    public MapInventory mapInventory(ServerSupervisor supervisor,
+        @Value("${csgo.inventory.parallelism:" + MapInventory.DEFAULT_PARALLELISM + "}")
+            int parallelism,
+        @Value("${csgo.inventory.indexFile:}") String indexFile) throws IOException {
+        Map<String, Path> installs = new LinkedHashMap<>();
+        for (ServerConfig config : supervisor.getConfigs()) {
+            if (config.getDirectory() != null) {
+                installs.put(config.getName(), config.getDirectory());
+            }
+        }
+        MapInventory inventory = new MapInventory(installs, parallelism,
+            indexFile.isEmpty() ? null : Paths.get(indexFile));
+        inventory.watch();
+        return inventory;
+    }
+}
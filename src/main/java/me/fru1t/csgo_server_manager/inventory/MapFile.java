@@ -0,0 +1,34 @@
+package me.fru1t.csgo_server_manager.inventory;
+
+import com.google.common.hash.HashCode;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.nio.file.Path;
+
+/**
+ * A {@code .bsp} map found within a server's install.
+ */
+@Getter
+@RequiredArgsConstructor
+public final class MapFile {
+    /**
+     * The map's absolute, normalized path.
+     */
+    private final Path path;
+
+    /**
+     * What servers call the map, its path within the {@code maps} directory without the
+     * extension, such as {@code de_dust2} or {@code workshop/125438255/de_cbble}.
+     */
+    private final String name;
+
+    private final long size;
+    private final long modifiedTime;
+
+    /**
+     * The {@link com.google.common.hash.Hashing#murmur3_128()} hash of the map's contents, which
+     * is the same for every copy of a map.
+     */
+    private final HashCode contentHash;
+}
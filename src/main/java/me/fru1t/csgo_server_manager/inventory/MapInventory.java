@@ -0,0 +1,619 @@
+package me.fru1t.csgo_server_manager.inventory;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import me.fru1t.csgo_server_manager.files.TextSetting;
+import me.fru1t.csgo_server_manager.files.TextSettingQuery;
+import me.fru1t.csgo_server_manager.files.TextSettingUtil;
+
+import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>Keeps an index of every {@code .bsp} map within the installs of a fleet of servers, and of
+ * which servers use them. A server uses every map listed in its {@code mapcycle*.txt} files, and
+ * every map in the map groups of its {@code gamemodes*.txt} files.</p>
+ * <p>Installs are walked in parallel, each directory listed by its own task on a
+ * {@link ForkJoinPool}. Maps are hashed by memory-mapping them, a large chunk at a time, and each
+ * map's hash is kept along with its modified time and size, so that only maps that have changed
+ * since are hashed again. The index is saved to a file, so a restart only has to list the
+ * installs, not read every map in them again.</p>
+ * <p>Once {@link #watch() watched}, every directory within the installs is registered with a
+ * {@link WatchService}, and maps and config files are indexed again as soon as they change.
+ * Symbolic links to files are followed, but symbolic links to directories aren't, so that links
+ * can't form loops.</p>
+ */
+public class MapInventory implements Closeable {
+    public static final int DEFAULT_PARALLELISM = 4;
+    public static final String MAP_EXTENSION = ".bsp";
+
+    private static final HashFunction CONTENT_HASH = Hashing.murmur3_128();
+    private static final int HASH_BYTES = 16;
+
+    private static final int MAGIC = 0x4D494E56; // "MINV"
+    private static final int VERSION = 1;
+
+    // The most of a map that's mapped into memory at once, and the most that's hashed at once
+    private static final long MAP_CHUNK_BYTES = 256 * 1024 * 1024;
+    private static final int HASH_CHUNK_BYTES = 64 * 1024;
+
+    // Files modified this recently may still be modified again without their modified time
+    // changing, so they're always hashed again
+    private static final long MODIFIED_TIME_GRANULARITY_MS = 2000;
+    private static final long UNTRUSTED_MODIFIED_TIME = Long.MIN_VALUE;
+
+    // The longest closing waits for files being indexed
+    private static final long CLOSE_TIMEOUT_MS = 30 * 1000;
+
+    private static final String MAPS_DIRECTORY = "maps";
+    private static final PathMatcher MAP_CYCLE =
+        FileSystems.getDefault().getPathMatcher("glob:mapcycle*.txt");
+    private static final PathMatcher GAMEMODES =
+        FileSystems.getDefault().getPathMatcher("glob:gamemodes*.txt");
+    private static final TextSettingQuery MAP_GROUP_MAPS =
+        TextSettingQuery.compile("mapgroups/*/maps/*");
+    private static final Splitter LINE_SPLITTER = Splitter.on('\n');
+
+    private static final class IndexedMap {
+        final MapFile map;
+
+        // The map's modified time, or UNTRUSTED_MODIFIED_TIME
+        final long modifiedTime;
+
+        IndexedMap(MapFile map, long modifiedTime) {
+            this.map = map;
+            this.modifiedTime = modifiedTime;
+        }
+    }
+
+    // A map cycle or gamemodes file, and the maps it names
+    private static final class ReferenceFile {
+        // The file's modified time, or UNTRUSTED_MODIFIED_TIME
+        final long modifiedTime;
+
+        final long size;
+        final ImmutableSet<String> mapNames;
+
+        ReferenceFile(long modifiedTime, long size, ImmutableSet<String> mapNames) {
+            this.modifiedTime = modifiedTime;
+            this.size = size;
+            this.mapNames = mapNames;
+        }
+    }
+
+    // Lists a directory, indexing its files, and walks its subdirectories in parallel
+    private final class WalkTask extends RecursiveAction {
+        private final Path directory;
+        private final Set<Path> seen;
+
+        WalkTask(Path directory, Set<Path> seen) {
+            this.directory = directory;
+            this.seen = seen;
+        }
+
+        @Override
+        protected void compute() {
+            List<WalkTask> subdirectories = new ArrayList<>();
+            WatchService service = watchService;
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+                // Registered before listing, so nothing created in the meantime is missed
+                if (service != null) {
+                    try {
+                        directory.register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                            StandardWatchEventKinds.ENTRY_MODIFY,
+                            StandardWatchEventKinds.ENTRY_DELETE);
+                    } catch (ClosedWatchServiceException e) {
+                        // Closing, so only listed
+                    }
+                }
+                for (Path entry : entries) {
+                    if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)) {
+                        subdirectories.add(new WalkTask(entry, seen));
+                    } else if (tryIndex(entry)) {
+                        seen.add(entry);
+                    }
+                }
+            } catch (NoSuchFileException e) {
+                // Deleted since, so there's nothing in it
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (DirectoryIteratorException e) {
+                throw new UncheckedIOException(e.getCause());
+            }
+            invokeAll(subdirectories);
+        }
+    }
+
+    // By server
+    private final ImmutableMap<String, Path> installs;
+
+    // Installs within other installs are walked along with them
+    private final ImmutableList<Path> roots;
+
+    @Nullable
+    private final Path indexFile;
+    private final ForkJoinPool pool;
+    private final ThreadLocal<byte[]> hashBuffers;
+
+    // By absolute, normalized path
+    private final ConcurrentMap<Path, IndexedMap> maps;
+    private final ConcurrentMap<Path, ReferenceFile> referenceFiles;
+
+    // Whether anything's changed since the index was last saved
+    private final AtomicBoolean isChanged;
+    private final AtomicLong hashCount;
+
+    // Files waiting to be indexed again after changing
+    private final Set<Path> pendingUpdates;
+
+    @Nullable
+    private volatile WatchService watchService;
+
+    /**
+     * @param installs The directory each server is installed in, by server. Servers may share
+     * installs.
+     * @param parallelism The most directories to list, or files to hash, at once.
+     * @param indexFile Where to save the index, and load it from, or null not to.
+     */
+    public MapInventory(Map<String, Path> installs, int parallelism, @Nullable Path indexFile) {
+        ImmutableMap.Builder<String, Path> normalizedInstalls = ImmutableMap.builder();
+        for (Map.Entry<String, Path> install : installs.entrySet()) {
+            normalizedInstalls.put(install.getKey(),
+                install.getValue().toAbsolutePath().normalize());
+        }
+        this.installs = normalizedInstalls.build();
+        ImmutableSet<Path> directories = ImmutableSet.copyOf(this.installs.values());
+        ImmutableList.Builder<Path> roots = ImmutableList.builder();
+        for (Path directory : directories) {
+            if (directories.stream().noneMatch(
+                other -> !other.equals(directory) && directory.startsWith(other))) {
+                roots.add(directory);
+            }
+        }
+        this.roots = roots.build();
+        this.indexFile = indexFile;
+        pool = new ForkJoinPool(parallelism);
+        hashBuffers = ThreadLocal.withInitial(() -> new byte[HASH_CHUNK_BYTES]);
+        maps = new ConcurrentHashMap<>();
+        referenceFiles = new ConcurrentHashMap<>();
+        isChanged = new AtomicBoolean(false);
+        hashCount = new AtomicLong();
+        pendingUpdates = ConcurrentHashMap.newKeySet();
+        watchService = null;
+
+        if (indexFile != null) {
+            loadIndex(indexFile);
+        }
+    }
+
+    /**
+     * Walks every install, hashing every map that's new or has changed since it was last indexed,
+     * and forgetting those that have gone. Saves the index afterwards.
+     * @throws IOException Thrown if any directory within the installs can't be listed, or the
+     * index can't be saved. Installs that don't exist are simply empty.
+     */
+    public void scan() throws IOException {
+        scan(roots);
+        saveIndex();
+    }
+
+    /**
+     * Starts keeping the index up to date as files within the installs change, then
+     * {@link #scan() scans} them.
+     * @throws IOException Thrown if the installs can't be watched or scanned.
+     */
+    public void watch() throws IOException {
+        synchronized (this) {
+            if (watchService == null) {
+                WatchService service = FileSystems.getDefault().newWatchService();
+                watchService = service;
+                Thread watcher = new Thread(() -> processWatchEvents(service),
+                    "MapInventory-watcher");
+                watcher.setDaemon(true);
+                watcher.start();
+            }
+        }
+        scan();
+    }
+
+    /**
+     * @return Every map within the installs, by path.
+     */
+    public ImmutableList<MapFile> getMaps() {
+        List<MapFile> sorted = new ArrayList<>(maps.size());
+        for (IndexedMap map : maps.values()) {
+            sorted.add(map.map);
+        }
+        sorted.sort(Comparator.comparing(MapFile::getPath));
+        return ImmutableList.copyOf(sorted);
+    }
+
+    /**
+     * @return Every server whose install has a map cycle or gamemodes file naming the given map,
+     * such as {@code de_dust2} or {@code workshop/125438255/de_cbble}.
+     */
+    public ImmutableSortedSet<String> getServersUsing(String mapName) {
+        ImmutableSortedSet.Builder<String> servers = ImmutableSortedSet.naturalOrder();
+        for (Map.Entry<Path, ReferenceFile> file : referenceFiles.entrySet()) {
+            if (file.getValue().mapNames.contains(mapName)) {
+                for (Map.Entry<String, Path> install : installs.entrySet()) {
+                    if (file.getKey().startsWith(install.getValue())) {
+                        servers.add(install.getKey());
+                    }
+                }
+            }
+        }
+        return servers.build();
+    }
+
+    /**
+     * @return The maps named by the given server's map cycle or gamemodes files that aren't
+     * within its install, or nothing if there's no such server.
+     */
+    public ImmutableSortedSet<String> getMissingMaps(String server) {
+        Path install = installs.get(server);
+        if (install == null) {
+            return ImmutableSortedSet.of();
+        }
+        Set<String> missing = new TreeSet<>();
+        for (Map.Entry<Path, ReferenceFile> file : referenceFiles.entrySet()) {
+            if (file.getKey().startsWith(install)) {
+                missing.addAll(file.getValue().mapNames);
+            }
+        }
+        for (IndexedMap map : maps.values()) {
+            if (map.map.getPath().startsWith(install)) {
+                missing.remove(map.map.getName());
+            }
+        }
+        return ImmutableSortedSet.copyOf(missing);
+    }
+
+    /**
+     * @return How many times a map has been hashed, whether new or changed.
+     */
+    public long getHashCount() {
+        return hashCount.get();
+    }
+
+    /**
+     * Stops watching the installs, waits for files being indexed, and saves the index.
+     */
+    @Override
+    public void close() throws IOException {
+        WatchService service;
+        synchronized (this) {
+            service = watchService;
+            watchService = null;
+        }
+        if (service != null) {
+            service.close();
+        }
+        pool.shutdown();
+        try {
+            pool.awaitTermination(CLOSE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        saveIndex();
+    }
+
+    /**
+     * @return The map's name, its path within the nearest enclosing {@code maps} directory,
+     * without the extension.
+     */
+    static String getMapName(Path map) {
+        String name = map.getFileName().toString();
+        for (Path directory = map.getParent(); directory != null;
+            directory = directory.getParent()) {
+            Path directoryName = directory.getFileName();
+            if (directoryName != null && directoryName.toString().equals(MAPS_DIRECTORY)) {
+                name = directory.relativize(map).toString().replace(File.separatorChar, '/');
+                break;
+            }
+        }
+        return name.substring(0, name.length() - MAP_EXTENSION.length());
+    }
+
+    /**
+     * Walks the given directories, and forgets everything within them that's gone.
+     */
+    private void scan(Collection<Path> directories) throws IOException {
+        Set<Path> seen = ConcurrentHashMap.newKeySet();
+        List<WalkTask> tasks = new ArrayList<>(directories.size());
+        for (Path directory : directories) {
+            WalkTask task = new WalkTask(directory, seen);
+            pool.execute(task);
+            tasks.add(task);
+        }
+        try {
+            for (WalkTask task : tasks) {
+                task.join();
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        boolean isAnyGone = maps.keySet().removeIf(
+            path -> !seen.contains(path) && directories.stream().anyMatch(path::startsWith));
+        isAnyGone |= referenceFiles.keySet().removeIf(
+            path -> !seen.contains(path) && directories.stream().anyMatch(path::startsWith));
+        if (isAnyGone) {
+            isChanged.set(true);
+        }
+    }
+
+    /**
+     * Indexes the given file if it's a map, map cycle or gamemodes file, unless it hasn't changed
+     * since it was last indexed.
+     * @return Whether the file was indexed. Files that can't be read aren't.
+     */
+    private boolean tryIndex(Path file) {
+        String fileName = file.getFileName().toString();
+        boolean isMap = fileName.endsWith(MAP_EXTENSION);
+        boolean isGamemodes = !isMap && GAMEMODES.matches(file.getFileName());
+        if (!isMap && !isGamemodes && !MAP_CYCLE.matches(file.getFileName())) {
+            return false;
+        }
+
+        try {
+            BasicFileAttributes attributes =
+                Files.readAttributes(file, BasicFileAttributes.class);
+            if (!attributes.isRegularFile()) {
+                return false;
+            }
+            long modifiedTime = attributes.lastModifiedTime().toMillis();
+            long size = attributes.size();
+            long trustedModifiedTime =
+                System.currentTimeMillis() - modifiedTime < MODIFIED_TIME_GRANULARITY_MS
+                    ? UNTRUSTED_MODIFIED_TIME : modifiedTime;
+
+            if (isMap) {
+                IndexedMap previous = maps.get(file);
+                if (previous == null || previous.modifiedTime != modifiedTime
+                    || previous.map.getSize() != size) {
+                    maps.put(file, new IndexedMap(new MapFile(file, getMapName(file), size,
+                        modifiedTime, hash(file)), trustedModifiedTime));
+                    isChanged.set(true);
+                }
+            } else {
+                ReferenceFile previous = referenceFiles.get(file);
+                if (previous == null || previous.modifiedTime != modifiedTime
+                    || previous.size != size) {
+                    referenceFiles.put(file, new ReferenceFile(trustedModifiedTime, size,
+                        readMapNames(file, isGamemodes)));
+                    isChanged.set(true);
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private HashCode hash(Path map) throws IOException {
+        Hasher hasher = CONTENT_HASH.newHasher();
+        byte[] buffer = hashBuffers.get();
+        try (FileChannel channel = FileChannel.open(map, StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long position = 0; position < size; position += MAP_CHUNK_BYTES) {
+                // Mappings are released once they're garbage collected
+                MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                    Math.min(MAP_CHUNK_BYTES, size - position));
+                while (chunk.hasRemaining()) {
+                    int length = Math.min(buffer.length, chunk.remaining());
+                    chunk.get(buffer, 0, length);
+                    hasher.putBytes(buffer, 0, length);
+                }
+            }
+        }
+        hashCount.incrementAndGet();
+        return hasher.hash();
+    }
+
+    private static ImmutableSet<String> readMapNames(Path file, boolean isGamemodes)
+        throws IOException {
+        ImmutableSet.Builder<String> mapNames = ImmutableSet.builder();
+        if (isGamemodes) {
+            // Whatever maps can be read from a malformed file are still used by the server
+            TextSetting root = TextSettingUtil.processFileLeniently(file).getSetting();
+            if (root != null && root.getChildren() != null) {
+                MAP_GROUP_MAPS.forEach(root, map -> mapNames.add(map.getKey()));
+            }
+        } else {
+            String content = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+            for (String line : LINE_SPLITTER.split(content)) {
+                int comment = line.indexOf("//");
+                String mapName = (comment < 0 ? line : line.substring(0, comment)).trim();
+                if (!mapName.isEmpty()) {
+                    mapNames.add(mapName);
+                }
+            }
+        }
+        return mapNames.build();
+    }
+
+    private void processWatchEvents(WatchService service) {
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                Path directory = (Path) key.watchable();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        update(directory);
+                    } else {
+                        update(directory.resolve((Path) event.context()));
+                    }
+                }
+                key.reset();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Done watching
+        }
+    }
+
+    /**
+     * Indexes the given changed file, or directory and everything within it, once a thread is
+     * free. A file that changes again in the meantime is only indexed once.
+     */
+    private void update(Path path) {
+        if (!pendingUpdates.add(path)) {
+            return;
+        }
+        pool.execute(() -> {
+            pendingUpdates.remove(path);
+            if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                try {
+                    scan(ImmutableList.of(path));
+                } catch (IOException e) {
+                    // Picked up by the next scan
+                }
+            } else if (!tryIndex(path)) {
+                // Deleted, or no longer something worth indexing, such as a directory that's
+                // been deleted along with everything in it
+                if (maps.keySet().removeIf(file -> file.startsWith(path))
+                    | referenceFiles.keySet().removeIf(file -> file.startsWith(path))) {
+                    isChanged.set(true);
+                }
+            }
+        });
+    }
+
+    // A missing or damaged index only means hashing every map again
+    private void loadIndex(Path indexFile) {
+        try (DataInputStream in = new DataInputStream(
+            new BufferedInputStream(Files.newInputStream(indexFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return;
+            }
+            int mapCount = in.readInt();
+            for (int i = 0; i < mapCount; ++i) {
+                Path path = Paths.get(in.readUTF());
+                long modifiedTime = in.readLong();
+                long size = in.readLong();
+                byte[] hash = new byte[HASH_BYTES];
+                in.readFully(hash);
+                maps.put(path, new IndexedMap(new MapFile(path, getMapName(path), size,
+                    modifiedTime, HashCode.fromBytes(hash)), modifiedTime));
+            }
+            int referenceFileCount = in.readInt();
+            for (int i = 0; i < referenceFileCount; ++i) {
+                Path path = Paths.get(in.readUTF());
+                long modifiedTime = in.readLong();
+                long size = in.readLong();
+                int mapNameCount = in.readInt();
+                ImmutableSet.Builder<String> mapNames = ImmutableSet.builder();
+                for (int j = 0; j < mapNameCount; ++j) {
+                    mapNames.add(in.readUTF());
+                }
+                referenceFiles.put(path, new ReferenceFile(modifiedTime, size, mapNames.build()));
+            }
+        } catch (IOException | RuntimeException e) {
+            maps.clear();
+            referenceFiles.clear();
+            return;
+        }
+
+        // Installs that are no longer part of the fleet
+        if (maps.keySet().removeIf(path -> roots.stream().noneMatch(path::startsWith))
+            | referenceFiles.keySet().removeIf(
+                path -> roots.stream().noneMatch(path::startsWith))) {
+            isChanged.set(true);
+        }
+    }
+
+    /**
+     * Saves the index, if anything's changed since it was last saved. The previous index is
+     * replaced atomically.
+     */
+    private void saveIndex() throws IOException {
+        if (indexFile == null || !isChanged.getAndSet(false)) {
+            return;
+        }
+
+        List<IndexedMap> indexedMaps = new ArrayList<>(maps.values());
+        List<Map.Entry<Path, ReferenceFile>> referenceEntries =
+            new ArrayList<>(referenceFiles.entrySet());
+        Path temp = Files.createTempFile(indexFile.toAbsolutePath().getParent(),
+            indexFile.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(indexedMaps.size());
+                for (IndexedMap map : indexedMaps) {
+                    out.writeUTF(map.map.getPath().toString());
+                    out.writeLong(map.modifiedTime);
+                    out.writeLong(map.map.getSize());
+                    out.write(map.map.getContentHash().asBytes(), 0, HASH_BYTES);
+                }
+                out.writeInt(referenceEntries.size());
+                for (Map.Entry<Path, ReferenceFile> file : referenceEntries) {
+                    out.writeUTF(file.getKey().toString());
+                    out.writeLong(file.getValue().modifiedTime);
+                    out.writeLong(file.getValue().size);
+                    out.writeInt(file.getValue().mapNames.size());
+                    for (String mapName : file.getValue().mapNames) {
+                        out.writeUTF(mapName);
+                    }
+                }
+            }
+            Files.move(temp, indexFile, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            isChanged.set(true);
+            throw e;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
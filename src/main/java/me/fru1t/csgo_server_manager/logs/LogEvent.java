@@ -0,0 +1,213 @@
+package me.fru1t.csgo_server_manager.logs;
+
+import javax.annotation.Nullable;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+/**
+ * <p>Something that happened on a server, as read from a line of its log.</p>
+ * <p>Events are slots in a {@link LogPipeline}'s ring buffer, and are refilled with later lines
+ * once every listener's seen them. Rather than parsing each field into an object up front, an
+ * event keeps its own copy of the line and where each field is within it, and only decodes the
+ * fields it's asked for. Listeners must copy out whatever they want to keep before returning.</p>
+ * <p>Players are the one acting, and targets the one acted upon, such as the player killed.</p>
+ */
+public final class LogEvent {
+    static final int PLAYER_NAME = 0;
+    static final int PLAYER_USER_ID = 1;
+    static final int PLAYER_STEAM_ID = 2;
+    static final int PLAYER_TEAM = 3;
+    static final int TARGET_NAME = 4;
+    static final int TARGET_USER_ID = 5;
+    static final int TARGET_STEAM_ID = 6;
+    static final int TARGET_TEAM = 7;
+    static final int VALUE = 8;
+
+    private static final int FIELD_COUNT = 9;
+    private static final int INITIAL_LINE_BYTES = 256;
+
+    private final int[] fieldStarts;
+    private final int[] fieldEnds;
+    private byte[] line;
+    private int lineLength;
+    @Nullable
+    private String server;
+    @Nullable
+    private LogEventType type;
+    private int year;
+    private int month;
+    private int day;
+    private int hour;
+    private int minute;
+    private int second;
+    private boolean isHeadshot;
+
+    LogEvent() {
+        fieldStarts = new int[FIELD_COUNT];
+        fieldEnds = new int[FIELD_COUNT];
+        line = new byte[INITIAL_LINE_BYTES];
+        lineLength = 0;
+        server = null;
+        type = null;
+        reset();
+    }
+
+    /**
+     * @return The name of the server whose log the event was read from.
+     */
+    public String getServer() {
+        return server;
+    }
+
+    public LogEventType getType() {
+        return type;
+    }
+
+    /**
+     * @return When the server logged the event, in the server's time zone.
+     */
+    public LocalDateTime getTimestamp() {
+        return LocalDateTime.of(year, month, day, hour, minute, second);
+    }
+
+    /**
+     * @return The log line, without its line ending.
+     */
+    public String getLine() {
+        return new String(line, 0, lineLength, StandardCharsets.UTF_8);
+    }
+
+    @Nullable
+    public String getPlayerName() {
+        return getField(PLAYER_NAME);
+    }
+
+    /**
+     * @return The player's user ID on the server, or -1 if there's no player.
+     */
+    public int getPlayerUserId() {
+        return getIntField(PLAYER_USER_ID);
+    }
+
+    /**
+     * @return The player's Steam ID, such as {@code STEAM_1:0:1234}, or {@code BOT} for bots.
+     */
+    @Nullable
+    public String getPlayerSteamId() {
+        return getField(PLAYER_STEAM_ID);
+    }
+
+    /**
+     * @return The player's team, such as {@code CT} or {@code TERRORIST}. Empty for players that
+     * haven't joined a team.
+     */
+    @Nullable
+    public String getPlayerTeam() {
+        return getField(PLAYER_TEAM);
+    }
+
+    @Nullable
+    public String getTargetName() {
+        return getField(TARGET_NAME);
+    }
+
+    /**
+     * @return The target's user ID on the server, or -1 if there's no target.
+     */
+    public int getTargetUserId() {
+        return getIntField(TARGET_USER_ID);
+    }
+
+    @Nullable
+    public String getTargetSteamId() {
+        return getField(TARGET_STEAM_ID);
+    }
+
+    @Nullable
+    public String getTargetTeam() {
+        return getField(TARGET_TEAM);
+    }
+
+    /**
+     * @return What the event's type describes as its value, or null for types without one.
+     * @see LogEventType
+     */
+    @Nullable
+    public String getValue() {
+        return getField(VALUE);
+    }
+
+    /**
+     * @return Whether a kill was a headshot.
+     */
+    public boolean isHeadshot() {
+        return isHeadshot;
+    }
+
+    @Override
+    public String toString() {
+        return server + " " + type + ": " + getLine();
+    }
+
+    /**
+     * Clears every field, ready to be filled with another line.
+     */
+    void reset() {
+        Arrays.fill(fieldStarts, -1);
+        Arrays.fill(fieldEnds, -1);
+        isHeadshot = false;
+    }
+
+    /**
+     * Fills the event with the given line. Fields are set separately, relative to the line's
+     * start.
+     */
+    void set(String server, LogEventType type, byte[] buffer, int offset, int length) {
+        if (line.length < length) {
+            line = new byte[Math.max(length, line.length * 2)];
+        }
+        System.arraycopy(buffer, offset, line, 0, length);
+        lineLength = length;
+        this.server = server;
+        this.type = type;
+    }
+
+    void setTimestamp(int year, int month, int day, int hour, int minute, int second) {
+        this.year = year;
+        this.month = month;
+        this.day = day;
+        this.hour = hour;
+        this.minute = minute;
+        this.second = second;
+    }
+
+    void setField(int field, int start, int end) {
+        fieldStarts[field] = start;
+        fieldEnds[field] = end;
+    }
+
+    void setHeadshot(boolean isHeadshot) {
+        this.isHeadshot = isHeadshot;
+    }
+
+    @Nullable
+    private String getField(int field) {
+        if (fieldStarts[field] < 0) {
+            return null;
+        }
+        return new String(line, fieldStarts[field], fieldEnds[field] - fieldStarts[field],
+            StandardCharsets.UTF_8);
+    }
+
+    private int getIntField(int field) {
+        if (fieldStarts[field] < 0) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = fieldStarts[field]; i < fieldEnds[field]; ++i) {
+            value = value * 10 + line[i] - '0';
+        }
+        return value;
+    }
+}
@@ -0,0 +1,142 @@
+package me.fru1t.csgo_server_manager.logs;
+
+import com.google.common.base.Preconditions;
+
+import javax.annotation.Nullable;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <p>A bounded ring of {@link LogEvent}s, filled by a single producer and read by any number of
+ * subscribers, each on its own thread.</p>
+ * <p>Events are allocated once, up front, and reused. The producer claims the next event, fills
+ * it, and publishes it by advancing a sequence. Each subscriber follows along with a sequence of
+ * its own, handling everything published since it last looked in one go. The producer only waits
+ * once the ring's full, until the slowest subscriber has moved on from the event it wants to
+ * reuse. Nothing's dropped, and nothing's allocated or locked per event.</p>
+ * <p>Waiting is done by briefly parking. Subscribers that keep finding nothing new park for longer
+ * and longer, up to 10 milliseconds, so an idle ring costs next to nothing while a busy one
+ * is kept up with.</p>
+ */
+final class LogEventRing {
+    private static final long WAIT_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    private static final long MAX_IDLE_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final LogEvent[] events;
+    private final int mask;
+    private final AtomicLong published;
+    private final AtomicLong[] consumed;
+    private final Thread[] subscribers;
+    private volatile boolean isClosed;
+
+    // Only touched by the producer
+    private long next;
+    private long minConsumed;
+
+    /**
+     * Starts a thread for each of the given listeners.
+     * @param size The number of events in the ring, a power of two.
+     */
+    LogEventRing(int size, List<LogPipeline.Listener> listeners) {
+        Preconditions.checkArgument(size > 0 && Integer.bitCount(size) == 1,
+            "Ring size must be a power of two: %s", size);
+        events = new LogEvent[size];
+        for (int i = 0; i < size; ++i) {
+            events[i] = new LogEvent();
+        }
+        mask = size - 1;
+        published = new AtomicLong(-1);
+        consumed = new AtomicLong[listeners.size()];
+        subscribers = new Thread[listeners.size()];
+        isClosed = false;
+        next = 0;
+        minConsumed = -1;
+
+        for (int i = 0; i < listeners.size(); ++i) {
+            AtomicLong sequence = new AtomicLong(-1);
+            LogPipeline.Listener listener = listeners.get(i);
+            consumed[i] = sequence;
+            subscribers[i] = new Thread(() -> subscribe(listener, sequence), "LogEventRing-" + i);
+            subscribers[i].setDaemon(true);
+            subscribers[i].start();
+        }
+    }
+
+    /**
+     * Waits for the next event to be free, for the producer to fill then {@link #publish()}.
+     * Claiming again without publishing returns the same event.
+     * @return The event, or null if the ring's been closed.
+     */
+    @Nullable
+    LogEvent claim() {
+        long wrap = next - events.length;
+        while (wrap > minConsumed && !isClosed) {
+            minConsumed = minConsumed();
+            if (wrap > minConsumed) {
+                LockSupport.parkNanos(WAIT_NANOS);
+            }
+        }
+        return isClosed ? null : events[(int) next & mask];
+    }
+
+    /**
+     * Hands the claimed event to every subscriber.
+     */
+    void publish() {
+        published.lazySet(next++);
+    }
+
+    /**
+     * Stops every subscriber once it's handled everything already published, and waits for them
+     * to.
+     */
+    void close() throws InterruptedException {
+        isClosed = true;
+        for (Thread subscriber : subscribers) {
+            if (subscriber != Thread.currentThread()) {
+                subscriber.join();
+            }
+        }
+    }
+
+    private long minConsumed() {
+        long min = next - 1;
+        for (AtomicLong sequence : consumed) {
+            min = Math.min(min, sequence.get());
+        }
+        return min;
+    }
+
+    private void subscribe(LogPipeline.Listener listener, AtomicLong sequence) {
+        long handled = -1;
+        long waitNanos = WAIT_NANOS;
+        while (true) {
+            // Read before checking for more, so nothing published before closing is missed
+            boolean wasClosed = isClosed;
+            long available = published.get();
+            if (available == handled) {
+                if (wasClosed) {
+                    return;
+                }
+                LockSupport.parkNanos(waitNanos);
+                waitNanos = Math.min(waitNanos * 2, MAX_IDLE_WAIT_NANOS);
+                continue;
+            }
+            waitNanos = WAIT_NANOS;
+
+            for (long i = handled + 1; i <= available; ++i) {
+                // Keep going whatever a listener does, or the producer would wait on it forever
+                try {
+                    listener.onEvent(events[(int) i & mask]);
+                } catch (RuntimeException e) {
+                    Thread thread = Thread.currentThread();
+                    thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+                }
+            }
+            handled = available;
+            sequence.lazySet(handled);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package me.fru1t.csgo_server_manager.logs;
+
+/**
+ * The kinds of server log lines turned into {@link LogEvent}s. Lines of any other kind are
+ * skipped.
+ */
+public enum LogEventType {
+    /**
+     * A player connected. The value is the address they connected from.
+     */
+    CONNECT,
+
+    /**
+     * A player disconnected. The value is the reason given.
+     */
+    DISCONNECT,
+
+    /**
+     * A player killed the target player. The value is the weapon used.
+     */
+    KILL,
+
+    /**
+     * A player said something, to everyone or to their team. The value is the message.
+     */
+    SAY,
+
+    /**
+     * A round started.
+     */
+    ROUND_START,
+
+    /**
+     * A round ended.
+     */
+    ROUND_END,
+
+    /**
+     * A map started. The value is the map's name.
+     */
+    MAP_START
+}
@@ -0,0 +1,57 @@
+package me.fru1t.csgo_server_manager.logs;
+
+import me.fru1t.csgo_server_manager.server.ServerConfig;
+import me.fru1t.csgo_server_manager.server.ServerState;
+import me.fru1t.csgo_server_manager.server.ServerStatus;
+import me.fru1t.csgo_server_manager.server.ServerSupervisor;
+
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * <p>Has a {@link LogPipeline} follow each supervised server's
+ * {@link ServerConfig#getLogDirectory() log directory} from when the server's first running until
+ * it's stopped. Only what's logged from then on is read.</p>
+ * <p>A server that's restarted keeps being followed, as the pipeline moves on to the new log it
+ * starts. Servers without a known log directory are never followed.</p>
+ */
+public class LogFollower implements ServerSupervisor.Listener {
+    private final LogPipeline pipeline;
+    private final ServerSupervisor supervisor;
+
+    // Guarded by this
+    private final Set<String> followed;
+
+    public LogFollower(LogPipeline pipeline, ServerSupervisor supervisor) {
+        this.pipeline = pipeline;
+        this.supervisor = supervisor;
+        followed = new HashSet<>();
+    }
+
+    /**
+     * Starts following every server that's already running, and listens to the supervisor for
+     * servers starting and stopping from now on.
+     */
+    public synchronized void attach() {
+        supervisor.addListener(this);
+        for (ServerStatus status : supervisor.getStatuses()) {
+            onStatusChange(status);
+        }
+    }
+
+    @Override
+    public synchronized void onStatusChange(ServerStatus status) {
+        String server = status.getName();
+        if (status.getState() == ServerState.RUNNING && !followed.contains(server)) {
+            ServerConfig config = supervisor.getConfig(server);
+            Path log = config == null ? null : config.getLogDirectory();
+            if (log != null) {
+                pipeline.follow(server, log, true);
+                followed.add(server);
+            }
+        } else if (status.getState() == ServerState.STOPPED && followed.remove(server)) {
+            pipeline.unfollow(server);
+        }
+    }
+}
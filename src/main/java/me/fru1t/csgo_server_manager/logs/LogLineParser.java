@@ -0,0 +1,248 @@
+package me.fru1t.csgo_server_manager.logs;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Month;
+import java.time.Year;
+
+/**
+ * <p>Turns server log lines into {@link LogEvent}s, such as
+ * {@code L 10/16/2026 - 21:04:13: "Alice<2><STEAM_1:0:1234><CT>" killed "Bob<3><BOT><TERRORIST>"
+ * with "ak47" (headshot)}.</p>
+ * <p>Lines are matched byte by byte against the handful of messages that become events, straight
+ * out of the buffer they were read into. Nothing is allocated or decoded per line, and most lines
+ * that don't become events are ruled out within a few bytes of their timestamp.</p>
+ * <p>Player names may contain anything, including quotes and angle brackets, so players are read
+ * from the end of their user ID, Steam ID and team backwards.</p>
+ */
+final class LogLineParser {
+    // "L MM/DD/YYYY - HH:MM:SS: "
+    private static final int MESSAGE_OFFSET = 25;
+
+    private static final byte[] KILLED = ascii(" killed ");
+    private static final byte[] WITH = ascii(" with \"");
+    private static final byte[] HEADSHOT = ascii("(headshot");
+    private static final byte[] SAY = ascii(" say \"");
+    private static final byte[] SAY_TEAM = ascii(" say_team \"");
+    private static final byte[] CONNECTED = ascii(" connected, address \"");
+    private static final byte[] DISCONNECTED = ascii(" disconnected (reason \"");
+    private static final byte[] ROUND_START = ascii("World triggered \"Round_Start\"");
+    private static final byte[] ROUND_END = ascii("World triggered \"Round_End\"");
+    private static final byte[] STARTED_MAP = ascii("Started map \"");
+
+    private LogLineParser() {}
+
+    /**
+     * Fills the given event with the given line, if it's one that becomes an event.
+     * @return Whether the line became an event. The event is left in an unspecified state if not.
+     */
+    static boolean parse(String server, byte[] buffer, int offset, int length, LogEvent event) {
+        int end = offset + length;
+        if (length <= MESSAGE_OFFSET || !parseTimestamp(buffer, offset, event)) {
+            return false;
+        }
+        event.reset();
+
+        LogEventType type = parseMessage(buffer, offset, offset + MESSAGE_OFFSET, end, event);
+        if (type == null) {
+            return false;
+        }
+        event.set(server, type, buffer, offset, length);
+        return true;
+    }
+
+    private static LogEventType parseMessage(byte[] b, int line, int at, int end,
+        LogEvent event) {
+        if (b[at] != '"') {
+            if (matches(b, at, end, ROUND_START) && at + ROUND_START.length == end) {
+                return LogEventType.ROUND_START;
+            }
+            if (matches(b, at, end, ROUND_END) && at + ROUND_END.length == end) {
+                return LogEventType.ROUND_END;
+            }
+            if (matches(b, at, end, STARTED_MAP)) {
+                int start = at + STARTED_MAP.length;
+                return setValue(b, line, start, indexOf(b, start, end, (byte) '"'), event)
+                    ? LogEventType.MAP_START : null;
+            }
+            return null;
+        }
+
+        at = parsePlayer(b, line, at, end, LogEvent.PLAYER_NAME, event);
+        if (at < 0) {
+            return null;
+        }
+        if (matches(b, at, end, CONNECTED)) {
+            int start = at + CONNECTED.length;
+            return setValue(b, line, start, indexOf(b, start, end, (byte) '"'), event)
+                ? LogEventType.CONNECT : null;
+        }
+        // Messages and reasons may contain quotes themselves, so run to the line's last quote
+        if (matches(b, at, end, DISCONNECTED)) {
+            int start = at + DISCONNECTED.length;
+            return setValue(b, line, start, lastIndexOf(b, start, end, (byte) '"'), event)
+                ? LogEventType.DISCONNECT : null;
+        }
+        if (matches(b, at, end, SAY) || matches(b, at, end, SAY_TEAM)) {
+            int start = at + (b[at + SAY.length - 1] == '"' ? SAY.length : SAY_TEAM.length);
+            return setValue(b, line, start, lastIndexOf(b, start, end, (byte) '"'), event)
+                ? LogEventType.SAY : null;
+        }
+
+        // Kills may give where each player was, as in "Alice<...>" [-96 1220 -63] killed ...
+        at = skipPosition(b, at, end);
+        if (!matches(b, at, end, KILLED)) {
+            return null;
+        }
+        at = parsePlayer(b, line, at + KILLED.length, end, LogEvent.TARGET_NAME, event);
+        if (at < 0) {
+            return null;
+        }
+        at = skipPosition(b, at, end);
+        if (!matches(b, at, end, WITH)) {
+            return null;
+        }
+        int start = at + WITH.length;
+        int weaponEnd = indexOf(b, start, end, (byte) '"');
+        if (!setValue(b, line, start, weaponEnd, event)) {
+            return null;
+        }
+        event.setHeadshot(indexOf(b, weaponEnd, end, HEADSHOT) >= 0);
+        return LogEventType.KILL;
+    }
+
+    /**
+     * Reads a quoted player, such as {@code "Alice<2><STEAM_1:0:1234><CT>"}, into the four fields
+     * starting with the given one.
+     * @return Where the player ends, just past its closing quote, or -1 if it isn't a player.
+     */
+    private static int parsePlayer(byte[] b, int line, int at, int end, int nameField,
+        LogEvent event) {
+        if (at >= end || b[at] != '"') {
+            return -1;
+        }
+        int close = indexOf(b, at + 1, end, (byte) '"');
+        while (close > at && b[close - 1] != '>') {
+            close = indexOf(b, close + 1, end, (byte) '"');
+        }
+        if (close < 0) {
+            return -1;
+        }
+
+        // Back from the end: <team>, then <steam ID>, then <user ID>, and the name before those
+        int fieldEnd = close - 1;
+        for (int field = nameField + 3; field > nameField; --field) {
+            int fieldStart = lastIndexOf(b, at + 1, fieldEnd, (byte) '<');
+            if (fieldStart < 0 || (field != nameField + 3 && b[fieldEnd] != '>')) {
+                return -1;
+            }
+            event.setField(field, fieldStart + 1 - line, fieldEnd - line);
+            fieldEnd = fieldStart - 1;
+        }
+        int userIdStart = fieldEnd + 2;
+        int userIdEnd = userIdStart;
+        while (b[userIdEnd] != '>') {
+            if (b[userIdEnd] < '0' || b[userIdEnd] > '9') {
+                return -1;
+            }
+            ++userIdEnd;
+        }
+        if (userIdEnd == userIdStart) {
+            return -1;
+        }
+        event.setField(nameField, at + 1 - line, fieldEnd + 1 - line);
+        return close + 1;
+    }
+
+    private static boolean parseTimestamp(byte[] b, int at, LogEvent event) {
+        if (b[at] != 'L' || b[at + 1] != ' ' || b[at + 4] != '/' || b[at + 7] != '/'
+            || b[at + 12] != ' ' || b[at + 13] != '-' || b[at + 14] != ' ' || b[at + 17] != ':'
+            || b[at + 20] != ':' || b[at + 23] != ':' || b[at + 24] != ' ') {
+            return false;
+        }
+        int month = digits(b, at + 2, 2);
+        int day = digits(b, at + 5, 2);
+        int year = digits(b, at + 8, 4);
+        int hour = digits(b, at + 15, 2);
+        int minute = digits(b, at + 18, 2);
+        int second = digits(b, at + 21, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1
+            || day > Month.of(month).length(Year.isLeap(year)) || hour < 0 || hour > 23
+            || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return false;
+        }
+        event.setTimestamp(year, month, day, hour, minute, second);
+        return true;
+    }
+
+    // Skips a position, such as " [-96 1220 -63]", if there's one
+    private static int skipPosition(byte[] b, int at, int end) {
+        if (at + 1 < end && b[at] == ' ' && b[at + 1] == '[') {
+            int close = indexOf(b, at + 2, end, (byte) ']');
+            return close < 0 ? at : close + 1;
+        }
+        return at;
+    }
+
+    private static boolean setValue(byte[] b, int line, int start, int end, LogEvent event) {
+        if (end < 0) {
+            return false;
+        }
+        event.setField(LogEvent.VALUE, start - line, end - line);
+        return true;
+    }
+
+    // The number in the given digits, or -1 if they aren't all digits
+    private static int digits(byte[] b, int at, int count) {
+        int value = 0;
+        for (int i = at; i < at + count; ++i) {
+            if (b[i] < '0' || b[i] > '9') {
+                return -1;
+            }
+            value = value * 10 + b[i] - '0';
+        }
+        return value;
+    }
+
+    private static boolean matches(byte[] b, int at, int end, byte[] literal) {
+        if (end - at < literal.length) {
+            return false;
+        }
+        for (int i = 0; i < literal.length; ++i) {
+            if (b[at + i] != literal[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOf(byte[] b, int from, int end, byte c) {
+        for (int i = from; i < end; ++i) {
+            if (b[i] == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int indexOf(byte[] b, int from, int end, byte[] literal) {
+        for (int i = from; i <= end - literal.length; ++i) {
+            if (matches(b, i, end, literal)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int lastIndexOf(byte[] b, int from, int end, byte c) {
+        for (int i = end - 1; i >= from; --i) {
+            if (b[i] == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static byte[] ascii(String literal) {
+        return literal.getBytes(StandardCharsets.US_ASCII);
+    }
+}
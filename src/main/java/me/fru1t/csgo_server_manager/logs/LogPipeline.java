@@ -0,0 +1,254 @@
+package me.fru1t.csgo_server_manager.logs;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <p>Follows servers' logs and turns the lines that matter, such as kills, connections and
+ * rounds, into {@link LogEvent}s for its listeners.</p>
+ * <p>A single thread reads every log, parses each line in place, and publishes events through a
+ * bounded ring buffer. Each listener is called on a thread of its own, with events in the order
+ * they were logged in for any one server. Events are reused once every listener's done with them,
+ * so nothing's allocated per line, and listeners must copy out whatever they want to keep.</p>
+ * <p>A listener that falls behind by a ring's worth of events holds up reading, rather than events
+ * being dropped or buffered without bound; the logs themselves are the buffer. Logs are read a
+ * chunk at a time in turn, so one busy server can't starve the others, and polled every poll
+ * interval once they've all been caught up on.</p>
+ */
+public class LogPipeline implements Closeable {
+    public static final int DEFAULT_RING_SIZE = 8192;
+    public static final long DEFAULT_POLL_INTERVAL_MS = 50;
+
+    private static final int MAX_BYTES_PER_POLL = 1024 * 1024;
+
+    /**
+     * Receives events on a thread of its own. The event belongs to the pipeline, and is reused
+     * once the listener returns.
+     */
+    public interface Listener {
+        void onEvent(LogEvent event);
+    }
+
+    private final class Followed implements LogTailer.LineHandler {
+        final String server;
+        final LogTailer tailer;
+        boolean isFailing;
+
+        Followed(String server, LogTailer tailer) {
+            this.server = server;
+            this.tailer = tailer;
+            isFailing = false;
+        }
+
+        @Override
+        public void onLine(byte[] buffer, int offset, int length) {
+            ++lines;
+            LogEvent event = ring.claim();
+            if (event != null && LogLineParser.parse(server, buffer, offset, length, event)) {
+                ring.publish();
+                ++events;
+            }
+        }
+    }
+
+    private final LogEventRing ring;
+    private final long pollIntervalNanos;
+    private final Thread thread;
+    private final Queue<Runnable> changes;
+    private final Queue<CountDownLatch> changeWaiters;
+    private volatile boolean isClosed;
+
+    // Only touched by the pipeline's thread, and published to the volatile counts after each poll
+    private final Map<String, Followed> followed;
+    private final List<CountDownLatch> polledWaiters;
+    private long lines;
+    private long events;
+    private volatile long lineCount;
+    private volatile long eventCount;
+
+    public LogPipeline(List<Listener> listeners) {
+        this(listeners, DEFAULT_RING_SIZE, DEFAULT_POLL_INTERVAL_MS);
+    }
+
+    /**
+     * @param ringSize The number of events listeners may fall behind by, a power of two.
+     * @param pollIntervalMs How often to check logs that have been caught up on for more.
+     */
+    public LogPipeline(List<Listener> listeners, int ringSize, long pollIntervalMs) {
+        ring = new LogEventRing(ringSize, ImmutableList.copyOf(listeners));
+        pollIntervalNanos = TimeUnit.MILLISECONDS.toNanos(pollIntervalMs);
+        changes = new ConcurrentLinkedQueue<>();
+        changeWaiters = new ConcurrentLinkedQueue<>();
+        followed = new LinkedHashMap<>();
+        polledWaiters = new ArrayList<>();
+        isClosed = false;
+        lines = 0;
+        events = 0;
+        lineCount = 0;
+        eventCount = 0;
+        thread = new Thread(this::run, "LogPipeline");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Starts following the given server's log, in place of any it was already following.
+     * @param log The log file, or the directory of log files that servers write a new one to
+     * every map, to follow the newest of.
+     * @param startAtEnd Whether to skip whatever's already been logged, rather than replaying it.
+     */
+    public void follow(String server, Path log, boolean startAtEnd) {
+        change(() -> {
+            stopFollowing(server);
+            followed.put(server, new Followed(server, new LogTailer(log, startAtEnd)));
+        });
+    }
+
+    /**
+     * Stops following the given server's log, if it was.
+     */
+    public void unfollow(String server) {
+        change(() -> stopFollowing(server));
+    }
+
+    /**
+     * Waits for every follow and unfollow so far to have been applied, and the logs followed to
+     * have been polled once since, so that newly followed logs that exist have been opened.
+     * @return False if it timed out, or the pipeline was closed first.
+     */
+    @VisibleForTesting
+    boolean awaitChanges(long timeout, TimeUnit unit) throws InterruptedException {
+        CountDownLatch polled = new CountDownLatch(1);
+        changeWaiters.add(polled);
+        LockSupport.unpark(thread);
+
+        // Closing may have already released every waiter
+        if (isClosed) {
+            return false;
+        }
+        return polled.await(timeout, unit) && !isClosed;
+    }
+
+    /**
+     * @return The number of lines read from every log so far.
+     */
+    public long getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * @return The number of events published so far.
+     */
+    public long getEventCount() {
+        return eventCount;
+    }
+
+    /**
+     * Stops reading logs, and waits for every listener to handle what's already been published.
+     */
+    @Override
+    public void close() {
+        if (isClosed) {
+            return;
+        }
+        isClosed = true;
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+            ring.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void change(Runnable change) {
+        changes.add(change);
+        LockSupport.unpark(thread);
+    }
+
+    private void stopFollowing(String server) {
+        Followed previous = followed.remove(server);
+        if (previous != null) {
+            close(previous);
+        }
+    }
+
+    private void run() {
+        while (!isClosed) {
+            // Taken before the changes, so that everything changed before a waiter started waiting
+            // is applied by the time it's released
+            CountDownLatch waiter;
+            while ((waiter = changeWaiters.poll()) != null) {
+                polledWaiters.add(waiter);
+            }
+            Runnable change;
+            while ((change = changes.poll()) != null) {
+                change.run();
+            }
+
+            boolean isBehind = false;
+            for (Followed log : followed.values()) {
+                isBehind |= poll(log) >= MAX_BYTES_PER_POLL;
+            }
+            lineCount = lines;
+            eventCount = events;
+            for (CountDownLatch polled : polledWaiters) {
+                polled.countDown();
+            }
+            polledWaiters.clear();
+            if (!isBehind) {
+                LockSupport.parkNanos(pollIntervalNanos);
+            }
+        }
+
+        for (Followed log : followed.values()) {
+            close(log);
+        }
+        followed.clear();
+
+        // Released, though their changes won't be applied, rather than waiting out their timeouts
+        CountDownLatch waiter;
+        while ((waiter = changeWaiters.poll()) != null) {
+            waiter.countDown();
+        }
+    }
+
+    private int poll(Followed log) {
+        // Report a log that can't be read once, rather than every poll until it can be again
+        try {
+            int read = log.tailer.poll(log, MAX_BYTES_PER_POLL);
+            log.isFailing = false;
+            return read;
+        } catch (IOException e) {
+            if (!log.isFailing) {
+                log.isFailing = true;
+                Thread thread = Thread.currentThread();
+                thread.getUncaughtExceptionHandler().uncaughtException(thread,
+                    new UncheckedIOException("Couldn't read " + log.server + "'s log.", e));
+            }
+            return 0;
+        }
+    }
+
+    private static void close(Followed log) {
+        try {
+            log.tailer.close();
+        } catch (IOException e) {
+            // Closed anyway
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package me.fru1t.csgo_server_manager.logs;
+
+import javax.annotation.Nullable;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Follows a log as it's written, handing each complete line to a {@link LineHandler}.</p>
+ * <p>The log's read through a FileChannel from the position it last got to, into a single buffer
+ * that lines are handed out of directly. Nothing is allocated per line, or per poll once the log's
+ * open.</p>
+ * <p>Rotation is noticed once the log's been read to its end. A log that's been truncated is read
+ * again from its start. The log may be a directory, as servers start a new log file in their
+ * {@code logs} directory for every map, in which case the most recently modified {@code .log} file
+ * in it is followed, and the tailer moves on to any newer one. Otherwise a log that's been
+ * replaced, such as by being moved aside and written anew, is moved on to. Either way, whatever's
+ * left of the old file is read first.</p>
+ */
+final class LogTailer implements Closeable {
+    /**
+     * Receives lines, without their line endings, out of the tailer's buffer. The buffer's reused
+     * once the handler returns.
+     */
+    interface LineHandler {
+        void onLine(byte[] buffer, int offset, int length);
+    }
+
+    /**
+     * Lines longer than this are skipped.
+     */
+    static final int MAX_LINE_BYTES = 64 * 1024;
+
+    // Looking for a new log means a stat or a directory listing, so don't on every poll
+    private static final long ROTATION_CHECK_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+
+    private final Path path;
+    private final byte[] buffer;
+    private final ByteBuffer readBuffer;
+    private boolean startAtEnd;
+
+    @Nullable
+    private FileChannel channel;
+    @Nullable
+    private Path file;
+    @Nullable
+    private Object fileKey;
+    private long position;
+    private long lastRotationCheckNanos;
+
+    // How much of the buffer has been searched for line endings, and whether the line that's being
+    // read is too long and being skipped
+    private int scanned;
+    private boolean isSkipping;
+
+    /**
+     * @param path The log file, or a directory of them to follow the newest of.
+     * @param startAtEnd Whether to skip whatever's already in the log, if it exists. Logs created
+     * or rotated to later are always read from their start.
+     */
+    LogTailer(Path path, boolean startAtEnd) {
+        this.path = path;
+        this.startAtEnd = startAtEnd;
+        buffer = new byte[MAX_LINE_BYTES];
+        readBuffer = ByteBuffer.wrap(buffer);
+        channel = null;
+        file = null;
+        fileKey = null;
+        position = 0;
+        lastRotationCheckNanos = System.nanoTime() - ROTATION_CHECK_NANOS;
+        scanned = 0;
+        isSkipping = false;
+    }
+
+    /**
+     * Reads whatever's been written to the log since the last poll, up to about the given number
+     * of bytes, and hands every line completed to the given handler. A line that's still being
+     * written is handed over once it's been finished.
+     * @return The number of bytes read.
+     */
+    int poll(LineHandler handler, int maxBytes) throws IOException {
+        if (channel == null && !rotate(handler)) {
+            return 0;
+        }
+        if (channel.size() < position) {
+            position = 0;
+            readBuffer.clear();
+            scanned = 0;
+            isSkipping = false;
+        }
+
+        int total = 0;
+        while (total < maxBytes) {
+            int read = channel.read(readBuffer, position);
+            if (read <= 0) {
+                if (!rotate(handler)) {
+                    break;
+                }
+                continue;
+            }
+            position += read;
+            total += read;
+            handleLines(handler);
+        }
+        return total;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    /**
+     * Moves on to a newer log, if there is one, once the current log's been finished.
+     * @return Whether the tailer moved on to a newer log.
+     */
+    private boolean rotate(LineHandler handler) throws IOException {
+        long now = System.nanoTime();
+        if (now - lastRotationCheckNanos < ROTATION_CHECK_NANOS) {
+            return false;
+        }
+        lastRotationCheckNanos = now;
+
+        // Logs that don't exist yet are read from their start once they do
+        Path latest = findLatest();
+        if (latest == null) {
+            startAtEnd = false;
+            return false;
+        }
+        Object latestKey;
+        try {
+            latestKey = Files.readAttributes(latest, BasicFileAttributes.class).fileKey();
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+        if (channel != null && latest.equals(file)
+            && (latestKey == null || fileKey == null || latestKey.equals(fileKey))) {
+            return false;
+        }
+
+        FileChannel next;
+        try {
+            next = FileChannel.open(latest, StandardOpenOption.READ);
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+        if (channel != null) {
+            finish(handler);
+        }
+        channel = next;
+        file = latest;
+        fileKey = latestKey;
+        position = startAtEnd ? channel.size() : 0;
+        startAtEnd = false;
+        return true;
+    }
+
+    // Reads the rest of the current log, including a last line without a line ending
+    private void finish(LineHandler handler) throws IOException {
+        int read;
+        while ((read = channel.read(readBuffer, position)) > 0) {
+            position += read;
+            handleLines(handler);
+        }
+        if (readBuffer.position() > 0 && !isSkipping) {
+            handleLine(handler, 0, readBuffer.position());
+        }
+        readBuffer.clear();
+        scanned = 0;
+        isSkipping = false;
+        channel.close();
+        channel = null;
+    }
+
+    @Nullable
+    private Path findLatest() throws IOException {
+        if (!Files.isDirectory(path)) {
+            return Files.exists(path) ? path : null;
+        }
+
+        Path latest = null;
+        FileTime latestModified = null;
+        try (DirectoryStream<Path> logs = Files.newDirectoryStream(path, "*.log")) {
+            for (Path log : logs) {
+                FileTime modified;
+                try {
+                    modified = Files.getLastModifiedTime(log);
+                } catch (NoSuchFileException e) {
+                    continue;
+                }
+                int compared = latestModified == null ? 1 : modified.compareTo(latestModified);
+                if (compared > 0 || (compared == 0 && log.compareTo(latest) > 0)) {
+                    latest = log;
+                    latestModified = modified;
+                }
+            }
+        }
+
+        // Stay on the current log until another's actually newer
+        if (latest != null && file != null && !latest.equals(file) && Files.exists(file)
+            && Objects.equals(latestModified, Files.getLastModifiedTime(file))) {
+            return file;
+        }
+        return latest;
+    }
+
+    private void handleLines(LineHandler handler) {
+        int end = readBuffer.position();
+        int lineStart = 0;
+        for (int i = scanned; i < end; ++i) {
+            if (buffer[i] != '\n') {
+                continue;
+            }
+            if (isSkipping) {
+                isSkipping = false;
+            } else {
+                handleLine(handler, lineStart, i);
+            }
+            lineStart = i + 1;
+        }
+
+        if (lineStart == 0 && end == buffer.length) {
+            // The line doesn't fit in the buffer
+            isSkipping = true;
+            readBuffer.clear();
+            scanned = 0;
+            return;
+        }
+        System.arraycopy(buffer, lineStart, buffer, 0, end - lineStart);
+        readBuffer.position(end - lineStart);
+        scanned = end - lineStart;
+    }
+
+    private void handleLine(LineHandler handler, int start, int end) {
+        if (end > start && buffer[end - 1] == '\r') {
+            --end;
+        }
+        handler.onLine(buffer, start, end - start);
+    }
+}
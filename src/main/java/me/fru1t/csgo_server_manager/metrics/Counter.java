@@ -0,0 +1,38 @@
+package me.fru1t.csgo_server_manager.metrics;
+
+import com.google.common.collect.ImmutableMap;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A count that only goes up, such as of bytes parsed. Counting never locks or allocates, and
+ * threads counting at once don't contend with one another.
+ */
+public final class Counter extends Metric {
+    private final LongAdder count;
+
+    Counter(String name, String help, ImmutableMap<String, String> labels) {
+        super(name, help, labels);
+        count = new LongAdder();
+    }
+
+    @Override
+    public Type getType() {
+        return Type.COUNTER;
+    }
+
+    public void increment() {
+        count.increment();
+    }
+
+    /**
+     * Adds the given amount, which shouldn't be negative.
+     */
+    public void add(long amount) {
+        count.add(amount);
+    }
+
+    public long get() {
+        return count.sum();
+    }
+}
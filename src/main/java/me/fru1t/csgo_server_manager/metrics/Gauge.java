@@ -0,0 +1,27 @@
+package me.fru1t.csgo_server_manager.metrics;
+
+import com.google.common.collect.ImmutableMap;
+
+import java.util.function.DoubleSupplier;
+
+/**
+ * A value that may go up or down, such as the number of servers running, read whenever metrics
+ * are collected rather than recorded as it changes.
+ */
+public final class Gauge extends Metric {
+    private final DoubleSupplier value;
+
+    Gauge(String name, String help, ImmutableMap<String, String> labels, DoubleSupplier value) {
+        super(name, help, labels);
+        this.value = value;
+    }
+
+    @Override
+    public Type getType() {
+        return Type.GAUGE;
+    }
+
+    public double get() {
+        return value.getAsDouble();
+    }
+}
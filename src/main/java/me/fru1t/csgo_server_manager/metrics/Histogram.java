@@ -0,0 +1,170 @@
+package me.fru1t.csgo_server_manager.metrics;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>The distribution of recorded values, such as file sizes, from which any percentile may be
+ * read to within 1 part in {@value #HALF_SUB_BUCKETS}.</p>
+ * <p>Values are counted in buckets, as in HdrHistogram. Values below {@value #SUB_BUCKETS} have a
+ * bucket each, and each doubling of values above that is split into {@value #HALF_SUB_BUCKETS}
+ * equal buckets, so buckets are never wider than 1 part in {@value #HALF_SUB_BUCKETS} of the
+ * values in them. Buckets are only made up to the histogram's maximum value, so a histogram of
+ * nanoseconds up to an hour has about 2,400 of them. Values outside of zero and the maximum are
+ * recorded as whichever is nearer.</p>
+ * <p>Recording a value finds its bucket with a few shifts and increments it atomically, so
+ * never locks or allocates. Snapshots copy every bucket, so are best left to whatever's
+ * collecting metrics.</p>
+ */
+public class Histogram extends Metric {
+    // Bits of each value kept exactly
+    private static final int PRECISION_BITS = 7;
+    private static final int SUB_BUCKETS = 1 << PRECISION_BITS;
+    private static final int HALF_SUB_BUCKETS = SUB_BUCKETS >>> 1;
+
+    /**
+     * The largest maximum value a histogram may have.
+     */
+    public static final long MAX_TRACKABLE_VALUE = 1L << 62;
+
+    /**
+     * <p>A histogram's values at one moment.</p>
+     * <p>Percentiles are given as the largest value that could have been recorded into the bucket
+     * the percentile falls in, but never more than the largest value recorded.</p>
+     */
+    public static final class Snapshot {
+        private final long count;
+        private final long sum;
+        private final long max;
+        private final long[] buckets;
+
+        private Snapshot(long count, long sum, long max, long[] buckets) {
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+            this.buckets = buckets;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getSum() {
+            return sum;
+        }
+
+        /**
+         * @return The largest value recorded, or 0 if none have been.
+         */
+        public long getMax() {
+            return max;
+        }
+
+        /**
+         * @param quantile Between 0 and 1, such as 0.99 for the 99th percentile.
+         * @return The value that the given fraction of recorded values are at or below, or 0 if
+         * no values have been recorded.
+         */
+        public long getValueAtQuantile(double quantile) {
+            Preconditions.checkArgument(quantile >= 0 && quantile <= 1,
+                "Quantiles must be between 0 and 1: %s", quantile);
+            long total = 0;
+            for (long bucket : buckets) {
+                total += bucket;
+            }
+            long rank = Math.max(1, (long) Math.ceil(quantile * total));
+            long seen = 0;
+            for (int i = 0; i < buckets.length; ++i) {
+                seen += buckets[i];
+                if (seen >= rank) {
+                    return Math.min(highestValueIn(i), max);
+                }
+            }
+            return 0;
+        }
+
+        /**
+         * @return The mean value recorded, or 0 if none have been.
+         */
+        public double getMean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+    }
+
+    private final long maxValue;
+    private final AtomicLongArray buckets;
+    private final LongAdder count;
+    private final LongAdder sum;
+    private final AtomicLong max;
+
+    Histogram(String name, String help, ImmutableMap<String, String> labels, long maxValue) {
+        super(name, help, labels);
+        Preconditions.checkArgument(maxValue > 0 && maxValue <= MAX_TRACKABLE_VALUE,
+            "Histograms' maximum values must be positive and at most %s: %s",
+            MAX_TRACKABLE_VALUE, maxValue);
+        this.maxValue = maxValue;
+        buckets = new AtomicLongArray(bucketOf(maxValue) + 1);
+        count = new LongAdder();
+        sum = new LongAdder();
+        max = new AtomicLong();
+    }
+
+    @Override
+    public Type getType() {
+        return Type.HISTOGRAM;
+    }
+
+    public long getMaxValue() {
+        return maxValue;
+    }
+
+    public void record(long value) {
+        long clamped = value < 0 ? 0 : value > maxValue ? maxValue : value;
+        buckets.incrementAndGet(bucketOf(clamped));
+        count.increment();
+        sum.add(clamped);
+        long current = max.get();
+        while (clamped > current && !max.compareAndSet(current, clamped)) {
+            current = max.get();
+        }
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * @return The histogram's values so far. Values recorded while the snapshot's being taken
+     * may be partly left out, such as being counted but not summed.
+     */
+    public Snapshot snapshot() {
+        long[] copy = new long[buckets.length()];
+        for (int i = 0; i < copy.length; ++i) {
+            copy[i] = buckets.get(i);
+        }
+        return new Snapshot(count.sum(), sum.sum(), max.get(), copy);
+    }
+
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        // Keep the top PRECISION_BITS bits, the first of which is always set
+        int shift = Long.SIZE - Long.numberOfLeadingZeros(value) - PRECISION_BITS;
+        return SUB_BUCKETS + (shift - 1) * HALF_SUB_BUCKETS
+            + (int) (value >>> shift) - HALF_SUB_BUCKETS;
+    }
+
+    static long highestValueIn(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = (bucket - SUB_BUCKETS) / HALF_SUB_BUCKETS + 1;
+        long topBits = (bucket - SUB_BUCKETS) % HALF_SUB_BUCKETS + HALF_SUB_BUCKETS;
+        return ((topBits + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,33 @@
+package me.fru1t.csgo_server_manager.metrics;
+
+import com.google.common.collect.ImmutableMap;
+import lombok.Getter;
+
+/**
+ * A named measurement of the manager, such as how many files it's parsed, as kept by a
+ * {@link MetricRegistry}. Metrics of the same name are told apart by their labels, such as the
+ * URI of the requests they measure.
+ */
+@Getter
+public abstract class Metric {
+    public enum Type {
+        COUNTER, GAUGE, HISTOGRAM, TIMER
+    }
+
+    private final String name;
+
+    /**
+     * What the metric measures, in a sentence.
+     */
+    private final String help;
+
+    private final ImmutableMap<String, String> labels;
+
+    Metric(String name, String help, ImmutableMap<String, String> labels) {
+        this.name = name;
+        this.help = help;
+        this.labels = labels;
+    }
+
+    public abstract Type getType();
+}
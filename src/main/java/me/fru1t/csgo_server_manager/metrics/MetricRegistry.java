@@ -0,0 +1,118 @@
+package me.fru1t.csgo_server_manager.metrics;
+
+import com.google.common.base.CharMatcher;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.DoubleSupplier;
+import java.util.function.Function;
+
+/**
+ * <p>Keeps the manager's metrics, so that they can be collected and exposed, such as by
+ * {@link PrometheusWriter} or {@link MetricsMBean}.</p>
+ * <p>Metrics are named as in Prometheus, in snake case and ending in their unit, and may have
+ * labels given as pairs of names and values. Asking for a metric that's already registered with
+ * the same name and labels returns it, so each metric is usually looked up once and kept, such as
+ * in a static field, rather than being looked up wherever it's recorded to. The
+ * {@link #global() global} registry holds the metrics of code without a registry of its
+ * own.</p>
+ */
+public final class MetricRegistry {
+    private static final MetricRegistry GLOBAL = new MetricRegistry();
+
+    private static final CharMatcher NAME_START =
+        CharMatcher.inRange('a', 'z').or(CharMatcher.inRange('A', 'Z')).or(CharMatcher.is('_'));
+    private static final CharMatcher NAME_PART = NAME_START.or(CharMatcher.inRange('0', '9'));
+
+    // By name then labels, so that metrics of the same name are next to one another. Names can't
+    // contain the brace that ends them, so no other name sorts between two of the same.
+    private final ConcurrentMap<String, Metric> metrics;
+    private final ConcurrentMap<String, Metric.Type> types;
+
+    public MetricRegistry() {
+        metrics = new ConcurrentSkipListMap<>();
+        types = new ConcurrentSkipListMap<>();
+    }
+
+    public static MetricRegistry global() {
+        return GLOBAL;
+    }
+
+    /**
+     * @param labels Pairs of label names and values.
+     * @throws IllegalArgumentException Thrown if the name or labels are invalid, or the name's
+     * already registered as another type of metric.
+     */
+    public Counter counter(String name, String help, String... labels) {
+        return register(Counter.class, Metric.Type.COUNTER, name, labels,
+            l -> new Counter(name, help, l));
+    }
+
+    /**
+     * Registers a gauge reading the given value, unless it's already registered.
+     * @param labels Pairs of label names and values.
+     * @throws IllegalArgumentException Thrown if the name or labels are invalid, or the name's
+     * already registered as another type of metric.
+     */
+    public Gauge gauge(String name, String help, DoubleSupplier value, String... labels) {
+        return register(Gauge.class, Metric.Type.GAUGE, name, labels,
+            l -> new Gauge(name, help, l, value));
+    }
+
+    /**
+     * @param maxValue The largest value to keep track of. Larger values are recorded as this.
+     * @param labels Pairs of label names and values.
+     * @throws IllegalArgumentException Thrown if the name or labels are invalid, or the name's
+     * already registered as another type of metric.
+     */
+    public Histogram histogram(String name, String help, long maxValue, String... labels) {
+        return register(Histogram.class, Metric.Type.HISTOGRAM, name, labels,
+            l -> new Histogram(name, help, l, maxValue));
+    }
+
+    /**
+     * @param labels Pairs of label names and values.
+     * @throws IllegalArgumentException Thrown if the name or labels are invalid, or the name's
+     * already registered as another type of metric.
+     */
+    public Timer timer(String name, String help, String... labels) {
+        return register(Timer.class, Metric.Type.TIMER, name, labels,
+            l -> new Timer(name, help, l));
+    }
+
+    /**
+     * @return Every metric, with those of the same name together and in order of their labels.
+     */
+    public ImmutableList<Metric> getMetrics() {
+        return ImmutableList.copyOf(metrics.values());
+    }
+
+    private <T extends Metric> T register(Class<T> metricClass, Metric.Type type, String name,
+        String[] labels, Function<ImmutableMap<String, String>, T> factory) {
+        checkName(name);
+        Preconditions.checkArgument(labels.length % 2 == 0,
+            "Labels must be given as pairs of names and values: %s", name);
+        ImmutableMap.Builder<String, String> labelMap = ImmutableMap.builder();
+        StringBuilder key = new StringBuilder(name).append('{');
+        for (int i = 0; i < labels.length; i += 2) {
+            checkName(labels[i]);
+            labelMap.put(labels[i], labels[i + 1]);
+            key.append(labels[i]).append('\0').append(labels[i + 1]).append('\0');
+        }
+
+        Metric.Type registered = types.putIfAbsent(name, type);
+        Preconditions.checkArgument(registered == null || registered == type,
+            "%s is already registered as a %s.", name, registered);
+        ImmutableMap<String, String> labelValues = labelMap.build();
+        return metricClass.cast(metrics.computeIfAbsent(key.toString(),
+            k -> factory.apply(labelValues)));
+    }
+
+    private static void checkName(String name) {
+        Preconditions.checkArgument(!name.isEmpty() && NAME_START.matches(name.charAt(0))
+            && NAME_PART.matchesAllOf(name), "Invalid metric or label name: %s", name);
+    }
+}
@@ -0,0 +1,47 @@
+package me.fru1t.csgo_server_manager.metrics;
+
+import me.fru1t.csgo_server_manager.server.ServerState;
+import me.fru1t.csgo_server_manager.server.ServerStatus;
+import me.fru1t.csgo_server_manager.server.ServerSupervisor;
+import me.fru1t.csgo_server_manager.status.StatusBroadcaster;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Exposes the {@link MetricRegistry#global() global} metric registry, which the rest of the
+ * manager records to, at {@code /metrics} and over JMX as {@value MetricsMBean#OBJECT_NAME}, and
+ * times every HTTP request into it. Gauges of how many servers are running and how many
+ * dashboards are open are added alongside.
+ */
+@Configuration
+public class MetricsConfiguration {
+    @Bean
+    public MetricRegistry metricRegistry(ServerSupervisor supervisor,
+        StatusBroadcaster broadcaster) {
+        MetricRegistry registry = MetricRegistry.global();
+        registry.gauge("csgo_supervisor_servers_running", "Supervised servers that are running.",
+            () -> countRunning(supervisor));
+        registry.gauge("csgo_status_subscribers", "Dashboards receiving status updates.",
+            broadcaster::getSubscriberCount);
+        return registry;
+    }
+
+    @Bean
+    public MetricsFilter metricsFilter(MetricRegistry registry) {
+        return new MetricsFilter(registry);
+    }
+
+    // Spring exports MBeans named after a valid ObjectName under that name
+    @Bean(name = MetricsMBean.OBJECT_NAME)
+    public MetricsMBean metricsMBean(MetricRegistry registry) {
+        return new MetricsMBean(registry);
+    }
+
+    private static int countRunning(ServerSupervisor supervisor) {
+        int running = 0;
+        for (ServerStatus status : supervisor.getStatuses()) {
+            running += status.getState() == ServerState.RUNNING ? 1 : 0;
+        }
+        return running;
+    }
+}
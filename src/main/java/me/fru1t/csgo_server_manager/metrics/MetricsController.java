@@ -0,0 +1,28 @@
+package me.fru1t.csgo_server_manager.metrics;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Serves every metric at {@code /metrics}, for Prometheus to scrape. See
+ * {@link PrometheusWriter} for the format.
+ */
+@RestController
+public class MetricsController {
+    private final MetricRegistry registry;
+
+    @Autowired
+    public MetricsController(MetricRegistry registry) {
+        this.registry = registry;
+    }
+
+    @RequestMapping("/metrics")
+    public void metrics(HttpServletResponse response) throws IOException {
+        response.setContentType(PrometheusWriter.CONTENT_TYPE);
+        new PrometheusWriter(response.getWriter()).write(registry.getMetrics());
+    }
+}
@@ -0,0 +1,78 @@
+package me.fru1t.csgo_server_manager.metrics;
+
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <p>Times every HTTP request, by the controller mapping it matched, such as {@code /status},
+ * and counts those that fail with a server error. Requests that match no mapping are counted
+ * under {@value #UNMATCHED_URI}, so that a scan of made-up URLs can't create endless metrics.</p>
+ * <p>Requests handled asynchronously, such as {@code /status/stream}, are timed until the
+ * controller returns, not until the response is finished.</p>
+ */
+public class MetricsFilter implements Filter {
+    public static final String UNMATCHED_URI = "unmatched";
+
+    private static final String REQUESTS_NAME = "csgo_http_server_requests_seconds";
+    private static final String REQUESTS_HELP = "Time taken to handle HTTP requests.";
+    private static final String ERRORS_NAME = "csgo_http_server_errors_total";
+    private static final String ERRORS_HELP = "HTTP requests that failed with a server error.";
+    private static final int SERVER_ERROR = 500;
+
+    private final MetricRegistry registry;
+    private final ConcurrentMap<String, Timer> requestTimers;
+    private final ConcurrentMap<String, Counter> errorCounters;
+
+    public MetricsFilter(MetricRegistry registry) {
+        this.registry = registry;
+        requestTimers = new ConcurrentHashMap<>();
+        errorCounters = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    public void init(FilterConfig filterConfig) {
+        // Nothing to set up
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+        throws IOException, ServletException {
+        long startNanos = System.nanoTime();
+        boolean failed = true;
+        try {
+            chain.doFilter(request, response);
+            failed = false;
+        } finally {
+            // Looked up before computing, which would allocate a lambda each time
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            String uri = pattern instanceof String ? (String) pattern : UNMATCHED_URI;
+            Timer timer = requestTimers.get(uri);
+            if (timer == null) {
+                timer = requestTimers.computeIfAbsent(uri,
+                    u -> registry.timer(REQUESTS_NAME, REQUESTS_HELP, "uri", u));
+            }
+            timer.recordSince(startNanos);
+
+            if (failed || (response instanceof HttpServletResponse
+                && ((HttpServletResponse) response).getStatus() >= SERVER_ERROR)) {
+                errorCounters.computeIfAbsent(uri,
+                    u -> registry.counter(ERRORS_NAME, ERRORS_HELP, "uri", u)).increment();
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        // Nothing to clean up
+    }
+}
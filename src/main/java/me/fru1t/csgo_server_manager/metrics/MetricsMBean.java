@@ -0,0 +1,142 @@
+package me.fru1t.csgo_server_manager.metrics;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.ReflectionException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Exposes every metric in a registry over JMX, as read-only attributes, so that they can be
+ * watched with JConsole or VisualVM.</p>
+ * <p>Counters and gauges are an attribute each, named after the metric and its labels, such as
+ * {@code csgo_http_server_requests_seconds{uri="/status"}}. Histograms and timers have
+ * attributes for their count, mean, max and {@link PrometheusWriter#QUANTILES quantiles}, with the
+ * metric's name followed by {@code .count}, {@code .mean}, {@code .max} and {@code .p99} and so
+ * on. Timers are in seconds.</p>
+ * <p>Attributes are read afresh whenever they're asked for, and metrics registered later are
+ * added as they appear.</p>
+ */
+public class MetricsMBean implements DynamicMBean {
+    /**
+     * The name the manager registers its metrics under.
+     */
+    public static final String OBJECT_NAME = "me.fru1t.csgo_server_manager:type=Metrics";
+
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final MetricRegistry registry;
+
+    public MetricsMBean(MetricRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        Object value = read().get(attribute);
+        if (value == null) {
+            throw new AttributeNotFoundException("No such metric: " + attribute);
+        }
+        return value;
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+        Map<String, Object> values = read();
+        AttributeList list = new AttributeList();
+        for (String attribute : attributes) {
+            if (values.containsKey(attribute)) {
+                list.add(new Attribute(attribute, values.get(attribute)));
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("Metrics are read-only: " + attribute.getName());
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        // None are set, as metrics are read-only
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature)
+        throws ReflectionException {
+        throw new ReflectionException(new NoSuchMethodException(actionName),
+            "Metrics have no operations.");
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        List<MBeanAttributeInfo> attributes = new ArrayList<>();
+        for (Map.Entry<String, Object> value : read().entrySet()) {
+            attributes.add(new MBeanAttributeInfo(value.getKey(),
+                value.getValue().getClass().getName(), value.getKey(), true, false, false));
+        }
+        return new MBeanInfo(getClass().getName(), "The manager's metrics.",
+            attributes.toArray(new MBeanAttributeInfo[0]), null, null, null);
+    }
+
+    // Every attribute's value, by name, as Longs and Doubles
+    private Map<String, Object> read() {
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (Metric metric : registry.getMetrics()) {
+            String name = nameOf(metric);
+            switch (metric.getType()) {
+                case COUNTER:
+                    values.put(name, ((Counter) metric).get());
+                    break;
+
+                case GAUGE:
+                    values.put(name, ((Gauge) metric).get());
+                    break;
+
+                case HISTOGRAM:
+                case TIMER:
+                default:
+                    double scale = metric.getType() == Metric.Type.TIMER ? NANOS_PER_SECOND : 1;
+                    Histogram.Snapshot snapshot = ((Histogram) metric).snapshot();
+                    values.put(name + ".count", snapshot.getCount());
+                    values.put(name + ".mean", snapshot.getMean() / scale);
+                    values.put(name + ".max", snapshot.getMax() / scale);
+                    for (double quantile : PrometheusWriter.QUANTILES) {
+                        values.put(name + ".p" + percentileOf(quantile),
+                            snapshot.getValueAtQuantile(quantile) / scale);
+                    }
+                    break;
+            }
+        }
+        return values;
+    }
+
+    private static String nameOf(Metric metric) {
+        if (metric.getLabels().isEmpty()) {
+            return metric.getName();
+        }
+        StringBuilder name = new StringBuilder(metric.getName());
+        char separator = '{';
+        for (Map.Entry<String, String> label : metric.getLabels().entrySet()) {
+            name.append(separator).append(label.getKey()).append("=\"").append(label.getValue())
+                .append('"');
+            separator = ',';
+        }
+        return name.append('}').toString();
+    }
+
+    // As in 50 for 0.5, and 999 for 0.999
+    private static String percentileOf(double quantile) {
+        String digits = Double.toString(quantile).substring(2);
+        return digits.length() == 1 ? digits + "0" : digits;
+    }
+}
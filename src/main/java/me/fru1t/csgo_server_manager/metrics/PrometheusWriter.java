@@ -0,0 +1,173 @@
+package me.fru1t.csgo_server_manager.metrics;
+
+import com.google.common.collect.ImmutableList;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Writes metrics in Prometheus' text exposition format, version 0.0.4, for Prometheus to
+ * scrape.</p>
+ * <p>Counters and gauges are written as such. Histograms and timers are written as summaries of
+ * their {@link #QUANTILES quantiles}, sum and count, along with a {@code _max} gauge of the
+ * largest value recorded. Timers are written in seconds, as Prometheus expects, so should be
+ * named as such.</p>
+ */
+public class PrometheusWriter {
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    /**
+     * The quantiles written for each histogram and timer.
+     */
+    public static final ImmutableList<Double> QUANTILES = ImmutableList.of(0.5, 0.9, 0.99, 0.999);
+
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final Appendable out;
+
+    public PrometheusWriter(Appendable out) {
+        this.out = out;
+    }
+
+    /**
+     * Writes the given metrics, which must have those of the same name together, as returned by
+     * {@link MetricRegistry#getMetrics()}.
+     */
+    public void write(List<Metric> metrics) throws IOException {
+        int start = 0;
+        while (start < metrics.size()) {
+            int end = start + 1;
+            while (end < metrics.size()
+                && metrics.get(end).getName().equals(metrics.get(start).getName())) {
+                ++end;
+            }
+            writeFamily(metrics.subList(start, end));
+            start = end;
+        }
+    }
+
+    private void writeFamily(List<Metric> family) throws IOException {
+        Metric first = family.get(0);
+        switch (first.getType()) {
+            case COUNTER:
+                writeHeader(first.getName(), first.getHelp(), "counter");
+                for (Metric metric : family) {
+                    writeSample(metric.getName(), metric.getLabels(), null,
+                        Long.toString(((Counter) metric).get()));
+                }
+                break;
+
+            case GAUGE:
+                writeHeader(first.getName(), first.getHelp(), "gauge");
+                for (Metric metric : family) {
+                    writeSample(metric.getName(), metric.getLabels(), null,
+                        format(((Gauge) metric).get()));
+                }
+                break;
+
+            case HISTOGRAM:
+            case TIMER:
+            default:
+                writeSummaries(family);
+                break;
+        }
+    }
+
+    private void writeSummaries(List<Metric> family) throws IOException {
+        Metric first = family.get(0);
+        double scale = first.getType() == Metric.Type.TIMER ? NANOS_PER_SECOND : 1;
+        Histogram.Snapshot[] snapshots = new Histogram.Snapshot[family.size()];
+        for (int i = 0; i < snapshots.length; ++i) {
+            snapshots[i] = ((Histogram) family.get(i)).snapshot();
+        }
+
+        writeHeader(first.getName(), first.getHelp(), "summary");
+        for (int i = 0; i < snapshots.length; ++i) {
+            Metric metric = family.get(i);
+            for (double quantile : QUANTILES) {
+                writeSample(metric.getName(), metric.getLabels(), format(quantile),
+                    format(snapshots[i].getValueAtQuantile(quantile) / scale));
+            }
+            writeSample(metric.getName() + "_sum", metric.getLabels(), null,
+                format(snapshots[i].getSum() / scale));
+            writeSample(metric.getName() + "_count", metric.getLabels(), null,
+                Long.toString(snapshots[i].getCount()));
+        }
+
+        writeHeader(first.getName() + "_max", "The largest value of " + first.getName() + ".",
+            "gauge");
+        for (int i = 0; i < snapshots.length; ++i) {
+            Metric metric = family.get(i);
+            writeSample(metric.getName() + "_max", metric.getLabels(), null,
+                format(snapshots[i].getMax() / scale));
+        }
+    }
+
+    private void writeHeader(String name, String help, String type) throws IOException {
+        out.append("# HELP ").append(name).append(' ');
+        for (int i = 0; i < help.length(); ++i) {
+            char c = help.charAt(i);
+            if (c == '\\') {
+                out.append("\\\\");
+            } else if (c == '\n') {
+                out.append("\\n");
+            } else {
+                out.append(c);
+            }
+        }
+        out.append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private void writeSample(String name, Map<String, String> labels, @Nullable String quantile,
+        String value) throws IOException {
+        out.append(name);
+        if (!labels.isEmpty() || quantile != null) {
+            char separator = '{';
+            for (Map.Entry<String, String> label : labels.entrySet()) {
+                out.append(separator);
+                writeLabel(label.getKey(), label.getValue());
+                separator = ',';
+            }
+            if (quantile != null) {
+                out.append(separator);
+                writeLabel("quantile", quantile);
+            }
+            out.append('}');
+        }
+        out.append(' ').append(value).append('\n');
+    }
+
+    private void writeLabel(String name, String value) throws IOException {
+        out.append(name).append("=\"");
+        for (int i = 0; i < value.length(); ++i) {
+            char c = value.charAt(i);
+            if (c == '\\') {
+                out.append("\\\\");
+            } else if (c == '"') {
+                out.append("\\\"");
+            } else if (c == '\n') {
+                out.append("\\n");
+            } else {
+                out.append(c);
+            }
+        }
+        out.append('"');
+    }
+
+    private static String format(double value) {
+        if (Double.isNaN(value)) {
+            return "NaN";
+        }
+        if (Double.isInfinite(value)) {
+            return value > 0 ? "+Inf" : "-Inf";
+        }
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+}
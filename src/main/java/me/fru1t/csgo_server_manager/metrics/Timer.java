@@ -0,0 +1,32 @@
+package me.fru1t.csgo_server_manager.metrics;
+
+import com.google.common.collect.ImmutableMap;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A histogram of how long something takes, in nanoseconds, up to an hour. Times are usually
+ * recorded from a start taken with {@link System#nanoTime()}, which unlike starting a stopwatch
+ * object doesn't allocate:
+ * <pre>
+ * long startNanos = System.nanoTime();
+ * ...
+ * timer.recordSince(startNanos);
+ * </pre>
+ */
+public final class Timer extends Histogram {
+    public static final long MAX_NANOS = TimeUnit.HOURS.toNanos(1);
+
+    Timer(String name, String help, ImmutableMap<String, String> labels) {
+        super(name, help, labels, MAX_NANOS);
+    }
+
+    @Override
+    public Type getType() {
+        return Type.TIMER;
+    }
+
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+}
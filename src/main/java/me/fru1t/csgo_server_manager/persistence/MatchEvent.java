@@ -0,0 +1,56 @@
+package me.fru1t.csgo_server_manager.persistence;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import me.fru1t.csgo_server_manager.logs.LogEvent;
+import me.fru1t.csgo_server_manager.logs.LogEventType;
+
+import javax.annotation.Nullable;
+import java.time.LocalDateTime;
+
+/**
+ * An immutable copy of a {@link LogEvent}, as stored in a match's history.
+ */
+@Getter
+@RequiredArgsConstructor
+public final class MatchEvent {
+    private final String server;
+    private final LogEventType type;
+
+    /**
+     * When the server logged the event, in the server's time zone.
+     */
+    private final LocalDateTime loggedAt;
+
+    @Nullable
+    private final String playerName;
+    @Nullable
+    private final String playerSteamId;
+    @Nullable
+    private final String playerTeam;
+    @Nullable
+    private final String targetName;
+    @Nullable
+    private final String targetSteamId;
+    @Nullable
+    private final String targetTeam;
+
+    /**
+     * What the event's type describes as its value, such as what a player said.
+     * @see LogEventType
+     */
+    @Nullable
+    private final String value;
+
+    private final boolean isHeadshot;
+
+    /**
+     * Copies the given event, which its pipeline will reuse.
+     */
+    public static MatchEvent of(LogEvent event) {
+        return new MatchEvent(event.getServer(), event.getType(), event.getTimestamp(),
+            event.getPlayerName(), event.getPlayerSteamId(), event.getPlayerTeam(),
+            event.getTargetName(), event.getTargetSteamId(), event.getTargetTeam(),
+            event.getValue(), event.isHeadshot());
+    }
+}
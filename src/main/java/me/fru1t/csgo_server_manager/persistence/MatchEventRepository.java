@@ -0,0 +1,132 @@
+package me.fru1t.csgo_server_manager.persistence;
+
+import com.google.common.collect.ImmutableList;
+import me.fru1t.csgo_server_manager.logs.LogEventType;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+
+/**
+ * <p>Stores every server's match history in the {@code match_events} table, and totals players'
+ * stats from it.</p>
+ * <p>Events are written in batches, each in a single transaction, as a
+ * {@link WriteBehindQueue.BatchWriter} for a {@link WriteBehindQueue}; a busy server logs far too
+ * many to insert one at a time.</p>
+ */
+public class MatchEventRepository implements WriteBehindQueue.BatchWriter<MatchEvent> {
+    private static final String INSERT = "INSERT INTO match_events (server, logged_at, "
+        + "event_type, player_name, player_steam_id, player_team, target_name, target_steam_id, "
+        + "target_team, event_value, headshot) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String SELECT_RECENT = "SELECT server, logged_at, event_type, "
+        + "player_name, player_steam_id, player_team, target_name, target_steam_id, target_team, "
+        + "event_value, headshot FROM match_events WHERE server = ? ORDER BY id DESC LIMIT ?";
+
+    // Every kill counts once for its killer, and once against its victim. Bots all share a Steam
+    // ID, so aren't counted.
+    private static final String SELECT_PLAYER_STATS = "SELECT steam_id, MAX(name) AS name, "
+        + "SUM(kills) AS kills, SUM(deaths) AS deaths, SUM(headshots) AS headshots FROM ("
+        + "SELECT player_steam_id AS steam_id, player_name AS name, 1 AS kills, 0 AS deaths, "
+        + "CASE WHEN headshot THEN 1 ELSE 0 END AS headshots "
+        + "FROM match_events WHERE server = ? AND event_type = 'KILL' "
+        + "UNION ALL "
+        + "SELECT target_steam_id, target_name, 0, 1, 0 "
+        + "FROM match_events WHERE server = ? AND event_type = 'KILL'"
+        + ") players WHERE steam_id <> 'BOT' GROUP BY steam_id ORDER BY kills DESC, steam_id";
+
+    private final DataSource dataSource;
+
+    public MatchEventRepository(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Inserts every given event in a single batch and transaction.
+     */
+    @Override
+    public void write(List<MatchEvent> events) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement insert = connection.prepareStatement(INSERT)) {
+                for (MatchEvent event : events) {
+                    insert.setString(1, event.getServer());
+                    insert.setTimestamp(2, Timestamp.valueOf(event.getLoggedAt()));
+                    insert.setString(3, event.getType().name());
+                    setNullableString(insert, 4, event.getPlayerName());
+                    setNullableString(insert, 5, event.getPlayerSteamId());
+                    setNullableString(insert, 6, event.getPlayerTeam());
+                    setNullableString(insert, 7, event.getTargetName());
+                    setNullableString(insert, 8, event.getTargetSteamId());
+                    setNullableString(insert, 9, event.getTargetTeam());
+                    setNullableString(insert, 10, event.getValue());
+                    insert.setBoolean(11, event.isHeadshot());
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * @return The given server's latest events, newest first.
+     */
+    public ImmutableList<MatchEvent> findRecent(String server, int limit) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+            PreparedStatement select = connection.prepareStatement(SELECT_RECENT)) {
+            select.setString(1, server);
+            select.setInt(2, limit);
+            ImmutableList.Builder<MatchEvent> events = ImmutableList.builder();
+            try (ResultSet results = select.executeQuery()) {
+                while (results.next()) {
+                    events.add(new MatchEvent(results.getString(1),
+                        LogEventType.valueOf(results.getString(3)),
+                        results.getTimestamp(2).toLocalDateTime(), results.getString(4),
+                        results.getString(5), results.getString(6), results.getString(7),
+                        results.getString(8), results.getString(9), results.getString(10),
+                        results.getBoolean(11)));
+                }
+            }
+            return events.build();
+        }
+    }
+
+    /**
+     * @return The stats of every player that's killed or been killed on the given server, most
+     * kills first.
+     */
+    public ImmutableList<PlayerStats> getPlayerStats(String server) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+            PreparedStatement select = connection.prepareStatement(SELECT_PLAYER_STATS)) {
+            select.setString(1, server);
+            select.setString(2, server);
+            ImmutableList.Builder<PlayerStats> stats = ImmutableList.builder();
+            try (ResultSet results = select.executeQuery()) {
+                while (results.next()) {
+                    stats.add(new PlayerStats(results.getString(1), results.getString(2),
+                        results.getLong(3), results.getLong(4), results.getLong(5)));
+                }
+            }
+            return stats.build();
+        }
+    }
+
+    private static void setNullableString(PreparedStatement statement, int index, String value)
+        throws SQLException {
+        if (value == null) {
+            statement.setNull(index, Types.VARCHAR);
+        } else {
+            statement.setString(index, value);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package me.fru1t.csgo_server_manager.persistence;
+
+import me.fru1t.csgo_server_manager.logs.LogEvent;
+import me.fru1t.csgo_server_manager.logs.LogPipeline;
+
+/**
+ * Records every event a {@link LogPipeline} reads into servers' match history, through a
+ * {@link WriteBehindQueue} so that the pipeline never waits on the database for longer than it
+ * takes the queue to make room.
+ */
+public class MatchRecorder implements LogPipeline.Listener {
+    private final WriteBehindQueue<MatchEvent> queue;
+
+    public MatchRecorder(WriteBehindQueue<MatchEvent> queue) {
+        this.queue = queue;
+    }
+
+    @Override
+    public void onEvent(LogEvent event) {
+        try {
+            queue.add(MatchEvent.of(event));
+        } catch (InterruptedException e) {
+            // The pipeline's closing, and the event's lost with whatever else was left unread
+            Thread.currentThread().interrupt();
+        }
+    }
+}
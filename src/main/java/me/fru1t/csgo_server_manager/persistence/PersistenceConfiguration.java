@@ -0,0 +1,62 @@
+package me.fru1t.csgo_server_manager.persistence;
+
+import com.google.common.collect.ImmutableList;
+import me.fru1t.csgo_server_manager.files.TextSettingRevisionStore;
+import me.fru1t.csgo_server_manager.logs.LogFollower;
+import me.fru1t.csgo_server_manager.logs.LogPipeline;
+import me.fru1t.csgo_server_manager.server.ServerSupervisor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.SQLException;
+
+/**
+ * Creates the repositories over the application's database, storing every server the
+ * {@link ServerSupervisor} was started with, the {@link TextSettingRevisionStore} keeping every
+ * revision of config files, and the {@link LogPipeline} whose events are recorded into match
+ * history in batches of {@code csgo.persistence.batchSize}. The pipeline follows every supervised
+ * server's log while it's running.
+ */
+@Configuration
+public class PersistenceConfiguration {
+    @Bean
+    public ServerRepository serverRepository(DataSource dataSource, ServerSupervisor supervisor)
+        throws SQLException {
+        ServerRepository repository = new ServerRepository(dataSource);
+        repository.saveAll(supervisor.getConfigs());
+        return repository;
+    }
+
+    @Bean
+    public TextSettingRevisionStore textSettingRevisionStore(DataSource dataSource)
+        throws IOException {
+        return TextSettingRevisionStore.load(new TextSettingRevisionRepository(dataSource));
+    }
+
+    @Bean
+    public MatchEventRepository matchEventRepository(DataSource dataSource) {
+        return new MatchEventRepository(dataSource);
+    }
+
+    @Bean(destroyMethod = "close")
+    public WriteBehindQueue<MatchEvent> matchEventQueue(MatchEventRepository repository,
+        @Value("${csgo.persistence.batchSize:" + WriteBehindQueue.DEFAULT_BATCH_SIZE + "}")
+            int batchSize,
+        @Value("${csgo.persistence.flushIntervalMs:"
+            + WriteBehindQueue.DEFAULT_FLUSH_INTERVAL_MS + "}") long flushIntervalMs) {
+        return new WriteBehindQueue<>("MatchEventQueue", repository, batchSize, flushIntervalMs,
+            WriteBehindQueue.DEFAULT_CAPACITY);
+    }
+
+    @Bean(destroyMethod = "close")
+    public LogPipeline logPipeline(WriteBehindQueue<MatchEvent> matchEventQueue,
+        ServerSupervisor supervisor) {
+        LogPipeline pipeline =
+            new LogPipeline(ImmutableList.of(new MatchRecorder(matchEventQueue)));
+        new LogFollower(pipeline, supervisor).attach();
+        return pipeline;
+    }
+}
@@ -0,0 +1,22 @@
+package me.fru1t.csgo_server_manager.persistence;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * A player's kills and deaths on a server, as totalled from its match history.
+ */
+@Getter
+@RequiredArgsConstructor
+public final class PlayerStats {
+    private final String steamId;
+
+    /**
+     * The name the player last went by.
+     */
+    private final String name;
+
+    private final long kills;
+    private final long deaths;
+    private final long headshots;
+}
@@ -0,0 +1,154 @@
+package me.fru1t.csgo_server_manager.persistence;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.net.HostAndPort;
+import me.fru1t.csgo_server_manager.server.InvalidServerConfigException;
+import me.fru1t.csgo_server_manager.server.ServerConfig;
+
+import javax.sql.DataSource;
+import java.net.InetSocketAddress;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+
+/**
+ * Stores server definitions, as {@link ServerConfig}s, in the {@code servers} table. Servers are
+ * few and rarely change, so are written straight away rather than in batches.
+ */
+public class ServerRepository {
+    private static final String UPDATE = "UPDATE servers SET executable = ?, arguments = ?, "
+        + "directory = ?, restart_delay_ms = ?, max_restart_delay_ms = ?, stable_after_ms = ?, "
+        + "rcon_address = ?, rcon_password = ?, updated_at = ? WHERE name = ?";
+    private static final String INSERT = "INSERT INTO servers (executable, arguments, directory, "
+        + "restart_delay_ms, max_restart_delay_ms, stable_after_ms, rcon_address, rcon_password, "
+        + "updated_at, name) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String SELECT_ALL = "SELECT name, executable, arguments, directory, "
+        + "restart_delay_ms, max_restart_delay_ms, stable_after_ms, rcon_address, rcon_password "
+        + "FROM servers ORDER BY name";
+    private static final String DELETE = "DELETE FROM servers WHERE name = ?";
+
+    // Arguments can't contain whitespace, so are stored joined by spaces
+    private static final Joiner ARGUMENT_JOINER = Joiner.on(' ');
+    private static final Splitter ARGUMENT_SPLITTER = Splitter.on(' ').omitEmptyStrings();
+
+    private final DataSource dataSource;
+
+    public ServerRepository(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Stores the given servers, replacing any of the same names, in a single transaction.
+     */
+    public void saveAll(Iterable<ServerConfig> configs) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement update = connection.prepareStatement(UPDATE);
+                PreparedStatement insert = connection.prepareStatement(INSERT)) {
+                Timestamp now = new Timestamp(System.currentTimeMillis());
+                for (ServerConfig config : configs) {
+                    setConfig(update, config, now);
+                    if (update.executeUpdate() == 0) {
+                        setConfig(insert, config, now);
+                        insert.executeUpdate();
+                    }
+                }
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Stores the given server, replacing any of the same name.
+     */
+    public void save(ServerConfig config) throws SQLException {
+        saveAll(ImmutableList.of(config));
+    }
+
+    /**
+     * @return Every stored server, by name.
+     * @throws SQLException Thrown if a stored server is no longer valid, such as if its RCON
+     * address can't be resolved.
+     */
+    public ImmutableList<ServerConfig> findAll() throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+            PreparedStatement select = connection.prepareStatement(SELECT_ALL);
+            ResultSet results = select.executeQuery()) {
+            ImmutableList.Builder<ServerConfig> configs = ImmutableList.builder();
+            while (results.next()) {
+                String name = results.getString(1);
+                String directory = results.getString(4);
+                String rconAddress = results.getString(8);
+                try {
+                    configs.add(ServerConfig.builder()
+                        .name(name)
+                        .executable(results.getString(2))
+                        .arguments(ARGUMENT_SPLITTER.split(results.getString(3)))
+                        .directory(directory == null ? null : Paths.get(directory))
+                        .restartDelayMs(results.getLong(5))
+                        .maxRestartDelayMs(results.getLong(6))
+                        .stableAfterMs(results.getLong(7))
+                        .rconAddress(rconAddress == null ? null : toAddress(rconAddress))
+                        .rconPassword(results.getString(9))
+                        .build());
+                } catch (InvalidServerConfigException | IllegalArgumentException e) {
+                    throw new SQLException("Server " + name + " is stored with an invalid config.",
+                        e);
+                }
+            }
+            return configs.build();
+        }
+    }
+
+    /**
+     * Removes the given server, if it's stored.
+     */
+    public void delete(String name) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+            PreparedStatement delete = connection.prepareStatement(DELETE)) {
+            delete.setString(1, name);
+            delete.executeUpdate();
+        }
+    }
+
+    // Sets every column of the update or insert, which share their parameters' order
+    private static void setConfig(PreparedStatement statement, ServerConfig config,
+        Timestamp now) throws SQLException {
+        statement.setString(1, config.getExecutable());
+        statement.setString(2, ARGUMENT_JOINER.join(config.getArguments()));
+        if (config.getDirectory() == null) {
+            statement.setNull(3, Types.VARCHAR);
+        } else {
+            statement.setString(3, config.getDirectory().toString());
+        }
+        statement.setLong(4, config.getRestartDelayMs());
+        statement.setLong(5, config.getMaxRestartDelayMs());
+        statement.setLong(6, config.getStableAfterMs());
+        if (config.getRconAddress() == null) {
+            statement.setNull(7, Types.VARCHAR);
+            statement.setNull(8, Types.VARCHAR);
+        } else {
+            statement.setString(7, HostAndPort.fromParts(config.getRconAddress().getHostString(),
+                config.getRconAddress().getPort()).toString());
+            statement.setString(8, config.getRconPassword());
+        }
+        statement.setTimestamp(9, now);
+        statement.setString(10, config.getName());
+    }
+
+    private static InetSocketAddress toAddress(String address) {
+        HostAndPort hostAndPort = HostAndPort.fromString(address);
+        return new InetSocketAddress(hostAndPort.getHost(), hostAndPort.getPort());
+    }
+}
@@ -0,0 +1,106 @@
+package me.fru1t.csgo_server_manager.persistence;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.HashCode;
+import me.fru1t.csgo_server_manager.files.TextSettingRevision;
+import me.fru1t.csgo_server_manager.files.TextSettingRevisionStore;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps a {@link TextSettingRevisionStore}'s history, such as every saved revision of each config
+ * file, in the {@code setting_nodes} and {@code setting_revisions} tables. Each distinct setting
+ * is a single row keyed by its hash, however many revisions it's in, so a revision that changes
+ * one setting only adds the rows on the path down to it.
+ */
+public class TextSettingRevisionRepository implements TextSettingRevisionStore.Storage {
+    private static final String SELECT_NODES = "SELECT hash, content FROM setting_nodes";
+    private static final String SELECT_REVISIONS = "SELECT name, revision_number, root_hash, "
+        + "committed_at FROM setting_revisions ORDER BY name, revision_number";
+    private static final String INSERT_NODE =
+        "INSERT INTO setting_nodes (hash, content) VALUES (?, ?)";
+    private static final String INSERT_REVISION = "INSERT INTO setting_revisions "
+        + "(name, revision_number, root_hash, committed_at) VALUES (?, ?, ?, ?)";
+
+    private final DataSource dataSource;
+
+    public TextSettingRevisionRepository(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    public Map<HashCode, byte[]> loadNodes() throws IOException {
+        try (Connection connection = dataSource.getConnection();
+            PreparedStatement select = connection.prepareStatement(SELECT_NODES);
+            ResultSet results = select.executeQuery()) {
+            Map<HashCode, byte[]> nodes = new HashMap<>();
+            while (results.next()) {
+                nodes.put(HashCode.fromBytes(results.getBytes(1)), results.getBytes(2));
+            }
+            return nodes;
+        } catch (SQLException e) {
+            throw new IOException("Couldn't read stored settings.", e);
+        }
+    }
+
+    @Override
+    public List<TextSettingRevision> loadRevisions() throws IOException {
+        try (Connection connection = dataSource.getConnection();
+            PreparedStatement select = connection.prepareStatement(SELECT_REVISIONS);
+            ResultSet results = select.executeQuery()) {
+            ImmutableList.Builder<TextSettingRevision> revisions = ImmutableList.builder();
+            while (results.next()) {
+                revisions.add(new TextSettingRevision(results.getString(1), results.getInt(2),
+                    HashCode.fromBytes(results.getBytes(3)), results.getTimestamp(4).getTime()));
+            }
+            return revisions.build();
+        } catch (SQLException e) {
+            throw new IOException("Couldn't read stored revisions.", e);
+        }
+    }
+
+    /**
+     * Stores the given revision and settings in a single transaction.
+     */
+    @Override
+    public void add(TextSettingRevision revision, Map<HashCode, byte[]> nodes)
+        throws IOException {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement insertNode = connection.prepareStatement(INSERT_NODE);
+                PreparedStatement insertRevision = connection.prepareStatement(INSERT_REVISION)) {
+                for (Map.Entry<HashCode, byte[]> node : nodes.entrySet()) {
+                    insertNode.setBytes(1, node.getKey().asBytes());
+                    insertNode.setBytes(2, node.getValue());
+                    insertNode.addBatch();
+                }
+                if (!nodes.isEmpty()) {
+                    insertNode.executeBatch();
+                }
+                insertRevision.setString(1, revision.getName());
+                insertRevision.setInt(2, revision.getNumber());
+                insertRevision.setBytes(3, revision.getRootHash().asBytes());
+                insertRevision.setTimestamp(4, new Timestamp(revision.getCommittedAtMillis()));
+                insertRevision.executeUpdate();
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new IOException(
+                "Couldn't store revision " + revision.getNumber() + " of " + revision.getName(), e);
+        }
+    }
+}
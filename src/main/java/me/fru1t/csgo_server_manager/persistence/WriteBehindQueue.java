@@ -0,0 +1,239 @@
+package me.fru1t.csgo_server_manager.persistence;
+
+import java.io.Closeable;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * <p>Collects rows to be written and writes them in batches on a thread of its own, so that
+ * whoever adds them never waits on the database, and the database sees one batch insert in place
+ * of hundreds of single-row ones.</p>
+ * <p>A batch is written once it's full, or once its first row has waited for the flush interval,
+ * whichever's first. Rows are written in the order they were added. A batch that fails to write is
+ * retried a few times, backing off, and then dropped, so that a broken database can't hold up
+ * everything else for good.</p>
+ * <p>The queue holds at most its capacity in rows waiting to be written. Adding to a full queue
+ * waits for room, so a database that can't keep up slows down whatever's adding rows rather than
+ * rows being dropped or memory running out.</p>
+ */
+public class WriteBehindQueue<T> implements Closeable {
+    public static final int DEFAULT_BATCH_SIZE = 500;
+    public static final long DEFAULT_FLUSH_INTERVAL_MS = 1000;
+    public static final int DEFAULT_CAPACITY = 64 * 1024;
+
+    private static final int MAX_WRITE_ATTEMPTS = 3;
+    private static final long RETRY_DELAY_MS = 500;
+    private static final long CLOSE_TIMEOUT_MS = 30 * 1000;
+
+    /**
+     * Writes a batch of rows, all or none of them. Called on the queue's thread, one batch at a
+     * time.
+     */
+    public interface BatchWriter<T> {
+        void write(List<T> batch) throws SQLException;
+    }
+
+    // Queued in line with rows, so that everything added before it is written by the time it's
+    // reached
+    private static final class Flush {
+        final CountDownLatch done = new CountDownLatch(1);
+        final boolean isLast;
+
+        Flush(boolean isLast) {
+            this.isLast = isLast;
+        }
+    }
+
+    private final BatchWriter<T> writer;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final BlockingQueue<Object> queue;
+    private final Thread thread;
+    private final AtomicLong writtenCount;
+    private final AtomicLong droppedCount;
+
+    // Held shared while queueing, and exclusively while closing, so that nothing can be queued
+    // behind the last flush
+    private final ReadWriteLock closeLock;
+
+    // Guarded by closeLock
+    private boolean isClosed;
+
+    public WriteBehindQueue(String name, BatchWriter<T> writer) {
+        this(name, writer, DEFAULT_BATCH_SIZE, DEFAULT_FLUSH_INTERVAL_MS, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param name The name of the queue's thread.
+     * @param batchSize The most rows to write at once.
+     * @param flushIntervalMs The longest a row waits for its batch to fill before being written.
+     * @param capacity The most rows waiting to be written before adding more waits for room.
+     */
+    public WriteBehindQueue(String name, BatchWriter<T> writer, int batchSize,
+        long flushIntervalMs, int capacity) {
+        this.writer = writer;
+        this.batchSize = batchSize;
+        flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        queue = new LinkedBlockingQueue<>(capacity);
+        writtenCount = new AtomicLong();
+        droppedCount = new AtomicLong();
+        closeLock = new ReentrantReadWriteLock();
+        isClosed = false;
+        thread = new Thread(this::run, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Queues the given row to be written, waiting for room if the queue is full.
+     * @throws IllegalStateException Thrown if the queue has been closed.
+     */
+    public void add(T row) throws InterruptedException {
+        put(row);
+    }
+
+    /**
+     * Writes every row added so far, waiting for them to be written or dropped.
+     * @throws IllegalStateException Thrown if the queue has been closed.
+     */
+    public void flush() throws InterruptedException {
+        Flush flush = new Flush(false);
+        put(flush);
+        flush.done.await();
+    }
+
+    /**
+     * @return The number of rows written so far.
+     */
+    public long getWrittenCount() {
+        return writtenCount.get();
+    }
+
+    /**
+     * @return The number of rows dropped so far, after failing to be written.
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * Writes every row added so far, waiting a while for them to be written, then stops the
+     * queue's thread.
+     */
+    @Override
+    public void close() {
+        Flush flush = new Flush(true);
+        closeLock.writeLock().lock();
+        try {
+            if (isClosed) {
+                return;
+            }
+            isClosed = true;
+        } finally {
+            closeLock.writeLock().unlock();
+        }
+        try {
+            queue.put(flush);
+            if (!flush.done.await(CLOSE_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                thread.interrupt();
+            }
+        } catch (InterruptedException e) {
+            thread.interrupt();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Queues the given row or flush, unless the queue's been closed
+    private void put(Object next) throws InterruptedException {
+        closeLock.readLock().lock();
+        try {
+            if (isClosed) {
+                throw new IllegalStateException("The queue has been closed.");
+            }
+            queue.put(next);
+        } finally {
+            closeLock.readLock().unlock();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void run() {
+        List<T> batch = new ArrayList<>(batchSize);
+        long deadline = 0;
+        try {
+            while (true) {
+                Object next = batch.isEmpty() ? queue.take()
+                    : queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (next instanceof Flush) {
+                    try {
+                        write(batch);
+                    } finally {
+                        ((Flush) next).done.countDown();
+                    }
+                    if (((Flush) next).isLast) {
+                        return;
+                    }
+                } else if (next == null) {
+                    write(batch);
+                } else {
+                    if (batch.isEmpty()) {
+                        deadline = System.nanoTime() + flushIntervalNanos;
+                    }
+                    batch.add((T) next);
+                    if (batch.size() >= batchSize) {
+                        write(batch);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            // Closing's given up waiting, and whatever's left is lost
+            droppedCount.addAndGet(batch.size());
+        } finally {
+            drain();
+        }
+    }
+
+    // Drops whatever's still queued once the thread's stopping, releasing anyone waiting on a
+    // flush. Nothing more can be queued by then, as the queue's closed.
+    private void drain() {
+        List<Object> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        for (Object next : remaining) {
+            if (next instanceof Flush) {
+                ((Flush) next).done.countDown();
+            } else {
+                droppedCount.incrementAndGet();
+            }
+        }
+    }
+
+    // Writes and clears the given batch, retrying it until it's given up on
+    private void write(List<T> batch) throws InterruptedException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        for (int attempt = 1; ; ++attempt) {
+            try {
+                writer.write(batch);
+                writtenCount.addAndGet(batch.size());
+                break;
+            } catch (SQLException | RuntimeException e) {
+                thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+                if (attempt == MAX_WRITE_ATTEMPTS) {
+                    droppedCount.addAndGet(batch.size());
+                    break;
+                }
+                Thread.sleep(RETRY_DELAY_MS << (attempt - 1));
+            }
+        }
+        batch.clear();
+    }
+}
@@ -0,0 +1,19 @@
+package me.fru1t.csgo_server_manager.query;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * A single player, as listed in answer to A2S_PLAYER. Players still connecting have empty names.
+ */
+@Getter
+@RequiredArgsConstructor
+public final class PlayerInfo {
+    private final String name;
+    private final int score;
+
+    /**
+     * How long the player's been connected for.
+     */
+    private final float durationSeconds;
+}
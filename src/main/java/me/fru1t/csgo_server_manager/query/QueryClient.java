@@ -0,0 +1,489 @@
+package me.fru1t.csgo_server_manager.query;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * <p>Asks servers about themselves over the Source query protocol: A2S_INFO, A2S_PLAYER and
+ * A2S_RULES. Every query, to every server, is sent and answered through a single UDP socket on a
+ * single thread, so a client can query a whole fleet every tick without a thread, or a socket,
+ * per server.</p>
+ * <p>Answers are matched to queries by the address they come from and their type. Concurrent
+ * queries of the same type to the same server share a single request. Servers that answer with a
+ * challenge are sent the query again with it, and each server's challenge is remembered, so
+ * later queries to it need only a single round trip. Answers split across several packets are put
+ * back together, whatever order the packets arrive in, except for compressed answers, which CS:GO
+ * never sends.</p>
+ * <p>Returned futures are completed on the client's thread, so anything slow done with their
+ * results should use the {@code async} variants of CompletableFuture's methods. UDP may lose
+ * packets, so a query that isn't answered in time fails with a TimeoutException, and should
+ * simply be asked again later.</p>
+ */
+public class QueryClient implements Closeable {
+    public static final long DEFAULT_TIMEOUT_MS = 2000;
+
+    // How often timeouts are checked for
+    private static final long TICK_MS = 100;
+
+    // How long to remember servers' challenges for after they were last queried
+    private static final long IDLE_TIMEOUT_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    // The largest datagram there can be
+    private static final int MAX_DATAGRAM_BYTES = 65535;
+
+    // Split answers of more packets than this are dropped. Even a full server's rules take far
+    // fewer.
+    private static final int MAX_SPLIT_PACKETS = 64;
+
+    /**
+     * Sends each packet through the client's socket, as {@link DatagramChannel#send} does, so
+     * tests can have the socket's buffer seem full.
+     */
+    interface Sender {
+        /**
+         * @return The number of bytes sent, which is 0 if there wasn't room for the packet.
+         */
+        int send(DatagramChannel channel, ByteBuffer packet, InetSocketAddress address)
+            throws IOException;
+    }
+
+    /**
+     * A query sent to a server, or waiting to be, and everything waiting on its answer.
+     */
+    private static final class Request {
+        final Server server;
+        final QueryPacket.Type type;
+        final List<CompletableFuture<Object>> futures;
+        final long deadlineNanos;
+        int sentChallenge;
+
+        // Whether it's waiting in unsent, to be sent with whatever challenge is known by then
+        boolean isQueued;
+
+        Request(Server server, QueryPacket.Type type, long deadlineNanos) {
+            this.server = server;
+            this.type = type;
+            this.deadlineNanos = deadlineNanos;
+            futures = new ArrayList<>(1);
+            sentChallenge = QueryPacket.NO_CHALLENGE;
+            isQueued = false;
+        }
+    }
+
+    /**
+     * The packets of a split answer received so far.
+     */
+    private static final class Split {
+        final long startNanos;
+        final byte[][] packets;
+        int receivedCount;
+
+        Split(int packetCount, long startNanos) {
+            this.startNanos = startNanos;
+            packets = new byte[packetCount][];
+            receivedCount = 0;
+        }
+    }
+
+    private static final class Server {
+        final InetSocketAddress address;
+        final Map<QueryPacket.Type, Request> pending;
+        final Map<Integer, Split> splits;
+        int challenge;
+        long lastActiveNanos;
+
+        Server(InetSocketAddress address) {
+            this.address = address;
+            pending = new EnumMap<>(QueryPacket.Type.class);
+            splits = new HashMap<>();
+            challenge = QueryPacket.NO_CHALLENGE;
+            lastActiveNanos = System.nanoTime();
+        }
+    }
+
+    private static final class Submission {
+        final InetSocketAddress address;
+        final QueryPacket.Type type;
+        final CompletableFuture<Object> future;
+        final long deadlineNanos;
+
+        Submission(InetSocketAddress address, QueryPacket.Type type,
+            CompletableFuture<Object> future, long deadlineNanos) {
+            this.address = address;
+            this.type = type;
+            this.future = future;
+            this.deadlineNanos = deadlineNanos;
+        }
+    }
+
+    private final long timeoutNanos;
+    private final Sender sender;
+    private final Selector selector;
+    private final DatagramChannel channel;
+    private final SelectionKey selectionKey;
+    private final Thread thread;
+    private final Queue<Submission> submissions;
+
+    // Only touched by the client's thread
+    private final Map<InetSocketAddress, Server> servers;
+    private final Queue<Request> unsent;
+    private final ByteBuffer readBuffer;
+    private final ByteBuffer writeBuffer;
+
+    private volatile boolean isClosed;
+
+    public QueryClient() throws IOException {
+        this(DEFAULT_TIMEOUT_MS);
+    }
+
+    /**
+     * @param timeoutMs How long to wait for each query to be answered, including any challenge.
+     */
+    public QueryClient(long timeoutMs) throws IOException {
+        this(timeoutMs, DatagramChannel::send);
+    }
+
+    QueryClient(long timeoutMs, Sender sender) throws IOException {
+        timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        this.sender = sender;
+        submissions = new ConcurrentLinkedQueue<>();
+        servers = new HashMap<>();
+        unsent = new ArrayDeque<>();
+        readBuffer = QueryPacket.allocate(MAX_DATAGRAM_BYTES);
+        writeBuffer = QueryPacket.allocate(QueryPacket.MAX_PACKET_BYTES);
+        isClosed = false;
+
+        selector = Selector.open();
+        try {
+            channel = DatagramChannel.open();
+            channel.configureBlocking(false);
+            channel.bind(null);
+            selectionKey = channel.register(selector, SelectionKey.OP_READ);
+        } catch (IOException e) {
+            selector.close();
+            throw e;
+        }
+        thread = new Thread(this::run, "QueryClient");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Sends the given server A2S_INFO.
+     */
+    public CompletableFuture<ServerInfo> queryInfo(InetSocketAddress server) {
+        return submit(server, QueryPacket.Type.INFO);
+    }
+
+    /**
+     * Sends the given server A2S_PLAYER.
+     * @return Every player on the server, which doesn't include bots on CS:GO.
+     */
+    public CompletableFuture<ImmutableList<PlayerInfo>> queryPlayers(InetSocketAddress server) {
+        return submit(server, QueryPacket.Type.PLAYERS);
+    }
+
+    /**
+     * Sends the given server A2S_RULES.
+     * @return The server's public console variables, by name, in the order the server sent them.
+     * CS:GO servers only answer if they've set {@code host_rules_show 1}.
+     */
+    public CompletableFuture<ImmutableMap<String, String>> queryRules(InetSocketAddress server) {
+        return submit(server, QueryPacket.Type.RULES);
+    }
+
+    /**
+     * Stops querying, failing any outstanding queries.
+     */
+    @Override
+    public void close() {
+        if (isClosed) {
+            return;
+        }
+        isClosed = true;
+        selector.wakeup();
+        if (Thread.currentThread() != thread) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // Futures are completed with whatever QueryPacket reads for the type, which is a T
+    @SuppressWarnings("unchecked")
+    private <T> CompletableFuture<T> submit(InetSocketAddress server, QueryPacket.Type type) {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        submissions.add(
+            new Submission(server, type, future, System.nanoTime() + timeoutNanos));
+        selector.wakeup();
+
+        // Closing may have already failed everything that was submitted
+        if (isClosed) {
+            failSubmissions();
+        }
+        return (CompletableFuture<T>) (CompletableFuture<?>) future;
+    }
+
+    private void send(Submission submission) {
+        Server server = servers.computeIfAbsent(submission.address, Server::new);
+        server.lastActiveNanos = System.nanoTime();
+        Request request = server.pending.get(submission.type);
+        if (request != null) {
+            request.futures.add(submission.future);
+            return;
+        }
+        request = new Request(server, submission.type, submission.deadlineNanos);
+        request.futures.add(submission.future);
+        server.pending.put(submission.type, request);
+        transmit(request);
+    }
+
+    // Sent in order, so nothing's sent ahead of what's waiting for room in the socket's buffer
+    private void transmit(Request request) {
+        if (!unsent.isEmpty() || !trySend(request)) {
+            request.isQueued = true;
+            unsent.add(request);
+            selectionKey.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        }
+    }
+
+    /**
+     * @return False if there wasn't room to send the request, in which case it should be sent
+     * once there is.
+     */
+    private boolean trySend(Request request) {
+        request.sentChallenge = request.server.challenge;
+        writeBuffer.clear();
+        QueryPacket.writeRequest(writeBuffer, request.type, request.sentChallenge);
+        writeBuffer.flip();
+        try {
+            return sender.send(channel, writeBuffer, request.server.address) != 0;
+        } catch (IOException | RuntimeException e) {
+            // Such as the address being unresolved or unreachable
+            request.server.pending.remove(request.type);
+            fail(request, e);
+            return true;
+        }
+    }
+
+    private void sendUnsent() {
+        Request request;
+        while ((request = unsent.peek()) != null) {
+            // Requests may have timed out while they waited
+            if (request.server.pending.get(request.type) == request && !trySend(request)) {
+                return;
+            }
+            unsent.remove().isQueued = false;
+        }
+        selectionKey.interestOps(SelectionKey.OP_READ);
+    }
+
+    private void receive() throws IOException {
+        while (true) {
+            readBuffer.clear();
+            SocketAddress from = channel.receive(readBuffer);
+            if (from == null) {
+                return;
+            }
+            readBuffer.flip();
+            Server server = servers.get(from);
+            if (server == null) {
+                continue;
+            }
+            try {
+                int header = readBuffer.getInt();
+                if (header == QueryPacket.SIMPLE_HEADER) {
+                    handleAnswer(server, readBuffer);
+                } else if (header == QueryPacket.SPLIT_HEADER) {
+                    handleSplit(server, readBuffer);
+                }
+            } catch (BufferUnderflowException e) {
+                // Not a query answer
+            }
+        }
+    }
+
+    private void handleSplit(Server server, ByteBuffer in) {
+        int id = in.getInt();
+        int packetCount = in.get() & 0xFF;
+        int number = in.get() & 0xFF;
+
+        // The most bytes each packet holds, which is of no use
+        in.getShort();
+
+        // Dropped packets leave their queries to time out
+        if ((id & QueryPacket.COMPRESSED_FLAG) != 0 || packetCount > MAX_SPLIT_PACKETS
+            || number >= packetCount) {
+            return;
+        }
+        Split split = server.splits.get(id);
+        if (split == null) {
+            split = new Split(packetCount, System.nanoTime());
+            server.splits.put(id, split);
+        }
+        if (split.packets.length != packetCount || split.packets[number] != null) {
+            return;
+        }
+        split.packets[number] = new byte[in.remaining()];
+        in.get(split.packets[number]);
+        if (++split.receivedCount < packetCount) {
+            return;
+        }
+
+        server.splits.remove(id);
+        int size = 0;
+        for (byte[] packet : split.packets) {
+            size += packet.length;
+        }
+        ByteBuffer answer = QueryPacket.allocate(size);
+        for (byte[] packet : split.packets) {
+            answer.put(packet);
+        }
+        answer.flip();
+        if (answer.getInt() == QueryPacket.SIMPLE_HEADER) {
+            handleAnswer(server, answer);
+        }
+    }
+
+    private void handleAnswer(Server server, ByteBuffer in) {
+        byte header = in.get();
+        if (header == QueryPacket.S2C_CHALLENGE) {
+            // Every query sent with another challenge, or none, is sent again with this one.
+            // Queries already sent with it are being answered, so aren't, and nor are those still
+            // waiting to be sent, which will be sent with it.
+            int challenge = in.getInt();
+            server.challenge = challenge;
+            // Copied, as requests that fail to send are removed
+            for (Request request : new ArrayList<>(server.pending.values())) {
+                if (!request.isQueued && request.sentChallenge != challenge) {
+                    transmit(request);
+                }
+            }
+            return;
+        }
+
+        QueryPacket.Type type = QueryPacket.Type.forAnswer(header);
+        Request request = type == null ? null : server.pending.remove(type);
+        if (request == null) {
+            return;
+        }
+        Object answer;
+        try {
+            answer = QueryPacket.read(type, in);
+        } catch (QueryException e) {
+            fail(request, e);
+            return;
+        }
+        for (CompletableFuture<Object> future : request.futures) {
+            future.complete(answer);
+        }
+    }
+
+    private void checkTimeouts(long nowNanos) {
+        Iterator<Server> it = servers.values().iterator();
+        while (it.hasNext()) {
+            Server server = it.next();
+            Iterator<Request> requests = server.pending.values().iterator();
+            while (requests.hasNext()) {
+                Request request = requests.next();
+                if (nowNanos - request.deadlineNanos >= 0) {
+                    requests.remove();
+                    fail(request, new TimeoutException("Timed out waiting for " + server.address
+                        + " to answer " + request.type + "."));
+                }
+            }
+            server.splits.values().removeIf(split -> nowNanos - split.startNanos > timeoutNanos);
+            if (server.pending.isEmpty()
+                && nowNanos - server.lastActiveNanos > IDLE_TIMEOUT_NANOS) {
+                it.remove();
+            }
+        }
+    }
+
+    private static void fail(Request request, Throwable e) {
+        for (CompletableFuture<Object> future : request.futures) {
+            future.completeExceptionally(e);
+        }
+    }
+
+    private void failSubmissions() {
+        Submission submission;
+        while ((submission = submissions.poll()) != null) {
+            submission.future.completeExceptionally(
+                new IOException("The client has been closed."));
+        }
+    }
+
+    private void run() {
+        long nextTickNanos = System.nanoTime();
+        try {
+            while (!isClosed) {
+                selector.select(TICK_MS);
+                Submission submission;
+                while ((submission = submissions.poll()) != null) {
+                    send(submission);
+                }
+
+                if (!selector.selectedKeys().isEmpty()) {
+                    if (selectionKey.isReadable()) {
+                        receive();
+                    }
+                    if (selectionKey.isValid() && selectionKey.isWritable()) {
+                        sendUnsent();
+                    }
+                    selector.selectedKeys().clear();
+                }
+
+                long now = System.nanoTime();
+                if (now - nextTickNanos >= 0) {
+                    nextTickNanos = now + TimeUnit.MILLISECONDS.toNanos(TICK_MS);
+                    checkTimeouts(now);
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            // Fall through to failing everything
+        }
+
+        isClosed = true;
+        IOException closed = new IOException("The client has been closed.");
+        for (Server server : servers.values()) {
+            for (Request request : server.pending.values()) {
+                fail(request, closed);
+            }
+        }
+        servers.clear();
+        unsent.clear();
+        failSubmissions();
+        try {
+            channel.close();
+            selector.close();
+        } catch (IOException e) {
+            // Closed anyway
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package me.fru1t.csgo_server_manager.query;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a server sends something that isn't a valid answer to a Source query.
+ */
+public class QueryException extends IOException {
+    public QueryException(String s) {
+        super(s);
+    }
+
+    public QueryException(String stringFormat, Object... args) {
+        this(String.format(stringFormat, args));
+    }
+}
@@ -0,0 +1,224 @@
+package me.fru1t.csgo_server_manager.query;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import javax.annotation.Nullable;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <p>Reads and writes Source query packets. Packets are little endian, and start with a header of
+ * -1, followed by a byte saying what kind of packet they are. Strings are null-terminated UTF-8.
+ * </p>
+ * <p>Answers too large for a single packet are split into several, each starting with a header
+ * of -2, the answer's ID, the number of packets, the packet's number, and the most bytes each
+ * packet holds. The payloads of every packet, in order, make up the whole answer, header of -1
+ * and all.</p>
+ * <p>Servers may answer a query with a challenge instead, a number to send back with the query
+ * to prove the address it came from is real.</p>
+ * <p>See https://developer.valvesoftware.com/wiki/Server_queries.</p>
+ */
+final class QueryPacket {
+    static final int SIMPLE_HEADER = -1;
+    static final int SPLIT_HEADER = -2;
+
+    /**
+     * Sent instead of a challenge to ask for one.
+     */
+    static final int NO_CHALLENGE = -1;
+
+    static final byte S2C_CHALLENGE = 'A';
+
+    /**
+     * The most bytes servers put in a single packet, splitting anything larger.
+     */
+    static final int MAX_PACKET_BYTES = 1400;
+
+    /**
+     * The header of each packet of a split answer.
+     */
+    static final int SPLIT_HEADER_BYTES = 12;
+
+    /**
+     * Set in the ID of split answers that are bzip2 compressed, which only some older games send.
+     */
+    static final int COMPRESSED_FLAG = 0x80000000;
+
+    // Flags of which optional fields follow an A2S_INFO answer
+    private static final int EDF_PORT = 0x80;
+    private static final int EDF_STEAM_ID = 0x10;
+    private static final int EDF_SOURCE_TV = 0x40;
+    private static final int EDF_KEYWORDS = 0x20;
+    private static final int EDF_GAME_ID = 0x01;
+
+    private static final byte[] INFO_PAYLOAD =
+        "Source Engine Query\0".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * A kind of query, and the headers of its request and answer.
+     */
+    enum Type {
+        INFO((byte) 'T', (byte) 'I'),
+        PLAYERS((byte) 'U', (byte) 'D'),
+        RULES((byte) 'V', (byte) 'E');
+
+        final byte request;
+        final byte answer;
+
+        Type(byte request, byte answer) {
+            this.request = request;
+            this.answer = answer;
+        }
+
+        /**
+         * @return The type of query the given header answers, or null if it's none.
+         */
+        @Nullable
+        static Type forAnswer(byte header) {
+            for (Type type : values()) {
+                if (type.answer == header) {
+                    return type;
+                }
+            }
+            return null;
+        }
+    }
+
+    // Uninstantiable
+    private QueryPacket() { }
+
+    /**
+     * @return A little endian buffer of the given capacity.
+     */
+    static ByteBuffer allocate(int capacity) {
+        return ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Writes a query to the given little endian buffer, with the given challenge, or
+     * {@link #NO_CHALLENGE} to ask for one. A2S_INFO is sent without a challenge if there is
+     * none, as servers that don't need one answer it straight away.
+     */
+    static void writeRequest(ByteBuffer out, Type type, int challenge) {
+        out.putInt(SIMPLE_HEADER);
+        out.put(type.request);
+        if (type == Type.INFO) {
+            out.put(INFO_PAYLOAD);
+            if (challenge != NO_CHALLENGE) {
+                out.putInt(challenge);
+            }
+        } else {
+            out.putInt(challenge);
+        }
+    }
+
+    /**
+     * Reads the answer to the given type of query from the given little endian buffer, which must
+     * be positioned just after the answer's header.
+     * @return A {@link ServerInfo}, a list of {@link PlayerInfo} or a map of rules, for each type
+     * of query.
+     * @throws QueryException Thrown if the answer ends early or has unterminated strings.
+     */
+    static Object read(Type type, ByteBuffer in) throws QueryException {
+        try {
+            switch (type) {
+                case INFO:
+                    return readInfo(in);
+                case PLAYERS:
+                    return readPlayers(in);
+                case RULES:
+                default:
+                    return readRules(in);
+            }
+        } catch (BufferUnderflowException e) {
+            throw new QueryException("The answer to %s ended early.", type);
+        }
+    }
+
+    private static ServerInfo readInfo(ByteBuffer in) throws QueryException {
+        // Protocol version
+        in.get();
+        String name = readString(in);
+        String map = readString(in);
+        String folder = readString(in);
+        String game = readString(in);
+
+        // Steam app ID
+        in.getShort();
+        int players = in.get() & 0xFF;
+        int maxPlayers = in.get() & 0xFF;
+        int bots = in.get() & 0xFF;
+
+        // Dedicated or not, and operating system
+        in.get();
+        in.get();
+        boolean isPassworded = in.get() != 0;
+        boolean isVacSecured = in.get() != 0;
+        String version = readString(in);
+
+        int gamePort = 0;
+        String keywords = null;
+        if (in.hasRemaining()) {
+            int flags = in.get() & 0xFF;
+            if ((flags & EDF_PORT) != 0) {
+                gamePort = in.getShort() & 0xFFFF;
+            }
+            if ((flags & EDF_STEAM_ID) != 0) {
+                in.getLong();
+            }
+            if ((flags & EDF_SOURCE_TV) != 0) {
+                in.getShort();
+                readString(in);
+            }
+            if ((flags & EDF_KEYWORDS) != 0) {
+                keywords = readString(in);
+            }
+        }
+        return new ServerInfo(name, map, folder, game, players, maxPlayers, bots, isPassworded,
+            isVacSecured, version, gamePort, keywords);
+    }
+
+    // The count's only a byte, so isn't trusted. Players are read until the answer ends.
+    private static ImmutableList<PlayerInfo> readPlayers(ByteBuffer in) throws QueryException {
+        in.get();
+        ImmutableList.Builder<PlayerInfo> players = ImmutableList.builder();
+        while (in.hasRemaining()) {
+            // Index, which is always 0
+            in.get();
+            String name = readString(in);
+            int score = in.getInt();
+            float durationSeconds = in.getFloat();
+            players.add(new PlayerInfo(name, score, durationSeconds));
+        }
+        return players.build();
+    }
+
+    private static ImmutableMap<String, String> readRules(ByteBuffer in) throws QueryException {
+        int count = in.getShort() & 0xFFFF;
+        Map<String, String> rules = new LinkedHashMap<>();
+        for (int i = 0; i < count && in.hasRemaining(); ++i) {
+            rules.put(readString(in), readString(in));
+        }
+        return ImmutableMap.copyOf(rules);
+    }
+
+    private static String readString(ByteBuffer in) throws QueryException {
+        int start = in.position();
+        int end = start;
+        while (end < in.limit() && in.get(end) != 0) {
+            ++end;
+        }
+        if (end == in.limit()) {
+            throw new QueryException("Unterminated string in answer.");
+        }
+        byte[] bytes = new byte[end - start];
+        in.get(bytes);
+        in.get();
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,45 @@
+package me.fru1t.csgo_server_manager.query;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import javax.annotation.Nullable;
+
+/**
+ * What a server says about itself in answer to A2S_INFO.
+ */
+@Getter
+@RequiredArgsConstructor
+public final class ServerInfo {
+    private final String name;
+    private final String map;
+
+    /**
+     * The game's directory, such as {@code csgo}.
+     */
+    private final String folder;
+
+    private final String game;
+
+    /**
+     * Every player, including bots.
+     */
+    private final int players;
+
+    private final int maxPlayers;
+    private final int bots;
+    private final boolean isPassworded;
+    private final boolean isVacSecured;
+    private final String version;
+
+    /**
+     * The server's game port, or 0 if it didn't say.
+     */
+    private final int gamePort;
+
+    /**
+     * The server's {@code sv_tags}, or null if it didn't say.
+     */
+    @Nullable
+    private final String keywords;
+}
@@ -0,0 +1,216 @@
+package me.fru1t.csgo_server_manager.rcon;
+
+import com.google.common.collect.ImmutableList;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Sends commands to servers over the Source RCON protocol. Every connection is handled by a
+ * single thread using non-blocking I/O, so a client can talk to any number of servers at once.</p>
+ * <p>Connections are kept open and shared. Concurrent requests to the same server, with the same
+ * password, are pipelined over a single authenticated connection, so neither wait on each other's
+ * round trips nor pay to connect and authenticate again. Connections are closed once they've been
+ * idle for a while, and reopened as needed. {@link #executeAll(InetSocketAddress, String, List)}
+ * sends several commands in a single round trip.</p>
+ * <p>Returned futures are completed on the client's thread, so anything slow done with their
+ * results should use the {@code async} variants of CompletableFuture's methods. A request that
+ * isn't answered in time fails with a TimeoutException, as does every other outstanding request
+ * to the same server, and the connection is reopened for the next request.</p>
+ */
+public class RconClient implements Closeable {
+    public static final long DEFAULT_TIMEOUT_MS = 5000;
+    public static final long DEFAULT_IDLE_TIMEOUT_MS = 60 * 1000;
+
+    // How often timeouts are checked for
+    private static final long TICK_MS = 100;
+
+    private final long timeoutNanos;
+    private final long idleTimeoutNanos;
+    private final Selector selector;
+    private final Thread thread;
+    private final Queue<Submission> submissions;
+
+    // Only touched by the client's thread. Keyed by address and password.
+    private final Map<Map.Entry<InetSocketAddress, String>, RconConnection> connections;
+
+    private volatile boolean isClosed;
+
+    public RconClient() throws IOException {
+        this(DEFAULT_TIMEOUT_MS, DEFAULT_IDLE_TIMEOUT_MS);
+    }
+
+    /**
+     * @param timeoutMs How long to wait for each request to be answered, including connecting and
+     * authenticating if need be.
+     * @param idleTimeoutMs How long to keep an unused connection open for.
+     */
+    public RconClient(long timeoutMs, long idleTimeoutMs) throws IOException {
+        timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMs);
+        selector = Selector.open();
+        submissions = new ConcurrentLinkedQueue<>();
+        connections = new HashMap<>();
+        isClosed = false;
+        thread = new Thread(this::run, "RconClient");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Runs the given command on the given server.
+     * @return The server's response, which is empty for commands that print nothing.
+     */
+    public CompletableFuture<String> execute(InetSocketAddress server, String password,
+        String command) {
+        return executeAll(server, password, ImmutableList.of(command)).thenApply(r -> r.get(0));
+    }
+
+    /**
+     * Runs the given commands on the given server in order, sending them all at once.
+     * @return The server's responses, in the same order as the commands.
+     */
+    public CompletableFuture<List<String>> executeAll(InetSocketAddress server, String password,
+        List<String> commands) {
+        CompletableFuture<List<String>> future = new CompletableFuture<>();
+        List<byte[]> bodies = new ArrayList<>(commands.size());
+        for (String command : commands) {
+            byte[] body = command.getBytes(StandardCharsets.UTF_8);
+            if (body.length > RconPacket.MAX_BODY_BYTES || command.indexOf('\0') >= 0) {
+                future.completeExceptionally(new IllegalArgumentException(
+                    "Commands must be at most " + RconPacket.MAX_BODY_BYTES
+                        + " bytes, without nulls: " + command));
+                return future;
+            }
+            bodies.add(body);
+        }
+        if (bodies.isEmpty()) {
+            future.complete(ImmutableList.of());
+            return future;
+        }
+
+        submissions.add(new Submission(new SimpleImmutableEntry<>(server, password),
+            new RconConnection.Batch(bodies, future, System.nanoTime() + timeoutNanos)));
+        selector.wakeup();
+
+        // Closing may have already failed everything that was submitted
+        if (isClosed) {
+            failSubmissions();
+        }
+        return future;
+    }
+
+    /**
+     * Closes every connection, failing any outstanding requests.
+     */
+    @Override
+    public void close() {
+        if (isClosed) {
+            return;
+        }
+        isClosed = true;
+        selector.wakeup();
+        if (Thread.currentThread() != thread) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void send(Submission submission) {
+        RconConnection connection = connections.get(submission.server);
+        if (connection == null || connection.isClosed()) {
+            try {
+                connection = new RconConnection(submission.server.getKey(),
+                    submission.server.getValue(), selector);
+            } catch (IOException e) {
+                submission.batch.future.completeExceptionally(e);
+                return;
+            }
+            connections.put(submission.server, connection);
+        }
+        connection.send(submission.batch);
+    }
+
+    private void failSubmissions() {
+        Submission submission;
+        while ((submission = submissions.poll()) != null) {
+            submission.batch.future.completeExceptionally(
+                new IOException("The client has been closed."));
+        }
+    }
+
+    private void run() {
+        long nextTickNanos = System.nanoTime();
+        try {
+            while (!isClosed) {
+                selector.select(TICK_MS);
+                Submission submission;
+                while ((submission = submissions.poll()) != null) {
+                    send(submission);
+                }
+
+                // Sending may have closed a connection since it was selected
+                for (SelectionKey key : selector.selectedKeys()) {
+                    if (key.isValid()) {
+                        ((RconConnection) key.attachment()).handleReady();
+                    }
+                }
+                selector.selectedKeys().clear();
+
+                long now = System.nanoTime();
+                if (now - nextTickNanos >= 0) {
+                    nextTickNanos = now + TimeUnit.MILLISECONDS.toNanos(TICK_MS);
+                    Iterator<RconConnection> it = connections.values().iterator();
+                    while (it.hasNext()) {
+                        if (!it.next().checkTimeouts(now, idleTimeoutNanos)) {
+                            it.remove();
+                        }
+                    }
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            // Fall through to failing everything
+        }
+
+        isClosed = true;
+        IOException closed = new IOException("The client has been closed.");
+        for (RconConnection connection : connections.values()) {
+            connection.close(closed);
+        }
+        connections.clear();
+        failSubmissions();
+        try {
+            selector.close();
+        } catch (IOException e) {
+            // Closed anyway
+        }
+    }
+
+    private static final class Submission {
+        final Map.Entry<InetSocketAddress, String> server;
+        final RconConnection.Batch batch;
+
+        Submission(Map.Entry<InetSocketAddress, String> server, RconConnection.Batch batch) {
+            this.server = server;
+            this.batch = batch;
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package me.fru1t.csgo_server_manager.rcon;
+
+import com.google.common.collect.ImmutableList;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * <p>A single authenticated RCON connection to a server, shared by every request to it. Only ever
+ * used from its {@link RconClient}'s thread.</p>
+ * <p>Requests are pipelined. Each batch of commands is written at once, followed by an empty
+ * {@code SERVERDATA_RESPONSE_VALUE} packet. Servers handle packets in order and answer that empty
+ * packet in kind, so its answer marks the end of every response to the commands before it,
+ * however many packets those were split into. Commands in a batch are given consecutive IDs with
+ * the marker's ID right after, and batches are answered in the order they're sent.</p>
+ */
+final class RconConnection {
+    // Fits the largest packet RconPacket accepts
+    private static final int READ_BUFFER_BYTES = 80 * 1024;
+
+    private enum State {
+        CONNECTING, AUTHENTICATING, READY, CLOSED
+    }
+
+    /**
+     * Commands sent together, and their responses so far.
+     */
+    static final class Batch {
+        final List<byte[]> commands;
+        final CompletableFuture<List<String>> future;
+        final long deadlineNanos;
+        final StringBuilder[] responses;
+        int firstId;
+
+        Batch(List<byte[]> commands, CompletableFuture<List<String>> future,
+            long deadlineNanos) {
+            this.commands = commands;
+            this.future = future;
+            this.deadlineNanos = deadlineNanos;
+            responses = new StringBuilder[commands.size()];
+            for (int i = 0; i < responses.length; ++i) {
+                responses[i] = new StringBuilder();
+            }
+            firstId = 0;
+        }
+
+        int markerId() {
+            return firstId + commands.size();
+        }
+    }
+
+    private final InetSocketAddress address;
+    private final byte[] password;
+    private final SocketChannel channel;
+    private final SelectionKey selectionKey;
+    private final ByteBuffer readBuffer;
+    private final Queue<ByteBuffer> writes;
+
+    // Waiting for authentication, then sent and waiting for their markers, oldest first
+    private final Queue<Batch> queued;
+    private final Queue<Batch> inFlight;
+
+    private State state;
+    private int nextId;
+    private int authId;
+    private long lastActiveNanos;
+
+    RconConnection(InetSocketAddress address, String password, Selector selector)
+        throws IOException {
+        this.address = address;
+        this.password = password.getBytes(StandardCharsets.UTF_8);
+        readBuffer = RconPacket.allocate(READ_BUFFER_BYTES);
+        writes = new ArrayDeque<>();
+        queued = new ArrayDeque<>();
+        inFlight = new ArrayDeque<>();
+        nextId = 1;
+        authId = 0;
+        lastActiveNanos = System.nanoTime();
+
+        channel = SocketChannel.open();
+        try {
+            channel.configureBlocking(false);
+            selectionKey = channel.register(selector, 0, this);
+            if (channel.connect(address)) {
+                state = State.AUTHENTICATING;
+                authenticate();
+            } else {
+                state = State.CONNECTING;
+                selectionKey.interestOps(SelectionKey.OP_CONNECT);
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    boolean isClosed() {
+        return state == State.CLOSED;
+    }
+
+    /**
+     * Sends the batch once the connection's authenticated, or straight away if it already is.
+     */
+    void send(Batch batch) {
+        if (state == State.CLOSED) {
+            batch.future.completeExceptionally(new IOException("Connection closed."));
+            return;
+        }
+        if (state != State.READY) {
+            queued.add(batch);
+            return;
+        }
+        write(batch);
+    }
+
+    /**
+     * Handles whatever the selector found the channel ready for.
+     */
+    void handleReady() {
+        try {
+            if (selectionKey.isConnectable() && channel.finishConnect()) {
+                state = State.AUTHENTICATING;
+                authenticate();
+            }
+            if (selectionKey.isValid() && selectionKey.isReadable()) {
+                read();
+            }
+            if (selectionKey.isValid() && selectionKey.isWritable()) {
+                flush();
+            }
+        } catch (IOException e) {
+            close(e);
+        }
+    }
+
+    /**
+     * Fails every request once the oldest one has timed out, and closes the connection if it's
+     * been idle for too long.
+     * @return Whether the connection is still open.
+     */
+    boolean checkTimeouts(long nowNanos, long idleTimeoutNanos) {
+        Batch oldest = inFlight.isEmpty() ? queued.peek() : inFlight.peek();
+        if (oldest != null && nowNanos - oldest.deadlineNanos > 0) {
+            close(new TimeoutException("Timed out waiting for " + address + "."));
+        } else if (oldest == null && nowNanos - lastActiveNanos > idleTimeoutNanos) {
+            close(new IOException("Idle connection closed."));
+        }
+        return state != State.CLOSED;
+    }
+
+    /**
+     * Closes the connection, failing every outstanding request with the given cause.
+     */
+    void close(Throwable cause) {
+        if (state == State.CLOSED) {
+            return;
+        }
+        state = State.CLOSED;
+        selectionKey.cancel();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Closed anyway
+        }
+        for (Batch batch : inFlight) {
+            batch.future.completeExceptionally(cause);
+        }
+        for (Batch batch : queued) {
+            batch.future.completeExceptionally(cause);
+        }
+        inFlight.clear();
+        queued.clear();
+    }
+
+    private void authenticate() throws IOException {
+        authId = allocateIds(1);
+        ByteBuffer packet = RconPacket.allocate(RconPacket.length(password));
+        RconPacket.write(packet, authId, RconPacket.SERVERDATA_AUTH, password);
+        packet.flip();
+        writes.add(packet);
+        selectionKey.interestOps(SelectionKey.OP_READ);
+        flush();
+    }
+
+    private void write(Batch batch) {
+        batch.firstId = allocateIds(batch.commands.size() + 1);
+        int length = RconPacket.length(new byte[0]);
+        for (byte[] command : batch.commands) {
+            length += RconPacket.length(command);
+        }
+
+        ByteBuffer packets = RconPacket.allocate(length);
+        for (int i = 0; i < batch.commands.size(); ++i) {
+            RconPacket.write(packets, batch.firstId + i, RconPacket.SERVERDATA_EXECCOMMAND,
+                batch.commands.get(i));
+        }
+        RconPacket.write(packets, batch.markerId(), RconPacket.SERVERDATA_RESPONSE_VALUE,
+            new byte[0]);
+        packets.flip();
+        writes.add(packets);
+        inFlight.add(batch);
+        try {
+            flush();
+        } catch (IOException e) {
+            close(e);
+        }
+    }
+
+    // IDs are positive and consecutive within a batch, so start over before they'd overflow
+    private int allocateIds(int count) {
+        if (nextId > Integer.MAX_VALUE - count) {
+            nextId = 1;
+        }
+        int first = nextId;
+        nextId += count;
+        return first;
+    }
+
+    private void flush() throws IOException {
+        while (!writes.isEmpty()) {
+            ByteBuffer next = writes.peek();
+            channel.write(next);
+            if (next.hasRemaining()) {
+                break;
+            }
+            writes.remove();
+        }
+        int ops = SelectionKey.OP_READ | (writes.isEmpty() ? 0 : SelectionKey.OP_WRITE);
+        if (selectionKey.interestOps() != ops) {
+            selectionKey.interestOps(ops);
+        }
+    }
+
+    private void read() throws IOException {
+        if (channel.read(readBuffer) < 0) {
+            throw new EOFException("Connection closed by " + address + ".");
+        }
+        lastActiveNanos = System.nanoTime();
+        readBuffer.flip();
+        RconPacket packet;
+        while ((packet = RconPacket.read(readBuffer)) != null) {
+            handle(packet);
+            if (state == State.CLOSED) {
+                return;
+            }
+        }
+        readBuffer.compact();
+    }
+
+    private void handle(RconPacket packet) throws RconException {
+        if (state == State.AUTHENTICATING) {
+            // Servers send an empty response before the authentication response proper
+            if (packet.type != RconPacket.SERVERDATA_AUTH_RESPONSE) {
+                return;
+            }
+            if (packet.id == RconPacket.AUTH_FAILED_ID) {
+                close(new RconException("%s rejected the RCON password.", address));
+                return;
+            }
+            if (packet.id != authId) {
+                throw new RconException("Unexpected authentication response from %s.", address);
+            }
+            state = State.READY;
+            Batch batch;
+            while ((batch = queued.poll()) != null) {
+                write(batch);
+            }
+            return;
+        }
+
+        // Servers answer markers twice, so ignore anything that isn't for the oldest batch
+        Batch batch = inFlight.peek();
+        if (batch == null || packet.id < batch.firstId || packet.id > batch.markerId()) {
+            return;
+        }
+        if (packet.id < batch.markerId()) {
+            batch.responses[packet.id - batch.firstId].append(packet.body);
+            return;
+        }
+
+        inFlight.remove();
+        ImmutableList.Builder<String> responses = ImmutableList.builder();
+        for (StringBuilder response : batch.responses) {
+            responses.add(response.toString());
+        }
+        batch.future.complete(responses.build());
+    }
+}
@@ -0,0 +1,16 @@
+package me.fru1t.csgo_server_manager.rcon;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a server rejects the RCON password, or sends something that isn't valid RCON.
+ */
+public class RconException extends IOException {
+    public RconException(String s) {
+        super(s);
+    }
+
+    public RconException(String stringFormat, Object... args) {
+        this(String.format(stringFormat, args));
+    }
+}
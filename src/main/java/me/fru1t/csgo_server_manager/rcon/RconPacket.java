@@ -0,0 +1,115 @@
+package me.fru1t.csgo_server_manager.rcon;
+
+import javax.annotation.Nullable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * <p>A single Source RCON packet. Packets are little endian, and consist of their size, not
+ * counting the size itself, an ID chosen by the client and echoed back by the server, a type, and
+ * a null-terminated body followed by an empty null-terminated string.</p>
+ * <p>See https://developer.valvesoftware.com/wiki/Source_RCON_Protocol.</p>
+ */
+final class RconPacket {
+    static final int SERVERDATA_AUTH = 3;
+    static final int SERVERDATA_AUTH_RESPONSE = 2;
+    static final int SERVERDATA_EXECCOMMAND = 2;
+    static final int SERVERDATA_RESPONSE_VALUE = 0;
+
+    /**
+     * The ID a server answers authentication with if the password was wrong.
+     */
+    static final int AUTH_FAILED_ID = -1;
+
+    /**
+     * The most bytes of a command's body a server accepts.
+     */
+    static final int MAX_BODY_BYTES = 4096 - 10;
+
+    // The ID, type and two null terminators
+    private static final int MIN_SIZE = 10;
+
+    // Servers split responses into packets no larger than 4096 bytes, but allow some leeway
+    private static final int MAX_SIZE = 64 * 1024;
+
+    final int id;
+    final int type;
+    final String body;
+
+    RconPacket(int id, int type, String body) {
+        this.id = id;
+        this.type = type;
+        this.body = body;
+    }
+
+    /**
+     * @return The number of bytes a packet with the given body takes up once written.
+     */
+    static int length(byte[] body) {
+        return 4 + MIN_SIZE + body.length;
+    }
+
+    /**
+     * Writes a packet to the given little endian buffer, which must have enough room for it.
+     */
+    static void write(ByteBuffer out, int id, int type, byte[] body) {
+        out.putInt(MIN_SIZE + body.length);
+        out.putInt(id);
+        out.putInt(type);
+        out.put(body);
+        out.put((byte) 0);
+        out.put((byte) 0);
+    }
+
+    /**
+     * Reads the next packet from the given buffer, which must be in little endian order.
+     * @return The packet, or null if the buffer doesn't yet hold the whole of it, in which case
+     * the buffer's position is left untouched.
+     * @throws RconException Thrown if the next bytes can't be the start of a valid packet.
+     */
+    @Nullable
+    static RconPacket read(ByteBuffer in) throws RconException {
+        if (in.remaining() < 4) {
+            return null;
+        }
+        int start = in.position();
+        int size = in.getInt(start);
+        if (size < MIN_SIZE || size > MAX_SIZE) {
+            throw new RconException("Invalid packet size: %d", size);
+        }
+        if (in.remaining() < 4 + size) {
+            return null;
+        }
+
+        int id = in.getInt(start + 4);
+        int type = in.getInt(start + 8);
+
+        // Ends at the first null, ignoring anything servers may send past it
+        int bodyStart = start + 12;
+        int bodyEnd = bodyStart;
+        int limit = start + 4 + size - 1;
+        while (bodyEnd < limit && in.get(bodyEnd) != 0) {
+            ++bodyEnd;
+        }
+        String body;
+        if (in.hasArray()) {
+            body = new String(in.array(), in.arrayOffset() + bodyStart, bodyEnd - bodyStart,
+                StandardCharsets.UTF_8);
+        } else {
+            byte[] bytes = new byte[bodyEnd - bodyStart];
+            in.position(bodyStart);
+            in.get(bytes);
+            body = new String(bytes, StandardCharsets.UTF_8);
+        }
+        in.position(start + 4 + size);
+        return new RconPacket(id, type, body);
+    }
+
+    /**
+     * @return A little endian buffer of the given capacity.
+     */
+    static ByteBuffer allocate(int capacity) {
+        return ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
@@ -0,0 +1,14 @@
+package me.fru1t.csgo_server_manager.rollout;
+
+/**
+ * Thrown when a rollout plan is missing its patch or targets, or has stages that don't make sense.
+ */
+public class InvalidRolloutPlanException extends Exception {
+    public InvalidRolloutPlanException(String s) {
+        super(s);
+    }
+
+    public InvalidRolloutPlanException(String stringFormat, Object... args) {
+        this(String.format(stringFormat, args));
+    }
+}
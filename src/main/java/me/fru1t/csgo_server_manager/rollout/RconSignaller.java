@@ -0,0 +1,40 @@
+package me.fru1t.csgo_server_manager.rollout;
+
+import me.fru1t.csgo_server_manager.rcon.RconClient;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Signals servers by running a command over RCON, such as {@code exec server.cfg} to reload their
+ * config. Servers without an RCON address aren't signalled, and pick up the change when they
+ * next restart.
+ */
+public class RconSignaller implements RolloutEngine.Signaller {
+    private final RconClient client;
+    private final String command;
+
+    public RconSignaller(RconClient client, String command) {
+        this.client = client;
+        this.command = command;
+    }
+
+    @Override
+    public void signal(RolloutTarget target) throws IOException {
+        if (target.getRconAddress() == null || command.isEmpty()) {
+            return;
+        }
+        try {
+            client.execute(target.getRconAddress(), target.getRconPassword(), command).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted signalling " + target.getName());
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+}
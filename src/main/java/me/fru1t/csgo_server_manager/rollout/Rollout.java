@@ -0,0 +1,217 @@
+package me.fru1t.csgo_server_manager.rollout;
+
+import com.google.common.collect.ImmutableList;
+
+import javax.annotation.Nullable;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A rollout under way, as started by {@link RolloutEngine#start(RolloutPlan,
+ * RolloutEngine.Listener)}, for following its progress or cancelling it.
+ */
+public final class Rollout {
+    private static final String CLOSED_REASON = "The rollout engine was closed.";
+
+    private final RolloutPlan plan;
+    private final RolloutEngine.Listener listener;
+    private final RolloutEngine engine;
+    private final int targetCount;
+    private final AtomicReferenceArray<RolloutResult> results;
+    private final AtomicInteger doneCount;
+    private final AtomicInteger failureCount;
+    private final CompletableFuture<ImmutableList<RolloutResult>> future;
+    private final AtomicBoolean isFinished;
+    private volatile boolean isCancelled;
+    @Nullable
+    private volatile String haltReason;
+
+    Rollout(RolloutPlan plan, RolloutEngine.Listener listener, RolloutEngine engine) {
+        this.plan = plan;
+        this.listener = listener;
+        this.engine = engine;
+        targetCount = plan.getTargetCount();
+        results = new AtomicReferenceArray<>(targetCount);
+        doneCount = new AtomicInteger();
+        failureCount = new AtomicInteger();
+        future = new CompletableFuture<>();
+        isFinished = new AtomicBoolean();
+        isCancelled = false;
+        haltReason = null;
+    }
+
+    public int getTargetCount() {
+        return targetCount;
+    }
+
+    /**
+     * @return The number of targets with a result so far, including those skipped.
+     */
+    public int getDoneCount() {
+        return doneCount.get();
+    }
+
+    public int getFailureCount() {
+        return failureCount.get();
+    }
+
+    /**
+     * @return Why the rollout was halted early, or null if it hasn't been.
+     */
+    @Nullable
+    public String getHaltReason() {
+        return haltReason;
+    }
+
+    /**
+     * @return Every target's result, in the order the plan gave them, once the rollout's done.
+     */
+    public CompletableFuture<ImmutableList<RolloutResult>> getResults() {
+        return future;
+    }
+
+    /**
+     * Skips every target that hasn't started being patched yet. Targets already being patched are
+     * finished.
+     */
+    public void cancel() {
+        halt("Cancelled");
+    }
+
+    /**
+     * Skips every target that doesn't have a result yet and finishes, for when the engine's closed
+     * before the rollout's done. Targets still being patched are skipped too, as their results
+     * can no longer be waited for.
+     */
+    void abandon() {
+        halt(CLOSED_REASON);
+        for (int i = 0; i < targetCount; ++i) {
+            record(i, new RolloutResult(targetAt(i), RolloutResult.Status.SKIPPED, stageOf(i),
+                null));
+        }
+        finish();
+    }
+
+    void startStage(int stage) {
+        List<RolloutTarget> targets = plan.getStages().get(stage);
+        int offset = offsetOf(stage);
+        AtomicInteger remaining = new AtomicInteger(targets.size());
+        AtomicInteger stageFailures = new AtomicInteger();
+        for (int i = 0; i < targets.size(); ++i) {
+            int index = offset + i;
+            engine.patch(plan.getPatch(), targets.get(i), stage, () -> isCancelled, result -> {
+                if (!record(index, result)) {
+                    // Already abandoned
+                    return;
+                }
+                if (result.getStatus() == RolloutResult.Status.FAILED) {
+                    stageFailures.incrementAndGet();
+                    failureCount.incrementAndGet();
+                }
+                if (remaining.decrementAndGet() == 0) {
+                    stageDone(stage, stageFailures.get());
+                }
+            });
+        }
+    }
+
+    private void stageDone(int stage, int failures) {
+        try {
+            listener.onStageDone(stage, failures);
+        } catch (RuntimeException e) {
+            report(e);
+        }
+
+        int next = stage + 1;
+        if (next < plan.getStages().size() && failures > plan.getMaxFailures()) {
+            haltReason = String.format("Stage %d had %d failures, more than the %d allowed.",
+                stage, failures, plan.getMaxFailures());
+            isCancelled = true;
+        } else if (engine.isClosed()) {
+            halt(CLOSED_REASON);
+        }
+        if (next == plan.getStages().size()) {
+            finish();
+        } else if (isCancelled) {
+            // Every remaining target's skipped without being patched or rate limited
+            for (int i = offsetOf(next); i < targetCount; ++i) {
+                record(i, new RolloutResult(targetAt(i), RolloutResult.Status.SKIPPED,
+                    stageOf(i), null));
+            }
+            finish();
+        } else {
+            engine.schedule(() -> startStage(next), plan.getStageDelayMs());
+        }
+    }
+
+    private void halt(String reason) {
+        if (haltReason == null) {
+            haltReason = reason;
+        }
+        isCancelled = true;
+    }
+
+    /**
+     * Records the given target's result, unless it already has one.
+     * @return Whether the result was recorded.
+     */
+    private boolean record(int index, RolloutResult result) {
+        if (!results.compareAndSet(index, null, result)) {
+            return false;
+        }
+        doneCount.incrementAndGet();
+        try {
+            listener.onResult(result);
+        } catch (RuntimeException e) {
+            report(e);
+        }
+        return true;
+    }
+
+    private void finish() {
+        if (!isFinished.compareAndSet(false, true)) {
+            return;
+        }
+        engine.finished(this);
+        ImmutableList.Builder<RolloutResult> all = ImmutableList.builder();
+        for (int i = 0; i < targetCount; ++i) {
+            all.add(results.get(i));
+        }
+        future.complete(all.build());
+        try {
+            listener.onDone(this);
+        } catch (RuntimeException e) {
+            report(e);
+        }
+    }
+
+    private int offsetOf(int stage) {
+        int offset = 0;
+        for (int i = 0; i < stage; ++i) {
+            offset += plan.getStages().get(i).size();
+        }
+        return offset;
+    }
+
+    private int stageOf(int index) {
+        int stage = 0;
+        while (index >= plan.getStages().get(stage).size()) {
+            index -= plan.getStages().get(stage).size();
+            ++stage;
+        }
+        return stage;
+    }
+
+    private RolloutTarget targetAt(int index) {
+        int stage = stageOf(index);
+        return plan.getStages().get(stage).get(index - offsetOf(stage));
+    }
+
+    private static void report(RuntimeException e) {
+        Thread thread = Thread.currentThread();
+        thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+    }
+}
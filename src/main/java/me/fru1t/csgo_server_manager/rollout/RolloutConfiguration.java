@@ -0,0 +1,27 @@
+package me.fru1t.csgo_server_manager.rollout;
+
+import me.fru1t.csgo_server_manager.files.TextSettingRevisionStore;
+import me.fru1t.csgo_server_manager.rcon.RconClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Creates the application's {@link RolloutEngine}, patching {@code csgo.rollout.parallelism}
+ * targets at once, each host at most {@code csgo.rollout.hostPermitsPerSecond} times a second,
+ * and signalling patched servers by running {@code csgo.rollout.signalCommand} over RCON. Every
+ * config patched is committed to the {@link TextSettingRevisionStore}.
+ */
+@Configuration
+public class RolloutConfiguration {
+    @Bean(destroyMethod = "close")
+    public RolloutEngine rolloutEngine(RconClient client, TextSettingRevisionStore revisions,
+        @Value("${csgo.rollout.parallelism:" + RolloutEngine.DEFAULT_PARALLELISM + "}")
+            int parallelism,
+        @Value("${csgo.rollout.hostPermitsPerSecond:"
+            + RolloutEngine.DEFAULT_HOST_PERMITS_PER_SECOND + "}") double hostPermitsPerSecond,
+        @Value("${csgo.rollout.signalCommand:}") String signalCommand) {
+        return new RolloutEngine(new RconSignaller(client, signalCommand), revisions,
+            parallelism, hostPermitsPerSecond);
+    }
+}
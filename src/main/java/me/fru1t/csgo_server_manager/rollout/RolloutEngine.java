@@ -0,0 +1,236 @@
+package me.fru1t.csgo_server_manager.rollout;
+
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import me.fru1t.csgo_server_manager.files.InvalidFileFormatException;
+import me.fru1t.csgo_server_manager.files.InvalidTextSettingException;
+import me.fru1t.csgo_server_manager.files.TextSetting;
+import me.fru1t.csgo_server_manager.files.TextSettingDocument;
+import me.fru1t.csgo_server_manager.files.TextSettingPatch;
+import me.fru1t.csgo_server_manager.files.TextSettingRevisionStore;
+import me.fru1t.csgo_server_manager.files.TextSettingUtil;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * <p>Rolls {@link TextSettingPatch patches} out to many servers' config files at once.</p>
+ * <p>Each target's config is read, patched, and written back atomically as
+ * {@link TextSettingUtil#writeFile} does, so that a server never reads half a file, then the
+ * server's signalled to pick up the change. Configs are edited as {@link TextSettingDocument}s,
+ * so only the settings the patch changes are rewritten, and comments and formatting are kept.
+ * Targets whose configs the patch doesn't change are neither written nor signalled. Every config
+ * written is committed to a {@link TextSettingRevisionStore}, named after its absolute path, so
+ * that a rollout can be rolled back.</p>
+ * <p>Targets are patched on a fixed number of threads shared by every rollout. Each host is only
+ * patched so many times a second, across every rollout, so that a rollout to a machine running
+ * dozens of servers doesn't swamp its disk or its servers. Targets waiting on their host's rate
+ * limit are put off rather than holding up a thread, so other hosts carry on at full speed.</p>
+ */
+public class RolloutEngine implements Closeable {
+    public static final int DEFAULT_PARALLELISM = 16;
+    public static final double DEFAULT_HOST_PERMITS_PER_SECOND = 10;
+
+    // The longest closing waits for targets already being patched
+    private static final long CLOSE_TIMEOUT_MS = 30 * 1000;
+
+    /**
+     * Tells a server its config has changed, such as by running a command over RCON. Called on the
+     * engine's threads.
+     */
+    public interface Signaller {
+        void signal(RolloutTarget target) throws IOException;
+    }
+
+    /**
+     * Receives a rollout's progress. Called on the engine's threads, possibly several at once,
+     * so should return quickly.
+     */
+    public interface Listener {
+        default void onResult(RolloutResult result) {}
+
+        /**
+         * Called once every target in a stage has a result, before the next stage starts.
+         */
+        default void onStageDone(int stage, int failureCount) {}
+
+        /**
+         * Called once every target has a result, or has been skipped.
+         */
+        default void onDone(Rollout rollout) {}
+    }
+
+    private final Signaller signaller;
+    private final TextSettingRevisionStore revisions;
+    private final double hostPermitsPerSecond;
+    private final long rateLimitRetryNanos;
+    private final ScheduledThreadPoolExecutor executor;
+    private final ConcurrentMap<String, RateLimiter> hostLimiters;
+    private final Set<Rollout> rollouts;
+    private volatile boolean isClosed;
+
+    public RolloutEngine(Signaller signaller) {
+        this(signaller, DEFAULT_PARALLELISM, DEFAULT_HOST_PERMITS_PER_SECOND);
+    }
+
+    /**
+     * @param parallelism The most targets to patch at once.
+     * @param hostPermitsPerSecond The most targets on any one host to patch per second.
+     */
+    public RolloutEngine(Signaller signaller, int parallelism, double hostPermitsPerSecond) {
+        this(signaller, new TextSettingRevisionStore(), parallelism, hostPermitsPerSecond);
+    }
+
+    /**
+     * @param revisions Where to commit every config written.
+     * @param parallelism The most targets to patch at once.
+     * @param hostPermitsPerSecond The most targets on any one host to patch per second.
+     */
+    public RolloutEngine(Signaller signaller, TextSettingRevisionStore revisions, int parallelism,
+        double hostPermitsPerSecond) {
+        this.signaller = signaller;
+        this.revisions = revisions;
+        this.hostPermitsPerSecond = hostPermitsPerSecond;
+        rateLimitRetryNanos = (long) (TimeUnit.SECONDS.toNanos(1) / hostPermitsPerSecond);
+        executor = new ScheduledThreadPoolExecutor(parallelism, new ThreadFactoryBuilder()
+            .setNameFormat("RolloutEngine-%d").setDaemon(true).build());
+
+        // Targets put off for their host's rate limit, and stages waiting to start, are skipped
+        // once closed rather than waited for
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        hostLimiters = new ConcurrentHashMap<>();
+        rollouts = ConcurrentHashMap.newKeySet();
+        isClosed = false;
+    }
+
+    /**
+     * Starts rolling out the given plan, returning straight away.
+     * @throws IllegalStateException Thrown if the engine has been closed.
+     */
+    public Rollout start(RolloutPlan plan, Listener listener) {
+        Rollout rollout = new Rollout(plan, listener, this);
+        rollouts.add(rollout);
+        try {
+            executor.execute(() -> rollout.startStage(0));
+        } catch (RejectedExecutionException e) {
+            rollouts.remove(rollout);
+            throw new IllegalStateException("The rollout engine has been closed.", e);
+        }
+        return rollout;
+    }
+
+    /**
+     * Stops patching, abandoning any rollouts still under way. Waits a while for targets already
+     * being patched to finish, so no config is left half written. Every target that hasn't started
+     * being patched is skipped, and every rollout is done once this returns.
+     */
+    @Override
+    public void close() {
+        isClosed = true;
+        executor.shutdown();
+        try {
+            executor.awaitTermination(CLOSE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Rollout rollout : rollouts) {
+            rollout.abandon();
+        }
+    }
+
+    boolean isClosed() {
+        return isClosed;
+    }
+
+    /**
+     * Runs the given task after the given delay, unless the engine's closed by then, in which
+     * case the rollout's abandoned when closing.
+     */
+    void schedule(Runnable task, long delayMs) {
+        try {
+            executor.schedule(task, delayMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Closed
+        }
+    }
+
+    void finished(Rollout rollout) {
+        rollouts.remove(rollout);
+    }
+
+    /**
+     * Patches the given target once its host's rate limit allows, or skips it if it's been
+     * cancelled, or the engine closed, by then.
+     */
+    void patch(TextSetting patch, RolloutTarget target, int stage, BooleanSupplier isCancelled,
+        Consumer<RolloutResult> done) {
+        try {
+            executor.execute(() -> patchWhenAllowed(patch, target, stage, isCancelled, done));
+        } catch (RejectedExecutionException e) {
+            done.accept(new RolloutResult(target, RolloutResult.Status.SKIPPED, stage, null));
+        }
+    }
+
+    private void patchWhenAllowed(TextSetting patch, RolloutTarget target, int stage,
+        BooleanSupplier isCancelled, Consumer<RolloutResult> done) {
+        if (isCancelled.getAsBoolean() || isClosed) {
+            done.accept(new RolloutResult(target, RolloutResult.Status.SKIPPED, stage, null));
+            return;
+        }
+        RateLimiter limiter = hostLimiters.computeIfAbsent(target.getHost(),
+            host -> RateLimiter.create(hostPermitsPerSecond));
+        if (!limiter.tryAcquire()) {
+            try {
+                executor.schedule(() -> patchWhenAllowed(patch, target, stage, isCancelled, done),
+                    rateLimitRetryNanos, TimeUnit.NANOSECONDS);
+            } catch (RejectedExecutionException e) {
+                done.accept(new RolloutResult(target, RolloutResult.Status.SKIPPED, stage, null));
+            }
+            return;
+        }
+
+        RolloutResult result;
+        try {
+            result = new RolloutResult(target, patch(patch, target), stage, null);
+        } catch (IOException | InvalidFileFormatException | InvalidTextSettingException
+            | RuntimeException e) {
+            result = new RolloutResult(target, RolloutResult.Status.FAILED, stage,
+                e.getClass().getSimpleName() + ": " + e.getMessage());
+        }
+        done.accept(result);
+    }
+
+    private RolloutResult.Status patch(TextSetting patch, RolloutTarget target)
+        throws IOException, InvalidFileFormatException, InvalidTextSettingException {
+        TextSettingDocument document = TextSettingDocument.load(target.getConfigFile());
+        TextSetting current = document.getRoot();
+        TextSetting patched = current == null ? patch : TextSettingPatch.apply(current, patch);
+        if (patched == current) {
+            return RolloutResult.Status.UNCHANGED;
+        }
+        document.update(patched);
+        document.save(target.getConfigFile());
+        commit(target, patched);
+        signaller.signal(target);
+        return RolloutResult.Status.UPDATED;
+    }
+
+    // The config's already been written, so a revision that can't be committed is only reported
+    private void commit(RolloutTarget target, TextSetting patched) {
+        try {
+            revisions.commit(target.getConfigFile().toAbsolutePath().normalize().toString(),
+                patched);
+        } catch (InvalidTextSettingException | IOException e) {
+            Thread thread = Thread.currentThread();
+            thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+        }
+    }
+}
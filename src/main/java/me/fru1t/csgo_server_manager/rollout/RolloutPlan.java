@@ -0,0 +1,157 @@
+package me.fru1t.csgo_server_manager.rollout;
+
+import com.google.common.collect.ImmutableList;
+import lombok.Getter;
+import me.fru1t.csgo_server_manager.files.TextSetting;
+
+import javax.annotation.Nullable;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * <p>A patch to roll out to a number of targets, in stages. Each stage is only started once every
+ * target in the one before has been patched, and only if no more than the allowed number of them
+ * failed, so that a bad patch is caught on a canary or two rather than across the fleet.</p>
+ * <p>Stages are given by their sizes, taking targets in order, and whatever targets are left make
+ * up the last stage. For example, stage sizes of 1 and 10 patch the first target alone, then the
+ * next ten, then everything else.</p>
+ */
+@Getter
+public final class RolloutPlan {
+    public static final int DEFAULT_MAX_FAILURES = 0;
+    public static final long DEFAULT_STAGE_DELAY_MS = 0;
+
+    public static class RolloutPlanBuilder {
+        @Nullable
+        private TextSetting patch;
+        private final List<RolloutTarget> targets;
+        private final List<Integer> stageSizes;
+        private int maxFailures;
+        private long stageDelayMs;
+
+        RolloutPlanBuilder() {
+            patch = null;
+            targets = new ArrayList<>();
+            stageSizes = new ArrayList<>();
+            maxFailures = DEFAULT_MAX_FAILURES;
+            stageDelayMs = DEFAULT_STAGE_DELAY_MS;
+        }
+
+        public RolloutPlanBuilder patch(TextSetting patch) {
+            this.patch = patch;
+            return this;
+        }
+
+        public RolloutPlanBuilder targets(Iterable<RolloutTarget> targets) {
+            this.targets.clear();
+            for (RolloutTarget target : targets) {
+                this.targets.add(target);
+            }
+            return this;
+        }
+
+        /**
+         * Sets the sizes of every stage but the last, which is whatever targets are left.
+         */
+        public RolloutPlanBuilder stageSizes(int... stageSizes) {
+            this.stageSizes.clear();
+            for (int stageSize : stageSizes) {
+                this.stageSizes.add(stageSize);
+            }
+            return this;
+        }
+
+        /**
+         * Sets how many targets in a stage may fail without halting the rollout.
+         */
+        public RolloutPlanBuilder maxFailures(int maxFailures) {
+            this.maxFailures = maxFailures;
+            return this;
+        }
+
+        /**
+         * Sets how long to wait between one stage finishing and the next starting, to give the
+         * servers just patched time to show any problems.
+         */
+        public RolloutPlanBuilder stageDelayMs(long stageDelayMs) {
+            this.stageDelayMs = stageDelayMs;
+            return this;
+        }
+
+        public RolloutPlan build() throws InvalidRolloutPlanException {
+            if (patch == null) {
+                throw new InvalidRolloutPlanException("Rollouts must have a patch.");
+            }
+            if (targets.isEmpty()) {
+                throw new InvalidRolloutPlanException("Rollouts must have at least one target.");
+            }
+            if (maxFailures < 0 || stageDelayMs < 0) {
+                throw new InvalidRolloutPlanException(
+                    "Rollouts can't allow negative failures or wait negative delays.");
+            }
+
+            // Patching the same file twice at once would lose one of the writes
+            Set<Path> configFiles = new HashSet<>();
+            for (RolloutTarget target : targets) {
+                if (!configFiles.add(target.getConfigFile().toAbsolutePath().normalize())) {
+                    throw new InvalidRolloutPlanException("%s is targeted more than once.",
+                        target.getConfigFile());
+                }
+            }
+
+            for (int stageSize : stageSizes) {
+                if (stageSize <= 0) {
+                    throw new InvalidRolloutPlanException("Stages must have at least one target.");
+                }
+            }
+
+            ImmutableList.Builder<ImmutableList<RolloutTarget>> stages = ImmutableList.builder();
+            int start = 0;
+            for (int stageSize : stageSizes) {
+                if (start + stageSize >= targets.size()) {
+                    break;
+                }
+                stages.add(ImmutableList.copyOf(targets.subList(start, start + stageSize)));
+                start += stageSize;
+            }
+            stages.add(ImmutableList.copyOf(targets.subList(start, targets.size())));
+            return new RolloutPlan(this, stages.build());
+        }
+    }
+
+    private final TextSetting patch;
+
+    /**
+     * Every stage's targets, in order.
+     */
+    private final ImmutableList<ImmutableList<RolloutTarget>> stages;
+
+    private final int maxFailures;
+    private final long stageDelayMs;
+
+    private RolloutPlan(RolloutPlanBuilder builder,
+        ImmutableList<ImmutableList<RolloutTarget>> stages) {
+        patch = builder.patch;
+        this.stages = stages;
+        maxFailures = builder.maxFailures;
+        stageDelayMs = builder.stageDelayMs;
+    }
+
+    public static RolloutPlanBuilder builder() {
+        return new RolloutPlanBuilder();
+    }
+
+    /**
+     * @return The number of targets across every stage.
+     */
+    public int getTargetCount() {
+        int count = 0;
+        for (List<RolloutTarget> stage : stages) {
+            count += stage.size();
+        }
+        return count;
+    }
+}
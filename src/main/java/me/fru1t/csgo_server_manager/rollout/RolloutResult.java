@@ -0,0 +1,50 @@
+package me.fru1t.csgo_server_manager.rollout;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import javax.annotation.Nullable;
+
+/**
+ * What happened to a single target of a rollout.
+ */
+@Getter
+@RequiredArgsConstructor
+public final class RolloutResult {
+    public enum Status {
+        /**
+         * The target's config was patched and the server signalled.
+         */
+        UPDATED,
+
+        /**
+         * The target's config already had everything the patch sets, so was left alone.
+         */
+        UNCHANGED,
+
+        /**
+         * The target's config couldn't be read, patched or written, or the server couldn't be
+         * signalled.
+         */
+        FAILED,
+
+        /**
+         * The rollout was halted or cancelled before reaching the target.
+         */
+        SKIPPED
+    }
+
+    private final RolloutTarget target;
+    private final Status status;
+
+    /**
+     * The stage the target was in, starting from 0.
+     */
+    private final int stage;
+
+    /**
+     * Why the target failed, or null if it didn't.
+     */
+    @Nullable
+    private final String error;
+}
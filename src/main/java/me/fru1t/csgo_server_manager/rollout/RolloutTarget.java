@@ -0,0 +1,52 @@
+package me.fru1t.csgo_server_manager.rollout;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import me.fru1t.csgo_server_manager.server.ServerConfig;
+
+import javax.annotation.Nullable;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * A server's config file to patch, and how to reach the server to tell it so.
+ */
+@Getter
+@RequiredArgsConstructor
+public final class RolloutTarget {
+    private static final String LOCAL_HOST = "localhost";
+
+    /**
+     * The server's name.
+     */
+    private final String name;
+
+    /**
+     * The machine the server runs on. Each machine's writes and signals are rate limited
+     * separately.
+     */
+    private final String host;
+
+    private final Path configFile;
+
+    /**
+     * Where to signal the server over RCON, or null if it can't be.
+     */
+    @Nullable
+    private final InetSocketAddress rconAddress;
+    @Nullable
+    private final String rconPassword;
+
+    /**
+     * Targets the given config file of a supervised server, relative to its directory. Servers are
+     * on the machine their RCON address is, or this one if they have none.
+     */
+    public static RolloutTarget of(ServerConfig config, String configFile) {
+        Path directory = config.getDirectory() == null ? Paths.get("") : config.getDirectory();
+        InetSocketAddress rconAddress = config.getRconAddress();
+        return new RolloutTarget(config.getName(),
+            rconAddress == null ? LOCAL_HOST : rconAddress.getHostString(),
+            directory.resolve(configFile), rconAddress, config.getRconPassword());
+    }
+}
@@ -0,0 +1,14 @@
+package me.fru1t.csgo_server_manager.server;
+
+/**
+ * Thrown when a server's configuration is missing a required setting or has an invalid one.
+ */
+public class InvalidServerConfigException extends Exception {
+    public InvalidServerConfigException(String s) {
+        super(s);
+    }
+
+    public InvalidServerConfigException(String stringFormat, Object... args) {
+        this(String.format(stringFormat, args));
+    }
+}
@@ -0,0 +1,346 @@
+package me.fru1t.csgo_server_manager.server;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.net.HostAndPort;
+import lombok.Getter;
+import me.fru1t.csgo_server_manager.files.TextSetting;
+
+import javax.annotation.Nullable;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+
+/**
+ * <p>How to launch and supervise a single server instance. Configs are usually read from a
+ * TextSetting block named after the server, such as:</p>
+ * <pre>
+ * "casual1"
+ * {
+ *   "executable" "/home/steam/csgo/srcds_run"
+ *   "directory" "/home/steam/csgo"
+ *   "arguments" "-game csgo -console -usercon +map de_dust2 -port 27015"
+ *   "restartDelayMs" "1000"
+ *   "maxRestartDelayMs" "60000"
+ *   "stableAfterMs" "300000"
+ *   "rconAddress" "127.0.0.1:27015"
+ *   "rconPassword" "hunter2"
+ *   "queryAddress" "127.0.0.1:27015"
+ * }
+ * </pre>
+ * <p>Only the executable is required. Arguments are separated by whitespace, so can't contain
+ * any themselves. A server with a directory writes its logs to {@code logs} within its game's
+ * directory there, as named by its {@code -game} argument. Servers with an RCON address and
+ * password are polled over RCON for the dashboard, and servers with a query address, which
+ * defaults to the RCON address, are sent Source queries. Ports default to 27015.</p>
+ * <p>A server that exits on its own is restarted after {@link #getRestartDelayMs()}, doubling
+ * with each consecutive crash up to {@link #getMaxRestartDelayMs()}. A server that ran for at
+ * least {@link #getStableAfterMs()} before exiting is considered to have recovered, and is
+ * restarted after the initial delay again.</p>
+ */
+@Getter
+public final class ServerConfig {
+    public static final long DEFAULT_RESTART_DELAY_MS = 1000;
+    public static final long DEFAULT_MAX_RESTART_DELAY_MS = 60 * 1000;
+    public static final long DEFAULT_STABLE_AFTER_MS = 5 * 60 * 1000;
+
+    private static final String EXECUTABLE_KEY = "executable";
+    private static final String ARGUMENTS_KEY = "arguments";
+    private static final String DIRECTORY_KEY = "directory";
+    private static final String RESTART_DELAY_MS_KEY = "restartDelayMs";
+    private static final String MAX_RESTART_DELAY_MS_KEY = "maxRestartDelayMs";
+    private static final String STABLE_AFTER_MS_KEY = "stableAfterMs";
+    private static final String RCON_ADDRESS_KEY = "rconAddress";
+    private static final String RCON_PASSWORD_KEY = "rconPassword";
+    private static final String QUERY_ADDRESS_KEY = "queryAddress";
+    private static final int DEFAULT_PORT = 27015;
+    private static final String GAME_ARGUMENT = "-game";
+    private static final String DEFAULT_GAME = "csgo";
+    private static final String LOGS_DIRECTORY = "logs";
+
+    private static final Splitter ARGUMENT_SPLITTER =
+        Splitter.onPattern("\\s+").omitEmptyStrings();
+
+    public static class ServerConfigBuilder {
+        @Nullable
+        private String name;
+        @Nullable
+        private String executable;
+        private ImmutableList<String> arguments;
+        @Nullable
+        private Path directory;
+        private long restartDelayMs;
+        private long maxRestartDelayMs;
+        private long stableAfterMs;
+        @Nullable
+        private InetSocketAddress rconAddress;
+        @Nullable
+        private String rconPassword;
+        @Nullable
+        private InetSocketAddress queryAddress;
+
+        ServerConfigBuilder() {
+            name = null;
+            executable = null;
+            arguments = ImmutableList.of();
+            directory = null;
+            restartDelayMs = DEFAULT_RESTART_DELAY_MS;
+            maxRestartDelayMs = DEFAULT_MAX_RESTART_DELAY_MS;
+            stableAfterMs = DEFAULT_STABLE_AFTER_MS;
+            rconAddress = null;
+            rconPassword = null;
+            queryAddress = null;
+        }
+
+        public ServerConfigBuilder name(String name) {
+            this.name = name;
+            return this;
+        }
+
+        public ServerConfigBuilder executable(String executable) {
+            this.executable = executable;
+            return this;
+        }
+
+        public ServerConfigBuilder arguments(String... arguments) {
+            this.arguments = ImmutableList.copyOf(arguments);
+            return this;
+        }
+
+        public ServerConfigBuilder arguments(Iterable<String> arguments) {
+            this.arguments = ImmutableList.copyOf(arguments);
+            return this;
+        }
+
+        /**
+         * Sets the directory to launch the server in, or null for the manager's own.
+         */
+        public ServerConfigBuilder directory(@Nullable Path directory) {
+            this.directory = directory;
+            return this;
+        }
+
+        public ServerConfigBuilder restartDelayMs(long restartDelayMs) {
+            this.restartDelayMs = restartDelayMs;
+            return this;
+        }
+
+        public ServerConfigBuilder maxRestartDelayMs(long maxRestartDelayMs) {
+            this.maxRestartDelayMs = maxRestartDelayMs;
+            return this;
+        }
+
+        public ServerConfigBuilder stableAfterMs(long stableAfterMs) {
+            this.stableAfterMs = stableAfterMs;
+            return this;
+        }
+
+        /**
+         * Sets where to reach the server over RCON, or null if it shouldn't be.
+         */
+        public ServerConfigBuilder rconAddress(@Nullable InetSocketAddress rconAddress) {
+            this.rconAddress = rconAddress;
+            return this;
+        }
+
+        public ServerConfigBuilder rconPassword(@Nullable String rconPassword) {
+            this.rconPassword = rconPassword;
+            return this;
+        }
+
+        /**
+         * Sets the address of the server's Source query port, if it's not the same as its RCON
+         * address.
+         */
+        public ServerConfigBuilder queryAddress(@Nullable InetSocketAddress queryAddress) {
+            this.queryAddress = queryAddress;
+            return this;
+        }
+
+        public ServerConfig build() throws InvalidServerConfigException {
+            if (name == null || name.isEmpty()) {
+                throw new InvalidServerConfigException("Servers must have a name.");
+            }
+            if (executable == null || executable.isEmpty()) {
+                throw new InvalidServerConfigException("Server %s must have an executable.", name);
+            }
+            if (restartDelayMs < 0 || maxRestartDelayMs < restartDelayMs || stableAfterMs < 0) {
+                throw new InvalidServerConfigException("Server %s's restart delays can't be "
+                    + "negative, and the maximum can't be less than the initial delay.", name);
+            }
+            if ((rconAddress == null) != (rconPassword == null)) {
+                throw new InvalidServerConfigException(
+                    "Server %s must have both an RCON address and password, or neither.", name);
+            }
+            if (rconAddress != null && rconAddress.isUnresolved()) {
+                throw new InvalidServerConfigException("Server %s's RCON address %s is unknown.",
+                    name, rconAddress.getHostString());
+            }
+            if (queryAddress != null && queryAddress.isUnresolved()) {
+                throw new InvalidServerConfigException("Server %s's query address %s is unknown.",
+                    name, queryAddress.getHostString());
+            }
+            return new ServerConfig(this);
+        }
+    }
+
+    private final String name;
+    private final String executable;
+    private final ImmutableList<String> arguments;
+    @Nullable
+    private final Path directory;
+    private final long restartDelayMs;
+    private final long maxRestartDelayMs;
+    private final long stableAfterMs;
+    @Nullable
+    private final InetSocketAddress rconAddress;
+    @Nullable
+    private final String rconPassword;
+
+    /**
+     * Where to send Source queries, such as A2S_INFO, to the server. Servers answer queries on
+     * their game port, which is usually also their RCON port, so this defaults to the RCON
+     * address.
+     */
+    @Nullable
+    private final InetSocketAddress queryAddress;
+
+    private ServerConfig(ServerConfigBuilder builder) {
+        name = builder.name;
+        executable = builder.executable;
+        arguments = builder.arguments;
+        directory = builder.directory;
+        restartDelayMs = builder.restartDelayMs;
+        maxRestartDelayMs = builder.maxRestartDelayMs;
+        stableAfterMs = builder.stableAfterMs;
+        rconAddress = builder.rconAddress;
+        rconPassword = builder.rconPassword;
+        queryAddress = builder.queryAddress != null ? builder.queryAddress : builder.rconAddress;
+    }
+
+    public static ServerConfigBuilder builder() {
+        return new ServerConfigBuilder();
+    }
+
+    /**
+     * Reads a server's config from the given block, named after the server.
+     * @throws InvalidServerConfigException Thrown if the setting isn't a block, or is missing or
+     * has an invalid setting.
+     */
+    public static ServerConfig fromTextSetting(TextSetting server)
+        throws InvalidServerConfigException {
+        Map<String, TextSetting> settings = server.getChildren();
+        if (settings == null) {
+            throw new InvalidServerConfigException("Server %s must be a block of settings.",
+                server.getKey());
+        }
+
+        ServerConfigBuilder builder = builder()
+            .name(server.getKey())
+            .executable(getValue(server, EXECUTABLE_KEY));
+        String arguments = getValue(server, ARGUMENTS_KEY);
+        if (arguments != null) {
+            builder.arguments(ARGUMENT_SPLITTER.split(arguments));
+        }
+        String directory = getValue(server, DIRECTORY_KEY);
+        if (directory != null) {
+            builder.directory(Paths.get(directory));
+        }
+        String rconAddress = getValue(server, RCON_ADDRESS_KEY);
+        if (rconAddress != null) {
+            builder.rconAddress(parseAddress(server, RCON_ADDRESS_KEY, rconAddress));
+        }
+        String queryAddress = getValue(server, QUERY_ADDRESS_KEY);
+        if (queryAddress != null) {
+            builder.queryAddress(parseAddress(server, QUERY_ADDRESS_KEY, queryAddress));
+        }
+        return builder
+            .rconPassword(getValue(server, RCON_PASSWORD_KEY))
+            .restartDelayMs(getMillis(server, RESTART_DELAY_MS_KEY, DEFAULT_RESTART_DELAY_MS))
+            .maxRestartDelayMs(
+                getMillis(server, MAX_RESTART_DELAY_MS_KEY, DEFAULT_MAX_RESTART_DELAY_MS))
+            .stableAfterMs(getMillis(server, STABLE_AFTER_MS_KEY, DEFAULT_STABLE_AFTER_MS))
+            .build();
+    }
+
+    /**
+     * Reads the configs of every server within the given block, in iteration order.
+     * @throws InvalidServerConfigException Thrown if any server's config is invalid.
+     */
+    public static ImmutableList<ServerConfig> listFromTextSetting(TextSetting servers)
+        throws InvalidServerConfigException {
+        if (servers.getChildren() == null) {
+            throw new InvalidServerConfigException("%s must be a block of servers.",
+                servers.getKey());
+        }
+        ImmutableList.Builder<ServerConfig> configs = ImmutableList.builder();
+        for (TextSetting server : servers.getChildren().values()) {
+            configs.add(fromTextSetting(server));
+        }
+        return configs.build();
+    }
+
+    /**
+     * @return The executable followed by its arguments.
+     */
+    public ImmutableList<String> getCommand() {
+        return ImmutableList.<String>builder().add(executable).addAll(arguments).build();
+    }
+
+    /**
+     * @return The directory the server writes its logs to, or null if it's launched in the
+     * manager's own directory, and so isn't known.
+     */
+    @Nullable
+    public Path getLogDirectory() {
+        if (directory == null) {
+            return null;
+        }
+        int game = arguments.indexOf(GAME_ARGUMENT);
+        return directory
+            .resolve(game >= 0 && game + 1 < arguments.size()
+                ? arguments.get(game + 1) : DEFAULT_GAME)
+            .resolve(LOGS_DIRECTORY);
+    }
+
+    @Nullable
+    private static String getValue(TextSetting server, String key)
+        throws InvalidServerConfigException {
+        TextSetting setting = server.getChildren().get(key);
+        if (setting == null) {
+            return null;
+        }
+        if (setting.getValue() == null) {
+            throw new InvalidServerConfigException("Server %s's %s must be a value, not a block.",
+                server.getKey(), key);
+        }
+        return setting.getValue();
+    }
+
+    private static InetSocketAddress parseAddress(TextSetting server, String key, String address)
+        throws InvalidServerConfigException {
+        try {
+            HostAndPort hostAndPort =
+                HostAndPort.fromString(address.trim()).withDefaultPort(DEFAULT_PORT);
+            return new InetSocketAddress(hostAndPort.getHost(), hostAndPort.getPort());
+        } catch (IllegalArgumentException e) {
+            throw new InvalidServerConfigException("Server %s's %s must be a host and optional "
+                + "port, but was %s.", server.getKey(), key, address);
+        }
+    }
+
+    private static long getMillis(TextSetting server, String key, long defaultValue)
+        throws InvalidServerConfigException {
+        String value = getValue(server, key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new InvalidServerConfigException("Server %s's %s must be a number of "
+                + "milliseconds, but was %s.", server.getKey(), key, value);
+        }
+    }
+}
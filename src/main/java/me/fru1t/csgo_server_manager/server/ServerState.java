@@ -0,0 +1,26 @@
+package me.fru1t.csgo_server_manager.server;
+
+/**
+ * Where a supervised server is in its lifecycle.
+ */
+public enum ServerState {
+    /**
+     * The server's process is running.
+     */
+    RUNNING,
+
+    /**
+     * The server's process exited or couldn't be launched, and it's waiting to be restarted.
+     */
+    BACKING_OFF,
+
+    /**
+     * The server's been asked to stop and its process hasn't exited yet.
+     */
+    STOPPING,
+
+    /**
+     * The server's been stopped and won't be restarted.
+     */
+    STOPPED
+}
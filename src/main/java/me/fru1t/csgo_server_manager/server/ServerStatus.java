@@ -0,0 +1,45 @@
+package me.fru1t.csgo_server_manager.server;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import javax.annotation.Nullable;
+
+/**
+ * An immutable snapshot of a supervised server's state.
+ */
+@Getter
+@RequiredArgsConstructor
+public final class ServerStatus {
+    private final String name;
+    private final ServerState state;
+
+    /**
+     * The number of times the server's been restarted after exiting on its own.
+     */
+    private final int restartCount;
+
+    /**
+     * When the server's current process was launched, in milliseconds since the epoch, or -1 if
+     * it has none.
+     */
+    private final long startedAtMillis;
+
+    /**
+     * The operating system's ID for the server's current process, or -1 if it has none or its ID
+     * couldn't be found.
+     */
+    private final long pid;
+
+    /**
+     * The exit code of the server's last process, or null if none has exited yet.
+     */
+    @Nullable
+    private final Integer lastExitCode;
+
+    /**
+     * Why the server's process last failed to launch, or null if it hasn't.
+     */
+    @Nullable
+    private final String lastError;
+}
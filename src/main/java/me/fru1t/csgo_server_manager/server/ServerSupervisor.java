@@ -0,0 +1,266 @@
+package me.fru1t.csgo_server_manager.server;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import me.fru1t.csgo_server_manager.files.TextSetting;
+import me.fru1t.csgo_server_manager.metrics.MetricRegistry;
+import me.fru1t.csgo_server_manager.metrics.Timer;
+
+import javax.annotation.Nullable;
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Launches server instances as processes and keeps them running, restarting any that exit on
+ * their own with a backoff as their {@link ServerConfig} describes.</p>
+ * <p>Every server's output is read on a small, fixed pool of threads rather than a thread or two
+ * per process. Each server's merged stdout and stderr is polled for whatever's already available
+ * every poll interval, which never blocks, so a handful of threads keep up with dozens of
+ * servers. The same polling notices when a process has exited.</p>
+ * <p>Stopping a server asks its process to exit, and kills it if it still hasn't after the stop
+ * timeout. Closing the supervisor stops every server.</p>
+ * <p>How long each poll takes, the lines servers write and how often they crash are recorded in
+ * the {@link MetricRegistry#global() global} metrics.</p>
+ */
+public class ServerSupervisor implements Closeable {
+    public static final int DEFAULT_POLLING_THREADS = 2;
+    public static final long DEFAULT_POLL_INTERVAL_MS = 50;
+    public static final long DEFAULT_STOP_TIMEOUT_MS = 10 * 1000;
+
+    private static final long KILL_GRACE_MS = 1000;
+    private static final Timer POLL_TIMER = MetricRegistry.global().timer(
+        "csgo_supervisor_poll_seconds", "Time taken to poll a server for output and exit.");
+
+    /**
+     * Receives servers' output and status changes. Methods are called from the supervisor's
+     * threads, or from whichever thread started or stopped the server, and should return quickly,
+     * as other servers' output waits on them.
+     */
+    public interface Listener {
+        /**
+         * Called with each line a server's process writes to stdout or stderr, without the line
+         * ending. Lines from a single server are always passed in order.
+         */
+        default void onOutput(String server, String line) {}
+
+        default void onStatusChange(ServerStatus status) {}
+    }
+
+    private static final class Supervised {
+        final SupervisedServer server;
+        final ScheduledFuture<?> pollTask;
+
+        Supervised(SupervisedServer server, ScheduledFuture<?> pollTask) {
+            this.server = server;
+            this.pollTask = pollTask;
+        }
+    }
+
+    private final ScheduledThreadPoolExecutor executor;
+    private final List<Listener> listeners;
+
+    // Passes everything on to every listener, for servers that only take one
+    private final Listener dispatcher = new Listener() {
+        @Override
+        public void onOutput(String server, String line) {
+            for (Listener listener : listeners) {
+                listener.onOutput(server, line);
+            }
+        }
+
+        @Override
+        public void onStatusChange(ServerStatus status) {
+            for (Listener listener : listeners) {
+                listener.onStatusChange(status);
+            }
+        }
+    };
+    private final long pollIntervalMs;
+    private final long stopTimeoutMs;
+
+    private final Map<String, Supervised> servers;
+
+    // Guarded by this
+    private boolean isClosed;
+
+    public ServerSupervisor(Listener listener) {
+        this(listener, DEFAULT_POLLING_THREADS, DEFAULT_POLL_INTERVAL_MS, DEFAULT_STOP_TIMEOUT_MS);
+    }
+
+    /**
+     * @param pollingThreads The number of threads to read every server's output on.
+     * @param pollIntervalMs How often to check every server for new output.
+     * @param stopTimeoutMs How long to give a server's process to exit before killing it.
+     */
+    public ServerSupervisor(Listener listener, int pollingThreads, long pollIntervalMs,
+        long stopTimeoutMs) {
+        listeners = new CopyOnWriteArrayList<>();
+        listeners.add(listener);
+        this.pollIntervalMs = pollIntervalMs;
+        this.stopTimeoutMs = stopTimeoutMs;
+        executor = new ScheduledThreadPoolExecutor(pollingThreads, new ThreadFactoryBuilder()
+            .setNameFormat("ServerSupervisor-%d").setDaemon(true).build());
+        executor.setRemoveOnCancelPolicy(true);
+        servers = new ConcurrentHashMap<>();
+        isClosed = false;
+    }
+
+    /**
+     * Adds a listener for every server's output and status changes from now on, after the
+     * listener the supervisor was created with.
+     */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Starts supervising and launches the given server. A stopped server of the same name is
+     * replaced.
+     * @throws IllegalStateException Thrown if a server of the same name is already running,
+     * restarting or stopping.
+     */
+    public synchronized void start(ServerConfig config) {
+        if (isClosed) {
+            throw new IllegalStateException("The supervisor has been closed.");
+        }
+
+        Supervised previous = servers.get(config.getName());
+        if (previous != null) {
+            if (previous.server.getStatus().getState() != ServerState.STOPPED) {
+                throw new IllegalStateException(
+                    "Server " + config.getName() + " is already being supervised.");
+            }
+            previous.pollTask.cancel(false);
+        }
+
+        SupervisedServer server = new SupervisedServer(config, executor, dispatcher, stopTimeoutMs);
+        ScheduledFuture<?> pollTask = executor.scheduleWithFixedDelay(() -> poll(server),
+            pollIntervalMs, pollIntervalMs, TimeUnit.MILLISECONDS);
+        servers.put(config.getName(), new Supervised(server, pollTask));
+        server.start();
+    }
+
+    /**
+     * Starts every server configured within the given block, as read by
+     * {@link ServerConfig#listFromTextSetting(TextSetting)}. No servers are started if any
+     * server's config is invalid.
+     */
+    public void startAll(TextSetting servers) throws InvalidServerConfigException {
+        for (ServerConfig config : ServerConfig.listFromTextSetting(servers)) {
+            start(config);
+        }
+    }
+
+    /**
+     * Stops the given server, if it's being supervised. Its process may still be exiting once this
+     * returns; see {@link #awaitStopped(String, long, TimeUnit)}.
+     */
+    public void stop(String name) {
+        Supervised supervised = servers.get(name);
+        if (supervised != null) {
+            supervised.server.stop();
+        }
+    }
+
+    /**
+     * Waits for the given server to finish stopping.
+     * @return Whether the server stopped before the timeout, or isn't being supervised.
+     */
+    public boolean awaitStopped(String name, long timeout, TimeUnit unit)
+        throws InterruptedException {
+        Supervised supervised = servers.get(name);
+        return supervised == null || supervised.server.awaitStopped(timeout, unit);
+    }
+
+    /**
+     * @return The given server's status, or null if it isn't being supervised.
+     */
+    @Nullable
+    public ServerStatus getStatus(String name) {
+        Supervised supervised = servers.get(name);
+        return supervised == null ? null : supervised.server.getStatus();
+    }
+
+    /**
+     * @return Every supervised server's status, by name.
+     */
+    public ImmutableList<ServerStatus> getStatuses() {
+        List<ServerStatus> statuses = new ArrayList<>();
+        for (Supervised supervised : servers.values()) {
+            statuses.add(supervised.server.getStatus());
+        }
+        statuses.sort(Comparator.comparing(ServerStatus::getName));
+        return ImmutableList.copyOf(statuses);
+    }
+
+    /**
+     * @return The given server's config, or null if it isn't being supervised.
+     */
+    @Nullable
+    public ServerConfig getConfig(String name) {
+        Supervised supervised = servers.get(name);
+        return supervised == null ? null : supervised.server.getConfig();
+    }
+
+    /**
+     * @return Every supervised server's config, by name.
+     */
+    public ImmutableList<ServerConfig> getConfigs() {
+        List<ServerConfig> configs = new ArrayList<>();
+        for (Supervised supervised : servers.values()) {
+            configs.add(supervised.server.getConfig());
+        }
+        configs.sort(Comparator.comparing(ServerConfig::getName));
+        return ImmutableList.copyOf(configs);
+    }
+
+    /**
+     * Stops every server, waiting for their processes to exit or be killed, then stops polling.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (isClosed) {
+                return;
+            }
+            isClosed = true;
+            for (Supervised supervised : servers.values()) {
+                supervised.server.stop();
+            }
+        }
+
+        // Give killed processes a moment beyond the timeout to be noticed
+        long deadline = System.nanoTime()
+            + TimeUnit.MILLISECONDS.toNanos(stopTimeoutMs + pollIntervalMs + KILL_GRACE_MS);
+        try {
+            for (Supervised supervised : servers.values()) {
+                supervised.server.awaitStopped(deadline - System.nanoTime(),
+                    TimeUnit.NANOSECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void poll(SupervisedServer server) {
+        // A periodic task that throws is never run again, so keep going whatever a listener does
+        long startNanos = System.nanoTime();
+        try {
+            server.poll();
+        } catch (RuntimeException e) {
+            Thread thread = Thread.currentThread();
+            thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+        }
+        POLL_TIMER.recordSince(startNanos);
+    }
+}
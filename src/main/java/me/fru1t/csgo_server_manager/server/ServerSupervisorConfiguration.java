@@ -0,0 +1,53 @@
+package me.fru1t.csgo_server_manager.server;
+
+import me.fru1t.csgo_server_manager.files.InvalidFileFormatException;
+import me.fru1t.csgo_server_manager.files.TextSetting;
+import me.fru1t.csgo_server_manager.files.TextSettingUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * Creates the application's {@link ServerSupervisor}, starting every server configured in the
+ * file given by the {@code csgo.servers.config} property, if there is one. Servers' output and
+ * status changes are logged.
+ */
+@Configuration
+public class ServerSupervisorConfiguration {
+    private static final Logger logger = LoggerFactory.getLogger(ServerSupervisor.class);
+
+    @Bean(destroyMethod = "close")
+    public ServerSupervisor serverSupervisor(@Value("${csgo.servers.config:}") String configFile)
+        throws IOException, InvalidFileFormatException, InvalidServerConfigException {
+        ServerSupervisor supervisor = new ServerSupervisor(new ServerSupervisor.Listener() {
+            @Override
+            public void onOutput(String server, String line) {
+                logger.info("[{}] {}", server, line);
+            }
+
+            @Override
+            public void onStatusChange(ServerStatus status) {
+                if (status.getState() == ServerState.BACKING_OFF) {
+                    logger.warn("Server {} exited with {}, restarting: {}", status.getName(),
+                        status.getLastExitCode(),
+                        status.getLastError() == null ? "" : status.getLastError());
+                } else {
+                    logger.info("Server {} is now {}", status.getName(), status.getState());
+                }
+            }
+        });
+
+        if (!configFile.isEmpty()) {
+            TextSetting servers = TextSettingUtil.processFile(Paths.get(configFile));
+            if (servers != null) {
+                supervisor.startAll(servers);
+            }
+        }
+        return supervisor;
+    }
+}
@@ -0,0 +1,353 @@
+package me.fru1t.csgo_server_manager.server;
+
+import com.google.common.annotations.VisibleForTesting;
+import lombok.Getter;
+import me.fru1t.csgo_server_manager.metrics.Counter;
+import me.fru1t.csgo_server_manager.metrics.MetricRegistry;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>A single server under a {@link ServerSupervisor}, and its current process if it has one.</p>
+ * <p>The process's output is read by {@link #poll()}, which the supervisor runs periodically on
+ * its own threads. Polling only ever reads what's already available, so never blocks, and is how
+ * the server notices its process has exited. Everything else may be called from any thread.
+ * Listeners are only ever called without holding the server's lock.</p>
+ */
+final class SupervisedServer {
+    /**
+     * Output lines longer than this are split up, so that a process can't run the manager out of
+     * memory by never ending a line.
+     */
+    static final int MAX_LINE_BYTES = 16 * 1024;
+
+    private static final int READ_BUFFER_BYTES = 8 * 1024;
+
+    // Keeps one chatty process from holding up the others sharing a thread
+    private static final int MAX_READS_PER_POLL = 16;
+
+    private static final Counter OUTPUT_LINES = MetricRegistry.global().counter(
+        "csgo_supervisor_output_lines_total", "Lines of output read from servers.");
+    private static final Counter CRASHES = MetricRegistry.global().counter(
+        "csgo_supervisor_crashes_total",
+        "Times servers exited on their own, or failed to launch, and were set to restart.");
+
+    @Getter
+    private final ServerConfig config;
+    private final ScheduledExecutorService executor;
+    private final ServerSupervisor.Listener listener;
+    private final long stopTimeoutMs;
+
+    // Only touched by poll(), which never runs concurrently with itself
+    private final byte[] readBuffer;
+    private byte[] line;
+    private int lineLength;
+
+    // Guarded by this
+    private ServerState state;
+    @Nullable
+    private Process process;
+    @Nullable
+    private ScheduledFuture<?> pendingTask;
+    private long startedAtMillis;
+    private long pid;
+    private int consecutiveCrashes;
+    private int restartCount;
+    @Nullable
+    private Integer lastExitCode;
+    @Nullable
+    private String lastError;
+
+    SupervisedServer(ServerConfig config, ScheduledExecutorService executor,
+        ServerSupervisor.Listener listener, long stopTimeoutMs) {
+        this.config = config;
+        this.executor = executor;
+        this.listener = listener;
+        this.stopTimeoutMs = stopTimeoutMs;
+        readBuffer = new byte[READ_BUFFER_BYTES];
+        line = new byte[256];
+        lineLength = 0;
+        state = ServerState.STOPPED;
+        process = null;
+        pendingTask = null;
+        startedAtMillis = -1;
+        pid = -1;
+        consecutiveCrashes = 0;
+        restartCount = 0;
+        lastExitCode = null;
+        lastError = null;
+    }
+
+    /**
+     * @return How long to wait before restarting a server after the given number of consecutive
+     * crashes, the first being 1.
+     */
+    @VisibleForTesting
+    static long restartDelayMs(ServerConfig config, int consecutiveCrashes) {
+        long delay = config.getRestartDelayMs();
+        for (int i = 1; i < consecutiveCrashes && delay < config.getMaxRestartDelayMs(); ++i) {
+            delay *= 2;
+        }
+        return Math.min(delay, config.getMaxRestartDelayMs());
+    }
+
+    /**
+     * @return The operating system's ID for the given process, or -1 if it can't be found.
+     */
+    @VisibleForTesting
+    static long pidOf(Process process) {
+        // Process.pid() is only there from Java 9, before which Unix processes keep it in a field
+        try {
+            return (Long) Process.class.getMethod("pid").invoke(process);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Fall back to the field
+        }
+        try {
+            Field pid = process.getClass().getDeclaredField("pid");
+            pid.setAccessible(true);
+            return ((Number) pid.get(process)).longValue();
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Launches the server's process, unless it's already running or waiting to restart.
+     */
+    void start() {
+        ServerStatus status;
+        synchronized (this) {
+            if (state == ServerState.RUNNING || state == ServerState.BACKING_OFF) {
+                return;
+            }
+            if (state == ServerState.STOPPING) {
+                throw new IllegalStateException(
+                    "Server " + config.getName() + " is still stopping.");
+            }
+            consecutiveCrashes = 0;
+            status = launch();
+        }
+        listener.onStatusChange(status);
+    }
+
+    /**
+     * Asks the server's process to exit, killing it if it hasn't within the stop timeout, and
+     * cancels any pending restart.
+     */
+    void stop() {
+        ServerStatus status;
+        synchronized (this) {
+            if (state == ServerState.STOPPED || state == ServerState.STOPPING) {
+                return;
+            }
+            cancelPendingTask();
+            if (process == null) {
+                status = transition(ServerState.STOPPED);
+            } else {
+                Process stopping = process;
+                stopping.destroy();
+                pendingTask = executor.schedule(() -> kill(stopping), stopTimeoutMs,
+                    TimeUnit.MILLISECONDS);
+                status = transition(ServerState.STOPPING);
+            }
+        }
+        listener.onStatusChange(status);
+    }
+
+    /**
+     * Waits for the server to be stopped.
+     * @return Whether it stopped before the timeout.
+     */
+    synchronized boolean awaitStopped(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (state != ServerState.STOPPED) {
+            long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remaining <= 0) {
+                return false;
+            }
+            wait(remaining);
+        }
+        return true;
+    }
+
+    synchronized ServerStatus getStatus() {
+        return new ServerStatus(config.getName(), state, restartCount, startedAtMillis, pid,
+            lastExitCode, lastError);
+    }
+
+    /**
+     * Hands any output the process has written to the listener, a line at a time, and handles
+     * the process having exited.
+     */
+    void poll() {
+        Process polled;
+        synchronized (this) {
+            polled = process;
+        }
+        if (polled == null) {
+            return;
+        }
+
+        // Checked first, so that everything written before exiting is read below
+        boolean exited = !polled.isAlive();
+        readAvailable(polled.getInputStream(), exited);
+        if (!exited) {
+            return;
+        }
+        flushLine();
+        closeStreams(polled);
+
+        ServerStatus status = exited(polled);
+        if (status != null) {
+            listener.onStatusChange(status);
+        }
+    }
+
+    private void readAvailable(InputStream in, boolean readEverything) {
+        try {
+            for (int reads = 0; readEverything || reads < MAX_READS_PER_POLL; ++reads) {
+                int available = in.available();
+                if (available <= 0) {
+                    return;
+                }
+                int read = in.read(readBuffer, 0, Math.min(available, readBuffer.length));
+                if (read < 0) {
+                    return;
+                }
+                for (int i = 0; i < read; ++i) {
+                    append(readBuffer[i]);
+                }
+            }
+        } catch (IOException e) {
+            // The stream's been closed, which the exit check takes care of
+        }
+    }
+
+    private static void closeStreams(Process exited) {
+        try {
+            exited.getOutputStream().close();
+            exited.getInputStream().close();
+        } catch (IOException e) {
+            // Already closed
+        }
+    }
+
+    private void append(byte b) {
+        if (b == '\n') {
+            if (lineLength > 0 && line[lineLength - 1] == '\r') {
+                --lineLength;
+            }
+            emitLine();
+            return;
+        }
+        if (lineLength == line.length) {
+            line = Arrays.copyOf(line, line.length * 2);
+        }
+        line[lineLength++] = b;
+        if (lineLength == MAX_LINE_BYTES) {
+            emitLine();
+        }
+    }
+
+    private void flushLine() {
+        if (lineLength > 0) {
+            emitLine();
+        }
+    }
+
+    private void emitLine() {
+        String text = new String(line, 0, lineLength, StandardCharsets.UTF_8);
+        lineLength = 0;
+        OUTPUT_LINES.increment();
+        listener.onOutput(config.getName(), text);
+    }
+
+    @Nullable
+    private synchronized ServerStatus exited(Process exited) {
+        if (process != exited) {
+            return null;
+        }
+        long ranForMillis = System.currentTimeMillis() - startedAtMillis;
+        process = null;
+        startedAtMillis = -1;
+        pid = -1;
+        lastExitCode = exited.exitValue();
+        if (state == ServerState.STOPPING) {
+            cancelPendingTask();
+            return transition(ServerState.STOPPED);
+        }
+
+        if (ranForMillis >= config.getStableAfterMs()) {
+            consecutiveCrashes = 0;
+        }
+        return scheduleRestart();
+    }
+
+    // Must hold the lock
+    private ServerStatus launch() {
+        ProcessBuilder builder = new ProcessBuilder(config.getCommand()).redirectErrorStream(true);
+        if (config.getDirectory() != null) {
+            builder.directory(config.getDirectory().toFile());
+        }
+        try {
+            process = builder.start();
+        } catch (IOException e) {
+            lastError = e.getMessage();
+            return scheduleRestart();
+        }
+        startedAtMillis = System.currentTimeMillis();
+        pid = pidOf(process);
+        lastError = null;
+        return transition(ServerState.RUNNING);
+    }
+
+    // Must hold the lock
+    private ServerStatus scheduleRestart() {
+        CRASHES.increment();
+        long delay = restartDelayMs(config, ++consecutiveCrashes);
+        pendingTask = executor.schedule(this::restart, delay, TimeUnit.MILLISECONDS);
+        return transition(ServerState.BACKING_OFF);
+    }
+
+    private void restart() {
+        ServerStatus status;
+        synchronized (this) {
+            if (state != ServerState.BACKING_OFF) {
+                return;
+            }
+            pendingTask = null;
+            ++restartCount;
+            status = launch();
+        }
+        listener.onStatusChange(status);
+    }
+
+    private synchronized void kill(Process stopping) {
+        if (process == stopping) {
+            stopping.destroyForcibly();
+        }
+    }
+
+    // Must hold the lock
+    private void cancelPendingTask() {
+        if (pendingTask != null) {
+            pendingTask.cancel(false);
+            pendingTask = null;
+        }
+    }
+
+    // Must hold the lock
+    private ServerStatus transition(ServerState newState) {
+        state = newState;
+        notifyAll();
+        return getStatus();
+    }
+}
@@ -0,0 +1,112 @@
+package me.fru1t.csgo_server_manager.status;
+
+import com.google.common.base.CharMatcher;
+import com.google.common.base.Splitter;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * <p>The CPU time and memory used by a process and every process it's started, as read from
+ * Linux's {@code /proc}. Descendants are included as servers are usually launched through
+ * {@code srcds_run}, a script that starts the server proper as a child.</p>
+ * <p>Descendants are found through {@code /proc/<pid>/task/<tid>/children}, which some kernels
+ * don't have, in which case only the process itself is counted.</p>
+ */
+final class ProcessUsage {
+    /**
+     * How many ticks of CPU time /proc counts per second, which is 100 wherever Linux runs.
+     */
+    static final long TICKS_PER_SECOND = 100;
+
+    private static final Path PROC = Paths.get("/proc");
+    private static final Splitter WHITESPACE =
+        Splitter.on(CharMatcher.whitespace()).omitEmptyStrings();
+    private static final int MAX_PROCESSES = 256;
+
+    final long cpuTicks;
+    final long rssBytes;
+
+    private ProcessUsage(long cpuTicks, long rssBytes) {
+        this.cpuTicks = cpuTicks;
+        this.rssBytes = rssBytes;
+    }
+
+    /**
+     * @return The given process's usage, or null if it isn't running or there's no /proc.
+     */
+    @Nullable
+    static ProcessUsage read(long pid) {
+        long cpuTicks = 0;
+        long rssBytes = 0;
+        Set<Long> seen = new HashSet<>();
+        Deque<Long> pending = new ArrayDeque<>();
+        pending.add(pid);
+        while (!pending.isEmpty() && seen.size() < MAX_PROCESSES) {
+            long next = pending.remove();
+            if (!seen.add(next)) {
+                continue;
+            }
+            Path process = PROC.resolve(Long.toString(next));
+            try {
+                cpuTicks += readCpuTicks(process);
+                rssBytes += readRssBytes(process);
+                addChildren(process, pending);
+            } catch (IOException | RuntimeException e) {
+                // Exited, or not Linux. Only the process itself matters.
+                if (next == pid) {
+                    return null;
+                }
+            }
+        }
+        return new ProcessUsage(cpuTicks, rssBytes);
+    }
+
+    // User and system time are the 14th and 15th fields of stat, after the name in parentheses,
+    // which may itself contain spaces and parentheses
+    private static long readCpuTicks(Path process) throws IOException {
+        String stat = read(process.resolve("stat"));
+        List<String> fields = WHITESPACE.splitToList(stat.substring(stat.lastIndexOf(')') + 1));
+        return Long.parseLong(fields.get(11)) + Long.parseLong(fields.get(12));
+    }
+
+    // As in "VmRSS:     1234 kB". Processes that are exiting have none.
+    private static long readRssBytes(Path process) throws IOException {
+        for (String line : Splitter.on('\n').split(read(process.resolve("status")))) {
+            if (line.startsWith("VmRSS:")) {
+                return Long.parseLong(
+                    WHITESPACE.splitToList(line.substring("VmRSS:".length())).get(0)) * 1024;
+            }
+        }
+        return 0;
+    }
+
+    private static void addChildren(Path process, Deque<Long> pending) throws IOException {
+        try (DirectoryStream<Path> tasks = Files.newDirectoryStream(process.resolve("task"))) {
+            for (Path task : tasks) {
+                try {
+                    for (String child : WHITESPACE.split(read(task.resolve("children")))) {
+                        pending.add(Long.parseLong(child));
+                    }
+                } catch (NoSuchFileException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private static String read(Path file) throws IOException {
+        return new String(Files.readAllBytes(file), StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,88 @@
+package me.fru1t.csgo_server_manager.status;
+
+import com.google.common.annotations.VisibleForTesting;
+import me.fru1t.csgo_server_manager.query.QueryClient;
+import me.fru1t.csgo_server_manager.query.ServerInfo;
+import me.fru1t.csgo_server_manager.server.ServerConfig;
+import me.fru1t.csgo_server_manager.server.ServerState;
+import me.fru1t.csgo_server_manager.server.ServerStatus;
+import me.fru1t.csgo_server_manager.server.ServerSupervisor;
+
+import javax.annotation.Nullable;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>Sends A2S_INFO to every running server with a query address, and records their names and
+ * player limits in a {@link ServerStatusRegistry}. Every server is queried through the one
+ * {@link QueryClient}, so sampling hundreds of servers needs no more threads than sampling
+ * one.</p>
+ * <p>Servers with an RCON address have their map and players recorded by
+ * {@link RconStatusSampler}, which knows them as well, so this only records them for servers
+ * without one. As with RCON, servers still answering the last sample aren't asked again, fields
+ * are cleared for servers that don't answer, and answers from servers that have since stopped,
+ * restarted or been removed are dropped.</p>
+ */
+public class QueryStatusSampler implements Runnable {
+    private final ServerSupervisor supervisor;
+    private final QueryClient client;
+    private final ServerStatusRegistry registry;
+    private final Set<String> inFlight;
+
+    public QueryStatusSampler(ServerSupervisor supervisor, QueryClient client,
+        ServerStatusRegistry registry) {
+        this.supervisor = supervisor;
+        this.client = client;
+        this.registry = registry;
+        inFlight = ConcurrentHashMap.newKeySet();
+    }
+
+    @Override
+    public void run() {
+        for (ServerConfig config : supervisor.getConfigs()) {
+            String name = config.getName();
+            ServerStatus status = supervisor.getStatus(name);
+            if (config.getQueryAddress() == null || status == null
+                || status.getState() != ServerState.RUNNING || !inFlight.add(name)) {
+                continue;
+            }
+            boolean hasRcon = config.getRconAddress() != null;
+            long startedAtMillis = status.getStartedAtMillis();
+            client.queryInfo(config.getQueryAddress()).whenComplete((info, e) -> {
+                inFlight.remove(name);
+                if (isStillRunning(name, startedAtMillis)) {
+                    record(registry, name, info, !hasRcon);
+                }
+            });
+        }
+    }
+
+    // Whether the server's process that was asked is still the one running
+    private boolean isStillRunning(String name, long startedAtMillis) {
+        ServerStatus status = supervisor.getStatus(name);
+        return status != null && status.getState() == ServerState.RUNNING
+            && status.getStartedAtMillis() == startedAtMillis;
+    }
+
+    /**
+     * Records what the given answer to A2S_INFO says, or clears the fields it would have if it's
+     * null.
+     * @param recordPlayers Whether to record the server's map and players, too.
+     */
+    @VisibleForTesting
+    static void record(ServerStatusRegistry registry, String server, @Nullable ServerInfo info,
+        boolean recordPlayers) {
+        registry.set(server, ServerStatusRegistry.NAME, info == null ? null : info.getName());
+        registry.set(server, ServerStatusRegistry.MAX_PLAYERS,
+            info == null ? null : info.getMaxPlayers());
+        if (!recordPlayers) {
+            return;
+        }
+
+        // Bots count as players in A2S_INFO, but not in the dashboard
+        registry.set(server, ServerStatusRegistry.MAP, info == null ? null : info.getMap());
+        registry.set(server, ServerStatusRegistry.PLAYERS,
+            info == null ? null : info.getPlayers() - info.getBots());
+        registry.set(server, ServerStatusRegistry.BOTS, info == null ? null : info.getBots());
+    }
+}
@@ -0,0 +1,136 @@
+package me.fru1t.csgo_server_manager.status;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.CharMatcher;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import me.fru1t.csgo_server_manager.rcon.RconClient;
+import me.fru1t.csgo_server_manager.server.ServerConfig;
+import me.fru1t.csgo_server_manager.server.ServerState;
+import me.fru1t.csgo_server_manager.server.ServerStatus;
+import me.fru1t.csgo_server_manager.server.ServerSupervisor;
+
+import javax.annotation.Nullable;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>Asks every running server with an RCON address for its players, map and tick rate, and
+ * records them in a {@link ServerStatusRegistry}.</p>
+ * <p>Each server's {@code status} and {@code stats} are asked for together, in a single round
+ * trip. Answers arrive after the sample that asked for them, so are at most a tick old by the time
+ * they're sent to dashboards. Servers still answering the last sample aren't asked again, so a
+ * slow server can't pile up requests. Fields are cleared for servers that don't answer, and
+ * answers from servers that have since stopped, restarted or been removed are dropped, rather than
+ * bringing back fields {@link SupervisorSampler} cleared.</p>
+ */
+public class RconStatusSampler implements Runnable {
+    private static final ImmutableList<String> COMMANDS = ImmutableList.of("status", "stats");
+    private static final Splitter LINES = Splitter.on('\n').trimResults().omitEmptyStrings();
+    private static final Splitter WHITESPACE =
+        Splitter.on(CharMatcher.whitespace()).omitEmptyStrings();
+
+    private final ServerSupervisor supervisor;
+    private final RconClient client;
+    private final ServerStatusRegistry registry;
+    private final Set<String> inFlight;
+
+    public RconStatusSampler(ServerSupervisor supervisor, RconClient client,
+        ServerStatusRegistry registry) {
+        this.supervisor = supervisor;
+        this.client = client;
+        this.registry = registry;
+        inFlight = ConcurrentHashMap.newKeySet();
+    }
+
+    @Override
+    public void run() {
+        for (ServerConfig config : supervisor.getConfigs()) {
+            String name = config.getName();
+            ServerStatus status = supervisor.getStatus(name);
+            if (config.getRconAddress() == null || status == null
+                || status.getState() != ServerState.RUNNING || !inFlight.add(name)) {
+                continue;
+            }
+            long startedAtMillis = status.getStartedAtMillis();
+            client.executeAll(config.getRconAddress(), config.getRconPassword(), COMMANDS)
+                .whenComplete((responses, e) -> {
+                    inFlight.remove(name);
+                    if (!isStillRunning(name, startedAtMillis)) {
+                        return;
+                    }
+                    if (responses == null) {
+                        record(registry, name, "", "");
+                    } else {
+                        record(registry, name, responses.get(0), responses.get(1));
+                    }
+                });
+        }
+    }
+
+    // Whether the server's process that was asked is still the one running
+    private boolean isStillRunning(String name, long startedAtMillis) {
+        ServerStatus status = supervisor.getStatus(name);
+        return status != null && status.getState() == ServerState.RUNNING
+            && status.getStartedAtMillis() == startedAtMillis;
+    }
+
+    /**
+     * Records what the given responses to {@code status} and {@code stats} say, clearing fields
+     * they don't.
+     */
+    @VisibleForTesting
+    static void record(ServerStatusRegistry registry, String server, String status,
+        String stats) {
+        String map = null;
+        Integer players = null;
+        Integer bots = null;
+        for (String line : LINES.split(status)) {
+            int colon = line.indexOf(':');
+            if (colon < 0) {
+                continue;
+            }
+            String key = line.substring(0, colon).trim();
+            List<String> value = WHITESPACE.splitToList(line.substring(colon + 1));
+            if (key.equals("map") && !value.isEmpty()) {
+                map = value.get(0);
+            } else if (key.equals("players") && !value.isEmpty()) {
+                // As in "1 humans, 0 bots (20/0 max)", or "1 (20 max)" in older games
+                players = parseInt(value.get(0));
+                if (value.size() >= 4 && value.get(3).startsWith("bot")) {
+                    bots = parseInt(value.get(2));
+                }
+            }
+        }
+
+        // A row of column names, then a row of values, with the server's frame rate as FPS
+        Double tickRate = null;
+        List<String> rows = LINES.splitToList(stats);
+        if (rows.size() >= 2) {
+            int column = WHITESPACE.splitToList(rows.get(0)).indexOf("FPS");
+            List<String> values = WHITESPACE.splitToList(rows.get(1));
+            if (column >= 0 && column < values.size()) {
+                try {
+                    tickRate = Math.round(Double.parseDouble(values.get(column)) * 10) / 10.0;
+                } catch (NumberFormatException e) {
+                    // Not a rate
+                }
+            }
+        }
+
+        registry.set(server, ServerStatusRegistry.MAP, map);
+        registry.set(server, ServerStatusRegistry.PLAYERS, players);
+        registry.set(server, ServerStatusRegistry.BOTS, bots);
+        registry.set(server, ServerStatusRegistry.TICK_RATE, tickRate);
+    }
+
+    @Nullable
+    private static Integer parseInt(String value) {
+        try {
+            return Integer.parseInt(CharMatcher.javaDigit().negate().trimTrailingFrom(value));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package me.fru1t.csgo_server_manager.status;
+
+import com.google.common.collect.ImmutableSortedMap;
+
+import javax.annotation.Nullable;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <p>The latest of everything known about each server, for the dashboard. Samplers set fields as
+ * they learn them, from whichever threads, and {@link StatusBroadcaster} takes a snapshot of every
+ * field once per tick.</p>
+ * <p>Fields are kept by name, with values that are numbers or strings, so that snapshots can be
+ * compared field by field and sent as they are.</p>
+ */
+public class ServerStatusRegistry {
+    public static final String STATE = "state";
+    public static final String RESTARTS = "restarts";
+    public static final String PLAYERS = "players";
+    public static final String BOTS = "bots";
+    public static final String MAP = "map";
+    public static final String NAME = "name";
+    public static final String MAX_PLAYERS = "maxPlayers";
+    public static final String TICK_RATE = "tickRate";
+    public static final String CPU_PERCENT = "cpuPercent";
+    public static final String MEMORY_BYTES = "memoryBytes";
+
+    private final ConcurrentMap<String, ConcurrentMap<String, Object>> servers;
+
+    public ServerStatusRegistry() {
+        servers = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Sets one of the given server's fields, or clears it if the value's null.
+     */
+    public void set(String server, String field, @Nullable Object value) {
+        Map<String, Object> fields =
+            servers.computeIfAbsent(server, s -> new ConcurrentHashMap<>());
+        if (value == null) {
+            fields.remove(field);
+        } else {
+            fields.put(field, value);
+        }
+    }
+
+    /**
+     * Forgets every server but the given ones.
+     */
+    public void retainAll(Collection<String> retained) {
+        servers.keySet().retainAll(retained);
+    }
+
+    /**
+     * @return Every server's fields, by server name, then field name.
+     */
+    public ImmutableSortedMap<String, ImmutableSortedMap<String, Object>> snapshot() {
+        ImmutableSortedMap.Builder<String, ImmutableSortedMap<String, Object>> snapshot =
+            ImmutableSortedMap.naturalOrder();
+        for (Map.Entry<String, ConcurrentMap<String, Object>> server : servers.entrySet()) {
+            snapshot.put(server.getKey(), ImmutableSortedMap.copyOf(server.getValue()));
+        }
+        return snapshot.build();
+    }
+}
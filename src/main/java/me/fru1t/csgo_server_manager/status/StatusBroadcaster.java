@@ -0,0 +1,207 @@
+package me.fru1t.csgo_server_manager.status;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import me.fru1t.csgo_server_manager.metrics.MetricRegistry;
+import me.fru1t.csgo_server_manager.metrics.Timer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Pushes what's changed about each server to every open dashboard, once per tick.</p>
+ * <p>Every tick, the samplers are run once and the {@link ServerStatusRegistry} is snapshotted
+ * once, then compared with the last tick's snapshot. Only the fields that changed are sent, as a
+ * single update encoded once and shared by every subscriber, so that a dashboard costs no more
+ * than writing that update to it, however many are open. Nothing's sent on ticks where nothing
+ * changed, other than an occasional empty update so that subscribers that have gone away are
+ * noticed.</p>
+ * <p>Updates are sent as {@value #DELTA_EVENT} events, a map of server names to maps of the fields
+ * that changed and their new values. Fields that are no longer known are null, as are servers
+ * that have gone. New subscribers are first sent a {@value #SNAPSHOT_EVENT} event of every field
+ * in the same form, to replace anything they had from before. Updates carry whole values rather
+ * than differences, so being sent one that's already part of a snapshot does no harm.</p>
+ */
+public class StatusBroadcaster implements Closeable {
+    public static final long DEFAULT_INTERVAL_MS = 1000;
+    public static final String SNAPSHOT_EVENT = "snapshot";
+    public static final String DELTA_EVENT = "delta";
+
+    // How many ticks of nothing changing to send an empty update after
+    private static final int HEARTBEAT_TICKS = 15;
+
+    private static final Timer TICK_TIMER = MetricRegistry.global().timer(
+        "csgo_status_tick_seconds", "Time taken to sample servers and send dashboards updates.");
+
+    /**
+     * Receives updates, encoded. Called from the broadcaster's thread, or from the thread that
+     * subscribed for the first snapshot, but never from both at once.
+     */
+    public interface Subscriber {
+        /**
+         * @throws IOException Thrown if the subscriber's gone away, which unsubscribes it.
+         */
+        void send(String event, String data) throws IOException;
+    }
+
+    /**
+     * Turns updates, which are maps of strings, numbers and nulls, into what's sent to
+     * subscribers, such as JSON.
+     */
+    public interface Encoder {
+        String encode(Map<String, Object> update) throws IOException;
+    }
+
+    private final ServerStatusRegistry registry;
+    private final Encoder encoder;
+    private final ImmutableList<Runnable> samplers;
+    private final long intervalMs;
+    private final ScheduledExecutorService executor;
+    private final List<Subscriber> subscribers;
+
+    // Guarded by this
+    private ImmutableSortedMap<String, ImmutableSortedMap<String, Object>> last;
+    private int quietTicks;
+
+    /**
+     * Doesn't tick until {@link #start()}ed.
+     * @param samplers Run in order at the start of every tick, to update the registry.
+     */
+    public StatusBroadcaster(ServerStatusRegistry registry, Encoder encoder,
+        List<Runnable> samplers, long intervalMs) {
+        this.registry = registry;
+        this.encoder = encoder;
+        this.samplers = ImmutableList.copyOf(samplers);
+        this.intervalMs = intervalMs;
+        subscribers = new CopyOnWriteArrayList<>();
+        last = ImmutableSortedMap.of();
+        quietTicks = 0;
+        executor = new ScheduledThreadPoolExecutor(1, new ThreadFactoryBuilder()
+            .setNameFormat("StatusBroadcaster").setDaemon(true).build());
+    }
+
+    /**
+     * Starts ticking, once straight away and then every interval until closed. Only call once.
+     */
+    public void start() {
+        executor.scheduleWithFixedDelay(this::tick, 0, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Sends the given subscriber a snapshot of every server, then every update after it.
+     * @throws IOException Thrown if the snapshot couldn't be sent, in which case the subscriber
+     * isn't subscribed.
+     */
+    public synchronized void subscribe(Subscriber subscriber) throws IOException {
+        // Sent while holding the lock, so that no update based on an older snapshot follows it
+        subscriber.send(SNAPSHOT_EVENT, encoder.encode(diff(ImmutableSortedMap.of(), last)));
+        subscribers.add(subscriber);
+    }
+
+    public void unsubscribe(Subscriber subscriber) {
+        subscribers.remove(subscriber);
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    @VisibleForTesting
+    void tick() {
+        long startNanos = System.nanoTime();
+        try {
+            sampleAndSend();
+        } finally {
+            TICK_TIMER.recordSince(startNanos);
+        }
+    }
+
+    private void sampleAndSend() {
+        // A periodic task that throws is never run again, so keep going whatever a sampler does
+        for (Runnable sampler : samplers) {
+            try {
+                sampler.run();
+            } catch (RuntimeException e) {
+                Thread thread = Thread.currentThread();
+                thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+            }
+        }
+
+        String update;
+        synchronized (this) {
+            ImmutableSortedMap<String, ImmutableSortedMap<String, Object>> current =
+                registry.snapshot();
+            Map<String, Object> delta = diff(last, current);
+            last = current;
+            if (delta.isEmpty() && ++quietTicks < HEARTBEAT_TICKS) {
+                return;
+            }
+            quietTicks = 0;
+            try {
+                update = encoder.encode(delta);
+            } catch (IOException e) {
+                Thread thread = Thread.currentThread();
+                thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+                return;
+            }
+        }
+
+        for (Subscriber subscriber : subscribers) {
+            try {
+                subscriber.send(DELTA_EVENT, update);
+            } catch (IOException | RuntimeException e) {
+                subscribers.remove(subscriber);
+            }
+        }
+    }
+
+    /**
+     * @return The fields that changed from one snapshot to the next, by server, with nulls for
+     * fields and servers that have gone.
+     */
+    @VisibleForTesting
+    static Map<String, Object> diff(Map<String, ? extends Map<String, Object>> previous,
+        Map<String, ? extends Map<String, Object>> current) {
+        Map<String, Object> delta = new TreeMap<>();
+        for (String server : previous.keySet()) {
+            if (!current.containsKey(server)) {
+                delta.put(server, null);
+            }
+        }
+        for (Map.Entry<String, ? extends Map<String, Object>> server : current.entrySet()) {
+            Map<String, Object> before = previous.containsKey(server.getKey())
+                ? previous.get(server.getKey()) : Collections.emptyMap();
+            Map<String, Object> changed = new TreeMap<>();
+            for (String field : before.keySet()) {
+                if (!server.getValue().containsKey(field)) {
+                    changed.put(field, null);
+                }
+            }
+            for (Map.Entry<String, Object> field : server.getValue().entrySet()) {
+                if (!Objects.equals(before.get(field.getKey()), field.getValue())) {
+                    changed.put(field.getKey(), field.getValue());
+                }
+            }
+            if (!changed.isEmpty() || !previous.containsKey(server.getKey())) {
+                delta.put(server.getKey(), changed);
+            }
+        }
+        return delta;
+    }
+}
@@ -0,0 +1,50 @@
+package me.fru1t.csgo_server_manager.status;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableList;
+import me.fru1t.csgo_server_manager.query.QueryClient;
+import me.fru1t.csgo_server_manager.rcon.RconClient;
+import me.fru1t.csgo_server_manager.server.ServerSupervisor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+
+/**
+ * Creates the application's {@link StatusBroadcaster}, sampling every supervised server's status
+ * every {@code csgo.status.intervalMs}, and the {@link RconClient} and {@link QueryClient} it
+ * asks servers through. Updates are sent as JSON.
+ */
+@Configuration
+public class StatusConfiguration {
+    @Bean
+    public ServerStatusRegistry serverStatusRegistry() {
+        return new ServerStatusRegistry();
+    }
+
+    @Bean(destroyMethod = "close")
+    public RconClient rconClient() throws IOException {
+        return new RconClient();
+    }
+
+    @Bean(destroyMethod = "close")
+    public QueryClient queryClient(
+        @Value("${csgo.query.timeoutMs:" + QueryClient.DEFAULT_TIMEOUT_MS + "}") long timeoutMs)
+        throws IOException {
+        return new QueryClient(timeoutMs);
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "close")
+    public StatusBroadcaster statusBroadcaster(ServerSupervisor supervisor, RconClient client,
+        QueryClient queryClient, ServerStatusRegistry registry, ObjectMapper mapper,
+        @Value("${csgo.status.intervalMs:" + StatusBroadcaster.DEFAULT_INTERVAL_MS + "}")
+            long intervalMs) {
+        return new StatusBroadcaster(registry, mapper::writeValueAsString,
+            ImmutableList.of(
+                new SupervisorSampler(supervisor, registry),
+                new RconStatusSampler(supervisor, client, registry),
+                new QueryStatusSampler(supervisor, queryClient, registry)),
+            intervalMs);
+    }
+}
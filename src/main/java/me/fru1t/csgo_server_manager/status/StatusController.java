@@ -0,0 +1,45 @@
+package me.fru1t.csgo_server_manager.status;
+
+import com.google.common.collect.ImmutableSortedMap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+
+/**
+ * Serves every server's status, either once as JSON at {@code /status}, or as a stream of
+ * Server-Sent Events at {@code /status/stream} that the dashboard keeps open. See
+ * {@link StatusBroadcaster} for the events sent.
+ */
+@RestController
+public class StatusController {
+    // Streams are kept open until the dashboard goes away
+    private static final long STREAM_TIMEOUT_MS = Long.MAX_VALUE;
+
+    private final ServerStatusRegistry registry;
+    private final StatusBroadcaster broadcaster;
+
+    @Autowired
+    public StatusController(ServerStatusRegistry registry, StatusBroadcaster broadcaster) {
+        this.registry = registry;
+        this.broadcaster = broadcaster;
+    }
+
+    @RequestMapping("/status")
+    public ImmutableSortedMap<String, ImmutableSortedMap<String, Object>> status() {
+        return registry.snapshot();
+    }
+
+    @RequestMapping("/status/stream")
+    public SseEmitter stream() throws IOException {
+        SseEmitter emitter = new SseEmitter(STREAM_TIMEOUT_MS);
+        StatusBroadcaster.Subscriber subscriber =
+            (event, data) -> emitter.send(SseEmitter.event().name(event).data(data));
+        emitter.onCompletion(() -> broadcaster.unsubscribe(subscriber));
+        emitter.onTimeout(() -> broadcaster.unsubscribe(subscriber));
+        broadcaster.subscribe(subscriber);
+        return emitter;
+    }
+}
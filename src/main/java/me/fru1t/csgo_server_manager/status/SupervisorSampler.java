@@ -0,0 +1,94 @@
+package me.fru1t.csgo_server_manager.status;
+
+import me.fru1t.csgo_server_manager.server.ServerState;
+import me.fru1t.csgo_server_manager.server.ServerStatus;
+import me.fru1t.csgo_server_manager.server.ServerSupervisor;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <p>Samples every supervised server's state, and how much CPU and memory its process is using,
+ * into a {@link ServerStatusRegistry}. Servers that are no longer supervised are removed, and
+ * anything learnt about a server's last process, such as its players, is cleared once it stops
+ * running.</p>
+ * <p>CPU use is the percentage of a single core used since the last sample, so may be more than
+ * 100 for servers using several.</p>
+ */
+public class SupervisorSampler implements Runnable {
+    private static final class Sample {
+        final long pid;
+        final long cpuTicks;
+        final long nanos;
+
+        Sample(long pid, long cpuTicks, long nanos) {
+            this.pid = pid;
+            this.cpuTicks = cpuTicks;
+            this.nanos = nanos;
+        }
+    }
+
+    private final ServerSupervisor supervisor;
+    private final ServerStatusRegistry registry;
+
+    // Only touched by run(), which never runs concurrently with itself
+    private final Map<String, Sample> lastSamples;
+
+    public SupervisorSampler(ServerSupervisor supervisor, ServerStatusRegistry registry) {
+        this.supervisor = supervisor;
+        this.registry = registry;
+        lastSamples = new HashMap<>();
+    }
+
+    @Override
+    public void run() {
+        Set<String> names = new HashSet<>();
+        for (ServerStatus status : supervisor.getStatuses()) {
+            String name = status.getName();
+            names.add(name);
+            registry.set(name, ServerStatusRegistry.STATE, status.getState().name());
+            registry.set(name, ServerStatusRegistry.RESTARTS, status.getRestartCount());
+            if (status.getState() != ServerState.RUNNING) {
+                clear(name);
+                continue;
+            }
+
+            ProcessUsage usage = status.getPid() < 0 ? null : ProcessUsage.read(status.getPid());
+            if (usage == null) {
+                lastSamples.remove(name);
+                registry.set(name, ServerStatusRegistry.CPU_PERCENT, null);
+                registry.set(name, ServerStatusRegistry.MEMORY_BYTES, null);
+                continue;
+            }
+            long now = System.nanoTime();
+            Sample last = lastSamples.get(name);
+            if (last != null && last.pid == status.getPid() && now > last.nanos) {
+                // Usage can go down as descendants exit, which isn't negative use
+                long ticks = Math.max(0, usage.cpuTicks - last.cpuTicks);
+                double percent = (double) ticks / ProcessUsage.TICKS_PER_SECOND
+                    / ((now - last.nanos) / 1e9) * 100;
+                registry.set(name, ServerStatusRegistry.CPU_PERCENT,
+                    Math.round(percent * 10) / 10.0);
+            }
+            lastSamples.put(name, new Sample(status.getPid(), usage.cpuTicks, now));
+            registry.set(name, ServerStatusRegistry.MEMORY_BYTES, usage.rssBytes);
+        }
+
+        lastSamples.keySet().retainAll(names);
+        registry.retainAll(names);
+    }
+
+    private void clear(String name) {
+        lastSamples.remove(name);
+        registry.set(name, ServerStatusRegistry.PLAYERS, null);
+        registry.set(name, ServerStatusRegistry.BOTS, null);
+        registry.set(name, ServerStatusRegistry.MAP, null);
+        registry.set(name, ServerStatusRegistry.NAME, null);
+        registry.set(name, ServerStatusRegistry.MAX_PLAYERS, null);
+        registry.set(name, ServerStatusRegistry.TICK_RATE, null);
+        registry.set(name, ServerStatusRegistry.CPU_PERCENT, null);
+        registry.set(name, ServerStatusRegistry.MEMORY_BYTES, null);
+    }
+}
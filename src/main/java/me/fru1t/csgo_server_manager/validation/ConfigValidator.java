@@ -0,0 +1,219 @@
+package me.fru1t.csgo_server_manager.validation;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import me.fru1t.csgo_server_manager.files.TextSettingDiagnostic;
+import me.fru1t.csgo_server_manager.files.TextSettingParseResult;
+import me.fru1t.csgo_server_manager.files.TextSettingPosition;
+import me.fru1t.csgo_server_manager.files.TextSettingSchema;
+import me.fru1t.csgo_server_manager.files.TextSettingUtil;
+
+import javax.annotation.Nullable;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * <p>Checks every config file within a directory tree against the {@link TextSettingSchema} for
+ * its kind of file, such as every {@code gamemodes*.txt}, and gathers every problem into a single
+ * {@link ValidationReport}.</p>
+ * <p>Files are parsed leniently, so a file's syntax errors are all reported at once, along with
+ * whatever's wrong with the settings that could be read. Files are parsed and checked on a fixed
+ * number of threads, and only their problems are kept afterwards, never their settings, so memory
+ * use doesn't grow with the size of the fleet's configs.</p>
+ * <p>Validation is incremental. The problems found in each file are remembered along with its
+ * modified time and size, and files that haven't changed since are not parsed again. Files that
+ * couldn't be read are tried again every time.</p>
+ */
+public class ConfigValidator implements Closeable {
+    public static final int DEFAULT_PARALLELISM = 4;
+
+    private static final class FileResult {
+        final Path file;
+        final long modifiedTime;
+        final long size;
+        final TextSettingSchema schema;
+        final ImmutableList<ValidationProblem> problems;
+
+        FileResult(Path file, long modifiedTime, long size, TextSettingSchema schema,
+            ImmutableList<ValidationProblem> problems) {
+            this.file = file;
+            this.modifiedTime = modifiedTime;
+            this.size = size;
+            this.schema = schema;
+            this.problems = problems;
+        }
+    }
+
+    private final ImmutableList<Map.Entry<PathMatcher, TextSettingSchema>> schemas;
+    private final ExecutorService executor;
+
+    // By absolute, normalized path
+    private final ConcurrentMap<Path, FileResult> results;
+
+    /**
+     * @param schemasByGlob The schema for each kind of file, by a glob of its file name, such as
+     * {@code gamemodes*.txt}. Files are checked against the schema of the first glob that
+     * matches, in iteration order, and files that match none are ignored.
+     * @param parallelism The most files to parse at once.
+     * @throws IllegalArgumentException Thrown if any glob is invalid.
+     */
+    public ConfigValidator(Map<String, TextSettingSchema> schemasByGlob, int parallelism) {
+        ImmutableList.Builder<Map.Entry<PathMatcher, TextSettingSchema>> schemas =
+            ImmutableList.builder();
+        for (Map.Entry<String, TextSettingSchema> schema : schemasByGlob.entrySet()) {
+            schemas.add(new AbstractMap.SimpleImmutableEntry<>(
+                FileSystems.getDefault().getPathMatcher("glob:" + schema.getKey()),
+                schema.getValue()));
+        }
+        this.schemas = schemas.build();
+        executor = Executors.newFixedThreadPool(parallelism, new ThreadFactoryBuilder()
+            .setNameFormat("ConfigValidator-%d").setDaemon(true).build());
+        results = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Checks every matching file within the given directory and its subdirectories, waiting for
+     * them all.
+     * @throws IOException Thrown if the directory, or any directory within it, can't be listed.
+     */
+    public ValidationReport validate(Path directory) throws IOException {
+        Path root = directory.toAbsolutePath().normalize();
+        AtomicInteger parsedCount = new AtomicInteger();
+        List<Future<FileResult>> pending = new ArrayList<>();
+        Set<Path> seen = new HashSet<>();
+        try (Stream<Path> files = Files.walk(root)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                TextSettingSchema schema = getSchema(file);
+                if (schema != null) {
+                    seen.add(file);
+                    pending.add(executor.submit(() -> check(file, schema, parsedCount)));
+                }
+            }
+        } catch (UncheckedIOException e) {
+            for (Future<FileResult> result : pending) {
+                result.cancel(false);
+            }
+            throw e.getCause();
+        }
+
+        // Forget files that have gone, so they don't linger in memory
+        results.keySet().removeIf(file -> file.startsWith(root) && !seen.contains(file));
+
+        List<FileResult> checked = new ArrayList<>(pending.size());
+        for (Future<FileResult> result : pending) {
+            FileResult fileResult = Futures.getUnchecked(result);
+            if (fileResult != null) {
+                checked.add(fileResult);
+            }
+        }
+        checked.sort(Comparator.comparing(result -> result.file));
+
+        ImmutableList.Builder<ValidationProblem> problems = ImmutableList.builder();
+        for (FileResult result : checked) {
+            problems.addAll(result.problems);
+        }
+        return new ValidationReport(checked.size(), parsedCount.get(), problems.build());
+    }
+
+    /**
+     * Forgets every file's problems, so that every file is parsed again next time.
+     */
+    public void invalidateAll() {
+        results.clear();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    @Nullable
+    private TextSettingSchema getSchema(Path file) {
+        Path name = file.getFileName();
+        if (name == null) {
+            return null;
+        }
+        for (Map.Entry<PathMatcher, TextSettingSchema> schema : schemas) {
+            if (schema.getKey().matches(name)) {
+                return schema.getValue();
+            }
+        }
+        return null;
+    }
+
+    // Returns null for anything that isn't a file, such as a directory named like one
+    @Nullable
+    private FileResult check(Path file, TextSettingSchema schema, AtomicInteger parsedCount) {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (IOException e) {
+            return unreadable(file, schema, e);
+        }
+        if (!attributes.isRegularFile()) {
+            return null;
+        }
+        long modifiedTime = attributes.lastModifiedTime().toMillis();
+        long size = attributes.size();
+        FileResult previous = results.get(file);
+        if (previous != null && previous.modifiedTime == modifiedTime && previous.size == size
+            && previous.schema == schema) {
+            return previous;
+        }
+
+        parsedCount.incrementAndGet();
+        TextSettingParseResult parsed;
+        try {
+            parsed = TextSettingUtil.processFileLeniently(file);
+        } catch (IOException e) {
+            return unreadable(file, schema, e);
+        }
+        ImmutableList.Builder<ValidationProblem> problems = ImmutableList.builder();
+        for (TextSettingDiagnostic diagnostic : parsed.getDiagnostics()) {
+            problems.add(new ValidationProblem(file, diagnostic.getLine(), diagnostic.getColumn(),
+                diagnostic.getMessage()));
+        }
+        if (parsed.getSetting() != null) {
+            schema.check(parsed.getSetting(), (setting, problem) -> {
+                TextSettingPosition position = parsed.getPosition(setting);
+                problems.add(position == null
+                    ? new ValidationProblem(file, 0, 0, problem)
+                    : new ValidationProblem(file, position.getLine(), position.getColumn(),
+                        problem));
+            });
+        } else if (parsed.isClean()) {
+            problems.add(new ValidationProblem(file, 0, 0, "There are no settings in the file."));
+        }
+
+        FileResult result = new FileResult(file, modifiedTime, size, schema, problems.build());
+        results.put(file, result);
+        return result;
+    }
+
+    // Not remembered, so that the file's tried again next time
+    private static FileResult unreadable(Path file, TextSettingSchema schema, IOException e) {
+        return new FileResult(file, 0, 0, schema, ImmutableList.of(new ValidationProblem(file,
+            0, 0, "Couldn't be read. " + e.getClass().getSimpleName() + ": " + e.getMessage())));
+    }
+}
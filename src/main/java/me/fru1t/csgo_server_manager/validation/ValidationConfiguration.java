@@ -0,0 +1,40 @@
+package me.fru1t.csgo_server_manager.validation;
+
+import com.google.common.collect.ImmutableMap;
+import me.fru1t.csgo_server_manager.files.TextSettingSchema;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Creates the application's {@link ConfigValidator}, parsing {@code csgo.validation.parallelism}
+ * files at once, and checking every {@code gamemodes*.txt} against {@link #GAMEMODES_SCHEMA}.
+ */
+@Configuration
+public class ValidationConfiguration {
+    /**
+     * What every game mode and map group in a {@code gamemodes.txt}, or in a
+     * {@code gamemodes_server.txt} overriding it, must look like to be loaded by a server.
+     */
+    public static final TextSettingSchema GAMEMODES_SCHEMA = TextSettingSchema.builder()
+        .type("gameTypes", TextSettingSchema.ValueType.BLOCK)
+        .type("gameTypes/*/gameModes", TextSettingSchema.ValueType.BLOCK)
+        .type("gameTypes/*/gameModes/*", TextSettingSchema.ValueType.BLOCK)
+        .type("gameTypes/*/gameModes/*/maxplayers", TextSettingSchema.ValueType.INTEGER)
+        .range("gameTypes/*/gameModes/*/maxplayers", 1, 64)
+        .type("gameTypes/*/gameModes/*/exec", TextSettingSchema.ValueType.BLOCK)
+        .type("gameTypes/*/gameModes/*/mapgroupsSP", TextSettingSchema.ValueType.BLOCK)
+        .type("gameTypes/*/gameModes/*/mapgroupsMP", TextSettingSchema.ValueType.BLOCK)
+        .type("mapgroups", TextSettingSchema.ValueType.BLOCK)
+        .require("mapgroups/*/maps")
+        .type("mapgroups/*/maps", TextSettingSchema.ValueType.BLOCK)
+        .build();
+
+    @Bean(destroyMethod = "close")
+    public ConfigValidator configValidator(
+        @Value("${csgo.validation.parallelism:" + ConfigValidator.DEFAULT_PARALLELISM + "}")
+            int parallelism) {
+        return new ConfigValidator(ImmutableMap.of("gamemodes*.txt", GAMEMODES_SCHEMA),
+            parallelism);
+    }
+}
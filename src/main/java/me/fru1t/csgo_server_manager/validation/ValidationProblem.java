@@ -0,0 +1,38 @@
+package me.fru1t.csgo_server_manager.validation;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.nio.file.Path;
+
+/**
+ * Something wrong with a single config file, found by a {@link ConfigValidator}.
+ */
+@Getter
+@RequiredArgsConstructor
+public final class ValidationProblem {
+    private final Path file;
+
+    /**
+     * 1-based, or 0 for problems that aren't tied to a line, such as a file that can't be read.
+     */
+    private final int line;
+
+    /**
+     * 1-based, in characters, or 0 for problems that aren't tied to a line.
+     */
+    private final int column;
+
+    private final String message;
+
+    /**
+     * @return As in "cfg/gamemodes.txt:3:5: It's simply an invalid character.", or
+     * "cfg/gamemodes.txt: There are no settings in the file." for problems without a line.
+     */
+    @Override
+    public String toString() {
+        return line == 0
+            ? file + ": " + message
+            : file + ":" + line + ":" + column + ": " + message;
+    }
+}
@@ -0,0 +1,36 @@
+package me.fru1t.csgo_server_manager.validation;
+
+import com.google.common.collect.ImmutableList;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Everything a {@link ConfigValidator} found across a directory.
+ */
+@Getter
+@RequiredArgsConstructor
+public final class ValidationReport {
+    /**
+     * The number of files that were checked against a schema, whether or not they had to be
+     * parsed again.
+     */
+    private final int fileCount;
+
+    /**
+     * The number of files that had changed since they were last validated, so were parsed.
+     */
+    private final int parsedCount;
+
+    /**
+     * Every problem across every file, in order of file. Each file's syntax errors come first,
+     * in the order they appear, then anything wrong with its settings.
+     */
+    private final ImmutableList<ValidationProblem> problems;
+
+    /**
+     * @return Whether every file was found to be valid.
+     */
+    public boolean isClean() {
+        return problems.isEmpty();
+    }
+}
@@ -0,0 +1,44 @@
+-- Run on startup by Spring Boot, for the H2 platform. Keep in step with schema-sqlite.sql.
+
+CREATE TABLE IF NOT EXISTS servers (
+    name VARCHAR(64) PRIMARY KEY,
+    executable VARCHAR(1024) NOT NULL,
+    arguments VARCHAR(4096) NOT NULL,
+    directory VARCHAR(1024),
+    restart_delay_ms BIGINT NOT NULL,
+    max_restart_delay_ms BIGINT NOT NULL,
+    stable_after_ms BIGINT NOT NULL,
+    rcon_address VARCHAR(255),
+    rcon_password VARCHAR(255),
+    updated_at TIMESTAMP NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS setting_nodes (
+    hash BINARY(32) PRIMARY KEY,
+    content BLOB NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS setting_revisions (
+    name VARCHAR(1024) NOT NULL,
+    revision_number INT NOT NULL,
+    root_hash BINARY(32) NOT NULL,
+    committed_at TIMESTAMP NOT NULL,
+    PRIMARY KEY (name, revision_number)
+);
+
+CREATE TABLE IF NOT EXISTS match_events (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    server VARCHAR(64) NOT NULL,
+    logged_at TIMESTAMP NOT NULL,
+    event_type VARCHAR(16) NOT NULL,
+    player_name VARCHAR(128),
+    player_steam_id VARCHAR(32),
+    player_team VARCHAR(16),
+    target_name VARCHAR(128),
+    target_steam_id VARCHAR(32),
+    target_team VARCHAR(16),
+    event_value VARCHAR(1024),
+    headshot BOOLEAN NOT NULL
+);
+CREATE INDEX IF NOT EXISTS match_events_server ON match_events (server, id);
+CREATE INDEX IF NOT EXISTS match_events_kills ON match_events (server, event_type);
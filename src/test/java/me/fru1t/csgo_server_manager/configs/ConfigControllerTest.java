@@ -0,0 +1,127 @@
+package me.fru1t.csgo_server_manager.configs;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(JUnit4.class)
+public class ConfigControllerTest {
+    private static final String TEST_FILE = "// Casual\n"
+        + "\"server\"\n"
+        + "{\n"
+        + "\t\"hostname\" \"Casual 1\"   // shown in the browser\n"
+        + "\t\"maxplayers\" \"20\"\n"
+        + "}\n";
+    private static final long TIMEOUT_MS = 5000;
+
+    private Path directory;
+    private ConfigRepository repository;
+    private MockMvc mvc;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("ConfigControllerTest");
+        repository = new ConfigRepository(directory, 2, 50, 1024 * 1024);
+        mvc = MockMvcBuilders.standaloneSetup(new ConfigController(repository)).build();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        repository.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Test
+    public void read() throws Exception {
+        write("server.cfg", TEST_FILE);
+
+        // Served as it is on disk, comments and all
+        perform(get("/configs").param("file", "server.cfg"))
+            .andExpect(status().isOk())
+            .andExpect(content().string(TEST_FILE));
+    }
+
+    @Test
+    public void read_notFound() throws Exception {
+        perform(get("/configs").param("file", "missing.cfg"))
+            .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void read_invalid() throws Exception {
+        write("server.cfg", "\"server\" {");
+
+        perform(get("/configs").param("file", "server.cfg"))
+            .andExpect(status().isUnprocessableEntity());
+    }
+
+    @Test
+    public void read_outsideDirectory() throws Exception {
+        mvc.perform(get("/configs").param("file", "../server.cfg"))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void save() throws Exception {
+        write("server.cfg", TEST_FILE);
+
+        perform(put("/configs").param("file", "server.cfg").contentType(MediaType.TEXT_PLAIN)
+            .content(TEST_FILE.replace("\"20\"", "\"32\"")))
+            .andExpect(status().isNoContent());
+        assertThat(read("server.cfg")).isEqualTo(TEST_FILE.replace("\"20\"", "\"32\""));
+        perform(get("/configs").param("file", "server.cfg"))
+            .andExpect(content().string(TEST_FILE.replace("\"20\"", "\"32\"")));
+    }
+
+    @Test
+    public void save_invalid() throws Exception {
+        write("server.cfg", TEST_FILE);
+
+        mvc.perform(put("/configs").param("file", "server.cfg").contentType(MediaType.TEXT_PLAIN)
+            .content("\"server\" {"))
+            .andExpect(status().isBadRequest());
+        assertThat(read("server.cfg")).isEqualTo(TEST_FILE);
+    }
+
+    // Requests are answered asynchronously, so are dispatched again once answered
+    private ResultActions perform(RequestBuilder builder) throws Exception {
+        MvcResult result = mvc.perform(builder).andExpect(request().asyncStarted()).andReturn();
+        result.getAsyncResult(TIMEOUT_MS);
+        return mvc.perform(asyncDispatch(result));
+    }
+
+    private void write(String file, String content) throws IOException {
+        Files.write(directory.resolve(file), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String read(String file) throws IOException {
+        return new String(Files.readAllBytes(directory.resolve(file)), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,181 @@
+package me.fru1t.csgo_server_manager.configs;
+
+import me.fru1t.csgo_server_manager.files.TextSetting;
+import me.fru1t.csgo_server_manager.files.TextSettingUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+@RunWith(JUnit4.class)
+public class ConfigRepositoryTest {
+    private static final String TEST_FILE = "// Casual\n"
+        + "\"server\"\n"
+        + "{\n"
+        + "\t\"hostname\" \"Casual 1\"   // shown in the browser\n"
+        + "\t\"maxplayers\" \"20\"\n"
+        + "}\n";
+    private static final long TIMEOUT_MS = 5000;
+
+    private Path directory;
+    private ConfigRepository repository;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("ConfigRepositoryTest");
+        repository = new ConfigRepository(directory, 2, 50, 1024 * 1024);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        repository.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Test
+    public void read() throws Exception {
+        write("server.cfg", TEST_FILE);
+
+        CompletableFuture<TextSetting> first = repository.read("server.cfg");
+        CompletableFuture<TextSetting> second = repository.read("server.cfg");
+        TextSetting setting = get(first);
+        assertThat(setting.getChildren().get("hostname").getValue()).isEqualTo("Casual 1");
+        assertThat(get(second)).isSameAs(setting);
+
+        // Unchanged, so served from the cache
+        assertThat(get(repository.read("server.cfg"))).isSameAs(setting);
+    }
+
+    @Test
+    public void read_missing() throws Exception {
+        try {
+            get(repository.read("missing.cfg"));
+            fail("The file doesn't exist");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause()).isInstanceOf(NoSuchFileException.class);
+        }
+    }
+
+    @Test
+    public void readDocument() throws Exception {
+        write("server.cfg", TEST_FILE);
+        assertThat(new String(get(repository.readDocument("server.cfg")).getContent(),
+            StandardCharsets.UTF_8)).isEqualTo(TEST_FILE);
+
+        // Saves not yet written are applied as they will be
+        repository.close();
+        repository = new ConfigRepository(directory, 2, 60 * 1000, 1024 * 1024);
+        repository.save("server.cfg", setting("32"));
+        assertThat(new String(get(repository.readDocument("server.cfg")).getContent(),
+            StandardCharsets.UTF_8))
+            .isEqualTo(TEST_FILE.replace("\"maxplayers\" \"20\"", "\"maxplayers\" \"32\""));
+        assertThat(read("server.cfg")).isEqualTo(TEST_FILE);
+    }
+
+    @Test
+    public void save() throws Exception {
+        repository.close();
+        repository = new ConfigRepository(directory, 2, 60 * 1000, 1024 * 1024);
+        CompletableFuture<Void> first = repository.save("servers/casual.cfg", setting("1"));
+        CompletableFuture<Void> second = repository.save("servers/casual.cfg", setting("2"));
+
+        // Not written yet, but read back as saved
+        assertThat(Files.exists(directory.resolve("servers/casual.cfg"))).isFalse();
+        assertThat(get(repository.read("servers/casual.cfg")).getChildren().get("maxplayers")
+            .getValue()).isEqualTo("2");
+
+        // Closing writes both saves at once
+        repository.close();
+        assertThat(first.isDone()).isTrue();
+        assertThat(second.isDone()).isTrue();
+        assertThat(read("servers/casual.cfg")).contains("\"maxplayers\" \"2\"");
+    }
+
+    @Test
+    public void save_keepsFormatting() throws Exception {
+        write("server.cfg", TEST_FILE);
+        get(repository.save("server.cfg", setting("32")));
+
+        assertThat(read("server.cfg"))
+            .isEqualTo(TEST_FILE.replace("\"maxplayers\" \"20\"", "\"maxplayers\" \"32\""));
+        assertThat(get(repository.read("server.cfg")).getChildren().get("maxplayers").getValue())
+            .isEqualTo("32");
+    }
+
+    @Test
+    public void save_successive() throws Exception {
+        get(repository.save("server.cfg", setting("1")));
+        CompletableFuture<Void> first = repository.save("server.cfg", setting("2"));
+        CompletableFuture<Void> second = repository.save("server.cfg", setting("3"));
+        get(first);
+        get(second);
+
+        assertThat(read("server.cfg")).contains("\"maxplayers\" \"3\"");
+        assertThat(get(repository.read("server.cfg")).getChildren().get("maxplayers").getValue())
+            .isEqualTo("3");
+    }
+
+    @Test
+    public void save_tellsListener() throws Exception {
+        repository.close();
+        List<String> written = new ArrayList<>();
+        repository = new ConfigRepository(directory, 2, 50, 1024 * 1024,
+            (file, setting) -> written.add(directory.relativize(file) + " "
+                + setting.getChildren().get("maxplayers").getValue()));
+        get(repository.save("server.cfg", setting("1")));
+        get(repository.save("server.cfg", setting("2")));
+
+        assertThat(written).containsExactly("server.cfg 1", "server.cfg 2").inOrder();
+    }
+
+    @Test
+    public void resolve_outsideDirectory() throws Exception {
+        for (String file : new String[] {"../server.cfg", "a/../../server.cfg", "", "."}) {
+            try {
+                repository.read(file);
+                fail("Outside the directory: " + file);
+            } catch (IllegalArgumentException e) {
+                // Expected behavior
+            }
+        }
+    }
+
+    private static TextSetting setting(String maxPlayers) throws Exception {
+        return TextSettingUtil.processFile(new Scanner(TEST_FILE.replace("\"20\"",
+            "\"" + maxPlayers + "\"")));
+    }
+
+    private static <T> T get(CompletableFuture<T> future) throws Exception {
+        return future.get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private void write(String file, String content) throws IOException {
+        Files.write(directory.resolve(file), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String read(String file) throws IOException {
+        return new String(Files.readAllBytes(directory.resolve(file)), StandardCharsets.UTF_8);
+    }
+}
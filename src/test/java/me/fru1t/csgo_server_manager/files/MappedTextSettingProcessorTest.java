@@ -0,0 +1,93 @@
+package me.fru1t.csgo_server_manager.files;
+
+import me.fru1t.csgo_server_manager.files.TextSettingUtil.TokenType;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(JUnit4.class)
+public class MappedTextSettingProcessorTest {
+    @Test
+    public void nextToken() {
+        MappedTextSettingProcessor processor =
+            makeProcessor("\"key\" {\r\n\t\"a\" \"\\\"b\\\"\" // note\n}");
+
+        assertThat(processor.nextToken()).isEqualTo(TokenType.STRING);
+        assertThat(processor.getTokenContent()).isEqualTo("key");
+        assertThat(processor.getTokenStart()).isEqualTo(1);
+        assertThat(processor.getTokenLength()).isEqualTo(3);
+        processor.markToken();
+
+        assertThat(processor.nextToken()).isEqualTo(TokenType.BEGIN_CHILD);
+        assertThat(processor.nextToken()).isEqualTo(TokenType.STRING);
+        assertThat(processor.getCurrentLineNumber()).isEqualTo(2);
+        assertThat(processor.nextToken()).isEqualTo(TokenType.STRING);
+        assertThat(processor.getTokenContent()).isEqualTo("\\\"b\\\"");
+
+        assertThat(processor.nextToken()).isEqualTo(TokenType.COMMENT);
+        assertThat(processor.getTokenContent()).isEqualTo(" note");
+
+        assertThat(processor.nextToken()).isEqualTo(TokenType.END_CHILD);
+        assertThat(processor.getCurrentLineNumber()).isEqualTo(3);
+        assertThat(processor.nextToken()).isEqualTo(TokenType.END_OF_FILE);
+
+        // Marked tokens survive advancing
+        assertThat(processor.getMarkedTokenContent()).isEqualTo("key");
+    }
+
+    @Test
+    public void nextToken_byteOrderMark() {
+        byte[] content = "\"key\"".getBytes(StandardCharsets.UTF_8);
+        byte[] withBom = new byte[content.length + 3];
+        withBom[0] = (byte) 0xEF;
+        withBom[1] = (byte) 0xBB;
+        withBom[2] = (byte) 0xBF;
+        System.arraycopy(content, 0, withBom, 3, content.length);
+
+        MappedTextSettingProcessor processor =
+            new MappedTextSettingProcessor(ByteBuffer.wrap(withBom));
+        assertThat(processor.nextToken()).isEqualTo(TokenType.STRING);
+        assertThat(processor.getTokenContent()).isEqualTo("key");
+    }
+
+    @Test
+    public void nextToken_directBuffer() {
+        byte[] content = "\"\u043a\u043b\u044e\u0447\"".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(content.length);
+        buffer.put(content).flip();
+
+        MappedTextSettingProcessor processor = new MappedTextSettingProcessor(buffer);
+        assertThat(processor.nextToken()).isEqualTo(TokenType.STRING);
+        assertThat(processor.getTokenContent()).isEqualTo("\u043a\u043b\u044e\u0447");
+    }
+
+    @Test
+    public void nextToken_errors() {
+        // Strings can't span lines
+        MappedTextSettingProcessor processor = makeProcessor("\"key\n\"");
+        assertThat(processor.nextToken()).isEqualTo(TokenType.ERROR);
+        assertThat(processor.getTokenContent()).contains("There was no ending to the string.");
+
+        // Single slash
+        processor = makeProcessor("\"key\" /x");
+        assertThat(processor.nextToken()).isEqualTo(TokenType.STRING);
+        assertThat(processor.nextToken()).isEqualTo(TokenType.ERROR);
+        assertThat(processor.getTokenContent()).contains("Invalid character: 'x'");
+
+        // Invalid character
+        processor = makeProcessor("\n  key");
+        assertThat(processor.nextToken()).isEqualTo(TokenType.ERROR);
+        assertThat(processor.getCurrentLineNumber()).isEqualTo(2);
+        assertThat(processor.getTokenContent()).contains("Offset: 2");
+    }
+
+    private static MappedTextSettingProcessor makeProcessor(String content) {
+        return new MappedTextSettingProcessor(
+            ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8)));
+    }
+}
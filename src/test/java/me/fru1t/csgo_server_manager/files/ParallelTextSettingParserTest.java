@@ -0,0 +1,160 @@
+package me.fru1t.csgo_server_manager.files;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ForkJoinPool;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+@RunWith(JUnit4.class)
+public class ParallelTextSettingParserTest {
+    private ForkJoinPool pool;
+
+    @Before
+    public void setUp() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @After
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    public void parse() throws Exception {
+        String file = largeFile("");
+        assertSplitAndSameAsSequential(file);
+
+        // Segments don't change which of a duplicated key wins, nor the order of children
+        TextSetting parsed = parse(file);
+        assertThat(parsed.getKey()).isEqualTo("root");
+        assertThat(parsed.getChildren().get("duplicate").getValue()).isEqualTo("last");
+    }
+
+    @Test
+    public void parse_largeChildren() throws Exception {
+        // A single large child holding everything, nested past the deepest block that's split
+        for (int depth = 1; depth <= ParallelTextSettingParser.MAX_SPLIT_DEPTH + 1; ++depth) {
+            assertSplitAndSameAsSequential(nestedFile("", depth));
+        }
+        assertSameErrorAsSequential(nestedFile("  \"no value\" }\n", 2));
+        assertSameErrorAsSequential(nestedFile("  \"unterminated\n", 3));
+    }
+
+    @Test
+    public void parse_unusualShapes() throws Exception {
+        // Byte order mark and comments around the root
+        assertSplitAndSameAsSequential("\uFEFF// header\n" + largeFile("") + "// trailer\n");
+
+        // Settings after the root block are added to the root
+        assertSameAsSequential(largeFile("") + "\"after\" \"root\"\n");
+
+        // Root with a value rather than a block
+        assertSameAsSequential("\"root\" \"value\"\n" + largeFile(""));
+
+        // Small files
+        assertSameAsSequential("\"root\" { \"a\" \"b\" }");
+        assertSplitAndSameAsSequential("\"root\" { \"a\" \"b\" }");
+        assertSplitAndSameAsSequential("\"root\" { }");
+        assertSameAsSequential("");
+    }
+
+    @Test
+    public void parse_errors() throws Exception {
+        assertSameErrorAsSequential(largeFile("  \"unterminated\n"));
+        assertSameErrorAsSequential(largeFile("  \"no value\" }\n"));
+        assertSameErrorAsSequential(largeFile("  \"stray\" \"brace\" } }\n"));
+        assertSameErrorAsSequential(largeFile("  / not a comment\n"));
+        assertSameErrorAsSequential(largeFile("  \"unclosed\" {\n"));
+        assertSameErrorAsSequential(largeFile("") + "}");
+    }
+
+    private TextSetting parse(String file) throws InvalidFileFormatException {
+        ByteBuffer buffer = ByteBuffer.wrap(file.getBytes(StandardCharsets.UTF_8));
+        TextSetting result = TextSettingUtil.processFileInParallel(buffer, pool);
+        assertThat(buffer.position()).isEqualTo(0);
+        return result;
+    }
+
+    private void assertSameAsSequential(String file) throws Exception {
+        TextSetting expected =
+            TextSettingUtil.processFile(ByteBuffer.wrap(file.getBytes(StandardCharsets.UTF_8)));
+        TextSetting actual = parse(file);
+        if (expected == null) {
+            assertThat(actual).isNull();
+            return;
+        }
+        assertThat(actual.toFileString()).isEqualTo(expected.toFileString());
+    }
+
+    private void assertSplitAndSameAsSequential(String file) throws Exception {
+        ByteBuffer buffer = ByteBuffer.wrap(file.getBytes(StandardCharsets.UTF_8));
+        TextSetting actual = ParallelTextSettingParser.tryParse(buffer, pool);
+        assertThat(actual).isNotNull();
+        assertThat(actual.toFileString())
+            .isEqualTo(TextSettingUtil.processFile(buffer).toFileString());
+        assertSameAsSequential(file);
+    }
+
+    private void assertSameErrorAsSequential(String file) {
+        String expected = null;
+        try {
+            TextSettingUtil.processFile(ByteBuffer.wrap(file.getBytes(StandardCharsets.UTF_8)));
+            fail("The file should have been invalid.");
+        } catch (InvalidFileFormatException e) {
+            expected = e.getMessage();
+        }
+        try {
+            parse(file);
+            fail("The file should have been invalid.");
+        } catch (InvalidFileFormatException e) {
+            assertThat(e.getMessage()).isEqualTo(expected);
+        }
+    }
+
+    /**
+     * Generates a root block holding small settings on either side of a large block, itself nested
+     * the given number of blocks deep.
+     */
+    private static String nestedFile(String insertion, int depth) {
+        String file = largeFile(insertion);
+        for (int i = 0; i < depth; ++i) {
+            file = "\"root\" {\n"
+                + "  \"before\" { \"a\" \"b\" }\n"
+                + "  \"large " + i + "\" // comment\n"
+                + file.substring(file.indexOf('{'))
+                + "  \"after\" \"c\"\n"
+                + "}\n";
+        }
+        return file;
+    }
+
+    /**
+     * Generates a root block large enough to be split, with the given text inserted part way
+     * through it.
+     */
+    private static String largeFile(String insertion) {
+        StringBuilder file = new StringBuilder("\"root\" {\n");
+        for (int i = 0; file.length() < ParallelTextSettingParser.MIN_PARALLEL_BYTES * 2; ++i) {
+            if (i == 1000) {
+                file.append(insertion);
+            }
+            file.append("  \"duplicate\" \"").append(i).append("\"\n");
+            file.append("  // block ").append(i).append(" { \"not\" \"parsed\" }\n");
+            file.append("  \"block ").append(i).append("\" {\n")
+                .append("    \"name\" \"escaped \\\" brace }\"\n")
+                .append("    \"nested\" { \"value\" \"").append(i).append("\" }\n")
+                .append("  }\n");
+            file.append("  \"value ").append(i).append("\" \"").append(i).append("\"\n");
+        }
+        file.append("  \"duplicate\" \"last\"\n");
+        return file.append("}\n").toString();
+    }
+}
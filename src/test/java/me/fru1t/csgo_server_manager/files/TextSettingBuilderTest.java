@@ -46,6 +46,39 @@ public class TextSettingBuilderTest {
         test.build();
     }
 
+    @Test
+    public void build_children() throws Exception {
+        // Small blocks keep the builder's iteration order in compact form
+        TextSetting.TextSettingBuilder small =
+            TextSetting.builder().key(TEST_KEY).startChildBlock();
+        for (int i = 0; i < 3; ++i) {
+            small.addChild(TextSetting.builder().key("child" + i).value(TEST_VALUE).build());
+        }
+        TextSetting smallResult = small.build();
+        assertEquals(small.children().keySet().toString(),
+            smallResult.getChildren().keySet().toString());
+        assertEquals(TEST_VALUE, smallResult.getChildren().get("child2").getValue());
+        assertNull(smallResult.getChildren().get("child3"));
+
+        // Large blocks too
+        TextSetting.TextSettingBuilder large =
+            TextSetting.builder().key(TEST_KEY).startChildBlock();
+        for (int i = 0; i < 100; ++i) {
+            large.addChild(TextSetting.builder().key("child" + i).value(TEST_VALUE).build());
+        }
+        TextSetting largeResult = large.build();
+        assertEquals(100, largeResult.getChildren().size());
+        assertEquals(TEST_VALUE, largeResult.getChildren().get("child99").getValue());
+
+        // Either way, children can't be modified
+        try {
+            smallResult.getChildren().remove("child0");
+            fail("Children should be immutable");
+        } catch (UnsupportedOperationException e) {
+            // Expected behavior
+        }
+    }
+
     private static TextSetting.TextSettingBuilder makeBuilder(@Nullable String key,
         @Nullable String value, @Nullable TextSetting child) {
         TextSetting.TextSettingBuilder result = TextSetting.builder();
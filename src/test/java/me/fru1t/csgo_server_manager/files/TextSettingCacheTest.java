@@ -0,0 +1,115 @@
+package me.fru1t.csgo_server_manager.files;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.stream.Stream;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(JUnit4.class)
+public class TextSettingCacheTest {
+    private static final String TEST_FILE = "\"test\" { \"key\" \"value\" }";
+    private static final String OTHER_TEST_FILE = "\"test\" { \"key\" \"other\" }";
+
+    private Path directory;
+    private TextSettingCache cache;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("TextSettingCacheTest");
+        cache = new TextSettingCache(1024);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        cache.close();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    public void get() throws Exception {
+        Path file = write("a.txt", TEST_FILE);
+
+        TextSetting first = cache.get(file);
+        assertThat(first.getChildren().get("key").getValue()).isEqualTo("value");
+        assertThat(cache.get(file)).isSameAs(first);
+        assertThat(cache.getMissCount()).isEqualTo(1L);
+        assertThat(cache.getHitCount()).isEqualTo(1L);
+
+        // Changed contents
+        write("a.txt", OTHER_TEST_FILE);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(1000));
+        assertThat(cache.get(file).getChildren().get("key").getValue()).isEqualTo("other");
+        assertThat(cache.getMissCount()).isEqualTo(2L);
+    }
+
+    @Test
+    public void get_sameContent() throws Exception {
+        Path file = write("a.txt", TEST_FILE);
+        TextSetting first = cache.get(file);
+
+        // Touched, but unchanged
+        Files.setLastModifiedTime(file, FileTime.fromMillis(1000));
+        assertThat(cache.get(file)).isSameAs(first);
+
+        // A copy of another cached file
+        Path copy = write("b.txt", TEST_FILE);
+        assertThat(cache.get(copy)).isSameAs(first);
+
+        assertThat(cache.getMissCount()).isEqualTo(1L);
+        assertThat(cache.getHitCount()).isEqualTo(2L);
+    }
+
+    @Test
+    public void get_evictsLeastRecentlyUsed() throws Exception {
+        cache = new TextSettingCache(TEST_FILE.length() * 2);
+        Path a = write("a.txt", TEST_FILE);
+        Path b = write("b.txt", OTHER_TEST_FILE);
+        Path c = write("c.txt", "\"test\" { \"key\" \"third\" }");
+
+        cache.get(a);
+        cache.get(b);
+        cache.get(a);
+        cache.get(c);
+        assertThat(cache.getEvictionCount()).isEqualTo(1L);
+        assertThat(cache.getCachedBytes()).isAtMost((long) TEST_FILE.length() * 2);
+
+        // b was least recently used
+        cache.get(a);
+        assertThat(cache.getMissCount()).isEqualTo(3L);
+        cache.get(b);
+        assertThat(cache.getMissCount()).isEqualTo(4L);
+    }
+
+    @Test
+    public void watch() throws Exception {
+        Path file = write("a.txt", TEST_FILE);
+        cache.watch(directory);
+        cache.get(file);
+        assertThat(cache.getCachedBytes()).isEqualTo((long) TEST_FILE.length());
+
+        Files.delete(file);
+        for (int i = 0; i < 100 && cache.getCachedBytes() != 0; ++i) {
+            Thread.sleep(50);
+        }
+        assertThat(cache.getCachedBytes()).isEqualTo(0L);
+    }
+
+    private Path write(String name, String content) throws IOException {
+        return Files.write(directory.resolve(name), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
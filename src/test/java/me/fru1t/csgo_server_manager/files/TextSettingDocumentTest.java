@@ -0,0 +1,292 @@
+package me.fru1t.csgo_server_manager.files;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import javax.annotation.Nullable;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+@RunWith(JUnit4.class)
+public class TextSettingDocumentTest {
+    private static final String TEST_FILE = "// Game modes\n"
+        + "\"GameModes.txt\"\n"
+        + "{\n"
+        + "\t\"gameTypes\" {\n"
+        + "\t\t\"classic\" {\n"
+        + "\t\t\t\"value\" \"0\"   // the default\n"
+        + "\t\t\t\"maxplayers\" \"20\"\n"
+        + "\t\t}\n"
+        + "\t\t\"gungame\" { \"value\" \"1\" }\n"
+        + "\t}\n"
+        + "\t\"maps\" {\n"
+        + "\t\t\"de_dust2\" \"\"\n"
+        + "\t}\n"
+        + "}\n";
+
+    @Test
+    public void parse() throws Exception {
+        TextSettingDocument document = TextSettingDocument.parse(bytes(TEST_FILE));
+        assertSameTree(document.getRoot(), parseFully(TEST_FILE));
+        assertThat(new String(document.getContent(), StandardCharsets.UTF_8)).isEqualTo(TEST_FILE);
+    }
+
+    @Test
+    public void setValue() throws Exception {
+        TextSettingDocument document = TextSettingDocument.parse(bytes(TEST_FILE));
+        document.setValue(ImmutableList.of("gameTypes", "classic", "maxplayers"), "32");
+
+        String expected = TEST_FILE.replace("\"maxplayers\" \"20\"", "\"maxplayers\" \"32\"");
+        assertThat(new String(document.getContent(), StandardCharsets.UTF_8)).isEqualTo(expected);
+        assertSameTree(document.getRoot(), parseFully(expected));
+
+        try {
+            document.setValue(ImmutableList.of("gameTypes", "classic"), "32");
+            fail("Blocks don't have values");
+        } catch (IllegalArgumentException e) {
+            // Expected behavior
+        }
+    }
+
+    @Test
+    public void put() throws Exception {
+        TextSettingDocument document = TextSettingDocument.parse(bytes(TEST_FILE));
+
+        // Add to a multi-line block
+        document.put(ImmutableList.of("maps"),
+            TextSetting.builder().key("de_inferno").value("").build());
+        String expected = TEST_FILE.replace("\t\t\"de_dust2\" \"\"\n",
+            "\t\t\"de_dust2\" \"\"\n\t\t\"de_inferno\" \"\"\n");
+        assertThat(new String(document.getContent(), StandardCharsets.UTF_8)).isEqualTo(expected);
+
+        // Replace a block that's on a single line
+        document.put(ImmutableList.of("gameTypes"),
+            TextSetting.builder().key("gungame").startChildBlock()
+                .addChild(TextSetting.builder().key("value").value("2").build())
+                .build());
+        expected = expected.replace("\"gungame\" { \"value\" \"1\" }",
+            "\"gungame\" {\n\t\t" + TextSetting.INDENTATION_PATTERN + "\"value\" \"2\"\n\t\t}");
+        assertThat(new String(document.getContent(), StandardCharsets.UTF_8)).isEqualTo(expected);
+        assertSameTree(document.getRoot(), parseFully(expected));
+    }
+
+    @Test
+    public void applyEdit() throws Exception {
+        String[] insertions =
+            {"\"x\" \"y\"", "\"b\" { \"c\" \"d\" }", "// note\n", "\n", " ", "//"};
+        for (String insertion : insertions) {
+            for (int offset = 0; offset <= TEST_FILE.length(); ++offset) {
+                String edited = TEST_FILE.substring(0, offset) + insertion
+                    + TEST_FILE.substring(offset);
+                assertEditMatchesFullParse(offset, 0, insertion, edited);
+            }
+        }
+
+        // Deletions of every length at every offset
+        for (int length = 1; length < 12; ++length) {
+            for (int offset = 0; offset + length <= TEST_FILE.length(); ++offset) {
+                String edited = TEST_FILE.substring(0, offset)
+                    + TEST_FILE.substring(offset + length);
+                assertEditMatchesFullParse(offset, length, "", edited);
+            }
+        }
+    }
+
+    @Test
+    public void applyEdit_keepsUntouchedBytes() throws Exception {
+        TextSettingDocument document = TextSettingDocument.parse(bytes(TEST_FILE));
+        int offset = TEST_FILE.indexOf("\"0\"") + 1;
+        document.applyEdit(offset, 1, "7");
+        document.applyEdit(offset, 1, "70");
+        document.applyEdit(offset, 2, "0");
+        assertThat(new String(document.getContent(), StandardCharsets.UTF_8)).isEqualTo(TEST_FILE);
+    }
+
+    @Test
+    public void remove() throws Exception {
+        TextSettingDocument document = TextSettingDocument.parse(bytes(TEST_FILE));
+
+        // Along with its line, comment and all
+        assertThat(document.remove(ImmutableList.of("gameTypes", "classic", "value"))).isTrue();
+        String expected = TEST_FILE.replace("\t\t\t\"value\" \"0\"   // the default\n", "");
+        assertThat(new String(document.getContent(), StandardCharsets.UTF_8)).isEqualTo(expected);
+
+        // Sharing a line with its block
+        assertThat(document.remove(ImmutableList.of("gameTypes", "gungame", "value"))).isTrue();
+        expected = expected.replace("{ \"value\" \"1\" }", "{  }");
+        assertThat(new String(document.getContent(), StandardCharsets.UTF_8)).isEqualTo(expected);
+        assertSameTree(document.getRoot(), parseFully(expected));
+
+        assertThat(document.remove(ImmutableList.of("gameTypes", "missing"))).isFalse();
+        assertThat(new String(document.getContent(), StandardCharsets.UTF_8)).isEqualTo(expected);
+    }
+
+    @Test
+    public void remove_repeatedKey() throws Exception {
+        String file = "\"root\" {\n  \"a\" \"1\"\n  \"b\" \"2\"\n  \"a\" \"3\"\n}\n";
+        TextSettingDocument document = TextSettingDocument.parse(bytes(file));
+        document.remove(ImmutableList.of("a"));
+        assertThat(new String(document.getContent(), StandardCharsets.UTF_8))
+            .isEqualTo("\"root\" {\n  \"b\" \"2\"\n}\n");
+    }
+
+    @Test
+    public void update_unchanged() throws Exception {
+        // Comments, repeated keys and odd spacing all survive
+        String file = TEST_FILE.replace("\"maxplayers\" \"20\"",
+            "\"maxplayers\"   \"10\"\n\t\t\t\"maxplayers\" \"20\" // again");
+        TextSettingDocument document = TextSettingDocument.parse(bytes(file));
+        document.update(parseFully(file));
+        assertThat(new String(document.getContent(), StandardCharsets.UTF_8)).isEqualTo(file);
+        document.update(document.getRoot());
+        assertThat(new String(document.getContent(), StandardCharsets.UTF_8)).isEqualTo(file);
+    }
+
+    @Test
+    public void update() throws Exception {
+        TextSettingDocument document = TextSettingDocument.parse(bytes(TEST_FILE));
+        TextSetting edited = document.getRoot()
+            .with("gameTypes/classic/maxplayers", "32")
+            .with("gameTypes/casual/value", "3")
+            .without("gameTypes/gungame")
+            .with("maps/de_inferno", "");
+        document.update(edited);
+
+        String expected = "// Game modes\n"
+            + "\"GameModes.txt\"\n"
+            + "{\n"
+            + "\t\"gameTypes\" {\n"
+            + "\t\t\"classic\" {\n"
+            + "\t\t\t\"value\" \"0\"   // the default\n"
+            + "\t\t\t\"maxplayers\" \"32\"\n"
+            + "\t\t}\n"
+            + "\t\t\"casual\" {\n"
+            + "\t\t" + TextSetting.INDENTATION_PATTERN + "\"value\" \"3\"\n"
+            + "\t\t}\n"
+            + "\t}\n"
+            + "\t\"maps\" {\n"
+            + "\t\t\"de_dust2\" \"\"\n"
+            + "\t\t\"de_inferno\" \"\"\n"
+            + "\t}\n"
+            + "}\n";
+        assertThat(new String(document.getContent(), StandardCharsets.UTF_8)).isEqualTo(expected);
+        assertSameTree(document.getRoot(), edited);
+    }
+
+    @Test
+    public void update_replacesRoot() throws Exception {
+        TextSettingDocument document = TextSettingDocument.parse(bytes(TEST_FILE));
+        document.update(parseFully("\"Other\" { \"a\" \"1\" }"));
+        assertThat(new String(document.getContent(), StandardCharsets.UTF_8))
+            .isEqualTo("// Game modes\n\"Other\" {\n"
+                + TextSetting.INDENTATION_PATTERN + "\"a\" \"1\"\n}\n");
+
+        document = TextSettingDocument.parse(bytes("// Nothing yet\n"));
+        document.update(parseFully("\"Other\" { \"a\" \"1\" }"));
+        assertThat(new String(document.getContent(), StandardCharsets.UTF_8))
+            .isEqualTo("// Nothing yet\n\"Other\" {\n"
+                + TextSetting.INDENTATION_PATTERN + "\"a\" \"1\"\n}\n");
+    }
+
+    @Test
+    public void update_invalid() throws Exception {
+        TextSettingDocument document = TextSettingDocument.parse(bytes(TEST_FILE));
+        TextSetting invalid = new TextSetting();
+        invalid.key = "broken";
+        TextSetting edited = document.getRoot().with("maps/de_inferno", "");
+        try {
+            document.update(TextSetting.builder().key("GameModes.txt").startChildBlock()
+                .addChild(edited.getChildren().get("gameTypes"))
+                .addChild(edited.getChildren().get("maps"))
+                .addChild(invalid)
+                .build());
+            fail("Updating with an invalid setting should have errored");
+        } catch (InvalidTextSettingException e) {
+            // Expected behavior
+        }
+
+        // Left as it was, even though the maps were updated before the error
+        assertThat(new String(document.getContent(), StandardCharsets.UTF_8)).isEqualTo(TEST_FILE);
+        assertSameTree(document.getRoot(), parseFully(TEST_FILE));
+        document.setValue(ImmutableList.of("gameTypes", "classic", "maxplayers"), "32");
+        assertSameTree(document.getRoot(),
+            parseFully(TEST_FILE.replace("\"maxplayers\" \"20\"", "\"maxplayers\" \"32\"")));
+    }
+
+    @Test
+    public void save() throws Exception {
+        Path file = Files.createTempFile("gamemodes", ".txt");
+        try {
+            Files.write(file, bytes(TEST_FILE));
+            TextSettingDocument document = TextSettingDocument.load(file);
+            document.update(document.getRoot().with("maps/de_dust2", "1"));
+            document.save(file);
+            assertThat(new String(Files.readAllBytes(file), StandardCharsets.UTF_8))
+                .isEqualTo(TEST_FILE.replace("\"de_dust2\" \"\"", "\"de_dust2\" \"1\""));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static void assertEditMatchesFullParse(int offset, int length, String replacement,
+        String edited) throws Exception {
+        TextSettingDocument document = TextSettingDocument.parse(bytes(TEST_FILE));
+        TextSetting expected;
+        try {
+            expected = parseFully(edited);
+        } catch (InvalidFileFormatException e) {
+            try {
+                document.applyEdit(offset, length, replacement);
+                fail("Edit should have been rejected: " + edited);
+            } catch (InvalidFileFormatException e2) {
+                // Expected behavior, and the document is unchanged
+                assertThat(new String(document.getContent(), StandardCharsets.UTF_8))
+                    .isEqualTo(TEST_FILE);
+            }
+            return;
+        }
+
+        document.applyEdit(offset, length, replacement);
+        assertThat(new String(document.getContent(), StandardCharsets.UTF_8)).isEqualTo(edited);
+        assertSameTree(document.getRoot(), expected);
+
+        // Positions must still line up for a follow-up edit
+        document.applyEdit(0, 0, "\n");
+        assertSameTree(document.getRoot(), parseFully("\n" + edited));
+    }
+
+    @Nullable
+    private static TextSetting parseFully(String file) throws InvalidFileFormatException {
+        return TextSettingUtil.processFile(ByteBuffer.wrap(bytes(file)));
+    }
+
+    private static void assertSameTree(@Nullable TextSetting actual,
+        @Nullable TextSetting expected) {
+        if (expected == null) {
+            assertThat(actual).isNull();
+            return;
+        }
+        assertThat(actual.getKey()).isEqualTo(expected.getKey());
+        assertThat(actual.getValue()).isEqualTo(expected.getValue());
+        if (expected.getChildren() == null) {
+            assertThat(actual.getChildren()).isNull();
+            return;
+        }
+        assertThat(actual.getChildren().keySet()).isEqualTo(expected.getChildren().keySet());
+        for (Map.Entry<String, TextSetting> child : expected.getChildren().entrySet()) {
+            assertSameTree(actual.getChildren().get(child.getKey()), child.getValue());
+        }
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,63 @@
+package me.fru1t.csgo_server_manager.files;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Scanner;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(JUnit4.class)
+public class TextSettingIndexTest {
+    private static final String TEST_FILE = "\"root\" {\n"
+        + "  \"a\" {\n"
+        + "    \"b\" \"1\"\n"
+        + "    \"c\" { \"d\" \"2\" }\n"
+        + "  }\n"
+        + "  \"e\" { \"d\" \"3\" }\n"
+        + "  \"workshop/1/de_x\" \"4\"\n"
+        + "}";
+
+    @Test
+    public void get() throws InvalidFileFormatException {
+        TextSetting root = TextSettingUtil.processFile(new Scanner(TEST_FILE));
+        TextSettingIndex index = TextSettingIndex.of(root);
+
+        assertThat(index.getRoot()).isSameAs(root);
+        assertThat(index.size()).isEqualTo(7);
+        assertThat(index.get("a/b").getValue()).isEqualTo("1");
+        assertThat(index.get("a/c/d").getValue()).isEqualTo("2");
+        assertThat(index.get("a/c")).isSameAs(root.getChildren().get("a").getChildren().get("c"));
+        assertThat(index.get("workshop\\/1\\/de_x").getValue()).isEqualTo("4");
+        assertThat(index.get("missing")).isNull();
+        assertThat(index.get("*/d")).isNull();
+    }
+
+    @Test
+    public void get_query() throws InvalidFileFormatException {
+        TextSetting root = TextSettingUtil.processFile(new Scanner(TEST_FILE));
+        TextSettingIndex index = TextSettingIndex.of(root);
+
+        TextSettingQuery exact = TextSettingQuery.compile("e/d");
+        assertThat(index.get(exact)).isSameAs(exact.first(root));
+        assertThat(index.getAll(exact)).containsExactly(exact.first(root));
+        assertThat(index.getAll(TextSettingQuery.compile("e/missing"))).isEmpty();
+
+        TextSettingQuery wildcard = TextSettingQuery.compile("*/d");
+        assertThat(index.get(wildcard).getValue()).isEqualTo("3");
+        assertThat(index.getAll(wildcard)).containsExactlyElementsIn(wildcard.all(root));
+
+        // Every indexed path finds the same setting as its query
+        for (String path : new String[] {"a", "a/b", "a/c", "a/c/d", "e", "e/d"}) {
+            assertThat(index.get(path)).isSameAs(TextSettingQuery.compile(path).first(root));
+        }
+    }
+
+    @Test
+    public void of_valueRoot() throws InvalidTextSettingException {
+        TextSettingIndex index =
+            TextSettingIndex.of(TextSetting.builder().key("key").value("value").build());
+        assertThat(index.size()).isEqualTo(0);
+    }
+}
@@ -0,0 +1,69 @@
+package me.fru1t.csgo_server_manager.files;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Scanner;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+@RunWith(JUnit4.class)
+public class TextSettingPatchTest {
+    private static final String TARGET = "\"root\" {\n"
+        + "  \"a\" {\n"
+        + "    \"b\" \"1\"\n"
+        + "    \"c\" { \"d\" \"2\" }\n"
+        + "  }\n"
+        + "  \"e\" { \"f\" \"3\" }\n"
+        + "  \"g\" \"4\"\n"
+        + "}";
+
+    @Test
+    public void apply() throws Exception {
+        TextSetting target = parse(TARGET);
+        TextSetting patched = TextSettingPatch.apply(target, parse("\"root\" {\n"
+            + "  \"a\" { \"c\" { \"d\" \"5\" } }\n"
+            + "  \"g\" { \"h\" \"6\" }\n"
+            + "  \"i\" \"7\"\n"
+            + "}"));
+
+        assertThat(patched.getChildren().keySet()).containsExactly("a", "e", "g", "i").inOrder();
+        assertThat(patched.getChildren().get("a").getChildren().get("b").getValue())
+            .isEqualTo("1");
+        assertThat(patched.getChildren().get("a").getChildren().get("c").getChildren().get("d")
+            .getValue()).isEqualTo("5");
+        assertThat(patched.getChildren().get("g").getChildren().get("h").getValue())
+            .isEqualTo("6");
+        assertThat(patched.getChildren().get("i").getValue()).isEqualTo("7");
+
+        // Untouched settings are shared, and the target's left as it was
+        assertThat(patched.getChildren().get("e")).isSameAs(target.getChildren().get("e"));
+        assertThat(patched.getChildren().get("a").getChildren().get("b"))
+            .isSameAs(target.getChildren().get("a").getChildren().get("b"));
+        assertThat(target.toFileString()).isEqualTo(parse(TARGET).toFileString());
+    }
+
+    @Test
+    public void apply_unchanged() throws Exception {
+        TextSetting target = parse(TARGET);
+        assertThat(TextSettingPatch.apply(target, parse("\"root\" { \"a\" { \"b\" \"1\" } }")))
+            .isSameAs(target);
+        assertThat(TextSettingPatch.apply(target, parse("\"root\" { }"))).isSameAs(target);
+    }
+
+    @Test
+    public void apply_differentKeys() throws Exception {
+        try {
+            TextSettingPatch.apply(parse(TARGET), parse("\"other\" { \"g\" \"5\" }"));
+            fail("Patching with a different key should have errored");
+        } catch (InvalidTextSettingException e) {
+            // Expected behavior
+        }
+    }
+
+    private static TextSetting parse(String file) throws InvalidFileFormatException {
+        return TextSettingUtil.processFile(new Scanner(file));
+    }
+}
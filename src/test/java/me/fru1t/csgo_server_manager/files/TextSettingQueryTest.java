@@ -0,0 +1,128 @@
+package me.fru1t.csgo_server_manager.files;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+@RunWith(JUnit4.class)
+public class TextSettingQueryTest {
+    private static final String TEST_FILE = "\"GameModes.txt\" {\n"
+        + "  \"gameTypes\" {\n"
+        + "    \"classic\" {\n"
+        + "      \"gameModes\" {\n"
+        + "        \"casual\" { \"maxplayers\" \"20\" }\n"
+        + "        \"competitive\" { \"maxplayers\" \"10\" }\n"
+        + "        \"scrimcomp2v2\" { \"exec\" { \"exec\" \"2v2.cfg\" } }\n"
+        + "      }\n"
+        + "    }\n"
+        + "  }\n"
+        + "  \"maps\" { \"workshop/125438255/de_dust2_se\" \"\" \"*\" \"star\" }\n"
+        + "}";
+
+    private TextSetting root;
+
+    @Before
+    public void setUp() throws InvalidFileFormatException {
+        root = TextSettingUtil.processFile(new Scanner(TEST_FILE));
+    }
+
+    @Test
+    public void first() {
+        TextSettingQuery query =
+            TextSettingQuery.compile("gameTypes/classic/gameModes/competitive/maxplayers");
+        assertThat(query.hasWildcards()).isFalse();
+        assertThat(query.size()).isEqualTo(5);
+        assertThat(query.first(root).getValue()).isEqualTo("10");
+        assertThat(query.value(root)).isEqualTo("10");
+
+        // Blocks and missing settings
+        assertThat(TextSettingQuery.compile("gameTypes/classic").first(root).getKey())
+            .isEqualTo("classic");
+        assertThat(TextSettingQuery.compile("gameTypes/classic").value(root)).isNull();
+        assertThat(TextSettingQuery.compile("gameTypes/missing").first(root)).isNull();
+        assertThat(TextSettingQuery.compile("maps/*/below a value").first(root)).isNull();
+    }
+
+    @Test
+    public void wildcards() {
+        TextSettingQuery query =
+            TextSettingQuery.compile("gameTypes/classic/gameModes/*/maxplayers");
+        assertThat(query.hasWildcards()).isTrue();
+
+        List<String> values = new ArrayList<>();
+        for (TextSetting setting : query.all(root)) {
+            values.add(setting.getValue());
+        }
+        assertThat(values).containsExactly("20", "10");
+        assertThat(query.value(root)).isEqualTo(values.get(0));
+
+        List<String> keys = new ArrayList<>();
+        TextSettingQuery.compile("*/*/*/*").forEach(root, setting -> keys.add(setting.getKey()));
+        assertThat(keys).containsExactly("casual", "competitive", "scrimcomp2v2");
+
+        assertThat(TextSettingQuery.compile("*/*/*/*/exec/exec").value(root)).isEqualTo("2v2.cfg");
+        assertThat(TextSettingQuery.compile("*/missing").all(root)).isEmpty();
+    }
+
+    @Test
+    public void forEachWithPath() {
+        List<String> paths = new ArrayList<>();
+        TextSettingQuery.compile("gameTypes/*/gameModes/*/maxplayers")
+            .forEachWithPath(root, (path, setting) -> paths.add(path + "=" + setting.getValue()));
+        assertThat(paths).containsExactly("gameTypes/classic/gameModes/casual/maxplayers=20",
+            "gameTypes/classic/gameModes/competitive/maxplayers=10");
+
+        // Keys are escaped
+        paths.clear();
+        TextSettingQuery.compile("maps/*")
+            .forEachWithPath(root, (path, setting) -> paths.add(path));
+        assertThat(paths).containsExactly("maps/workshop\\/125438255\\/de_dust2_se", "maps/\\*");
+    }
+
+    @Test
+    public void escaping() {
+        String workshopMap = "workshop/125438255/de_dust2_se";
+        assertThat(TextSettingQuery.escape(workshopMap))
+            .isEqualTo("workshop\\/125438255\\/de_dust2_se");
+        assertThat(TextSettingQuery.escape("plain")).isSameAs("plain");
+
+        TextSettingQuery query =
+            TextSettingQuery.compile("maps/" + TextSettingQuery.escape(workshopMap));
+        assertThat(query.first(root).getKey()).isEqualTo(workshopMap);
+        assertThat(TextSettingQuery.of("maps", workshopMap)).isEqualTo(query);
+        assertThat(TextSettingQuery.of("maps", workshopMap).toString())
+            .isEqualTo("maps/workshop\\/125438255\\/de_dust2_se");
+
+        // An escaped asterisk is a key rather than a wildcard
+        TextSettingQuery star = TextSettingQuery.compile("maps/\\*");
+        assertThat(star.hasWildcards()).isFalse();
+        assertThat(star.value(root)).isEqualTo("star");
+        assertThat(TextSettingQuery.of("maps", "*")).isEqualTo(star);
+    }
+
+    @Test
+    public void compile_invalid() {
+        for (String path : new String[] {"", "/", "a/", "/a", "a//b", "a/b\\", "a/b*", "a/**"}) {
+            try {
+                TextSettingQuery.compile(path);
+                fail("#compile should have thrown an exception for: " + path);
+            } catch (IllegalArgumentException e) {
+                // Expected behavior.
+            }
+        }
+        try {
+            TextSettingQuery.of();
+            fail("#of should have thrown an exception.");
+        } catch (IllegalArgumentException e) {
+            // Expected behavior.
+        }
+    }
+}
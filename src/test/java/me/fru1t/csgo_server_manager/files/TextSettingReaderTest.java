@@ -0,0 +1,168 @@
+package me.fru1t.csgo_server_manager.files;
+
+import com.google.common.base.Strings;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+@RunWith(JUnit4.class)
+public class TextSettingReaderTest {
+    private static final String TEST_FILE = "// header\n"
+        + "\"root\" {\n"
+        + "  \"key\" \"value\" // trailing\n"
+        + "  \"block\" {\n"
+        + "    \"key2\" \"value2\"\n"
+        + "  }\n"
+        + "}\n";
+
+    @Test
+    public void next() throws InvalidFileFormatException {
+        TextSettingReader reader = new TextSettingReader(new Scanner(TEST_FILE));
+
+        assertThat(reader.next()).isEqualTo(TextSettingReader.Event.COMMENT);
+        assertThat(reader.getComment()).isEqualTo(" header");
+
+        assertThat(reader.next()).isEqualTo(TextSettingReader.Event.START_BLOCK);
+        assertThat(reader.getKey()).isEqualTo("root");
+        assertThat(reader.getDepth()).isEqualTo(1);
+
+        assertThat(reader.next()).isEqualTo(TextSettingReader.Event.KEY_VALUE);
+        assertThat(reader.getKey()).isEqualTo("key");
+        assertThat(reader.getValue()).isEqualTo("value");
+
+        assertThat(reader.next()).isEqualTo(TextSettingReader.Event.COMMENT);
+        assertThat(reader.getComment()).isEqualTo(" trailing");
+        assertThat(reader.getKey()).isNull();
+
+        assertThat(reader.next()).isEqualTo(TextSettingReader.Event.START_BLOCK);
+        assertThat(reader.getKey()).isEqualTo("block");
+        assertThat(reader.getDepth()).isEqualTo(2);
+
+        assertThat(reader.next()).isEqualTo(TextSettingReader.Event.KEY_VALUE);
+        assertThat(reader.getLineNumber()).isEqualTo(5);
+
+        assertThat(reader.next()).isEqualTo(TextSettingReader.Event.END_BLOCK);
+        assertThat(reader.next()).isEqualTo(TextSettingReader.Event.END_BLOCK);
+        assertThat(reader.getDepth()).isEqualTo(0);
+
+        assertThat(reader.next()).isEqualTo(TextSettingReader.Event.END_OF_FILE);
+        assertThat(reader.next()).isEqualTo(TextSettingReader.Event.END_OF_FILE);
+    }
+
+    @Test
+    public void next_errors() {
+        // Unbalanced end brace
+        assertReadError("\"root\" { \"key\" \"value\" } }");
+
+        // Unbalanced start brace
+        assertReadError("\"root\" { \"key\" \"value\"");
+
+        // Key without a value
+        assertReadError("\"root\" { \"key\" }");
+    }
+
+    @Test
+    public void next_deeplyNested() throws InvalidFileFormatException {
+        int depth = 100000;
+        String file = Strings.repeat("\"k\" {\n", depth) + Strings.repeat("}\n", depth);
+        TextSettingReader reader = new TextSettingReader(new Scanner(file));
+
+        int maxDepth = 0;
+        while (reader.next() != TextSettingReader.Event.END_OF_FILE) {
+            maxDepth = Math.max(maxDepth, reader.getDepth());
+        }
+        assertThat(maxDepth).isEqualTo(depth);
+    }
+
+    @Test
+    public void next_lenient() {
+        String file = "\"root\" {\n"
+            + "  \"a\" \"1\"\n"
+            + "  \"b\" x \"2\"\n"
+            + "  { \"c\" \"3\" }\n"
+            + "  \"d\" \"4\"\n"
+            + "  \"block\" {\n"
+            + "    \"e\"\n"
+            + "  }\n"
+            + "  \"f\" \"5\" /x\n"
+            + "}\n"
+            + "}\n"
+            + "\"tail\" {\n"
+            + "  \"g\" \"6\"";
+        String expectedEvents = "START_BLOCK root, KEY_VALUE a, KEY_VALUE d, START_BLOCK block, "
+            + "END_BLOCK, KEY_VALUE f, END_BLOCK, START_BLOCK tail, KEY_VALUE g, END_BLOCK";
+        String expectedPositions = "3:7, 4:3, 8:3, 9:12, 11:1, 13:10";
+
+        TextSettingReader reader = new TextSettingReader(new Scanner(file));
+        reader.setLenient(true);
+        assertThat(readEvents(reader)).isEqualTo(expectedEvents);
+        assertThat(getPositions(reader)).isEqualTo(expectedPositions);
+
+        reader = new TextSettingReader(StandardCharsets.UTF_8.encode(file));
+        reader.setLenient(true);
+        assertThat(readEvents(reader)).isEqualTo(expectedEvents);
+        assertThat(getPositions(reader)).isEqualTo(expectedPositions);
+    }
+
+    @Test
+    public void next_lenient_unclosedBlockWithoutKey() {
+        TextSettingReader reader =
+            new TextSettingReader(new Scanner("\"root\" {\n  \"a\" \"1\"\n  {\n  \"b\" \"2\""));
+        reader.setLenient(true);
+        assertThat(readEvents(reader)).isEqualTo("START_BLOCK root, KEY_VALUE a, END_BLOCK");
+        assertThat(reader.getDiagnostics()).hasSize(3);
+    }
+
+    @Test
+    public void next_lenient_clean() {
+        TextSettingReader reader = new TextSettingReader(new Scanner(TEST_FILE));
+        reader.setLenient(true);
+        assertThat(readEvents(reader)).isEqualTo("COMMENT, START_BLOCK root, KEY_VALUE key, "
+            + "COMMENT, START_BLOCK block, KEY_VALUE key2, END_BLOCK, END_BLOCK");
+        assertThat(reader.getDiagnostics()).isEmpty();
+    }
+
+    // Lenient readers never throw
+    private static String readEvents(TextSettingReader reader) {
+        List<String> events = new ArrayList<>();
+        try {
+            TextSettingReader.Event event;
+            while ((event = reader.next()) != TextSettingReader.Event.END_OF_FILE) {
+                events.add(event == TextSettingReader.Event.START_BLOCK
+                    || event == TextSettingReader.Event.KEY_VALUE
+                    ? event + " " + reader.getKey() : event.toString());
+            }
+        } catch (InvalidFileFormatException e) {
+            throw new AssertionError(e);
+        }
+        return String.join(", ", events);
+    }
+
+    private static String getPositions(TextSettingReader reader) {
+        List<String> positions = new ArrayList<>();
+        for (TextSettingDiagnostic diagnostic : reader.getDiagnostics()) {
+            positions.add(diagnostic.getLine() + ":" + diagnostic.getColumn());
+        }
+        return String.join(", ", positions);
+    }
+
+    private static void assertReadError(String file) {
+        TextSettingReader reader = new TextSettingReader(new Scanner(file));
+        try {
+            while (reader.next() != TextSettingReader.Event.END_OF_FILE) {
+                // Keep reading
+            }
+            fail("Read should have errored");
+        } catch (InvalidFileFormatException e) {
+            // Expected behavior
+        }
+    }
+}
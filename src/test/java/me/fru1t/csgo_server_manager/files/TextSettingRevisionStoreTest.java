@@ -0,0 +1,277 @@
+package me.fru1t.csgo_server_manager.files;
+
+import com.google.common.hash.HashCode;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Scanner;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+@RunWith(JUnit4.class)
+public class TextSettingRevisionStoreTest {
+    private static final String FIRST = "\"root\" {\n"
+        + "  \"a\" {\n"
+        + "    \"b\" \"1\"\n"
+        + "    \"c\" { \"d\" \"2\" }\n"
+        + "  }\n"
+        + "  \"e\" { \"f\" \"3\" }\n"
+        + "  \"g\" \"4\"\n"
+        + "}";
+    private static final String SECOND = "\"root\" {\n"
+        + "  \"a\" {\n"
+        + "    \"b\" \"1\"\n"
+        + "    \"c\" { \"d\" \"5\" }\n"
+        + "  }\n"
+        + "  \"e\" { \"f\" \"3\" }\n"
+        + "  \"g\" { \"h\" \"6\" }\n"
+        + "  \"i/j\" \"7\"\n"
+        + "}";
+
+    @Test
+    public void commitAndRestore() throws Exception {
+        TextSettingRevisionStore store = new TextSettingRevisionStore();
+        TextSettingRevision first = store.commit("gamemodes", parse(FIRST));
+        TextSettingRevision second = store.commit("gamemodes", parse(SECOND));
+
+        assertThat(first.getName()).isEqualTo("gamemodes");
+        assertThat(first.getNumber()).isEqualTo(0);
+        assertThat(second.getNumber()).isEqualTo(1);
+        assertThat(store.getRevisions("gamemodes")).containsExactly(first, second).inOrder();
+        assertThat(store.getRevision("gamemodes", 0)).isSameAs(first);
+        assertThat(store.getRevision("gamemodes", 2)).isNull();
+        assertThat(store.getLatest("gamemodes")).isSameAs(second);
+        assertThat(store.getLatest("missing")).isNull();
+
+        // Restored in a new store, so that nothing's reused from committing
+        TextSettingRevisionStore fresh = new TextSettingRevisionStore();
+        TextSetting restored = fresh.restore(fresh.commit("gamemodes", parse(FIRST)));
+        assertSameTree(restored, parse(FIRST));
+        assertSameTree(store.restore(second), parse(SECOND));
+        assertThat(store.restore(second).getChildren().get("i/j").getValue()).isEqualTo("7");
+    }
+
+    @Test
+    public void commit_storesOnlyNewSettings() throws Exception {
+        TextSettingRevisionStore store = new TextSettingRevisionStore();
+        store.commit("gamemodes", parse(FIRST));
+
+        // root, a, b, c, d, e, f and g
+        assertThat(store.getNodeCount()).isEqualTo(8);
+
+        // The new root, a, c and d, g and h, and i/j
+        store.commit("gamemodes", parse(SECOND));
+        assertThat(store.getNodeCount()).isEqualTo(15);
+
+        // Everything's shared with the first revision
+        store.commit("other", parse(FIRST));
+        assertThat(store.getNodeCount()).isEqualTo(15);
+    }
+
+    @Test
+    public void load() throws Exception {
+        MapStorage storage = new MapStorage();
+        TextSettingRevisionStore store = TextSettingRevisionStore.load(storage);
+        store.commit("gamemodes", parse(FIRST));
+        assertThat(storage.nodes).hasSize(8);
+        store.commit("gamemodes", parse(SECOND));
+
+        // Only what the second revision added was stored with it
+        assertThat(storage.addedCounts).containsExactly(8, 7).inOrder();
+
+        TextSettingRevisionStore loaded = TextSettingRevisionStore.load(storage);
+        assertThat(loaded.getNodeCount()).isEqualTo(15);
+        assertThat(loaded.getRevisions("gamemodes")).hasSize(2);
+        assertSameTree(loaded.restore(loaded.getRevision("gamemodes", 0)), parse(FIRST));
+        assertSameTree(loaded.restore(loaded.getLatest("gamemodes")), parse(SECOND));
+        assertThat(loaded.restore(loaded.getLatest("gamemodes")).getChildren().keySet())
+            .containsExactly("a", "e", "g", "i/j").inOrder();
+        assertThat(loaded.diff(loaded.getRevision("gamemodes", 0), loaded.getLatest("gamemodes"))
+            .toString()).isEqualTo("[CHANGED a/c/d, CHANGED g, ADDED i\\/j]");
+
+        // Committing carries on from the stored history
+        assertThat(loaded.commit("gamemodes", parse(FIRST)).getNumber()).isEqualTo(2);
+        assertThat(storage.addedCounts).containsExactly(8, 7, 0).inOrder();
+    }
+
+    @Test
+    public void load_corrupted() throws Exception {
+        MapStorage storage = new MapStorage();
+        TextSettingRevisionStore.load(storage).commit("gamemodes", parse(FIRST));
+
+        // g's value of 4 is the last byte stored for it, and is damaged to read 5
+        for (byte[] node : storage.nodes.values()) {
+            if (node[node.length - 1] == '4') {
+                node[node.length - 1] = '5';
+            }
+        }
+
+        try {
+            TextSettingRevisionStore.load(storage);
+            fail();
+        } catch (IOException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void commit_storageFails() throws Exception {
+        MapStorage storage = new MapStorage() {
+            @Override
+            public void add(TextSettingRevision revision, Map<HashCode, byte[]> nodes)
+                throws IOException {
+                throw new IOException("Disk full");
+            }
+        };
+        TextSettingRevisionStore store = TextSettingRevisionStore.load(storage);
+        try {
+            store.commit("gamemodes", parse(FIRST));
+            fail();
+        } catch (IOException e) {
+            // Expected
+        }
+        assertThat(store.getRevisions("gamemodes")).isEmpty();
+        assertThat(store.getNodeCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void commit_unchanged() throws Exception {
+        TextSettingRevisionStore store = new TextSettingRevisionStore();
+        TextSetting setting = parse(FIRST);
+        TextSettingRevision first = store.commit("gamemodes", setting);
+
+        assertThat(store.commit("gamemodes", setting)).isSameAs(first);
+        assertThat(store.commit("gamemodes", parse(FIRST))).isSameAs(first);
+        assertThat(store.getRevisions("gamemodes")).hasSize(1);
+    }
+
+    @Test
+    public void commit_invalid() throws Exception {
+        TextSettingRevisionStore store = new TextSettingRevisionStore();
+        TextSetting invalid = new TextSetting();
+        invalid.key = "key";
+        try {
+            store.commit("gamemodes", invalid);
+            fail();
+        } catch (InvalidTextSettingException e) {
+            // Expected
+        }
+        assertThat(store.getRevisions("gamemodes")).isEmpty();
+        assertThat(store.getNodeCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void restore_sharesSettings() throws Exception {
+        TextSettingRevisionStore store = new TextSettingRevisionStore();
+        TextSetting first = parse(FIRST);
+        TextSettingRevision revision = store.commit("gamemodes", first);
+        TextSetting second = parse(SECOND);
+        store.commit("gamemodes", second);
+
+        // Trees still in use are restored as they are, and settings the same as those already
+        // committed aren't kept twice
+        assertThat(store.restore(revision)).isSameAs(first);
+        TextSetting restored = store.restore(store.commit("gamemodes", parse(SECOND)));
+        assertThat(restored).isSameAs(second);
+        assertThat(store.restore(store.getRevision("gamemodes", 1))).isSameAs(second);
+    }
+
+    @Test
+    public void diff() throws Exception {
+        TextSettingRevisionStore store = new TextSettingRevisionStore();
+        TextSettingRevision first = store.commit("gamemodes", parse(FIRST));
+        TextSettingRevision second = store.commit("gamemodes", parse(SECOND));
+
+        List<TextSettingChange> changes = store.diff(first, second);
+        assertThat(changes.toString()).isEqualTo("[CHANGED a/c/d, CHANGED g, ADDED i\\/j]");
+        assertThat(changes.get(0).getBefore().getValue()).isEqualTo("2");
+        assertThat(changes.get(0).getAfter().getValue()).isEqualTo("5");
+        assertThat(changes.get(1).getBefore().getValue()).isEqualTo("4");
+        assertThat(changes.get(1).getAfter().getChildren().get("h").getValue()).isEqualTo("6");
+        assertThat(changes.get(2).getBefore()).isNull();
+        assertThat(changes.get(2).getAfter().getValue()).isEqualTo("7");
+
+        assertThat(store.diff(second, first).toString())
+            .isEqualTo("[CHANGED a/c/d, CHANGED g, REMOVED i\\/j]");
+        assertThat(store.diff(first, first)).isEmpty();
+    }
+
+    @Test
+    public void diff_root() throws Exception {
+        TextSettingRevisionStore store = new TextSettingRevisionStore();
+        TextSettingRevision first = store.commit("gamemodes", parse(FIRST));
+        TextSettingRevision renamed =
+            store.commit("gamemodes", parse(FIRST.replace("\"root\"", "\"other\"")));
+
+        List<TextSettingChange> changes = store.diff(first, renamed);
+        assertThat(changes).hasSize(1);
+        assertThat(changes.get(0).getType()).isEqualTo(TextSettingChange.Type.CHANGED);
+        assertThat(changes.get(0).getPath()).isEmpty();
+    }
+
+    @Test
+    public void restore_otherStore() throws Exception {
+        TextSettingRevision revision =
+            new TextSettingRevisionStore().commit("gamemodes", parse(FIRST));
+        try {
+            new TextSettingRevisionStore().restore(revision);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+
+    private static class MapStorage implements TextSettingRevisionStore.Storage {
+        final Map<HashCode, byte[]> nodes = new HashMap<>();
+        final List<TextSettingRevision> revisions = new ArrayList<>();
+        final List<Integer> addedCounts = new ArrayList<>();
+
+        @Override
+        public Map<HashCode, byte[]> loadNodes() {
+            return nodes;
+        }
+
+        @Override
+        public List<TextSettingRevision> loadRevisions() {
+            return revisions;
+        }
+
+        @Override
+        public void add(TextSettingRevision revision, Map<HashCode, byte[]> nodes)
+            throws IOException {
+            assertThat(this.nodes.keySet()).containsNoneIn(nodes.keySet());
+            this.nodes.putAll(nodes);
+            revisions.add(revision);
+            addedCounts.add(nodes.size());
+        }
+    }
+
+    private static TextSetting parse(String file) throws InvalidFileFormatException {
+        return TextSettingUtil.processFile(new Scanner(file));
+    }
+
+    // Settings may be in a different order, but must be the same otherwise
+    private static void assertSameTree(TextSetting actual, TextSetting expected) {
+        assertThat(actual.getKey()).isEqualTo(expected.getKey());
+        TextSettingIndex actualIndex = TextSettingIndex.of(actual);
+        TextSettingIndex expectedIndex = TextSettingIndex.of(expected);
+        assertThat(actualIndex.size()).isEqualTo(expectedIndex.size());
+        for (String path : new String[] {"a", "a/b", "a/c", "a/c/d", "e", "e/f", "g", "g/h"}) {
+            TextSetting setting = actualIndex.get(path);
+            TextSetting expectedSetting = expectedIndex.get(path);
+            if (expectedSetting == null) {
+                assertThat(setting).isNull();
+            } else {
+                assertThat(setting.getKey()).isEqualTo(expectedSetting.getKey());
+                assertThat(setting.getValue()).isEqualTo(expectedSetting.getValue());
+            }
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package me.fru1t.csgo_server_manager.files;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+@RunWith(JUnit4.class)
+public class TextSettingSchemaTest {
+    private static final TextSettingSchema SCHEMA = TextSettingSchema.builder()
+        .require("gameTypes")
+        .require("gameTypes/*/gameModes/*/maxplayers")
+        .type("gameTypes/*/gameModes/*/maxplayers", TextSettingSchema.ValueType.INTEGER)
+        .range("gameTypes/*/gameModes/*/maxplayers", 1, 64)
+        .type("gameTypes/*/gameModes/*/exec", TextSettingSchema.ValueType.BLOCK)
+        .type("gameTypes/*/gameModes/*/isTeamGame", TextSettingSchema.ValueType.BOOLEAN)
+        .require("mapgroups/*")
+        .build();
+
+    @Test
+    public void check() throws InvalidFileFormatException {
+        TextSetting valid = TextSettingUtil.processFile(new Scanner("\"GameModes.txt\" {\n"
+            + "  \"gameTypes\" { \"classic\" { \"gameModes\" {\n"
+            + "    \"casual\" { \"maxplayers\" \"20\" \"isTeamGame\" \"1\" }\n"
+            + "    \"competitive\" { \"maxplayers\" \" 10 \" \"exec\" { \"exec\" \"c.cfg\" } }\n"
+            + "  } } }\n"
+            + "  \"mapgroups\" { \"mg_active\" { \"maps\" { \"de_dust2\" \"\" } } }\n"
+            + "}"));
+        assertThat(SCHEMA.check(valid)).isEmpty();
+    }
+
+    @Test
+    public void check_problems() throws InvalidFileFormatException {
+        TextSetting invalid = TextSettingUtil.processFile(new Scanner("\"GameModes.txt\" {\n"
+            + "  \"gameTypes\" { \"classic\" { \"gameModes\" {\n"
+            + "    \"casual\" { \"maxplayers\" \"twenty\" \"isTeamGame\" \"yes\" }\n"
+            + "    \"competitive\" { \"maxplayers\" \"100\" \"exec\" \"c.cfg\" }\n"
+            + "    \"deathmatch\" { \"maxplayers\" { } }\n"
+            + "    \"custom\" { }\n"
+            + "  } } }\n"
+            + "  \"mapgroups\" { }\n"
+            + "}"));
+
+        // Values of the wrong type are reported once, rather than again by their range
+        assertThat(SCHEMA.check(invalid)).containsExactly(
+            "gameTypes/classic/gameModes/custom/maxplayers: Required, but missing.",
+            "gameTypes/classic/gameModes/casual/maxplayers: Expected an integer, but was 'twenty'.",
+            "gameTypes/classic/gameModes/deathmatch/maxplayers: Expected an integer, but was a "
+                + "block.",
+            "gameTypes/classic/gameModes/competitive/maxplayers: Expected between 1 and 64, but "
+                + "was 100.",
+            "gameTypes/classic/gameModes/competitive/exec: Expected a block, but was 'c.cfg'.",
+            "gameTypes/classic/gameModes/casual/isTeamGame: Expected 0 or 1, but was 'yes'.",
+            "mapgroups/*: Required, but missing.");
+    }
+
+    @Test
+    public void check_decimals() throws InvalidFileFormatException {
+        TextSettingSchema schema =
+            TextSettingSchema.builder().type("*", TextSettingSchema.ValueType.DECIMAL).build();
+        TextSetting setting = TextSettingUtil.processFile(new Scanner("\"cvars\" {\n"
+            + "  \"a\" \"64\" \"b\" \"-1.5\" \"c\" \"+.5\" \"d\" \"5.\"\n"
+            + "  \"e\" \"64f\" \"f\" \"10d\" \"g\" \"0x1p3\"\n"
+            + "  \"h\" \"NaN\" \"i\" \"Infinity\" \"j\" \"1e3\"\n"
+            + "}"));
+
+        // Only plain decimals, which Double.parseDouble alone would let through
+        assertThat(schema.check(setting)).containsExactly(
+            "e: Expected a number, but was '64f'.",
+            "f: Expected a number, but was '10d'.",
+            "g: Expected a number, but was '0x1p3'.",
+            "h: Expected a number, but was 'NaN'.",
+            "i: Expected a number, but was 'Infinity'.",
+            "j: Expected a number, but was '1e3'.").inOrder();
+    }
+
+    @Test
+    public void check_handler() throws InvalidFileFormatException {
+        TextSetting setting = TextSettingUtil.processFile(new Scanner(
+            "\"GameModes.txt\" { \"gameTypes\" { \"classic\" { \"gameModes\" {\n"
+                + "  \"casual\" { \"maxplayers\" \"twenty\" }\n"
+                + "} } } }"));
+        List<String> problems = new ArrayList<>();
+        TextSettingSchema.builder()
+            .require("mapgroups")
+            .type("gameTypes/*/gameModes/*/maxplayers", TextSettingSchema.ValueType.INTEGER)
+            .build()
+            .check(setting, (at, problem) -> problems.add(at.getKey() + " " + problem));
+
+        // Missing settings are blamed on the block they're missing from
+        assertThat(problems).containsExactly(
+            "GameModes.txt mapgroups: Required, but missing.",
+            "maxplayers gameTypes/classic/gameModes/casual/maxplayers: Expected an integer, but "
+                + "was 'twenty'.").inOrder();
+    }
+
+    @Test
+    public void check_missingRoot() throws InvalidFileFormatException {
+        TextSetting empty = TextSettingUtil.processFile(new Scanner("\"GameModes.txt\" { }"));
+        assertThat(SCHEMA.check(empty)).containsExactly("gameTypes: Required, but missing.");
+    }
+
+    @Test
+    public void builder_invalid() {
+        try {
+            TextSettingSchema.builder().range("maxplayers", 64, 1);
+            fail("Empty ranges should be rejected");
+        } catch (IllegalArgumentException e) {
+            // Expected behavior
+        }
+        try {
+            TextSettingSchema.builder().require("gameTypes//maxplayers");
+            fail("Invalid paths should be rejected");
+        } catch (IllegalArgumentException e) {
+            // Expected behavior
+        }
+    }
+}
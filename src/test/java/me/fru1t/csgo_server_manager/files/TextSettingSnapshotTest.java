@@ -0,0 +1,217 @@
+package me.fru1t.csgo_server_manager.files;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(JUnit4.class)
+public class TextSettingSnapshotTest {
+    private static final String TEST_FILE = "\"gameTypes\"\n"
+        + "{\n"
+        + "  \"classic\"\n"
+        + "  {\n"
+        + "    \"gameModes\"\n"
+        + "    {\n"
+        + "      \"casual\" { \"maxplayers\" \"20\" \"name\" \"Casual\" }\n"
+        + "      \"competitive\" { \"maxplayers\" \"10\" \"name\" \"Comp\u00e9titif\" }\n"
+        + "    }\n"
+        + "  }\n"
+        + "  \"empty\" {}\n"
+        + "  \"maxplayers\" \"20\"\n"
+        + "}\n";
+    private static final String OTHER_TEST_FILE = TEST_FILE.replace("\"10\"", "\"12\"");
+
+    // Long ago enough for modified times to be trusted
+    private static final FileTime MODIFIED_TIME = FileTime.fromMillis(1000000);
+
+    private Path directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("TextSettingSnapshotTest");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    public void pathFor() {
+        assertThat(TextSettingSnapshot.pathFor(directory.resolve("gamemodes.txt")))
+            .isEqualTo(directory.resolve("gamemodes.txt.tsnap"));
+    }
+
+    @Test
+    public void writeAndLoad() throws Exception {
+        Path file = write("gamemodes.txt", TEST_FILE);
+        TextSetting parsed = parse(TEST_FILE);
+        TextSettingSnapshot.write(file, parsed);
+
+        TextSetting loaded = TextSettingSnapshot.load(file);
+        assertThat(loaded).isNotNull();
+        assertThat(loaded.toFileString()).isEqualTo(parsed.toFileString());
+        assertThat(loaded.getChildren().get("classic").getChildren().get("gameModes")
+            .getChildren().get("competitive").getChildren().get("name").getValue())
+            .isEqualTo("Comp\u00e9titif");
+        assertThat(loaded.getChildren().get("empty").getChildren()).isEmpty();
+    }
+
+    @Test
+    public void load_lazyChildren() throws Exception {
+        Path file = write("gamemodes.txt", TEST_FILE);
+        TextSetting parsed = parse(TEST_FILE);
+        TextSettingSnapshot.write(file, parsed);
+
+        TextSetting loaded = TextSettingSnapshot.load(file);
+        assertThat(loaded.getChildren()).isInstanceOf(TextSettingSnapshot.LazyChildMap.class);
+        assertThat(loaded.getChildren().size()).isEqualTo(3);
+        assertThat(loaded.getChildren().keySet())
+            .containsExactlyElementsIn(parsed.getChildren().keySet()).inOrder();
+        assertThat(TextSettingQuery.compile("classic/gameModes/*/maxplayers").all(loaded))
+            .hasSize(2);
+        assertThat(TextSettingIndex.of(loaded).get("classic/gameModes/casual/name").getValue())
+            .isEqualTo("Casual");
+    }
+
+    @Test
+    public void load_noSnapshot() throws Exception {
+        Path file = write("gamemodes.txt", TEST_FILE);
+        assertThat(TextSettingSnapshot.load(file)).isNull();
+    }
+
+    @Test
+    public void load_touched() throws Exception {
+        Path file = write("gamemodes.txt", TEST_FILE);
+        TextSettingSnapshot.write(file, parse(TEST_FILE));
+
+        Files.setLastModifiedTime(file, FileTime.fromMillis(2000000));
+        assertThat(TextSettingSnapshot.load(file)).isNotNull();
+    }
+
+    @Test
+    public void load_changed() throws Exception {
+        Path file = write("gamemodes.txt", TEST_FILE);
+        TextSettingSnapshot.write(file, parse(TEST_FILE));
+
+        // Same size, different contents
+        write("gamemodes.txt", OTHER_TEST_FILE);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(2000000));
+        assertThat(TextSettingSnapshot.load(file)).isNull();
+
+        // Different size
+        write("gamemodes.txt", TEST_FILE + "\n");
+        assertThat(TextSettingSnapshot.load(file)).isNull();
+    }
+
+    @Test
+    public void load_recentlyModified() throws Exception {
+        Path file = write("gamemodes.txt", TEST_FILE);
+        FileTime now = FileTime.fromMillis(System.currentTimeMillis());
+        Files.setLastModifiedTime(file, now);
+        TextSettingSnapshot.write(file, parse(TEST_FILE));
+
+        // Modified again within the same tick
+        write("gamemodes.txt", OTHER_TEST_FILE);
+        Files.setLastModifiedTime(file, now);
+        assertThat(TextSettingSnapshot.load(file)).isNull();
+    }
+
+    @Test
+    public void load_corrupt() throws Exception {
+        Path file = write("gamemodes.txt", TEST_FILE);
+        TextSettingSnapshot.write(file, parse(TEST_FILE));
+        Path snapshot = TextSettingSnapshot.pathFor(file);
+        byte[] bytes = Files.readAllBytes(snapshot);
+
+        // Truncated
+        Files.write(snapshot, Arrays.copyOf(bytes, bytes.length - 1));
+        assertThat(TextSettingSnapshot.load(file)).isNull();
+
+        // A child index pointing back at the root
+        byte[] corrupt = bytes.clone();
+        int nodesPosition = ByteBuffer.wrap(bytes).getInt(52);
+        ByteBuffer.wrap(corrupt).putInt(nodesPosition + 8, 0);
+        Files.write(snapshot, corrupt);
+        assertThat(TextSettingSnapshot.load(file)).isNull();
+
+        // Not a snapshot at all
+        Files.write(snapshot, TEST_FILE.getBytes(StandardCharsets.UTF_8));
+        assertThat(TextSettingSnapshot.load(file)).isNull();
+    }
+
+    @Test
+    public void loadOrParse() throws Exception {
+        Path file = write("gamemodes.txt", TEST_FILE);
+        TextSetting parsed = TextSettingSnapshot.loadOrParse(file);
+        assertThat(Files.exists(TextSettingSnapshot.pathFor(file))).isTrue();
+        assertThat(parsed.getChildren()).isInstanceOf(CompactChildMap.class);
+
+        TextSetting loaded = TextSettingSnapshot.loadOrParse(file);
+        assertThat(loaded.getChildren()).isInstanceOf(TextSettingSnapshot.LazyChildMap.class);
+        assertThat(loaded.toFileString()).isEqualTo(parsed.toFileString());
+    }
+
+    @Test
+    public void loadOrParse_noSettings() throws Exception {
+        Path file = write("empty.txt", "// Nothing here\n");
+        assertThat(TextSettingSnapshot.loadOrParse(file)).isNull();
+        assertThat(Files.exists(TextSettingSnapshot.pathFor(file))).isFalse();
+    }
+
+    @Test
+    public void write_invalid() throws Exception {
+        Path file = write("gamemodes.txt", TEST_FILE);
+        try {
+            TextSettingSnapshot.write(file, new TextSetting());
+            throw new AssertionError("Expected an InvalidTextSettingException");
+        } catch (InvalidTextSettingException e) {
+            // Expected
+        }
+        assertThat(Files.exists(TextSettingSnapshot.pathFor(file))).isFalse();
+    }
+
+    @Test
+    public void cache_usesSnapshots() throws Exception {
+        Path file = write("gamemodes.txt", TEST_FILE);
+        try (TextSettingCache cache = new TextSettingCache(1024, true)) {
+            cache.get(file);
+        }
+        assertThat(Files.exists(TextSettingSnapshot.pathFor(file))).isTrue();
+
+        try (TextSettingCache cache = new TextSettingCache(1024, true)) {
+            assertThat(cache.get(file).getChildren())
+                .isInstanceOf(TextSettingSnapshot.LazyChildMap.class);
+        }
+    }
+
+    private Path write(String name, String contents) throws IOException {
+        Path file = directory.resolve(name);
+        Files.write(file, contents.getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(file, MODIFIED_TIME);
+        return file;
+    }
+
+    private static TextSetting parse(String contents) throws InvalidFileFormatException {
+        return TextSettingUtil.processFile(
+            ByteBuffer.wrap(contents.getBytes(StandardCharsets.UTF_8)));
+    }
+}
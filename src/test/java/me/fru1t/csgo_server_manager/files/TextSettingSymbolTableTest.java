@@ -0,0 +1,49 @@
+package me.fru1t.csgo_server_manager.files;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Scanner;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(JUnit4.class)
+public class TextSettingSymbolTableTest {
+    @Test
+    public void intern() {
+        TextSettingSymbolTable table = new TextSettingSymbolTable();
+        String first = table.intern(new String("value"));
+        assertThat(table.intern(new String("value"))).isSameAs(first);
+
+        byte[] bytes = "\"value\"".getBytes(StandardCharsets.UTF_8);
+        assertThat(table.intern(ByteBuffer.wrap(bytes), 1, 5)).isSameAs(first);
+        assertThat(table.size()).isEqualTo(1);
+
+        // Enough to grow the table a few times
+        for (int i = 0; i < 10000; ++i) {
+            table.intern("key" + i);
+        }
+        assertThat(table.size()).isEqualTo(10001);
+        assertThat(table.intern(new String("value"))).isSameAs(first);
+        assertThat(table.intern(new String("key9999"))).isEqualTo("key9999");
+        assertThat(table.size()).isEqualTo(10001);
+    }
+
+    @Test
+    public void processFile() throws InvalidFileFormatException {
+        String file = "\"root\" { \"a\" { \"name\" \"x\" } \"b\" { \"name\" \"x\" } }";
+
+        TextSetting scanned =
+            TextSettingUtil.processFile(new Scanner(file), new TextSettingSymbolTable());
+        assertThat(scanned.getChildren().get("a").getChildren().get("name").getValue())
+            .isSameAs(scanned.getChildren().get("b").getChildren().get("name").getValue());
+
+        TextSetting mapped = TextSettingUtil.processFile(
+            ByteBuffer.wrap(file.getBytes(StandardCharsets.UTF_8)), new TextSettingSymbolTable());
+        assertThat(mapped.getChildren().get("a").getChildren().get("name").getKey())
+            .isSameAs(mapped.getChildren().get("b").getChildren().get("name").getKey());
+    }
+}
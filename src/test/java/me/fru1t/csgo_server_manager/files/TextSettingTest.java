@@ -1,10 +1,14 @@
 package me.fru1t.csgo_server_manager.files;
 
+import com.google.common.collect.ImmutableList;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Scanner;
 
 import static com.google.common.truth.Truth.assertThat;
 import static org.junit.Assert.fail;
@@ -13,6 +17,14 @@ import static org.junit.Assert.fail;
 public class TextSettingTest {
     private static final String TEST_KEY = "A key";
     private static final String TEST_VALUE = "a value";
+    private static final String TREE = "\"root\" {\n"
+        + "  \"a\" {\n"
+        + "    \"b\" \"1\"\n"
+        + "    \"c\" { \"d\" \"2\" }\n"
+        + "  }\n"
+        + "  \"e\" { \"f\" \"3\" }\n"
+        + "  \"g\" \"4\"\n"
+        + "}";
 
     private TextSetting testTextSetting;
 
@@ -67,10 +79,105 @@ public class TextSettingTest {
                 .build())
             .build();
 
+        // Children are written in the order they were added
         assertThat(testTextSetting.toFileString()).isEqualTo("\"A key\" {\n"
-            + TextSetting.INDENTATION_PATTERN + "\"3rd key\" \"another value\"\n"
             + TextSetting.INDENTATION_PATTERN + "\"2nd key\" \"a value\"\n"
+            + TextSetting.INDENTATION_PATTERN + "\"3rd key\" \"another value\"\n"
             + "}\n");
     }
 
+    @Test
+    public void with() throws Exception {
+        TextSetting tree = parse(TREE);
+        TextSetting changed = tree.with("a/c/d", "5");
+
+        assertThat(TextSettingQuery.compile("a/c/d").value(changed)).isEqualTo("5");
+        assertThat(TextSettingQuery.compile("a/c/d").value(tree)).isEqualTo("2");
+
+        // Only the path's copied, and siblings keep their order
+        assertThat(changed.getChildren().get("e")).isSameAs(tree.getChildren().get("e"));
+        assertThat(changed.getChildren().get("a").getChildren().get("b"))
+            .isSameAs(tree.getChildren().get("a").getChildren().get("b"));
+        assertThat(ImmutableList.copyOf(changed.getChildren().keySet()))
+            .isEqualTo(ImmutableList.copyOf(tree.getChildren().keySet()));
+        assertThat(tree.toFileString()).isEqualTo(parse(TREE).toFileString());
+    }
+
+    @Test
+    public void with_addsMissing() throws Exception {
+        TextSetting tree = parse(TREE);
+        TextSetting changed = tree.with("h/i/j", "6").with("a/k", "7");
+
+        assertThat(TextSettingQuery.compile("h/i/j").value(changed)).isEqualTo("6");
+        assertThat(TextSettingQuery.compile("a/k").value(changed)).isEqualTo("7");
+        List<String> keys = new ArrayList<>(tree.getChildren().keySet());
+        keys.add("h");
+        assertThat(ImmutableList.copyOf(changed.getChildren().keySet())).isEqualTo(keys);
+        assertThat(changed.getChildren().get("e")).isSameAs(tree.getChildren().get("e"));
+    }
+
+    @Test
+    public void with_unchanged() throws Exception {
+        TextSetting tree = parse(TREE);
+        assertThat(tree.with("a/c/d", "2")).isSameAs(tree);
+    }
+
+    @Test
+    public void with_manyChildren() throws Exception {
+        // Enough children to be indexed rather than scanned
+        TextSetting tree = parse("\"root\" { }");
+        for (int i = 0; i < 20; ++i) {
+            tree = tree.with("child" + i, String.valueOf(i));
+        }
+        TextSetting changed = tree.with("child7", "seven").without("child12");
+
+        assertThat(changed.getChildren()).hasSize(19);
+        assertThat(changed.getChildren().get("child7").getValue()).isEqualTo("seven");
+        assertThat(changed.getChildren().get("child19").getValue()).isEqualTo("19");
+        assertThat(changed.getChildren().containsKey("child12")).isFalse();
+        assertThat(tree.getChildren().get("child7").getValue()).isEqualTo("7");
+    }
+
+    @Test
+    public void with_throughValue() throws Exception {
+        try {
+            parse(TREE).with("g/h", "5");
+            fail("Setting a value within a value should have errored");
+        } catch (InvalidTextSettingException e) {
+            // Expected
+        }
+        try {
+            parse(TREE).with("a/*", "5");
+            fail("Setting a value at a wildcard should have errored");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void without() throws Exception {
+        TextSetting tree = parse(TREE);
+        TextSetting changed = tree.without("a/c/d");
+
+        assertThat(TextSettingQuery.compile("a/c").first(changed).getChildren()).isEmpty();
+        assertThat(TextSettingQuery.compile("a/c/d").value(tree)).isEqualTo("2");
+        assertThat(changed.getChildren().get("e")).isSameAs(tree.getChildren().get("e"));
+
+        List<String> keys = new ArrayList<>(tree.getChildren().keySet());
+        keys.remove("e");
+        assertThat(ImmutableList.copyOf(tree.without("e").getChildren().keySet()))
+            .isEqualTo(keys);
+    }
+
+    @Test
+    public void without_missing() throws Exception {
+        TextSetting tree = parse(TREE);
+        assertThat(tree.without("a/x")).isSameAs(tree);
+        assertThat(tree.without("g/x")).isSameAs(tree);
+        assertThat(tree.without("x/y/z")).isSameAs(tree);
+    }
+
+    private static TextSetting parse(String file) throws InvalidFileFormatException {
+        return TextSettingUtil.processFile(new Scanner(file));
+    }
 }
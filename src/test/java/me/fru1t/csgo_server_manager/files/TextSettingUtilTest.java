@@ -1,13 +1,29 @@
 package me.fru1t.csgo_server_manager.files;
 
+import me.fru1t.csgo_server_manager.metrics.Counter;
+import me.fru1t.csgo_server_manager.metrics.MetricRegistry;
+import me.fru1t.csgo_server_manager.metrics.Timer;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Scanner;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static com.google.common.truth.Truth.assertThat;
 import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
 
 @RunWith(JUnit4.class)
 public class TextSettingUtilTest {
@@ -46,6 +62,175 @@ public class TextSettingUtilTest {
         assertThat(test.key).isEqualTo("test");
     }
 
+    @Test
+    public void processFile_path() throws Exception {
+        Path file = Files.createTempFile("TextSettingUtilTest", ".txt");
+        try {
+            Files.write(file, TEST_FILE.getBytes(StandardCharsets.UTF_8));
+            TextSetting test = TextSettingUtil.processFile(file);
+            assertThat(test.toFileString())
+                .isEqualTo(TextSettingUtil.processFile(new Scanner(TEST_FILE)).toFileString());
+            assertThat(test.getChildren().get("testkeywithchildren").getChildren()
+                .get("testkey3").getValue()).isEqualTo("testvalue3");
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void processFile_recordsMetrics() throws InvalidFileFormatException {
+        Counter bytes = MetricRegistry.global().counter("csgo_textsetting_parse_bytes_total", "");
+        Counter events =
+            MetricRegistry.global().counter("csgo_textsetting_parse_events_total", "");
+        Timer timer = MetricRegistry.global().timer("csgo_textsetting_parse_seconds", "");
+        long bytesBefore = bytes.get();
+        long eventsBefore = events.get();
+        long parsesBefore = timer.getCount();
+
+        TextSettingUtil.processFile(ByteBuffer.wrap(TEST_FILE.getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(bytes.get() - bytesBefore).isEqualTo((long) TEST_FILE.length());
+        // Two blocks started and ended, and three key values
+        assertThat(events.get() - eventsBefore).isEqualTo(7L);
+        assertThat(timer.getCount() - parsesBefore).isEqualTo(1L);
+    }
+
+    @Test
+    public void processFileLeniently() throws Exception {
+        TextSettingParseResult result = TextSettingUtil.processFileLeniently(new Scanner(
+            "\"root\" {\n  \"a\" \"1\"\n  \"b\" x\n  \"c\" {\n    \"d\" \"2\"\n}"));
+
+        assertThat(result.isClean()).isFalse();
+        assertThat(result.getDiagnostics()).hasSize(2);
+        assertThat(result.getDiagnostics().get(0).getLine()).isEqualTo(3);
+        assertThat(result.getDiagnostics().get(0).getColumn()).isEqualTo(7);
+
+        // Values from their opening quote mark, and blocks from their opening brace
+        TextSetting c = result.getSetting().getChildren().get("c");
+        assertThat(result.getPosition(c).getLine()).isEqualTo(4);
+        assertThat(result.getPosition(c).getColumn()).isEqualTo(7);
+        TextSettingPosition d = result.getPosition(c.getChildren().get("d"));
+        assertThat(d.getLine()).isEqualTo(5);
+        assertThat(d.getColumn()).isEqualTo(9);
+        assertThat(result.getPosition(result.getSetting()).getLine()).isEqualTo(1);
+        assertThat(result.getPosition(new TextSetting())).isNull();
+        assertThat(result.getSetting().toFileString()).isEqualTo(TextSettingUtil.processFile(
+            new Scanner("\"root\" { \"a\" \"1\" \"c\" { \"d\" \"2\" } }")).toFileString());
+    }
+
+    @Test
+    public void processFileLeniently_clean() throws Exception {
+        TextSettingParseResult result = TextSettingUtil.processFileLeniently(
+            ByteBuffer.wrap(TEST_FILE.getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(result.isClean()).isTrue();
+        assertThat(result.getSetting().toFileString())
+            .isEqualTo(TextSettingUtil.processFile(new Scanner(TEST_FILE)).toFileString());
+    }
+
+    @Test
+    public void writeFile() throws Exception {
+        Path directory = Files.createTempDirectory("TextSettingUtilTest");
+        Path file = directory.resolve("test.txt");
+        try {
+            Files.write(file, "\"old\" \"value\"".getBytes(StandardCharsets.UTF_8));
+            TextSetting test = TextSettingUtil.processFile(new Scanner(TEST_FILE));
+            TextSettingUtil.writeFile(file, test);
+
+            assertThat(TextSettingUtil.processFile(file).toFileString())
+                .isEqualTo(test.toFileString());
+            // No temporary files are left behind
+            try (Stream<Path> files = Files.list(directory)) {
+                assertThat(files.collect(Collectors.toList())).containsExactly(file);
+            }
+        } finally {
+            Files.deleteIfExists(file);
+            Files.delete(directory);
+        }
+    }
+
+    @Test
+    public void writeFile_invalid() throws Exception {
+        Path directory = Files.createTempDirectory("TextSettingUtilTest");
+        Path file = directory.resolve("test.txt");
+        try {
+            Files.write(file, TEST_FILE.getBytes(StandardCharsets.UTF_8));
+            TextSetting invalid = new TextSetting();
+            invalid.key = "invalid";
+            try {
+                TextSettingUtil.writeFile(file, invalid);
+                fail("Writing an invalid setting should have errored");
+            } catch (InvalidTextSettingException e) {
+                // Expected behavior
+            }
+
+            // The file's left as it was
+            assertThat(new String(Files.readAllBytes(file), StandardCharsets.UTF_8))
+                .isEqualTo(TEST_FILE);
+        } finally {
+            Files.deleteIfExists(file);
+            Files.delete(directory);
+        }
+    }
+
+    @Test
+    public void writeFile_keepsPermissions() throws Exception {
+        Path directory = Files.createTempDirectory("TextSettingUtilTest");
+        Path file = directory.resolve("test.txt");
+        try {
+            Files.write(file, TEST_FILE.getBytes(StandardCharsets.UTF_8));
+            assumeTrue(Files.getFileAttributeView(file, PosixFileAttributeView.class) != null);
+            Set<PosixFilePermission> permissions = PosixFilePermissions.fromString("rw-rw-r--");
+            Files.setPosixFilePermissions(file, permissions);
+
+            TextSettingUtil.writeFile(file, TextSettingUtil.processFile(new Scanner(TEST_FILE)));
+            assertThat(Files.getPosixFilePermissions(file)).isEqualTo(permissions);
+        } finally {
+            Files.deleteIfExists(file);
+            Files.delete(directory);
+        }
+    }
+
+    @Test
+    public void processFile_byteBuffer() throws InvalidFileFormatException {
+        String key = "\u043a\u043b\u044e\u0447";
+        String value = "\u0437\u043d\u0430\u0447\u0435\u043d\u0438\u0435";
+        String file = "\"r\" {\r\n  \"" + key + "\" \"" + value + "\"\r\n}";
+        TextSetting test =
+            TextSettingUtil.processFile(ByteBuffer.wrap(file.getBytes(StandardCharsets.UTF_8)));
+        assertThat(test.getChildren().get(key).getValue()).isEqualTo(value);
+    }
+
+    @Test
+    public void processFile_handler() throws InvalidFileFormatException {
+        List<String> events = new ArrayList<>();
+        TextSettingUtil.processFile(new Scanner(TEST_FILE + " // done"), new TextSettingHandler() {
+            @Override
+            public void startBlock(String key) {
+                events.add("start " + key);
+            }
+
+            @Override
+            public void keyValue(String key, String value) {
+                events.add(key + "=" + value);
+            }
+
+            @Override
+            public void endBlock() {
+                events.add("end");
+            }
+
+            @Override
+            public void comment(String text) {
+                events.add("comment" + text);
+            }
+        });
+
+        assertThat(events).containsExactly("start test", "testkey=testvalue",
+            "start testkeywithchildren", "testkey2=testvalue2", "testkey3=testvalue3", "end", "end",
+            "comment done").inOrder();
+    }
+
     private static void assertProcessError(String s) {
         Scanner testFileScanner = new Scanner(s);
         try {
@@ -54,5 +239,12 @@ public class TextSettingUtilTest {
         } catch (InvalidFileFormatException e) {
             // Expected behavior
         }
+
+        try {
+            TextSettingUtil.processFile(ByteBuffer.wrap(s.getBytes(StandardCharsets.UTF_8)));
+            fail("Process should have errored");
+        } catch (InvalidFileFormatException e) {
+            // Expected behavior
+        }
     }
 }
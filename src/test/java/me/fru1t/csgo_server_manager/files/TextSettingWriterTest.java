@@ -0,0 +1,125 @@
+package me.fru1t.csgo_server_manager.files;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.Scanner;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+@RunWith(JUnit4.class)
+public class TextSettingWriterTest {
+    private static final String TEST_FILE = "\"root\" {\n"
+        + "  \"key\" \"value\"\n"
+        + "  \"block\" {\n"
+        + "    \"inner\" {\n"
+        + "      \"deep\" \"\u00e9t\u00e9\"\n"
+        + "    }\n"
+        + "    \"empty\" {\n"
+        + "    }\n"
+        + "  }\n"
+        + "}\n";
+
+    @Test
+    public void write() throws Exception {
+        TextSetting setting = TextSettingUtil.processFile(new Scanner(TEST_FILE));
+        StringWriter out = new StringWriter();
+        new TextSettingWriter(out).write(setting);
+
+        assertThat(out.toString()).isEqualTo(setting.toFileString());
+        assertThat(TextSettingUtil.processFile(new Scanner(out.toString())).toFileString())
+            .isEqualTo(setting.toFileString());
+    }
+
+    @Test
+    public void write_channel() throws Exception {
+        TextSetting setting = TextSettingUtil.processFile(new Scanner(TEST_FILE));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        TextSettingWriter writer = new TextSettingWriter(Channels.newChannel(bytes));
+        writer.write(setting);
+        writer.flush();
+
+        assertThat(new String(bytes.toByteArray(), StandardCharsets.UTF_8))
+            .isEqualTo(setting.toFileString());
+    }
+
+    @Test
+    public void write_invalid() throws Exception {
+        TextSetting invalid = new TextSetting();
+        invalid.key = "invalid";
+        TextSetting setting = TextSetting.builder()
+            .key("root")
+            .startChildBlock()
+            .addChild(invalid)
+            .build();
+
+        try {
+            new TextSettingWriter(new StringBuilder()).write(setting);
+            fail("#write should have thrown an exception.");
+        } catch (InvalidTextSettingException e) {
+            assertThat(e.getMessage()).contains(invalid.isValid().context);
+        }
+        try {
+            TextSettingWriter.computeLength(setting);
+            fail("#computeLength should have thrown an exception.");
+        } catch (InvalidTextSettingException e) {
+            assertThat(e.getMessage()).contains(invalid.isValid().context);
+        }
+    }
+
+    @Test
+    public void write_deep() throws Exception {
+        // Deep enough to overflow the stack if written recursively
+        TextSetting setting = TextSetting.builder().key("leaf").value("value").build();
+        for (int i = 0; i < 20000; ++i) {
+            setting = TextSetting.builder()
+                .key("level")
+                .startChildBlock()
+                .addChild(setting)
+                .build();
+        }
+
+        CountingWriter out = new CountingWriter();
+        new TextSettingWriter(out).write(setting);
+        assertThat(out.count).isEqualTo(TextSettingWriter.computeLength(setting));
+        assertThat(out.count).isGreaterThan(20000L * 20000L * 2);
+    }
+
+    @Test
+    public void computeLength() throws Exception {
+        TextSetting setting = TextSettingUtil.processFile(new Scanner(TEST_FILE));
+        assertThat(TextSettingWriter.computeLength(setting))
+            .isEqualTo((long) setting.toFileString().length());
+
+        TextSetting value = TextSetting.builder().key("key").value("value").build();
+        assertThat(TextSettingWriter.computeLength(value))
+            .isEqualTo((long) value.toFileString().length());
+    }
+
+    private static class CountingWriter extends Writer {
+        long count = 0;
+
+        @Override
+        public void write(char[] buffer, int offset, int length) {
+            count += length;
+        }
+
+        @Override
+        public void write(String str, int offset, int length) {
+            count += length;
+        }
+
+        @Override
+        public void flush() {}
+
+        @Override
+        public void close() {}
+    }
+}
@@ -0,0 +1,223 @@
+package me.fru1t.csgo_server_manager.inventory;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(JUnit4.class)
+public class MapInventoryTest {
+    private static final String GAMEMODES = "\"GameModes_Server.txt\"\n"
+        + "{\n"
+        + "\t\"mapgroups\" {\n"
+        + "\t\t\"mg_casual\" {\n"
+        + "\t\t\t\"maps\" {\n"
+        + "\t\t\t\t\"de_dust2\" \"\"\n"
+        + "\t\t\t\t\"de_nuke\" \"\"\n"
+        + "\t\t\t}\n"
+        + "\t\t}\n"
+        + "\t}\n"
+        + "}\n";
+    private static final String MAP_CYCLE = "de_dust2\n"
+        + "// Workshop maps\n"
+        + "workshop/125438255/de_cbble  // cobblestone\n";
+    private static final long TIMEOUT_MS = 5000;
+
+    private Path directory;
+    private MapInventory inventory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("MapInventoryTest");
+        write("casual/csgo/maps/de_dust2.bsp", "dust2");
+        write("casual/csgo/maps/workshop/125438255/de_cbble.bsp", "cbble");
+        write("casual/csgo/mapcycle.txt", MAP_CYCLE);
+        write("competitive/csgo/maps/de_dust2.bsp", "dust2");
+        write("competitive/csgo/gamemodes_server.txt", GAMEMODES);
+        inventory = newInventory();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        inventory.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Test
+    public void scan() throws Exception {
+        inventory.scan();
+
+        List<MapFile> maps = inventory.getMaps();
+        assertThat(names(maps)).containsExactly(
+            "de_dust2", "workshop/125438255/de_cbble", "de_dust2").inOrder();
+        assertThat(maps.get(0).getPath())
+            .isEqualTo(directory.resolve("casual/csgo/maps/de_dust2.bsp"));
+        assertThat(maps.get(0).getSize()).isEqualTo(5L);
+        assertThat(maps.get(0).getContentHash()).isEqualTo(maps.get(2).getContentHash());
+        assertThat(maps.get(0).getContentHash()).isNotEqualTo(maps.get(1).getContentHash());
+        assertThat(inventory.getHashCount()).isEqualTo(3L);
+
+        assertThat(inventory.getServersUsing("de_dust2"))
+            .containsExactly("casual", "competitive").inOrder();
+        assertThat(inventory.getServersUsing("workshop/125438255/de_cbble"))
+            .containsExactly("casual");
+        assertThat(inventory.getServersUsing("de_inferno")).isEmpty();
+        assertThat(inventory.getMissingMaps("casual")).isEmpty();
+        assertThat(inventory.getMissingMaps("competitive")).containsExactly("de_nuke");
+    }
+
+    @Test
+    public void scan_incremental() throws Exception {
+        inventory.scan();
+        inventory.scan();
+        assertThat(inventory.getHashCount()).isEqualTo(3L);
+
+        write("casual/csgo/maps/de_dust2.bsp", "dust2 v2");
+        Files.delete(directory.resolve("casual/csgo/maps/workshop/125438255/de_cbble.bsp"));
+        write("competitive/csgo/maps/de_nuke.bsp", "nuke");
+        inventory.scan();
+
+        assertThat(names(inventory.getMaps()))
+            .containsExactly("de_dust2", "de_dust2", "de_nuke").inOrder();
+        assertThat(inventory.getHashCount()).isEqualTo(5L);
+        assertThat(inventory.getMissingMaps("casual"))
+            .containsExactly("workshop/125438255/de_cbble");
+        assertThat(inventory.getMissingMaps("competitive")).isEmpty();
+    }
+
+    @Test
+    public void scan_sharedInstall() throws Exception {
+        inventory.close();
+        inventory = new MapInventory(ImmutableMap.of(
+            "casual1", directory.resolve("casual"),
+            "casual2", directory.resolve("casual"),
+            "all", directory), 2, null);
+        inventory.scan();
+
+        assertThat(inventory.getMaps()).hasSize(3);
+        assertThat(inventory.getHashCount()).isEqualTo(3L);
+        assertThat(inventory.getServersUsing("workshop/125438255/de_cbble"))
+            .containsExactly("all", "casual1", "casual2").inOrder();
+    }
+
+    @Test
+    public void scan_missingInstall() throws Exception {
+        inventory.close();
+        inventory = new MapInventory(ImmutableMap.of("casual", directory.resolve("missing")), 2,
+            null);
+        inventory.scan();
+        assertThat(inventory.getMaps()).isEmpty();
+    }
+
+    @Test
+    public void index() throws Exception {
+        inventory.scan();
+        List<MapFile> maps = inventory.getMaps();
+        inventory.close();
+
+        write("casual/csgo/maps/de_dust2.bsp", "dust2 v2");
+        inventory = newInventory();
+        assertThat(inventory.getServersUsing("de_nuke")).containsExactly("competitive");
+        inventory.scan();
+
+        // Only the changed map is hashed again
+        assertThat(inventory.getHashCount()).isEqualTo(1L);
+        List<MapFile> rescanned = inventory.getMaps();
+        assertThat(rescanned.get(0).getContentHash()).isNotEqualTo(maps.get(0).getContentHash());
+        assertThat(rescanned.get(1).getContentHash()).isEqualTo(maps.get(1).getContentHash());
+        assertThat(rescanned.get(1).getName()).isEqualTo("workshop/125438255/de_cbble");
+    }
+
+    @Test
+    public void index_damaged() throws Exception {
+        inventory.scan();
+        inventory.close();
+        Files.write(directory.resolve("inventory.idx"), new byte[] {1, 2, 3});
+
+        inventory = newInventory();
+        assertThat(inventory.getMaps()).isEmpty();
+        inventory.scan();
+        assertThat(inventory.getMaps()).hasSize(3);
+        assertThat(inventory.getHashCount()).isEqualTo(3L);
+    }
+
+    @Test
+    public void watch() throws Exception {
+        inventory.watch();
+
+        write("competitive/csgo/maps/workshop/1/de_new.bsp", "new");
+        awaitMaps("de_dust2", "workshop/125438255/de_cbble", "de_dust2", "workshop/1/de_new");
+
+        Files.delete(directory.resolve("casual/csgo/maps/de_dust2.bsp"));
+        awaitMaps("workshop/125438255/de_cbble", "de_dust2", "workshop/1/de_new");
+
+        write("competitive/csgo/mapcycle.txt", "de_overpass\n");
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (inventory.getMissingMaps("competitive").size() < 2
+            && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(inventory.getMissingMaps("competitive"))
+            .containsExactly("de_nuke", "de_overpass").inOrder();
+    }
+
+    @Test
+    public void getMapName() {
+        assertThat(MapInventory.getMapName(Paths.get("csgo", "maps", "de_dust2.bsp")))
+            .isEqualTo("de_dust2");
+        assertThat(MapInventory.getMapName(
+            Paths.get("csgo", "maps", "workshop", "125438255", "de_cbble.bsp")))
+            .isEqualTo("workshop/125438255/de_cbble");
+        assertThat(MapInventory.getMapName(Paths.get("elsewhere", "de_nuke.bsp")))
+            .isEqualTo("de_nuke");
+    }
+
+    private MapInventory newInventory() {
+        return new MapInventory(ImmutableMap.of(
+            "casual", directory.resolve("casual"),
+            "competitive", directory.resolve("competitive")),
+            2, directory.resolve("inventory.idx"));
+    }
+
+    private void awaitMaps(String... names) throws InterruptedException {
+        List<String> expected = ImmutableList.copyOf(names);
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (!names(inventory.getMaps()).equals(expected)
+            && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(names(inventory.getMaps())).containsExactlyElementsIn(expected).inOrder();
+    }
+
+    private static List<String> names(List<MapFile> maps) {
+        return maps.stream().map(MapFile::getName).collect(Collectors.toList());
+    }
+
+    // Files are dated well in the past, so their modified times are trusted
+    private void write(String file, String content) throws IOException {
+        Path path = directory.resolve(file);
+        Files.createDirectories(path.getParent());
+        Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(path, FileTime.fromMillis(1000 * 1000));
+    }
+}
@@ -0,0 +1,107 @@
+package me.fru1t.csgo_server_manager.logs;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(JUnit4.class)
+public class LogEventRingTest {
+    @Test
+    public void publish_everyListenerInOrder() throws Exception {
+        List<String> first = Collections.synchronizedList(new ArrayList<>());
+        List<String> second = Collections.synchronizedList(new ArrayList<>());
+        LogEventRing ring = new LogEventRing(4,
+            ImmutableList.of(event -> first.add(event.getLine()),
+                event -> second.add(event.getLine())));
+
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 1000; ++i) {
+            publish(ring, Integer.toString(i));
+            expected.add(Integer.toString(i));
+        }
+        ring.close();
+
+        assertThat(first).containsExactlyElementsIn(expected).inOrder();
+        assertThat(second).containsExactlyElementsIn(expected).inOrder();
+    }
+
+    @Test
+    public void claim_waitsForSlowestListener() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger handled = new AtomicInteger();
+        LogEventRing ring = new LogEventRing(2, ImmutableList.of(event -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new AssertionError(e);
+            }
+            handled.incrementAndGet();
+        }));
+
+        // The listener's stuck on the first event, leaving room for one more
+        publish(ring, "0");
+        publish(ring, "1");
+        Thread producer = new Thread(() -> publish(ring, "2"));
+        producer.start();
+        producer.join(200);
+        assertThat(producer.isAlive()).isTrue();
+
+        release.countDown();
+        producer.join(TimeUnit.SECONDS.toMillis(5));
+        assertThat(producer.isAlive()).isFalse();
+        ring.close();
+        assertThat(handled.get()).isEqualTo(3);
+    }
+
+    @Test
+    public void claim_noListeners() throws Exception {
+        LogEventRing ring = new LogEventRing(2, ImmutableList.of());
+        for (int i = 0; i < 10; ++i) {
+            publish(ring, Integer.toString(i));
+        }
+        ring.close();
+        assertThat(ring.claim()).isNull();
+    }
+
+    @Test
+    public void publish_listenerThrows() throws Exception {
+        Thread.UncaughtExceptionHandler previous = Thread.getDefaultUncaughtExceptionHandler();
+        List<Throwable> uncaught = Collections.synchronizedList(new ArrayList<>());
+        Thread.setDefaultUncaughtExceptionHandler((thread, e) -> uncaught.add(e));
+        try {
+            List<String> lines = Collections.synchronizedList(new ArrayList<>());
+            LogEventRing ring = new LogEventRing(2, ImmutableList.of(event -> {
+                if (event.getLine().equals("1")) {
+                    throw new IllegalStateException();
+                }
+                lines.add(event.getLine());
+            }));
+            for (int i = 0; i < 4; ++i) {
+                publish(ring, Integer.toString(i));
+            }
+            ring.close();
+
+            assertThat(lines).containsExactly("0", "2", "3").inOrder();
+            assertThat(uncaught).hasSize(1);
+        } finally {
+            Thread.setDefaultUncaughtExceptionHandler(previous);
+        }
+    }
+
+    private static void publish(LogEventRing ring, String line) {
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        ring.claim().set("server", LogEventType.ROUND_START, bytes, 0, bytes.length);
+        ring.publish();
+    }
+}
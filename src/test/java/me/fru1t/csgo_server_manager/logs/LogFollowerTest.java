@@ -0,0 +1,133 @@
+package me.fru1t.csgo_server_manager.logs;
+
+import com.google.common.collect.ImmutableList;
+import me.fru1t.csgo_server_manager.server.ServerConfig;
+import me.fru1t.csgo_server_manager.server.ServerState;
+import me.fru1t.csgo_server_manager.server.ServerStatus;
+import me.fru1t.csgo_server_manager.server.ServerSupervisor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Supervises src/test/resources/fake_srcds.sh, so only runs where there's a /bin/sh.
+ */
+@RunWith(JUnit4.class)
+public class LogFollowerTest {
+    private static final Path SHELL = Paths.get("/bin/sh");
+    private static final long TIMEOUT_MS = 10 * 1000;
+    private static final String ROUND_START =
+        "L 10/16/2026 - 21:00:10: World triggered \"Round_Start\"\n";
+
+    private final BlockingQueue<String> events = new LinkedBlockingQueue<>();
+
+    private Path directory;
+    private Path log;
+    private ServerSupervisor supervisor;
+    private LogPipeline pipeline;
+
+    @Before
+    public void setUp() throws IOException {
+        assumeTrue(Files.isExecutable(SHELL));
+        directory = Files.createTempDirectory("LogFollowerTest");
+        log = directory.resolve("csgo/logs/L000.log");
+        Files.createDirectories(log.getParent());
+        supervisor = new ServerSupervisor(new ServerSupervisor.Listener() {}, 1, 10, 500);
+        pipeline = new LogPipeline(
+            ImmutableList.of(event -> events.add(event.getServer() + " " + event.getType())),
+            16, 10);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        if (supervisor == null) {
+            return;
+        }
+        supervisor.close();
+        pipeline.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Test
+    public void followsRunningServers() throws Exception {
+        append(ROUND_START);
+
+        // Already running when attached
+        supervisor.start(config("casual1"));
+        new LogFollower(pipeline, supervisor).attach();
+        assertThat(pipeline.awaitChanges(TIMEOUT_MS, TimeUnit.MILLISECONDS)).isTrue();
+
+        // Listeners are called in the order they were added, so the follower's seen whatever
+        // this has
+        BlockingQueue<ServerState> states = new LinkedBlockingQueue<>();
+        supervisor.addListener(new ServerSupervisor.Listener() {
+            @Override
+            public void onStatusChange(ServerStatus status) {
+                states.add(status.getState());
+            }
+        });
+
+        // Only what's logged since is read
+        append(ROUND_START);
+        assertThat(events.poll(TIMEOUT_MS, TimeUnit.MILLISECONDS))
+            .isEqualTo("casual1 ROUND_START");
+
+        supervisor.stop("casual1");
+        ServerState state;
+        do {
+            state = states.poll(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            assertThat(state).isNotNull();
+        } while (state != ServerState.STOPPED);
+        assertThat(pipeline.awaitChanges(TIMEOUT_MS, TimeUnit.MILLISECONDS)).isTrue();
+        long lineCount = pipeline.getLineCount();
+        append(ROUND_START);
+        assertThat(pipeline.awaitChanges(TIMEOUT_MS, TimeUnit.MILLISECONDS)).isTrue();
+        assertThat(pipeline.getLineCount()).isEqualTo(lineCount);
+    }
+
+    @Test
+    public void ignoresServersWithoutLogDirectory() throws Exception {
+        new LogFollower(pipeline, supervisor).attach();
+        supervisor.start(ServerConfig.builder().name("casual1").executable(SHELL.toString())
+            .arguments(script(), "run").build());
+        append(ROUND_START);
+
+        assertThat(pipeline.awaitChanges(TIMEOUT_MS, TimeUnit.MILLISECONDS)).isTrue();
+        assertThat(pipeline.getLineCount()).isEqualTo(0L);
+    }
+
+    private ServerConfig config(String name) throws Exception {
+        return ServerConfig.builder().name(name).executable(SHELL.toString())
+            .arguments(script(), "run").directory(directory).build();
+    }
+
+    private String script() throws Exception {
+        return Paths.get(getClass().getResource("/fake_srcds.sh").toURI()).toString();
+    }
+
+    private void append(String text) throws IOException {
+        Files.write(log, text.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE,
+            StandardOpenOption.APPEND);
+    }
+}
@@ -0,0 +1,165 @@
+package me.fru1t.csgo_server_manager.logs;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import javax.annotation.Nullable;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(JUnit4.class)
+public class LogLineParserTest {
+    private static final String PREFIX = "L 10/16/2026 - 21:04:13: ";
+
+    @Test
+    public void parse_kill() {
+        LogEvent event = parse(PREFIX + "\"Alice<2><STEAM_1:0:1234><CT>\" [-96 1220 -63] killed "
+            + "\"Bob<3><BOT><TERRORIST>\" [-420 1583 -45] with \"m4a1_silencer\" (headshot)");
+
+        assertThat(event.getServer()).isEqualTo("server");
+        assertThat(event.getType()).isEqualTo(LogEventType.KILL);
+        assertThat(event.getTimestamp()).isEqualTo(LocalDateTime.of(2026, 10, 16, 21, 4, 13));
+        assertThat(event.getPlayerName()).isEqualTo("Alice");
+        assertThat(event.getPlayerUserId()).isEqualTo(2);
+        assertThat(event.getPlayerSteamId()).isEqualTo("STEAM_1:0:1234");
+        assertThat(event.getPlayerTeam()).isEqualTo("CT");
+        assertThat(event.getTargetName()).isEqualTo("Bob");
+        assertThat(event.getTargetUserId()).isEqualTo(3);
+        assertThat(event.getTargetSteamId()).isEqualTo("BOT");
+        assertThat(event.getTargetTeam()).isEqualTo("TERRORIST");
+        assertThat(event.getValue()).isEqualTo("m4a1_silencer");
+        assertThat(event.isHeadshot()).isTrue();
+    }
+
+    @Test
+    public void parse_killWithoutPositions() {
+        LogEvent event = parse(PREFIX + "\"Alice<2><STEAM_1:0:1234><CT>\" killed "
+            + "\"Bob<3><BOT><TERRORIST>\" with \"ak47\"");
+
+        assertThat(event.getType()).isEqualTo(LogEventType.KILL);
+        assertThat(event.getTargetName()).isEqualTo("Bob");
+        assertThat(event.getValue()).isEqualTo("ak47");
+        assertThat(event.isHeadshot()).isFalse();
+    }
+
+    @Test
+    public void parse_awkwardNames() {
+        LogEvent event = parse(PREFIX + "\"<a \"b\"> c<><12><[U:1:1234]><CT>\" killed "
+            + "\"\u00e9\u00e8<3><BOT><>\" with \"ak47\"");
+
+        assertThat(event.getPlayerName()).isEqualTo("<a \"b\"> c<>");
+        assertThat(event.getPlayerUserId()).isEqualTo(12);
+        assertThat(event.getPlayerSteamId()).isEqualTo("[U:1:1234]");
+        assertThat(event.getTargetName()).isEqualTo("\u00e9\u00e8");
+        assertThat(event.getTargetTeam()).isEmpty();
+    }
+
+    @Test
+    public void parse_connectAndDisconnect() {
+        LogEvent connect =
+            parse(PREFIX + "\"Alice<2><STEAM_1:0:1234><>\" connected, address \"1.2.3.4:27005\"");
+        assertThat(connect.getType()).isEqualTo(LogEventType.CONNECT);
+        assertThat(connect.getPlayerName()).isEqualTo("Alice");
+        assertThat(connect.getValue()).isEqualTo("1.2.3.4:27005");
+        assertThat(connect.getTargetName()).isNull();
+        assertThat(connect.getTargetUserId()).isEqualTo(-1);
+
+        LogEvent disconnect = parse(PREFIX + "\"Alice<2><STEAM_1:0:1234><CT>\" disconnected "
+            + "(reason \"Kicked by \"admin\"\")");
+        assertThat(disconnect.getType()).isEqualTo(LogEventType.DISCONNECT);
+        assertThat(disconnect.getValue()).isEqualTo("Kicked by \"admin\"");
+    }
+
+    @Test
+    public void parse_say() {
+        LogEvent say = parse(PREFIX + "\"Alice<2><STEAM_1:0:1234><CT>\" say \"nice \"one\"\"");
+        assertThat(say.getType()).isEqualTo(LogEventType.SAY);
+        assertThat(say.getValue()).isEqualTo("nice \"one\"");
+
+        LogEvent sayTeam = parse(PREFIX + "\"Alice<2><STEAM_1:0:1234><CT>\" say_team \"rotate\"");
+        assertThat(sayTeam.getType()).isEqualTo(LogEventType.SAY);
+        assertThat(sayTeam.getValue()).isEqualTo("rotate");
+    }
+
+    @Test
+    public void parse_worldEvents() {
+        assertThat(parse(PREFIX + "World triggered \"Round_Start\"").getType())
+            .isEqualTo(LogEventType.ROUND_START);
+        assertThat(parse(PREFIX + "World triggered \"Round_End\"").getType())
+            .isEqualTo(LogEventType.ROUND_END);
+
+        LogEvent map = parse(PREFIX + "Started map \"de_dust2\" (CRC \"-1213437279\")");
+        assertThat(map.getType()).isEqualTo(LogEventType.MAP_START);
+        assertThat(map.getValue()).isEqualTo("de_dust2");
+        assertThat(map.getPlayerName()).isNull();
+    }
+
+    @Test
+    public void parse_ignored() {
+        assertThat(parse("")).isNull();
+        assertThat(parse(PREFIX)).isNull();
+        assertThat(parse(PREFIX + "server cvars start")).isNull();
+        assertThat(parse(PREFIX + "World triggered \"Round_Start\" extra")).isNull();
+        assertThat(parse(PREFIX + "\"Alice<2><STEAM_1:0:1234><CT>\" purchased \"ak47\"")).isNull();
+        assertThat(parse(PREFIX + "\"Alice<2><STEAM_1:0:1234>\" switched from team <a> to <b>"))
+            .isNull();
+        assertThat(parse(PREFIX + "\"Bob<3><BOT><TERRORIST>\" killed other \"chicken<145>\" "
+            + "with \"ak47\"")).isNull();
+        assertThat(parse(PREFIX + "\"Alice<x><STEAM_1:0:1234><CT>\" say \"hi\"")).isNull();
+        assertThat(parse(PREFIX + "\"Alice<2><STEAM_1:0:1234><CT>\" say \"hi")).isNull();
+        assertThat(parse("L 02/30/2026 - 21:04:13: World triggered \"Round_Start\"")).isNull();
+        assertThat(parse("X 10/16/2026 - 21:04:13: World triggered \"Round_Start\"")).isNull();
+    }
+
+    @Test
+    public void parse_reusesEvent() {
+        LogEvent event = new LogEvent();
+        byte[] kill = (PREFIX + "\"Alice<2><STEAM_1:0:1234><CT>\" killed "
+            + "\"Bob<3><BOT><TERRORIST>\" with \"ak47\" (headshot)")
+            .getBytes(StandardCharsets.UTF_8);
+        assertThat(LogLineParser.parse("server", kill, 0, kill.length, event)).isTrue();
+
+        // A line within a larger buffer, and none of the previous event's fields left over
+        byte[] buffer = ("xx" + PREFIX + "World triggered \"Round_End\"yy")
+            .getBytes(StandardCharsets.UTF_8);
+        assertThat(LogLineParser.parse("other", buffer, 2, buffer.length - 4, event)).isTrue();
+        assertThat(event.getServer()).isEqualTo("other");
+        assertThat(event.getType()).isEqualTo(LogEventType.ROUND_END);
+        assertThat(event.getLine()).isEqualTo(PREFIX + "World triggered \"Round_End\"");
+        assertThat(event.getPlayerName()).isNull();
+        assertThat(event.getValue()).isNull();
+        assertThat(event.isHeadshot()).isFalse();
+    }
+
+    @Test
+    public void parse_sampleLog() throws Exception {
+        List<String> lines = Files.readAllLines(
+            Paths.get(getClass().getResource("/sample_server.log").toURI()));
+        List<LogEventType> types = new ArrayList<>();
+        for (String line : lines) {
+            LogEvent event = parse(line);
+            if (event != null) {
+                types.add(event.getType());
+            }
+        }
+
+        assertThat(types).containsExactly(LogEventType.MAP_START, LogEventType.CONNECT,
+            LogEventType.CONNECT, LogEventType.ROUND_START, LogEventType.KILL, LogEventType.SAY,
+            LogEventType.ROUND_END, LogEventType.ROUND_START, LogEventType.KILL, LogEventType.SAY,
+            LogEventType.ROUND_END, LogEventType.DISCONNECT).inOrder();
+    }
+
+    @Nullable
+    private static LogEvent parse(String line) {
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        LogEvent event = new LogEvent();
+        return LogLineParser.parse("server", bytes, 0, bytes.length, event) ? event : null;
+    }
+}
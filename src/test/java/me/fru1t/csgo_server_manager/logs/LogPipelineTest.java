@@ -0,0 +1,151 @@
+package me.fru1t.csgo_server_manager.logs;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(JUnit4.class)
+public class LogPipelineTest {
+    private static final long TIMEOUT_MS = 5000;
+    private static final String ROUND_START =
+        "L 10/16/2026 - 21:00:10: World triggered \"Round_Start\"\n";
+
+    private final BlockingQueue<String> events = new LinkedBlockingQueue<>();
+
+    private Path directory;
+    private LogPipeline pipeline;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("LogPipelineTest");
+
+        // Events are reused, so only keep what's copied out of them
+        pipeline = new LogPipeline(
+            ImmutableList.of(event -> events.add(event.getServer() + " " + event.getType())),
+            16, 10);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        pipeline.close();
+        for (Path file : Files.newDirectoryStream(directory)) {
+            Files.delete(file);
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    public void follow_replay() throws Exception {
+        Path log = directory.resolve("server.log");
+        Files.copy(Paths.get(getClass().getResource("/sample_server.log").toURI()), log);
+        pipeline.follow("casual1", log, false);
+
+        assertThat(take(12)).containsExactly("casual1 MAP_START", "casual1 CONNECT",
+            "casual1 CONNECT", "casual1 ROUND_START", "casual1 KILL", "casual1 SAY",
+            "casual1 ROUND_END", "casual1 ROUND_START", "casual1 KILL", "casual1 SAY",
+            "casual1 ROUND_END", "casual1 DISCONNECT").inOrder();
+        awaitLineCount(27);
+        assertThat(pipeline.getEventCount()).isEqualTo(12L);
+    }
+
+    @Test
+    public void follow_live() throws Exception {
+        Path log = directory.resolve("server.log");
+        append(log, ROUND_START);
+        pipeline.follow("casual1", log, true);
+        pipeline.follow("casual2", directory.resolve("other.log"), true);
+
+        // The pipeline opens the logs on its own thread
+        assertThat(pipeline.awaitChanges(TIMEOUT_MS, TimeUnit.MILLISECONDS)).isTrue();
+        assertThat(pipeline.getLineCount()).isEqualTo(0L);
+
+        // Only new lines are read, though a log created since being followed is read in full
+        append(log, ROUND_START);
+        append(directory.resolve("other.log"), ROUND_START);
+        assertThat(take(2)).containsExactly("casual1 ROUND_START", "casual2 ROUND_START");
+        assertThat(events).isEmpty();
+    }
+
+    @Test
+    public void follow_manyEvents() throws Exception {
+        // Far more events than fit in the ring at once
+        Path log = directory.resolve("server.log");
+        StringBuilder lines = new StringBuilder();
+        for (int i = 0; i < 1000; ++i) {
+            lines.append(ROUND_START).append("L 10/16/2026 - 21:00:10: ignored\n");
+        }
+        append(log, lines.toString());
+        pipeline.follow("casual1", log, false);
+
+        assertThat(take(1000)).hasSize(1000);
+        awaitLineCount(2000);
+        assertThat(pipeline.getEventCount()).isEqualTo(1000L);
+    }
+
+    @Test
+    public void unfollow() throws Exception {
+        Path log = directory.resolve("server.log");
+        append(log, ROUND_START);
+        pipeline.follow("casual1", log, false);
+        assertThat(take(1)).containsExactly("casual1 ROUND_START");
+
+        pipeline.unfollow("casual1");
+        assertThat(pipeline.awaitChanges(TIMEOUT_MS, TimeUnit.MILLISECONDS)).isTrue();
+        append(log, ROUND_START);
+
+        // Anything still read would've been by the time another poll's gone by
+        assertThat(pipeline.awaitChanges(TIMEOUT_MS, TimeUnit.MILLISECONDS)).isTrue();
+        assertThat(pipeline.getLineCount()).isEqualTo(1L);
+        assertThat(events).isEmpty();
+    }
+
+    @Test
+    public void awaitChanges_closed() throws Exception {
+        pipeline.close();
+
+        // Changes are never applied once closed, so there's nothing to wait for
+        assertThat(pipeline.awaitChanges(TIMEOUT_MS, TimeUnit.MILLISECONDS)).isFalse();
+    }
+
+    private List<String> take(int count) throws InterruptedException {
+        List<String> taken = new ArrayList<>();
+        while (taken.size() < count) {
+            String event = events.poll(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            if (event == null) {
+                throw new AssertionError("Timed out waiting for events, got " + taken);
+            }
+            taken.add(event);
+        }
+        return taken;
+    }
+
+    private void awaitLineCount(long count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (pipeline.getLineCount() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(pipeline.getLineCount()).isEqualTo(count);
+    }
+
+    private static void append(Path file, String text) throws IOException {
+        Files.write(file, text.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE,
+            StandardOpenOption.APPEND);
+    }
+}
@@ -0,0 +1,169 @@
+package me.fru1t.csgo_server_manager.logs;
+
+import com.google.common.base.Strings;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(JUnit4.class)
+public class LogTailerTest {
+    private static final long TIMEOUT_MS = 5000;
+
+    private final List<String> lines = new ArrayList<>();
+    private final LogTailer.LineHandler handler =
+        (buffer, offset, length) -> lines.add(new String(buffer, offset, length,
+            StandardCharsets.UTF_8));
+
+    private Path directory;
+    private Path log;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("LogTailerTest");
+        log = directory.resolve("server.log");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        for (Path file : Files.newDirectoryStream(directory)) {
+            Files.delete(file);
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    public void poll_completeLines() throws IOException {
+        append(log, "a\nb\r\nc");
+        try (LogTailer tailer = new LogTailer(log, false)) {
+            assertThat(tailer.poll(handler, Integer.MAX_VALUE)).isEqualTo(6);
+            assertThat(lines).containsExactly("a", "b").inOrder();
+
+            assertThat(tailer.poll(handler, Integer.MAX_VALUE)).isEqualTo(0);
+            append(log, "d\n\ne\n");
+            tailer.poll(handler, Integer.MAX_VALUE);
+            assertThat(lines).containsExactly("a", "b", "cd", "", "e").inOrder();
+        }
+    }
+
+    @Test
+    public void poll_startAtEnd() throws IOException {
+        append(log, "old\n");
+        try (LogTailer tailer = new LogTailer(log, true)) {
+            assertThat(tailer.poll(handler, Integer.MAX_VALUE)).isEqualTo(0);
+            append(log, "new\n");
+            tailer.poll(handler, Integer.MAX_VALUE);
+            assertThat(lines).containsExactly("new");
+        }
+    }
+
+    @Test
+    public void poll_missingLog() throws IOException {
+        try (LogTailer tailer = new LogTailer(log, true)) {
+            assertThat(tailer.poll(handler, Integer.MAX_VALUE)).isEqualTo(0);
+
+            // Logs that don't exist yet are read from their start once they do
+            append(log, "first\n");
+            pollUntil(tailer, 1);
+            assertThat(lines).containsExactly("first");
+        }
+    }
+
+    @Test
+    public void poll_truncated() throws IOException {
+        append(log, "a long first line\n");
+        try (LogTailer tailer = new LogTailer(log, false)) {
+            tailer.poll(handler, Integer.MAX_VALUE);
+            Files.write(log, "b\n".getBytes(StandardCharsets.UTF_8));
+            tailer.poll(handler, Integer.MAX_VALUE);
+            assertThat(lines).containsExactly("a long first line", "b").inOrder();
+        }
+    }
+
+    @Test
+    public void poll_replaced() throws IOException {
+        append(log, "a\n");
+        try (LogTailer tailer = new LogTailer(log, false)) {
+            tailer.poll(handler, Integer.MAX_VALUE);
+
+            // Whatever's written to the old log before moving on is still read
+            Path old = directory.resolve("server.log.1");
+            Files.move(log, old);
+            append(old, "b\nc");
+            append(log, "d\n");
+            pollUntil(tailer, 4);
+            assertThat(lines).containsExactly("a", "b", "c", "d").inOrder();
+        }
+    }
+
+    @Test
+    public void poll_directory() throws IOException {
+        Path first = directory.resolve("L1016000.log");
+        append(first, "a\n");
+        Files.setLastModifiedTime(first, FileTime.fromMillis(System.currentTimeMillis() - 60000));
+        Files.write(directory.resolve("notes.txt"), new byte[] {'x', '\n'});
+        try (LogTailer tailer = new LogTailer(directory, false)) {
+            tailer.poll(handler, Integer.MAX_VALUE);
+            assertThat(lines).containsExactly("a");
+
+            append(first, "b\n");
+            Files.setLastModifiedTime(first,
+                FileTime.fromMillis(System.currentTimeMillis() - 1000));
+            append(directory.resolve("L1016001.log"), "c\n");
+            pollUntil(tailer, 3);
+            assertThat(lines).containsExactly("a", "b", "c").inOrder();
+        }
+    }
+
+    @Test
+    public void poll_skipsLongLines() throws IOException {
+        append(log, "a\n" + Strings.repeat("x", LogTailer.MAX_LINE_BYTES * 2) + "\nb\n");
+        try (LogTailer tailer = new LogTailer(log, false)) {
+            tailer.poll(handler, Integer.MAX_VALUE);
+            assertThat(lines).containsExactly("a", "b").inOrder();
+        }
+    }
+
+    @Test
+    public void poll_maxBytes() throws IOException {
+        append(log, Strings.repeat("line\n", 100000));
+        try (LogTailer tailer = new LogTailer(log, false)) {
+            assertThat(tailer.poll(handler, 1)).isGreaterThan(0);
+            assertThat(lines.size()).isLessThan(100000);
+            while (tailer.poll(handler, 1) > 0) {
+                // Keep reading
+            }
+            assertThat(lines).hasSize(100000);
+        }
+    }
+
+    // Rotation's only checked for every so often
+    private void pollUntil(LogTailer tailer, int count) throws IOException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (lines.size() < count && System.currentTimeMillis() < deadline) {
+            tailer.poll(handler, Integer.MAX_VALUE);
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                throw new AssertionError(e);
+            }
+        }
+    }
+
+    private static void append(Path file, String text) throws IOException {
+        Files.write(file, text.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE,
+            StandardOpenOption.APPEND);
+    }
+}
@@ -0,0 +1,91 @@
+package me.fru1t.csgo_server_manager.metrics;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(JUnit4.class)
+public class HistogramTest {
+    @Test
+    public void bucketOf() {
+        // Every value falls in a bucket that holds it, and buckets follow on from one another
+        long previousHighest = -1;
+        for (int bucket = 0; bucket <= Histogram.bucketOf(Histogram.MAX_TRACKABLE_VALUE);
+            ++bucket) {
+            long lowest = previousHighest + 1;
+            long highest = Histogram.highestValueIn(bucket);
+            assertThat(Histogram.bucketOf(lowest)).isEqualTo(bucket);
+            assertThat(Histogram.bucketOf(highest)).isEqualTo(bucket);
+            // No wider than 1 part in 64 of the values within
+            assertThat(highest - lowest).isAtMost(Math.max(0, lowest / 64));
+            previousHighest = highest;
+        }
+    }
+
+    @Test
+    public void snapshot() {
+        Histogram histogram = new Histogram("test", "Test.", ImmutableMap.of(), 1000000);
+        for (int i = 1; i <= 1000; ++i) {
+            histogram.record(i * 1000);
+        }
+
+        Histogram.Snapshot snapshot = histogram.snapshot();
+        assertThat(snapshot.getCount()).isEqualTo(1000L);
+        assertThat(snapshot.getSum()).isEqualTo(500500000L);
+        assertThat(snapshot.getMax()).isEqualTo(1000000L);
+        assertThat(snapshot.getMean()).isWithin(0.001).of(500500);
+        assertWithinPrecision(snapshot.getValueAtQuantile(0.5), 500000);
+        assertWithinPrecision(snapshot.getValueAtQuantile(0.99), 990000);
+        assertThat(snapshot.getValueAtQuantile(1)).isEqualTo(1000000L);
+        assertWithinPrecision(snapshot.getValueAtQuantile(0), 1000);
+    }
+
+    @Test
+    public void snapshot_random() {
+        Histogram histogram = new Histogram("test", "Test.", ImmutableMap.of(), 1L << 40);
+        Random random = new Random(1);
+        long[] values = new long[10000];
+        for (int i = 0; i < values.length; ++i) {
+            values[i] = (long) Math.exp(random.nextDouble() * 25);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+
+        Histogram.Snapshot snapshot = histogram.snapshot();
+        for (double quantile : new double[] {0.1, 0.5, 0.9, 0.99, 0.999}) {
+            assertWithinPrecision(snapshot.getValueAtQuantile(quantile),
+                values[(int) Math.ceil(quantile * values.length) - 1]);
+        }
+    }
+
+    @Test
+    public void record_clamps() {
+        Histogram histogram = new Histogram("test", "Test.", ImmutableMap.of(), 100);
+        histogram.record(-5);
+        histogram.record(1000);
+
+        Histogram.Snapshot snapshot = histogram.snapshot();
+        assertThat(snapshot.getValueAtQuantile(0)).isEqualTo(0L);
+        assertThat(snapshot.getMax()).isEqualTo(100L);
+        assertThat(snapshot.getSum()).isEqualTo(100L);
+    }
+
+    @Test
+    public void snapshot_empty() {
+        Histogram.Snapshot snapshot =
+            new Histogram("test", "Test.", ImmutableMap.of(), 100).snapshot();
+        assertThat(snapshot.getCount()).isEqualTo(0L);
+        assertThat(snapshot.getMean()).isWithin(0).of(0);
+        assertThat(snapshot.getValueAtQuantile(0.99)).isEqualTo(0L);
+    }
+
+    private static void assertWithinPrecision(long actual, long expected) {
+        assertThat((double) actual).isWithin(expected / 64.0).of(expected);
+    }
+}
@@ -0,0 +1,128 @@
+package me.fru1t.csgo_server_manager.metrics;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+@RunWith(JUnit4.class)
+public class MetricRegistryTest {
+    @Test
+    public void counter() {
+        MetricRegistry registry = new MetricRegistry();
+        Counter counter = registry.counter("test_total", "Test.", "label", "a");
+        counter.increment();
+        counter.add(5);
+
+        assertThat(counter.get()).isEqualTo(6L);
+        assertThat(counter.getName()).isEqualTo("test_total");
+        assertThat(counter.getHelp()).isEqualTo("Test.");
+        assertThat(counter.getLabels()).isEqualTo(ImmutableMap.of("label", "a"));
+        assertThat(registry.counter("test_total", "Test.", "label", "a")).isSameAs(counter);
+        assertThat(registry.counter("test_total", "Test.", "label", "b")).isNotSameAs(counter);
+    }
+
+    @Test
+    public void gauge() {
+        MetricRegistry registry = new MetricRegistry();
+        int[] value = {1};
+        Gauge gauge = registry.gauge("test", "Test.", () -> value[0]);
+        value[0] = 2;
+
+        assertThat(gauge.get()).isEqualTo(2.0);
+        assertThat(gauge.getType()).isEqualTo(Metric.Type.GAUGE);
+    }
+
+    @Test
+    public void timer() {
+        MetricRegistry registry = new MetricRegistry();
+        Timer timer = registry.timer("test_seconds", "Test.");
+        timer.record(1000);
+        timer.recordSince(System.nanoTime());
+
+        assertThat(timer.getCount()).isEqualTo(2L);
+        assertThat(timer.getMaxValue()).isEqualTo(Timer.MAX_NANOS);
+        assertThat(timer.snapshot().getMax()).isAtLeast(1000L);
+        assertThat(registry.timer("test_seconds", "Test.")).isSameAs(timer);
+    }
+
+    @Test
+    public void getMetrics() {
+        MetricRegistry registry = new MetricRegistry();
+        registry.counter("b_total", "B.", "x", "2");
+        registry.gauge("a_b", "A b.", () -> 0);
+        registry.counter("b_total", "B.", "x", "1");
+        registry.histogram("a", "A.", 100, "y", "1");
+        registry.counter("b", "B.");
+
+        List<String> names = registry.getMetrics().stream()
+            .map(m -> m.getName() + m.getLabels()).collect(Collectors.toList());
+        assertThat(names).containsExactly("a_b{}", "a{y=1}", "b_total{x=1}", "b_total{x=2}",
+            "b{}").inOrder();
+    }
+
+    @Test
+    public void register_invalid() {
+        MetricRegistry registry = new MetricRegistry();
+        registry.counter("test_total", "Test.");
+
+        assertInvalid(() -> registry.gauge("test_total", "Test.", () -> 0));
+        assertInvalid(() -> registry.timer("test_total", "Test.", "label", "a"));
+        assertInvalid(() -> registry.counter("9test", "Test."));
+        assertInvalid(() -> registry.counter("test-total", "Test."));
+        assertInvalid(() -> registry.counter("other", "Test.", "label"));
+        assertInvalid(() -> registry.counter("other", "Test.", "bad label", "a"));
+        assertInvalid(() -> registry.counter("other", "Test.", "label", "a", "label", "b"));
+        assertInvalid(() -> registry.histogram("other", "Test.", 0));
+    }
+
+    @Test
+    public void record_doesNotAllocate() {
+        assumeTrue(ManagementFactory.getThreadMXBean()
+            instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported()
+            && threads.isThreadAllocatedMemoryEnabled());
+
+        MetricRegistry registry = new MetricRegistry();
+        Counter counter = registry.counter("test_total", "Test.");
+        Timer timer = registry.timer("test_seconds", "Test.");
+        Histogram histogram = registry.histogram("test_bytes", "Test.", 1L << 30);
+        record(counter, timer, histogram);
+
+        long thread = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(thread);
+        record(counter, timer, histogram);
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+
+        // Allowing for anything the measuring itself allocates
+        assertThat(allocated).isLessThan(1024L);
+    }
+
+    private static void record(Counter counter, Timer timer, Histogram histogram) {
+        for (int i = 0; i < 100000; ++i) {
+            long startNanos = System.nanoTime();
+            counter.increment();
+            histogram.record(i * 997L);
+            timer.recordSince(startNanos);
+        }
+    }
+
+    private static void assertInvalid(Runnable register) {
+        try {
+            register.run();
+            fail("Registering should have errored");
+        } catch (IllegalArgumentException e) {
+            // Expected behavior
+        }
+    }
+}
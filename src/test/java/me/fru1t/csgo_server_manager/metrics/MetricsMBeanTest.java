@@ -0,0 +1,56 @@
+package me.fru1t.csgo_server_manager.metrics;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import javax.management.AttributeNotFoundException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+@RunWith(JUnit4.class)
+public class MetricsMBeanTest {
+    @Test
+    public void getAttribute() throws Exception {
+        MetricRegistry registry = new MetricRegistry();
+        registry.counter("requests_total", "Requests.", "uri", "/a").add(3);
+        MBeanServer server = MBeanServerFactory.newMBeanServer();
+        ObjectName name = new ObjectName(MetricsMBean.OBJECT_NAME);
+        server.registerMBean(new MetricsMBean(registry), name);
+
+        assertThat(server.getAttribute(name, "requests_total{uri=\"/a\"}")).isEqualTo(3L);
+
+        // Metrics registered later appear too
+        Timer timer = registry.timer("parse_seconds", "Parses.");
+        timer.record(2000000000);
+        registry.gauge("running", "Running.", () -> 4);
+        assertThat(server.getAttribute(name, "parse_seconds.count")).isEqualTo(1L);
+        assertThat(server.getAttribute(name, "parse_seconds.max")).isEqualTo(2.0);
+        assertThat(server.getAttribute(name, "running")).isEqualTo(4.0);
+
+        List<String> attributes = new ArrayList<>();
+        for (MBeanAttributeInfo info : server.getMBeanInfo(name).getAttributes()) {
+            attributes.add(info.getName());
+        }
+        assertThat(attributes).containsExactly("parse_seconds.count", "parse_seconds.mean",
+            "parse_seconds.max", "parse_seconds.p50", "parse_seconds.p90", "parse_seconds.p99",
+            "parse_seconds.p999", "requests_total{uri=\"/a\"}", "running").inOrder();
+    }
+
+    @Test
+    public void getAttribute_missing() {
+        try {
+            new MetricsMBean(new MetricRegistry()).getAttribute("missing");
+            fail("Getting a missing attribute should have errored");
+        } catch (AttributeNotFoundException e) {
+            // Expected behavior
+        }
+    }
+}
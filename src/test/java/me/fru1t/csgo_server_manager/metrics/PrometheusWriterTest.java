@@ -0,0 +1,63 @@
+package me.fru1t.csgo_server_manager.metrics;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(JUnit4.class)
+public class PrometheusWriterTest {
+    @Test
+    public void write() throws IOException {
+        MetricRegistry registry = new MetricRegistry();
+        registry.counter("requests_total", "Requests.", "uri", "/a").add(3);
+        registry.counter("requests_total", "Requests.", "uri", "/b\"\\\n").increment();
+        registry.gauge("running", "Running\nservers \\.", () -> 2.5);
+        registry.histogram("size_bytes", "Sizes.", 1000).record(100);
+        Timer timer = registry.timer("parse_seconds", "Parses.");
+        timer.record(1500000000);
+        timer.record(500000000);
+
+        StringBuilder out = new StringBuilder();
+        new PrometheusWriter(out).write(registry.getMetrics());
+
+        assertThat(out.toString()).isEqualTo(""
+            + "# HELP parse_seconds Parses.\n"
+            + "# TYPE parse_seconds summary\n"
+            + "parse_seconds{quantile=\"0.5\"} " + seconds(timer, 0.5) + "\n"
+            + "parse_seconds{quantile=\"0.9\"} 1.5\n"
+            + "parse_seconds{quantile=\"0.99\"} 1.5\n"
+            + "parse_seconds{quantile=\"0.999\"} 1.5\n"
+            + "parse_seconds_sum 2\n"
+            + "parse_seconds_count 2\n"
+            + "# HELP parse_seconds_max The largest value of parse_seconds.\n"
+            + "# TYPE parse_seconds_max gauge\n"
+            + "parse_seconds_max 1.5\n"
+            + "# HELP requests_total Requests.\n"
+            + "# TYPE requests_total counter\n"
+            + "requests_total{uri=\"/a\"} 3\n"
+            + "requests_total{uri=\"/b\\\"\\\\\\n\"} 1\n"
+            + "# HELP running Running\\nservers \\\\.\n"
+            + "# TYPE running gauge\n"
+            + "running 2.5\n"
+            + "# HELP size_bytes Sizes.\n"
+            + "# TYPE size_bytes summary\n"
+            + "size_bytes{quantile=\"0.5\"} 100\n"
+            + "size_bytes{quantile=\"0.9\"} 100\n"
+            + "size_bytes{quantile=\"0.99\"} 100\n"
+            + "size_bytes{quantile=\"0.999\"} 100\n"
+            + "size_bytes_sum 100\n"
+            + "size_bytes_count 1\n"
+            + "# HELP size_bytes_max The largest value of size_bytes.\n"
+            + "# TYPE size_bytes_max gauge\n"
+            + "size_bytes_max 100\n");
+    }
+
+    // The median falls in a bucket, so is only known to within its precision
+    private static String seconds(Timer timer, double quantile) {
+        return Double.toString(timer.snapshot().getValueAtQuantile(quantile) / 1e9);
+    }
+}
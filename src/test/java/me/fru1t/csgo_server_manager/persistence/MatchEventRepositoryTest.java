@@ -0,0 +1,78 @@
+package me.fru1t.csgo_server_manager.persistence;
+
+import com.google.common.collect.ImmutableList;
+import me.fru1t.csgo_server_manager.logs.LogEventType;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(JUnit4.class)
+public class MatchEventRepositoryTest {
+    private static final LocalDateTime NOW = LocalDateTime.of(2017, 7, 1, 20, 15, 30);
+
+    private MatchEventRepository repository;
+
+    @Before
+    public void setUp() throws Exception {
+        repository = new MatchEventRepository(TestDatabase.create());
+    }
+
+    @Test
+    public void writeAndFindRecent() throws Exception {
+        repository.write(ImmutableList.of(
+            new MatchEvent("casual1", LogEventType.MAP_START, NOW, null, null, null, null, null,
+                null, "de_dust2", false),
+            kill("casual1", "Alice", "STEAM_1:0:1", "Bob", "STEAM_1:0:2", true),
+            kill("casual2", "Bob", "STEAM_1:0:2", "Alice", "STEAM_1:0:1", false)));
+
+        List<MatchEvent> events = repository.findRecent("casual1", 10);
+        assertThat(events).hasSize(2);
+        MatchEvent kill = events.get(0);
+        assertThat(kill.getServer()).isEqualTo("casual1");
+        assertThat(kill.getType()).isEqualTo(LogEventType.KILL);
+        assertThat(kill.getLoggedAt()).isEqualTo(NOW);
+        assertThat(kill.getPlayerName()).isEqualTo("Alice");
+        assertThat(kill.getTargetSteamId()).isEqualTo("STEAM_1:0:2");
+        assertThat(kill.getTargetTeam()).isEqualTo("TERRORIST");
+        assertThat(kill.getValue()).isEqualTo("ak47");
+        assertThat(kill.isHeadshot()).isTrue();
+
+        MatchEvent mapStart = events.get(1);
+        assertThat(mapStart.getType()).isEqualTo(LogEventType.MAP_START);
+        assertThat(mapStart.getPlayerName()).isNull();
+        assertThat(mapStart.getValue()).isEqualTo("de_dust2");
+
+        assertThat(repository.findRecent("casual1", 1)).hasSize(1);
+    }
+
+    @Test
+    public void getPlayerStats() throws Exception {
+        repository.write(ImmutableList.of(
+            kill("casual1", "Alice", "STEAM_1:0:1", "Bob", "STEAM_1:0:2", true),
+            kill("casual1", "Alice", "STEAM_1:0:1", "Bot", "BOT", false),
+            kill("casual1", "Robert", "STEAM_1:0:2", "Alice", "STEAM_1:0:1", false),
+            kill("casual2", "Bob", "STEAM_1:0:2", "Alice", "STEAM_1:0:1", false)));
+
+        List<PlayerStats> stats = repository.getPlayerStats("casual1");
+        assertThat(stats).hasSize(2);
+        assertThat(stats.get(0).getSteamId()).isEqualTo("STEAM_1:0:1");
+        assertThat(stats.get(0).getKills()).isEqualTo(2L);
+        assertThat(stats.get(0).getDeaths()).isEqualTo(1L);
+        assertThat(stats.get(0).getHeadshots()).isEqualTo(1L);
+        assertThat(stats.get(1).getSteamId()).isEqualTo("STEAM_1:0:2");
+        assertThat(stats.get(1).getKills()).isEqualTo(1L);
+        assertThat(stats.get(1).getDeaths()).isEqualTo(1L);
+    }
+
+    private static MatchEvent kill(String server, String player, String playerSteamId,
+        String target, String targetSteamId, boolean isHeadshot) {
+        return new MatchEvent(server, LogEventType.KILL, NOW, player, playerSteamId, "CT", target,
+            targetSteamId, "TERRORIST", "ak47", isHeadshot);
+    }
+}
@@ -0,0 +1,75 @@
+package me.fru1t.csgo_server_manager.persistence;
+
+import com.google.common.collect.ImmutableList;
+import me.fru1t.csgo_server_manager.server.ServerConfig;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.net.InetSocketAddress;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(JUnit4.class)
+public class ServerRepositoryTest {
+    private ServerRepository repository;
+
+    @Before
+    public void setUp() throws Exception {
+        repository = new ServerRepository(TestDatabase.create());
+    }
+
+    @Test
+    public void saveAndFindAll() throws Exception {
+        repository.saveAll(ImmutableList.of(
+            ServerConfig.builder().name("casual2").executable("srcds_run").build(),
+            ServerConfig.builder().name("casual1").executable("/home/steam/csgo/srcds_run")
+                .arguments("-game", "csgo", "+map", "de_dust2")
+                .directory(Paths.get("/home/steam/csgo"))
+                .restartDelayMs(10).maxRestartDelayMs(20).stableAfterMs(30)
+                .rconAddress(new InetSocketAddress("127.0.0.1", 27016)).rconPassword("hunter2")
+                .build()));
+
+        List<ServerConfig> configs = repository.findAll();
+        assertThat(configs).hasSize(2);
+        ServerConfig config = configs.get(0);
+        assertThat(config.getName()).isEqualTo("casual1");
+        assertThat(config.getExecutable()).isEqualTo("/home/steam/csgo/srcds_run");
+        assertThat(config.getArguments())
+            .containsExactly("-game", "csgo", "+map", "de_dust2").inOrder();
+        assertThat(config.getDirectory()).isEqualTo(Paths.get("/home/steam/csgo"));
+        assertThat(config.getRestartDelayMs()).isEqualTo(10L);
+        assertThat(config.getMaxRestartDelayMs()).isEqualTo(20L);
+        assertThat(config.getStableAfterMs()).isEqualTo(30L);
+        assertThat(config.getRconAddress()).isEqualTo(new InetSocketAddress("127.0.0.1", 27016));
+        assertThat(config.getRconPassword()).isEqualTo("hunter2");
+
+        ServerConfig defaults = configs.get(1);
+        assertThat(defaults.getName()).isEqualTo("casual2");
+        assertThat(defaults.getArguments()).isEmpty();
+        assertThat(defaults.getDirectory()).isNull();
+        assertThat(defaults.getRconAddress()).isNull();
+    }
+
+    @Test
+    public void save_replaces() throws Exception {
+        repository.save(ServerConfig.builder().name("casual1").executable("srcds_run").build());
+        repository.save(ServerConfig.builder().name("casual1").executable("srcds_linux").build());
+
+        List<ServerConfig> configs = repository.findAll();
+        assertThat(configs).hasSize(1);
+        assertThat(configs.get(0).getExecutable()).isEqualTo("srcds_linux");
+    }
+
+    @Test
+    public void delete() throws Exception {
+        repository.save(ServerConfig.builder().name("casual1").executable("srcds_run").build());
+        repository.delete("casual1");
+        repository.delete("casual2");
+
+        assertThat(repository.findAll()).isEmpty();
+    }
+}
@@ -0,0 +1,39 @@
+package me.fru1t.csgo_server_manager.persistence;
+
+import com.google.common.base.Splitter;
+import com.google.common.io.Resources;
+import org.h2.jdbcx.JdbcDataSource;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates empty in-memory H2 databases with the application's tables, for testing repositories.
+ */
+final class TestDatabase {
+    private static final AtomicInteger count = new AtomicInteger();
+
+    private TestDatabase() {}
+
+    /**
+     * @return A new database, which lasts until the JVM exits.
+     */
+    static DataSource create() throws IOException, SQLException {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:test" + count.incrementAndGet() + ";DB_CLOSE_DELAY=-1");
+        String schema = Resources.toString(Resources.getResource("schema-h2.sql"),
+            StandardCharsets.UTF_8);
+        try (Connection connection = dataSource.getConnection();
+            Statement statement = connection.createStatement()) {
+            for (String sql : Splitter.on(';').trimResults().omitEmptyStrings().split(schema)) {
+                statement.execute(sql);
+            }
+        }
+        return dataSource;
+    }
+}
@@ -0,0 +1,70 @@
+package me.fru1t.csgo_server_manager.persistence;
+
+import me.fru1t.csgo_server_manager.files.TextSetting;
+import me.fru1t.csgo_server_manager.files.TextSettingRevision;
+import me.fru1t.csgo_server_manager.files.TextSettingRevisionStore;
+import me.fru1t.csgo_server_manager.files.TextSettingUtil;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Scanner;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+@RunWith(JUnit4.class)
+public class TextSettingRevisionRepositoryTest {
+    private static final String PATH = "/home/steam/csgo/gamemodes.txt";
+    private static final String FIRST = "\"root\" { \"a\" { \"b\" \"1\" } \"c\" \"2\" }";
+    private static final String SECOND = "\"root\" { \"a\" { \"b\" \"3\" } \"c\" \"2\" }";
+
+    private TextSettingRevisionRepository repository;
+
+    @Before
+    public void setUp() throws Exception {
+        repository = new TextSettingRevisionRepository(TestDatabase.create());
+    }
+
+    @Test
+    public void commitAndLoad() throws Exception {
+        TextSettingRevisionStore store = TextSettingRevisionStore.load(repository);
+        TextSettingRevision first = store.commit(PATH, parse(FIRST));
+        store.commit(PATH, parse(SECOND));
+        store.commit("/home/steam/csgo/other.txt", parse(FIRST));
+
+        // root, a, b and c, then the new root, a and b
+        assertThat(repository.loadNodes()).hasSize(7);
+
+        TextSettingRevisionStore loaded = TextSettingRevisionStore.load(repository);
+        assertThat(loaded.getRevisions(PATH)).hasSize(2);
+        TextSettingRevision loadedFirst = loaded.getRevision(PATH, 0);
+        assertThat(loadedFirst.getRootHash()).isEqualTo(first.getRootHash());
+        assertThat(loadedFirst.getCommittedAtMillis()).isEqualTo(first.getCommittedAtMillis());
+        assertThat(loaded.restore(loaded.getLatest(PATH)).getChildren().get("a").getChildren()
+            .get("b").getValue()).isEqualTo("3");
+        assertThat(loaded.getRevisions("/home/steam/csgo/other.txt")).hasSize(1);
+        assertThat(loaded.diff(loadedFirst, loaded.getLatest(PATH)).toString())
+            .isEqualTo("[CHANGED a/b]");
+    }
+
+    @Test
+    public void add_duplicateRevision() throws Exception {
+        TextSettingRevision revision =
+            TextSettingRevisionStore.load(repository).commit(PATH, parse(FIRST));
+        try {
+            repository.add(revision, Collections.emptyMap());
+            fail();
+        } catch (IOException e) {
+            // Expected
+        }
+        assertThat(repository.loadRevisions()).hasSize(1);
+    }
+
+    private static TextSetting parse(String file) throws Exception {
+        return TextSettingUtil.processFile(new Scanner(file));
+    }
+}
@@ -0,0 +1,163 @@
+package me.fru1t.csgo_server_manager.persistence;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+@RunWith(JUnit4.class)
+public class WriteBehindQueueTest {
+    private static final long TIMEOUT_MS = 10 * 1000;
+
+    private final BlockingQueue<List<Integer>> batches = new LinkedBlockingQueue<>();
+    private WriteBehindQueue<Integer> queue;
+
+    @After
+    public void tearDown() {
+        if (queue != null) {
+            queue.close();
+        }
+    }
+
+    @Test
+    public void add_writesFullBatches() throws Exception {
+        queue = new WriteBehindQueue<>("test", batch -> batches.add(new ArrayList<>(batch)), 3,
+            60 * 60 * 1000, 100);
+        for (int i = 0; i < 7; ++i) {
+            queue.add(i);
+        }
+
+        assertThat(batches.poll(TIMEOUT_MS, TimeUnit.MILLISECONDS)).containsExactly(0, 1, 2)
+            .inOrder();
+        assertThat(batches.poll(TIMEOUT_MS, TimeUnit.MILLISECONDS)).containsExactly(3, 4, 5)
+            .inOrder();
+        assertThat(batches.poll(100, TimeUnit.MILLISECONDS)).isNull();
+
+        queue.flush();
+        assertThat(batches.poll()).containsExactly(6);
+        assertThat(queue.getWrittenCount()).isEqualTo(7L);
+    }
+
+    @Test
+    public void add_writesAfterFlushInterval() throws Exception {
+        queue = new WriteBehindQueue<>("test", batch -> batches.add(new ArrayList<>(batch)), 100,
+            50, 100);
+        long start = System.nanoTime();
+        queue.add(1);
+        queue.add(2);
+
+        assertThat(batches.poll(TIMEOUT_MS, TimeUnit.MILLISECONDS)).containsExactly(1, 2)
+            .inOrder();
+        assertThat(System.nanoTime() - start).isAtLeast(TimeUnit.MILLISECONDS.toNanos(50));
+    }
+
+    @Test
+    public void write_retriesThenDrops() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        queue = new WriteBehindQueue<>("test", batch -> {
+            if (attempts.incrementAndGet() < 2 || batch.contains(13)) {
+                throw new SQLException("Locked");
+            }
+            batches.add(new ArrayList<>(batch));
+        }, 1, 60 * 60 * 1000, 100);
+        queue.add(1);
+        queue.add(13);
+        queue.add(2);
+        queue.flush();
+
+        assertThat(batches).containsExactly(ImmutableList.of(1), ImmutableList.of(2)).inOrder();
+        assertThat(queue.getWrittenCount()).isEqualTo(2L);
+        assertThat(queue.getDroppedCount()).isEqualTo(1L);
+    }
+
+    @Test
+    public void close_writesEverything() throws Exception {
+        queue = new WriteBehindQueue<>("test", batch -> batches.add(new ArrayList<>(batch)), 100,
+            60 * 60 * 1000, 100);
+        queue.add(1);
+        queue.close();
+
+        assertThat(batches.poll()).containsExactly(1);
+        try {
+            queue.add(2);
+            fail();
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void add_waitsForRoom() throws Exception {
+        Object lock = new Object();
+        queue = new WriteBehindQueue<>("test", batch -> {
+            synchronized (lock) {
+                batches.add(new ArrayList<>(batch));
+            }
+        }, 1, 60 * 60 * 1000, 2);
+
+        Thread adder;
+        synchronized (lock) {
+            // One row's being written, and two more fill the queue
+            queue.add(1);
+            queue.add(2);
+            queue.add(3);
+            adder = new Thread(() -> {
+                try {
+                    queue.add(4);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            adder.start();
+            adder.join(200);
+            assertThat(adder.isAlive()).isTrue();
+        }
+
+        adder.join(TIMEOUT_MS);
+        queue.flush();
+        assertThat(queue.getWrittenCount()).isEqualTo(4L);
+    }
+
+    @Test
+    public void flush_racingClose_neverHangs() throws Exception {
+        for (int i = 0; i < 200; ++i) {
+            queue = new WriteBehindQueue<>("test", batch -> {}, 10, 60 * 60 * 1000, 100);
+            AtomicLong addedCount = new AtomicLong();
+            CountDownLatch start = new CountDownLatch(1);
+            Thread flusher = new Thread(() -> {
+                try {
+                    start.await();
+                    queue.add(1);
+                    addedCount.incrementAndGet();
+                    queue.flush();
+                } catch (IllegalStateException e) {
+                    // Closed first
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            flusher.start();
+            start.countDown();
+            queue.close();
+
+            flusher.join(TIMEOUT_MS);
+            assertThat(flusher.isAlive()).isFalse();
+            assertThat(queue.getWrittenCount() + queue.getDroppedCount())
+                .isEqualTo(addedCount.get());
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package me.fru1t.csgo_server_manager.query;
+
+import com.google.common.collect.ImmutableList;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>In-process query servers that answer as CS:GO servers do, for testing and benchmarking
+ * {@link QueryClient} without real servers. Every server listens on its own loopback port, and
+ * they're all answered by a single thread.</p>
+ * <p>As CS:GO servers do, every query must carry the server's challenge, and is otherwise
+ * answered with it. Answers larger than a packet are split, and their packets are sent in reverse
+ * order, to check they're put back together properly.</p>
+ */
+public class FakeQueryServer implements Closeable {
+    private final Selector selector;
+    private final List<DatagramChannel> channels;
+    private final int playerCount;
+    private final int ruleCount;
+    private final AtomicInteger requestCount;
+    private final AtomicInteger challengeCount;
+    private final AtomicInteger nextSplitId;
+    private volatile boolean isSilent;
+
+    /**
+     * @param serverCount The number of servers to listen as.
+     * @param playerCount The number of players each server has.
+     * @param ruleCount The number of rules each server has.
+     */
+    public FakeQueryServer(int serverCount, int playerCount, int ruleCount) throws IOException {
+        this.playerCount = playerCount;
+        this.ruleCount = ruleCount;
+        requestCount = new AtomicInteger();
+        challengeCount = new AtomicInteger();
+        nextSplitId = new AtomicInteger();
+        isSilent = false;
+        selector = Selector.open();
+        channels = new ArrayList<>(serverCount);
+        for (int i = 0; i < serverCount; ++i) {
+            DatagramChannel channel = DatagramChannel.open();
+            channel.configureBlocking(false);
+            channel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            channel.register(selector, SelectionKey.OP_READ, i);
+            channels.add(channel);
+        }
+
+        Thread thread = new Thread(this::serve, "FakeQueryServer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * @return The address of each server, in order.
+     */
+    public ImmutableList<InetSocketAddress> getAddresses() throws IOException {
+        ImmutableList.Builder<InetSocketAddress> addresses = ImmutableList.builder();
+        for (DatagramChannel channel : channels) {
+            addresses.add((InetSocketAddress) channel.getLocalAddress());
+        }
+        return addresses.build();
+    }
+
+    /**
+     * @return The number of queries received so far, including those answered with a challenge.
+     */
+    public int getRequestCount() {
+        return requestCount.get();
+    }
+
+    /**
+     * @return The number of queries answered with a challenge so far.
+     */
+    public int getChallengeCount() {
+        return challengeCount.get();
+    }
+
+    /**
+     * Stops answering queries, as a server that's gone down would, or starts again.
+     */
+    public void setSilent(boolean isSilent) {
+        this.isSilent = isSilent;
+    }
+
+    @Override
+    public void close() throws IOException {
+        selector.close();
+        for (DatagramChannel channel : channels) {
+            channel.close();
+        }
+    }
+
+    /**
+     * @return The challenge the given server demands.
+     */
+    static int getChallenge(int server) {
+        return 0x5EED0000 + server;
+    }
+
+    /**
+     * @return The given server's A2S_INFO answer, with the -1 header.
+     */
+    static byte[] encodeInfo(int server, int playerCount) {
+        ByteBuffer out = QueryPacket.allocate(QueryPacket.MAX_PACKET_BYTES);
+        out.putInt(QueryPacket.SIMPLE_HEADER);
+        out.put(QueryPacket.Type.INFO.answer);
+        out.put((byte) 17);
+        putString(out, "Server " + server);
+        putString(out, "de_dust2");
+        putString(out, "csgo");
+        putString(out, "Counter-Strike: Global Offensive");
+        out.putShort((short) 730);
+        out.put((byte) (playerCount + 2));
+        out.put((byte) 24);
+        out.put((byte) 2);
+        out.put((byte) 'd');
+        out.put((byte) 'l');
+        out.put((byte) 0);
+        out.put((byte) 1);
+        putString(out, "1.38.0.0");
+        out.put((byte) 0xB1);
+        out.putShort((short) (27015 + server));
+        out.putLong(90000000000000000L + server);
+        putString(out, "empty,secure");
+        out.putLong(730);
+        return toBytes(out);
+    }
+
+    /**
+     * @return An A2S_PLAYER answer, with the -1 header, of players named "player0" and on.
+     */
+    static byte[] encodePlayers(int playerCount) {
+        ByteBuffer out = QueryPacket.allocate(5 + 2 + playerCount * 24);
+        out.putInt(QueryPacket.SIMPLE_HEADER);
+        out.put(QueryPacket.Type.PLAYERS.answer);
+        out.put((byte) playerCount);
+        for (int i = 0; i < playerCount; ++i) {
+            out.put((byte) 0);
+            putString(out, "player" + i);
+            out.putInt(i);
+            out.putFloat(i * 60f);
+        }
+        return toBytes(out);
+    }
+
+    /**
+     * @return An A2S_RULES answer, with the -1 header, of rules named "rule0" and on, set to
+     * "value0" and on.
+     */
+    static byte[] encodeRules(int ruleCount) {
+        ByteBuffer out = QueryPacket.allocate(7 + ruleCount * 24);
+        out.putInt(QueryPacket.SIMPLE_HEADER);
+        out.put(QueryPacket.Type.RULES.answer);
+        out.putShort((short) ruleCount);
+        for (int i = 0; i < ruleCount; ++i) {
+            putString(out, "rule" + i);
+            putString(out, "value" + i);
+        }
+        return toBytes(out);
+    }
+
+    /**
+     * @return The given answer, with the -1 header, as packets of at most
+     * {@link QueryPacket#MAX_PACKET_BYTES}, in order. Answers that fit in one packet are returned
+     * as is.
+     */
+    static List<ByteBuffer> split(int id, byte[] answer) {
+        List<ByteBuffer> packets = new ArrayList<>();
+        if (answer.length <= QueryPacket.MAX_PACKET_BYTES) {
+            packets.add(ByteBuffer.wrap(answer));
+            return packets;
+        }
+        int payloadBytes = QueryPacket.MAX_PACKET_BYTES - QueryPacket.SPLIT_HEADER_BYTES;
+        int count = (answer.length + payloadBytes - 1) / payloadBytes;
+        for (int i = 0; i < count; ++i) {
+            int offset = i * payloadBytes;
+            int length = Math.min(payloadBytes, answer.length - offset);
+            ByteBuffer packet = QueryPacket.allocate(QueryPacket.SPLIT_HEADER_BYTES + length);
+            packet.putInt(QueryPacket.SPLIT_HEADER);
+            packet.putInt(id);
+            packet.put((byte) count);
+            packet.put((byte) i);
+            packet.putShort((short) QueryPacket.MAX_PACKET_BYTES);
+            packet.put(answer, offset, length);
+            packet.flip();
+            packets.add(packet);
+        }
+        return packets;
+    }
+
+    private void serve() {
+        ByteBuffer in = QueryPacket.allocate(QueryPacket.MAX_PACKET_BYTES);
+        try {
+            while (true) {
+                selector.select();
+                for (SelectionKey key : selector.selectedKeys()) {
+                    DatagramChannel channel = (DatagramChannel) key.channel();
+                    while (true) {
+                        in.clear();
+                        SocketAddress from = channel.receive(in);
+                        if (from == null) {
+                            break;
+                        }
+                        in.flip();
+                        answer(channel, (Integer) key.attachment(), from, in);
+                    }
+                }
+                selector.selectedKeys().clear();
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            // Closed
+        }
+    }
+
+    private void answer(DatagramChannel channel, int server, SocketAddress to, ByteBuffer in)
+        throws IOException {
+        requestCount.incrementAndGet();
+        if (isSilent) {
+            return;
+        }
+
+        QueryPacket.Type type;
+        int challenge;
+        try {
+            if (in.getInt() != QueryPacket.SIMPLE_HEADER) {
+                return;
+            }
+            byte header = in.get();
+            type = null;
+            for (QueryPacket.Type candidate : QueryPacket.Type.values()) {
+                if (candidate.request == header) {
+                    type = candidate;
+                }
+            }
+            if (type == null) {
+                return;
+            }
+            if (type == QueryPacket.Type.INFO) {
+                in.position(in.position() + "Source Engine Query\0".length());
+            }
+            challenge = in.remaining() >= 4 ? in.getInt() : QueryPacket.NO_CHALLENGE;
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            return;
+        }
+
+        if (challenge != getChallenge(server)) {
+            challengeCount.incrementAndGet();
+            ByteBuffer out = QueryPacket.allocate(9);
+            out.putInt(QueryPacket.SIMPLE_HEADER);
+            out.put(QueryPacket.S2C_CHALLENGE);
+            out.putInt(getChallenge(server));
+            out.flip();
+            channel.send(out, to);
+            return;
+        }
+
+        byte[] answer;
+        switch (type) {
+            case INFO:
+                answer = encodeInfo(server, playerCount);
+                break;
+            case PLAYERS:
+                answer = encodePlayers(playerCount);
+                break;
+            case RULES:
+            default:
+                answer = encodeRules(ruleCount);
+                break;
+        }
+        List<ByteBuffer> packets = split(nextSplitId.incrementAndGet(), answer);
+        for (int i = packets.size() - 1; i >= 0; --i) {
+            channel.send(packets.get(i), to);
+        }
+    }
+
+    private static void putString(ByteBuffer out, String value) {
+        out.put(value.getBytes(StandardCharsets.UTF_8));
+        out.put((byte) 0);
+    }
+
+    private static byte[] toBytes(ByteBuffer out) {
+        byte[] bytes = new byte[out.position()];
+        out.flip();
+        out.get(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,250 @@
+package me.fru1t.csgo_server_manager.query;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+@RunWith(JUnit4.class)
+public class QueryClientTest {
+    private static final long TIMEOUT_MS = 10 * 1000;
+
+    private FakeQueryServer server;
+    private InetSocketAddress address;
+    private QueryClient client;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new FakeQueryServer(1, 5, 200);
+        address = server.getAddresses().get(0);
+        client = new QueryClient(2000);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        client.close();
+        server.close();
+    }
+
+    @Test
+    public void queryInfo() throws Exception {
+        ServerInfo info = client.queryInfo(address).get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        assertThat(info.getName()).isEqualTo("Server 0");
+        assertThat(info.getPlayers()).isEqualTo(7);
+        assertThat(info.getBots()).isEqualTo(2);
+
+        // Asked without a challenge, then with the one it answered with
+        assertThat(server.getRequestCount()).isEqualTo(2);
+        assertThat(server.getChallengeCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void queryInfo_reusesChallenge() throws Exception {
+        client.queryInfo(address).get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        client.queryInfo(address).get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        client.queryPlayers(address).get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+
+        assertThat(server.getRequestCount()).isEqualTo(4);
+        assertThat(server.getChallengeCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void queryPlayers() throws Exception {
+        ImmutableList<PlayerInfo> players =
+            client.queryPlayers(address).get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        assertThat(players).hasSize(5);
+        assertThat(players.get(4).getName()).isEqualTo("player4");
+    }
+
+    @Test
+    public void queryRules_split() throws Exception {
+        // Too many rules to fit in a single packet
+        assertThat(FakeQueryServer.encodeRules(200).length)
+            .isGreaterThan(QueryPacket.MAX_PACKET_BYTES * 2);
+
+        ImmutableMap<String, String> rules =
+            client.queryRules(address).get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        assertThat(rules).hasSize(200);
+        assertThat(rules.get("rule199")).isEqualTo("value199");
+    }
+
+    @Test
+    public void query_coalesced() throws Exception {
+        List<CompletableFuture<ServerInfo>> futures = new ArrayList<>();
+        for (int i = 0; i < 10; ++i) {
+            futures.add(client.queryInfo(address));
+        }
+        for (CompletableFuture<ServerInfo> future : futures) {
+            assertThat(future.get(TIMEOUT_MS, TimeUnit.MILLISECONDS).getName())
+                .isEqualTo("Server 0");
+        }
+
+        // Some may have been sent before the rest were submitted, but not one each
+        assertThat(server.getRequestCount()).isLessThan(20);
+    }
+
+    @Test
+    public void query_manyServers() throws Exception {
+        try (FakeQueryServer servers = new FakeQueryServer(200, 2, 10)) {
+            List<CompletableFuture<ServerInfo>> futures = new ArrayList<>();
+            for (InetSocketAddress server : servers.getAddresses()) {
+                futures.add(client.queryInfo(server));
+            }
+            for (int i = 0; i < futures.size(); ++i) {
+                assertThat(futures.get(i).get(TIMEOUT_MS, TimeUnit.MILLISECONDS).getName())
+                    .isEqualTo("Server " + i);
+            }
+        }
+    }
+
+    @Test
+    public void query_challengeWhileQueued() throws Exception {
+        BlockingQueue<String> sent = new LinkedBlockingQueue<>();
+        BlockingQueue<String> refused = new LinkedBlockingQueue<>();
+        AtomicBoolean isFull = new AtomicBoolean(false);
+        try (DatagramSocket socket = new DatagramSocket(0, InetAddress.getLoopbackAddress());
+            QueryClient fullClient = new QueryClient(TIMEOUT_MS, (channel, packet, to) -> {
+                if (isFull.get()) {
+                    refused.add(describe(packet));
+                    return 0;
+                }
+                sent.add(describe(packet));
+                return channel.send(packet, to);
+            })) {
+            socket.setSoTimeout((int) TIMEOUT_MS);
+            InetSocketAddress server = (InetSocketAddress) socket.getLocalSocketAddress();
+            int challenge = FakeQueryServer.getChallenge(0);
+
+            // A2S_INFO is sent without a challenge, then A2S_PLAYER finds no room to be sent
+            fullClient.queryInfo(server);
+            DatagramPacket request = new DatagramPacket(
+                new byte[QueryPacket.MAX_PACKET_BYTES], QueryPacket.MAX_PACKET_BYTES);
+            socket.receive(request);
+            isFull.set(true);
+            fullClient.queryPlayers(server);
+            assertThat(refused.poll(TIMEOUT_MS, TimeUnit.MILLISECONDS))
+                .isEqualTo(describe(QueryPacket.Type.PLAYERS, QueryPacket.NO_CHALLENGE));
+
+            // A2S_PLAYER is still waiting when the challenge comes, and is tried with it next
+            ByteBuffer answer = QueryPacket.allocate(9);
+            answer.putInt(QueryPacket.SIMPLE_HEADER);
+            answer.put(QueryPacket.S2C_CHALLENGE);
+            answer.putInt(challenge);
+            socket.send(new DatagramPacket(answer.array(), 9, request.getSocketAddress()));
+            String players = describe(QueryPacket.Type.PLAYERS, challenge);
+            String attempt;
+            do {
+                attempt = refused.poll(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                assertThat(attempt).isNotNull();
+            } while (!attempt.equals(players));
+
+            // Closing waits for the client's thread, so anything sent along with A2S_INFO is
+            // in by then
+            isFull.set(false);
+            String info = describe(QueryPacket.Type.INFO, challenge);
+            List<String> sends = new ArrayList<>();
+            do {
+                attempt = sent.poll(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                assertThat(attempt).isNotNull();
+                sends.add(attempt);
+            } while (!attempt.equals(info));
+            fullClient.close();
+            sent.drainTo(sends);
+
+            // Each sent once with the challenge, rather than A2S_PLAYER being queued again
+            assertThat(sends).containsExactly(
+                describe(QueryPacket.Type.INFO, QueryPacket.NO_CHALLENGE), players, info)
+                .inOrder();
+        }
+    }
+
+    @Test
+    public void query_timeout() throws Exception {
+        server.setSilent(true);
+        try (QueryClient quickClient = new QueryClient(200)) {
+            quickClient.queryInfo(address).get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertThat(e.getCause()).isInstanceOf(TimeoutException.class);
+        }
+    }
+
+    @Test
+    public void query_timeoutThenAnswered() throws Exception {
+        server.setSilent(true);
+        try (QueryClient quickClient = new QueryClient(200)) {
+            try {
+                quickClient.queryInfo(address).get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                fail();
+            } catch (ExecutionException e) {
+                assertThat(e.getCause()).isInstanceOf(TimeoutException.class);
+            }
+
+            server.setSilent(false);
+            assertThat(quickClient.queryInfo(address).get(TIMEOUT_MS, TimeUnit.MILLISECONDS)
+                .getName()).isEqualTo("Server 0");
+        }
+    }
+
+    @Test
+    public void close_failsOutstanding() throws Exception {
+        server.setSilent(true);
+        CompletableFuture<ServerInfo> future = client.queryInfo(address);
+        client.close();
+        try {
+            future.get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertThat(e.getCause()).isInstanceOf(IOException.class);
+        }
+
+        try {
+            client.queryInfo(address).get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertThat(e.getCause()).isInstanceOf(IOException.class);
+        }
+    }
+
+    // As in "U 5eed0000", of the header and challenge of the given request
+    private static String describe(ByteBuffer packet) {
+        ByteBuffer in = packet.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        in.getInt();
+        byte header = in.get();
+        if (header == QueryPacket.Type.INFO.request) {
+            in.position(in.position() + "Source Engine Query\0".length());
+        }
+        return describe(header, in.remaining() >= 4 ? in.getInt() : QueryPacket.NO_CHALLENGE);
+    }
+
+    private static String describe(QueryPacket.Type type, int challenge) {
+        return describe(type.request, challenge);
+    }
+
+    private static String describe(byte header, int challenge) {
+        return (char) header + " " + Integer.toHexString(challenge);
+    }
+}
@@ -0,0 +1,113 @@
+package me.fru1t.csgo_server_manager.query;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+@RunWith(JUnit4.class)
+public class QueryPacketTest {
+    @Test
+    public void writeRequest() {
+        ByteBuffer out = QueryPacket.allocate(QueryPacket.MAX_PACKET_BYTES);
+        QueryPacket.writeRequest(out, QueryPacket.Type.PLAYERS, 0x01020304);
+        assertThat(Arrays.copyOf(out.array(), out.position()))
+            .isEqualTo(new byte[] {-1, -1, -1, -1, 'U', 4, 3, 2, 1});
+    }
+
+    @Test
+    public void writeRequest_info() {
+        ByteBuffer out = QueryPacket.allocate(QueryPacket.MAX_PACKET_BYTES);
+        QueryPacket.writeRequest(out, QueryPacket.Type.INFO, QueryPacket.NO_CHALLENGE);
+        assertThat(new String(out.array(), 4, out.position() - 4, StandardCharsets.US_ASCII))
+            .isEqualTo("TSource Engine Query\0");
+
+        // Only carries a challenge once there is one
+        out.clear();
+        QueryPacket.writeRequest(out, QueryPacket.Type.INFO, 7);
+        assertThat(out.position()).isEqualTo(4 + 1 + 20 + 4);
+        assertThat(out.getInt(25)).isEqualTo(7);
+    }
+
+    @Test
+    public void read_info() throws Exception {
+        ServerInfo info = (ServerInfo) QueryPacket.read(QueryPacket.Type.INFO,
+            answer(FakeQueryServer.encodeInfo(3, 10)));
+        assertThat(info.getName()).isEqualTo("Server 3");
+        assertThat(info.getMap()).isEqualTo("de_dust2");
+        assertThat(info.getFolder()).isEqualTo("csgo");
+        assertThat(info.getGame()).isEqualTo("Counter-Strike: Global Offensive");
+        assertThat(info.getPlayers()).isEqualTo(12);
+        assertThat(info.getMaxPlayers()).isEqualTo(24);
+        assertThat(info.getBots()).isEqualTo(2);
+        assertThat(info.isPassworded()).isFalse();
+        assertThat(info.isVacSecured()).isTrue();
+        assertThat(info.getVersion()).isEqualTo("1.38.0.0");
+        assertThat(info.getGamePort()).isEqualTo(27018);
+        assertThat(info.getKeywords()).isEqualTo("empty,secure");
+    }
+
+    @Test
+    public void read_players() throws Exception {
+        @SuppressWarnings("unchecked")
+        ImmutableList<PlayerInfo> players = (ImmutableList<PlayerInfo>) QueryPacket.read(
+            QueryPacket.Type.PLAYERS, answer(FakeQueryServer.encodePlayers(3)));
+        assertThat(players).hasSize(3);
+        assertThat(players.get(2).getName()).isEqualTo("player2");
+        assertThat(players.get(2).getScore()).isEqualTo(2);
+        assertThat(players.get(2).getDurationSeconds()).isWithin(0.001f).of(120f);
+    }
+
+    @Test
+    public void read_rules() throws Exception {
+        @SuppressWarnings("unchecked")
+        ImmutableMap<String, String> rules = (ImmutableMap<String, String>) QueryPacket.read(
+            QueryPacket.Type.RULES, answer(FakeQueryServer.encodeRules(3)));
+        assertThat(rules).containsExactly("rule0", "value0", "rule1", "value1", "rule2", "value2")
+            .inOrder();
+    }
+
+    @Test
+    public void read_truncated() {
+        byte[] info = FakeQueryServer.encodeInfo(0, 0);
+        try {
+            QueryPacket.read(QueryPacket.Type.INFO, answer(Arrays.copyOf(info, 20)));
+            fail();
+        } catch (QueryException e) {
+            // Expected
+        }
+
+        // Cut off partway through a player
+        byte[] players = FakeQueryServer.encodePlayers(2);
+        try {
+            QueryPacket.read(QueryPacket.Type.PLAYERS,
+                answer(Arrays.copyOf(players, players.length - 3)));
+            fail();
+        } catch (QueryException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void forAnswer() {
+        assertThat(QueryPacket.Type.forAnswer((byte) 'I')).isEqualTo(QueryPacket.Type.INFO);
+        assertThat(QueryPacket.Type.forAnswer((byte) 'E')).isEqualTo(QueryPacket.Type.RULES);
+        assertThat(QueryPacket.Type.forAnswer(QueryPacket.S2C_CHALLENGE)).isNull();
+    }
+
+    // Positioned after the answer's -1 header and type
+    private static ByteBuffer answer(byte[] bytes) {
+        ByteBuffer in = QueryPacket.allocate(bytes.length).put(bytes);
+        in.flip();
+        in.position(5);
+        return in;
+    }
+}
@@ -0,0 +1,166 @@
+package me.fru1t.csgo_server_manager.rcon;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * <p>An in-process RCON server that behaves as srcds does, for testing and benchmarking
+ * {@link RconClient} without a real server. Commands are answered by the given handler, on a
+ * thread per connection.</p>
+ * <p>As srcds does, the server answers authentication with an empty response before the
+ * authentication response, splits responses into packets of at most 4096 bytes, and answers an
+ * empty {@code SERVERDATA_RESPONSE_VALUE} packet with two packets of its own.</p>
+ */
+public class FakeRconServer implements Closeable {
+    private static final int MAX_RESPONSE_BODY_BYTES = 4096 - 10;
+
+    private final String password;
+    private final Function<String, String> handler;
+    private final ServerSocket serverSocket;
+    private final List<Socket> sockets;
+    private final AtomicInteger connectionCount;
+    private final AtomicInteger commandCount;
+    private volatile boolean isClosed;
+
+    public FakeRconServer(String password, Function<String, String> handler) throws IOException {
+        this.password = password;
+        this.handler = handler;
+        serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        sockets = new CopyOnWriteArrayList<>();
+        connectionCount = new AtomicInteger();
+        commandCount = new AtomicInteger();
+        isClosed = false;
+
+        Thread acceptor = new Thread(this::accept, "FakeRconServer-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public InetSocketAddress getAddress() {
+        return (InetSocketAddress) serverSocket.getLocalSocketAddress();
+    }
+
+    /**
+     * @return The number of connections accepted so far.
+     */
+    public int getConnectionCount() {
+        return connectionCount.get();
+    }
+
+    /**
+     * @return The number of commands handled so far.
+     */
+    public int getCommandCount() {
+        return commandCount.get();
+    }
+
+    /**
+     * Closes every open connection, as a server restarting would.
+     */
+    public void disconnectAll() throws IOException {
+        for (Socket socket : sockets) {
+            socket.close();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        isClosed = true;
+        serverSocket.close();
+        disconnectAll();
+    }
+
+    private void accept() {
+        try {
+            while (true) {
+                Socket socket = serverSocket.accept();
+
+                // Closing may not stop a connection already being accepted
+                if (isClosed) {
+                    socket.close();
+                    return;
+                }
+                socket.setTcpNoDelay(true);
+                sockets.add(socket);
+                connectionCount.incrementAndGet();
+                Thread connection = new Thread(() -> serve(socket), "FakeRconServer-connection");
+                connection.setDaemon(true);
+                connection.start();
+            }
+        } catch (IOException e) {
+            // Closed
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (Socket closing = socket) {
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            DataInputStream data = new DataInputStream(in);
+            OutputStream out = new BufferedOutputStream(socket.getOutputStream());
+            boolean isAuthenticated = false;
+            while (true) {
+                int size = Integer.reverseBytes(data.readInt());
+                if (size < 0 || size > MAX_RESPONSE_BODY_BYTES + 10) {
+                    return;
+                }
+                ByteBuffer packetBuffer = RconPacket.allocate(4 + size).putInt(size);
+                data.readFully(packetBuffer.array(), 4, size);
+                packetBuffer.position(0);
+                RconPacket packet = RconPacket.read(packetBuffer);
+
+                if (packet.type == RconPacket.SERVERDATA_AUTH) {
+                    isAuthenticated = packet.body.equals(password);
+                    write(out, packet.id, RconPacket.SERVERDATA_RESPONSE_VALUE, new byte[0]);
+                    write(out, isAuthenticated ? packet.id : RconPacket.AUTH_FAILED_ID,
+                        RconPacket.SERVERDATA_AUTH_RESPONSE, new byte[0]);
+                } else if (!isAuthenticated) {
+                    return;
+                } else if (packet.type == RconPacket.SERVERDATA_EXECCOMMAND) {
+                    commandCount.incrementAndGet();
+                    byte[] response = handler.apply(packet.body).getBytes(StandardCharsets.UTF_8);
+                    int offset = 0;
+                    do {
+                        int end = Math.min(offset + MAX_RESPONSE_BODY_BYTES, response.length);
+                        write(out, packet.id, RconPacket.SERVERDATA_RESPONSE_VALUE,
+                            Arrays.copyOfRange(response, offset, end));
+                        offset = end;
+                    } while (offset < response.length);
+                } else {
+                    write(out, packet.id, RconPacket.SERVERDATA_RESPONSE_VALUE, new byte[0]);
+                    write(out, packet.id, RconPacket.SERVERDATA_RESPONSE_VALUE,
+                        new byte[] {0, 1, 0, 0});
+                }
+
+                // Answer everything that's been sent together at once
+                if (in.available() == 0) {
+                    out.flush();
+                }
+            }
+        } catch (IOException e) {
+            // Disconnected
+        }
+    }
+
+    private static void write(OutputStream out, int id, int type, byte[] body)
+        throws IOException {
+        ByteBuffer packet = RconPacket.allocate(RconPacket.length(body));
+        RconPacket.write(packet, id, type, body);
+        out.write(packet.array());
+    }
+}
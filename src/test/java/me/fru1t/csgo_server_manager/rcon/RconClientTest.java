@@ -0,0 +1,205 @@
+package me.fru1t.csgo_server_manager.rcon;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+@RunWith(JUnit4.class)
+public class RconClientTest {
+    private static final String PASSWORD = "hunter2";
+    private static final long TIMEOUT_MS = 10 * 1000;
+
+    private FakeRconServer server;
+    private RconClient client;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new FakeRconServer(PASSWORD, RconClientTest::respond);
+        client = new RconClient(2000, 60 * 1000);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        client.close();
+        server.close();
+    }
+
+    @Test
+    public void execute() throws Exception {
+        assertThat(execute("echo hello")).isEqualTo("hello");
+        assertThat(execute("sv_cheats 0")).isEmpty();
+    }
+
+    @Test
+    public void execute_multiPacketResponse() throws Exception {
+        assertThat(execute("repeat 10000")).isEqualTo(Strings.repeat("x", 10000));
+    }
+
+    @Test
+    public void execute_sharesConnection() throws Exception {
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        for (int i = 0; i < 100; ++i) {
+            futures.add(client.execute(server.getAddress(), PASSWORD, "echo " + i));
+        }
+        for (int i = 0; i < 100; ++i) {
+            assertThat(futures.get(i).get(TIMEOUT_MS, TimeUnit.MILLISECONDS))
+                .isEqualTo(String.valueOf(i));
+        }
+        assertThat(server.getConnectionCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void executeAll() throws Exception {
+        List<String> responses = client.executeAll(server.getAddress(), PASSWORD,
+            ImmutableList.of("echo a", "sv_cheats 0", "repeat 5000", "echo b"))
+            .get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+
+        assertThat(responses)
+            .containsExactly("a", "", Strings.repeat("x", 5000), "b").inOrder();
+        assertThat(server.getCommandCount()).isEqualTo(4);
+    }
+
+    @Test
+    public void executeAll_empty() throws Exception {
+        assertThat(client.executeAll(server.getAddress(), PASSWORD, ImmutableList.of()).get())
+            .isEmpty();
+    }
+
+    @Test
+    public void execute_wrongPassword() throws Exception {
+        try {
+            client.execute(server.getAddress(), "wrong", "echo hello")
+                .get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            fail("Expected an RconException");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause()).isInstanceOf(RconException.class);
+        }
+        assertThat(server.getCommandCount()).isEqualTo(0);
+
+        // Doesn't affect connections with the right password
+        assertThat(execute("echo hello")).isEqualTo("hello");
+    }
+
+    @Test
+    public void execute_invalidCommand() throws Exception {
+        try {
+            client.execute(server.getAddress(), PASSWORD, Strings.repeat("x", 5000)).get();
+            fail("Expected an IllegalArgumentException");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause()).isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Test
+    public void execute_timeout() throws Exception {
+        client.close();
+        client = new RconClient(200, 60 * 1000);
+        try {
+            client.execute(server.getAddress(), PASSWORD, "sleep 1000")
+                .get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            fail("Expected a TimeoutException");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause()).isInstanceOf(TimeoutException.class);
+        }
+
+        // Reconnects rather than mistaking the late response for another's
+        assertThat(execute("echo hello")).isEqualTo("hello");
+        assertThat(server.getConnectionCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void execute_reconnectsAfterDisconnect() throws Exception {
+        assertThat(execute("echo hello")).isEqualTo("hello");
+        server.disconnectAll();
+
+        // The first request may still find the old connection before it's noticed to be closed
+        String response;
+        try {
+            response = execute("echo again");
+        } catch (ExecutionException e) {
+            response = execute("echo again");
+        }
+        assertThat(response).isEqualTo("again");
+        assertThat(server.getConnectionCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void execute_closesIdleConnections() throws Exception {
+        client.close();
+        client = new RconClient(2000, 100);
+        assertThat(execute("echo hello")).isEqualTo("hello");
+        Thread.sleep(500);
+        assertThat(execute("echo hello")).isEqualTo("hello");
+        assertThat(server.getConnectionCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void execute_connectionRefused() throws Exception {
+        server.close();
+        try {
+            execute("echo hello");
+            fail("Expected an IOException");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause()).isInstanceOf(IOException.class);
+        }
+    }
+
+    @Test
+    public void close_failsRequests() throws Exception {
+        CompletableFuture<String> pending =
+            client.execute(server.getAddress(), PASSWORD, "sleep 1000");
+        client.close();
+        try {
+            pending.get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            fail("Expected an IOException");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause()).isInstanceOf(IOException.class);
+        }
+
+        try {
+            execute("echo hello");
+            fail("Expected an IOException");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause()).isInstanceOf(IOException.class);
+        }
+    }
+
+    private String execute(String command) throws Exception {
+        return client.execute(server.getAddress(), PASSWORD, command)
+            .get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private static String respond(String command) {
+        String[] parts = command.split(" ", 2);
+        switch (parts[0]) {
+            case "echo":
+                return parts[1];
+            case "repeat":
+                return Strings.repeat("x", Integer.parseInt(parts[1]));
+            case "sleep":
+                try {
+                    Thread.sleep(Long.parseLong(parts[1]));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "";
+            default:
+                return "";
+        }
+    }
+}
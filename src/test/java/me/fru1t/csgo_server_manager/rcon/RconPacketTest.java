@@ -0,0 +1,75 @@
+package me.fru1t.csgo_server_manager.rcon;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+@RunWith(JUnit4.class)
+public class RconPacketTest {
+    @Test
+    public void writeAndRead() throws Exception {
+        byte[] body = "status".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = RconPacket.allocate(RconPacket.length(body) * 2);
+        RconPacket.write(buffer, 7, RconPacket.SERVERDATA_EXECCOMMAND, body);
+        RconPacket.write(buffer, 8, RconPacket.SERVERDATA_RESPONSE_VALUE, new byte[0]);
+        buffer.flip();
+
+        // Little endian size, ID and type, then null-terminated body and empty string
+        assertThat(buffer.array()[0]).isEqualTo((byte) (10 + body.length));
+        assertThat(buffer.array()[4]).isEqualTo((byte) 7);
+        assertThat(buffer.array()[RconPacket.length(body) - 1]).isEqualTo((byte) 0);
+
+        RconPacket first = RconPacket.read(buffer);
+        assertThat(first.id).isEqualTo(7);
+        assertThat(first.type).isEqualTo(RconPacket.SERVERDATA_EXECCOMMAND);
+        assertThat(first.body).isEqualTo("status");
+        RconPacket second = RconPacket.read(buffer);
+        assertThat(second.id).isEqualTo(8);
+        assertThat(second.body).isEmpty();
+        assertThat(buffer.hasRemaining()).isFalse();
+    }
+
+    @Test
+    public void read_incomplete() throws Exception {
+        byte[] body = "status".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = RconPacket.allocate(RconPacket.length(body));
+        RconPacket.write(buffer, 7, RconPacket.SERVERDATA_EXECCOMMAND, body);
+
+        buffer.flip().limit(3);
+        assertThat(RconPacket.read(buffer)).isNull();
+        buffer.limit(RconPacket.length(body) - 1);
+        assertThat(RconPacket.read(buffer)).isNull();
+        assertThat(buffer.position()).isEqualTo(0);
+
+        buffer.limit(RconPacket.length(body));
+        assertThat(RconPacket.read(buffer).body).isEqualTo("status");
+    }
+
+    @Test
+    public void read_ignoresPastFirstNull() throws Exception {
+        ByteBuffer buffer = RconPacket.allocate(RconPacket.length(new byte[4]));
+        RconPacket.write(buffer, 7, RconPacket.SERVERDATA_RESPONSE_VALUE, new byte[] {0, 1, 0, 0});
+        buffer.flip();
+
+        assertThat(RconPacket.read(buffer).body).isEmpty();
+        assertThat(buffer.hasRemaining()).isFalse();
+    }
+
+    @Test
+    public void read_invalidSize() {
+        ByteBuffer buffer = RconPacket.allocate(16).putInt(3).putInt(0).putInt(0).putInt(0);
+        buffer.flip();
+        try {
+            RconPacket.read(buffer);
+            fail("Expected an RconException");
+        } catch (RconException e) {
+            // Expected
+        }
+    }
+}
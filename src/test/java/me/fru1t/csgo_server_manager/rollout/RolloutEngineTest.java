@@ -0,0 +1,338 @@
+package me.fru1t.csgo_server_manager.rollout;
+
+import com.google.common.collect.ImmutableList;
+import me.fru1t.csgo_server_manager.files.TextSetting;
+import me.fru1t.csgo_server_manager.files.TextSettingRevision;
+import me.fru1t.csgo_server_manager.files.TextSettingRevisionStore;
+import me.fru1t.csgo_server_manager.files.TextSettingUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Scanner;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+@RunWith(JUnit4.class)
+public class RolloutEngineTest {
+    private static final String CONFIG =
+        "\"server\" { \"mp_maxrounds\" \"30\" \"sv_cheats\" \"0\" }";
+    private static final String PATCH = "\"server\" { \"mp_maxrounds\" \"16\" }";
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private Path directory;
+    private List<String> signalled;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("RolloutEngineTest");
+        signalled = new CopyOnWriteArrayList<>();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Collections.reverseOrder())
+                .collect(Collectors.toList())) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Test
+    public void start() throws Exception {
+        List<RolloutTarget> targets = targets(5, "localhost");
+        write(targets.get(2), PATCH.replace("}", "\"sv_cheats\" \"0\" }"));
+        List<RolloutResult> heard = new CopyOnWriteArrayList<>();
+        List<Integer> stagesDone = new CopyOnWriteArrayList<>();
+
+        ImmutableList<RolloutResult> results;
+        try (RolloutEngine engine = new RolloutEngine(target -> signalled.add(target.getName()))) {
+            Rollout rollout = engine.start(plan(targets).stageSizes(1, 2).build(),
+                new RolloutEngine.Listener() {
+                    @Override
+                    public void onResult(RolloutResult result) {
+                        heard.add(result);
+                    }
+
+                    @Override
+                    public void onStageDone(int stage, int failureCount) {
+                        stagesDone.add(stage);
+                    }
+                });
+            results = rollout.getResults().get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            assertThat(rollout.getDoneCount()).isEqualTo(5);
+            assertThat(rollout.getHaltReason()).isNull();
+        }
+
+        assertThat(statuses(results)).containsExactly(RolloutResult.Status.UPDATED,
+            RolloutResult.Status.UPDATED, RolloutResult.Status.UNCHANGED,
+            RolloutResult.Status.UPDATED, RolloutResult.Status.UPDATED).inOrder();
+        assertThat(results.get(3).getStage()).isEqualTo(2);
+        assertThat(heard).containsExactlyElementsIn(results);
+        assertThat(stagesDone).containsExactly(0, 1, 2).inOrder();
+        assertThat(signalled).containsExactly("server0", "server1", "server3", "server4");
+        for (RolloutTarget target : targets) {
+            TextSetting config = TextSettingUtil.processFile(target.getConfigFile());
+            assertThat(config.getChildren().get("mp_maxrounds").getValue()).isEqualTo("16");
+            assertThat(config.getChildren().get("sv_cheats").getValue()).isEqualTo("0");
+        }
+    }
+
+    @Test
+    public void start_keepsFormatting() throws Exception {
+        List<RolloutTarget> targets = targets(1, "localhost");
+        String config = "// Casual\n\"server\"\n{\n"
+            + "\t\"mp_maxrounds\"  \"30\" // Halves of 15\n"
+            + "\t\"sv_cheats\" \"0\"\n"
+            + "}\n";
+        write(targets.get(0), config);
+
+        try (RolloutEngine engine = new RolloutEngine(target -> { })) {
+            engine.start(plan(targets).build(), new RolloutEngine.Listener() {})
+                .getResults().get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
+
+        // Only the patched value's changed
+        assertThat(read(targets.get(0))).isEqualTo(config.replace("\"30\"", "\"16\""));
+    }
+
+    @Test
+    public void start_commitsRevisions() throws Exception {
+        List<RolloutTarget> targets = targets(2, "localhost");
+        write(targets.get(1), PATCH.replace("}", "\"sv_cheats\" \"0\" }"));
+        TextSettingRevisionStore revisions = new TextSettingRevisionStore();
+
+        try (RolloutEngine engine = new RolloutEngine(target -> { }, revisions, 2, 100)) {
+            engine.start(plan(targets).build(), new RolloutEngine.Listener() {})
+                .getResults().get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
+
+        // Unchanged configs aren't written, so have nothing to commit
+        TextSettingRevision revision =
+            revisions.getLatest(targets.get(0).getConfigFile().toAbsolutePath().toString());
+        assertThat(revision).isNotNull();
+        assertThat(revisions.restore(revision).getChildren().get("mp_maxrounds").getValue())
+            .isEqualTo("16");
+        assertThat(revisions.getLatest(targets.get(1).getConfigFile().toAbsolutePath().toString()))
+            .isNull();
+    }
+
+    @Test
+    public void start_haltsAfterFailedStage() throws Exception {
+        List<RolloutTarget> targets = targets(4, "localhost");
+        write(targets.get(0), "\"server\" {");
+
+        ImmutableList<RolloutResult> results;
+        try (RolloutEngine engine = new RolloutEngine(target -> signalled.add(target.getName()))) {
+            Rollout rollout = engine.start(plan(targets).stageSizes(1).build(),
+                new RolloutEngine.Listener() {});
+            results = rollout.getResults().get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            assertThat(rollout.getHaltReason()).isNotNull();
+            assertThat(rollout.getFailureCount()).isEqualTo(1);
+        }
+
+        assertThat(statuses(results)).containsExactly(RolloutResult.Status.FAILED,
+            RolloutResult.Status.SKIPPED, RolloutResult.Status.SKIPPED,
+            RolloutResult.Status.SKIPPED).inOrder();
+        assertThat(results.get(0).getError()).startsWith("InvalidFileFormatException");
+        assertThat(signalled).isEmpty();
+        assertThat(read(targets.get(1))).isEqualTo(CONFIG);
+    }
+
+    @Test
+    public void start_allowsMaxFailures() throws Exception {
+        List<RolloutTarget> targets = targets(3, "localhost");
+        write(targets.get(0), "\"server\" {");
+
+        try (RolloutEngine engine = new RolloutEngine(target -> { })) {
+            Rollout rollout = engine.start(plan(targets).stageSizes(1).maxFailures(1).build(),
+                new RolloutEngine.Listener() {});
+            assertThat(statuses(rollout.getResults().get(TIMEOUT_SECONDS, TimeUnit.SECONDS)))
+                .containsExactly(RolloutResult.Status.FAILED, RolloutResult.Status.UPDATED,
+                    RolloutResult.Status.UPDATED).inOrder();
+        }
+    }
+
+    @Test
+    public void start_signalFailure() throws Exception {
+        List<RolloutTarget> targets = targets(1, "localhost");
+        try (RolloutEngine engine = new RolloutEngine(target -> {
+            throw new IOException("No answer");
+        })) {
+            ImmutableList<RolloutResult> results =
+                engine.start(plan(targets).build(), new RolloutEngine.Listener() {})
+                    .getResults().get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            assertThat(results.get(0).getStatus()).isEqualTo(RolloutResult.Status.FAILED);
+            assertThat(results.get(0).getError()).isEqualTo("IOException: No answer");
+        }
+    }
+
+    @Test
+    public void start_rateLimitsEachHost() throws Exception {
+        List<RolloutTarget> targets = new ArrayList<>(targets(5, "busy"));
+        RolloutTarget other = target("other", "quiet");
+        targets.add(other);
+        List<Long> busyNanos = new CopyOnWriteArrayList<>();
+        List<Long> quietNanos = new CopyOnWriteArrayList<>();
+
+        long start = System.nanoTime();
+        try (RolloutEngine engine = new RolloutEngine(target ->
+            (target.getHost().equals("busy") ? busyNanos : quietNanos).add(System.nanoTime()),
+            4, 20)) {
+            engine.start(plan(targets).build(), new RolloutEngine.Listener() {})
+                .getResults().get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
+
+        // One every 50ms on the busy host, without holding up the quiet one
+        assertThat(busyNanos).hasSize(5);
+        assertThat(Collections.max(busyNanos) - start)
+            .isAtLeast(TimeUnit.MILLISECONDS.toNanos(150));
+        assertThat(quietNanos.get(0)).isLessThan(Collections.max(busyNanos));
+    }
+
+    @Test
+    public void cancel() throws Exception {
+        List<RolloutTarget> targets = targets(3, "localhost");
+        CountDownLatch signalling = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        try (RolloutEngine engine = new RolloutEngine(target -> {
+            signalling.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+        })) {
+            Rollout rollout = engine.start(plan(targets).stageSizes(1).build(),
+                new RolloutEngine.Listener() {});
+            assertThat(signalling.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)).isTrue();
+            rollout.cancel();
+            release.countDown();
+
+            assertThat(statuses(rollout.getResults().get(TIMEOUT_SECONDS, TimeUnit.SECONDS)))
+                .containsExactly(RolloutResult.Status.UPDATED, RolloutResult.Status.SKIPPED,
+                    RolloutResult.Status.SKIPPED).inOrder();
+            assertThat(rollout.getHaltReason()).isEqualTo("Cancelled");
+        }
+    }
+
+    @Test
+    public void close_finishesPatchingAndSkipsTheRest() throws Exception {
+        List<RolloutTarget> targets = targets(3, "localhost");
+        CountDownLatch signalling = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        RolloutEngine engine = new RolloutEngine(target -> {
+            signalling.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+        });
+        Rollout rollout = engine.start(plan(targets).stageSizes(1).build(),
+            new RolloutEngine.Listener() {
+                @Override
+                public void onDone(Rollout rollout) {
+                    done.countDown();
+                }
+            });
+        assertThat(signalling.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)).isTrue();
+
+        Thread closing = new Thread(engine::close);
+        closing.start();
+        while (!engine.isClosed()) {
+            Thread.yield();
+        }
+        release.countDown();
+        closing.join(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+        assertThat(closing.isAlive()).isFalse();
+
+        // The target being patched when closed isn't interrupted
+        assertThat(rollout.getResults().isDone()).isTrue();
+        assertThat(statuses(rollout.getResults().get()))
+            .containsExactly(RolloutResult.Status.UPDATED, RolloutResult.Status.SKIPPED,
+                RolloutResult.Status.SKIPPED).inOrder();
+        assertThat(done.getCount()).isEqualTo(0);
+        assertThat(rollout.getHaltReason()).isNotNull();
+        assertThat(read(targets.get(1))).isEqualTo(CONFIG);
+    }
+
+    @Test
+    public void close_skipsRateLimitedTargets() throws Exception {
+        List<RolloutTarget> targets = targets(3, "localhost");
+        CountDownLatch patched = new CountDownLatch(1);
+        RolloutEngine engine = new RolloutEngine(target -> { }, 2, 0.5);
+        Rollout rollout = engine.start(plan(targets).build(), new RolloutEngine.Listener() {
+            @Override
+            public void onResult(RolloutResult result) {
+                patched.countDown();
+            }
+        });
+        assertThat(patched.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)).isTrue();
+
+        // The others wait seconds for a permit, which closing doesn't
+        engine.close();
+        assertThat(rollout.getResults().isDone()).isTrue();
+        assertThat(statuses(rollout.getResults().get()))
+            .containsExactly(RolloutResult.Status.UPDATED, RolloutResult.Status.SKIPPED,
+                RolloutResult.Status.SKIPPED).inOrder();
+        try {
+            engine.start(plan(targets).build(), new RolloutEngine.Listener() {});
+            fail();
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+    }
+
+    private List<RolloutTarget> targets(int count, String host) throws IOException {
+        List<RolloutTarget> targets = new ArrayList<>();
+        for (int i = 0; i < count; ++i) {
+            targets.add(target("server" + i, host));
+        }
+        return targets;
+    }
+
+    private RolloutTarget target(String name, String host) throws IOException {
+        RolloutTarget target = new RolloutTarget(name, host,
+            directory.resolve(host + "-" + name + ".cfg"), null, null);
+        write(target, CONFIG);
+        return target;
+    }
+
+    private static RolloutPlan.RolloutPlanBuilder plan(List<RolloutTarget> targets)
+        throws Exception {
+        return RolloutPlan.builder()
+            .patch(TextSettingUtil.processFile(new Scanner(PATCH)))
+            .targets(targets);
+    }
+
+    private static void write(RolloutTarget target, String content) throws IOException {
+        Files.write(target.getConfigFile(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String read(RolloutTarget target) throws IOException {
+        return new String(Files.readAllBytes(target.getConfigFile()), StandardCharsets.UTF_8);
+    }
+
+    private static List<RolloutResult.Status> statuses(List<RolloutResult> results) {
+        return results.stream().map(RolloutResult::getStatus).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,87 @@
+package me.fru1t.csgo_server_manager.rollout;
+
+import com.google.common.collect.ImmutableList;
+import me.fru1t.csgo_server_manager.files.TextSetting;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+@RunWith(JUnit4.class)
+public class RolloutPlanTest {
+    @Test
+    public void build() throws Exception {
+        List<RolloutTarget> targets = targets(15);
+        RolloutPlan plan = RolloutPlan.builder()
+            .patch(patch())
+            .targets(targets)
+            .stageSizes(1, 10)
+            .maxFailures(2)
+            .stageDelayMs(100)
+            .build();
+
+        assertThat(plan.getStages()).containsExactly(
+            ImmutableList.of(targets.get(0)),
+            ImmutableList.copyOf(targets.subList(1, 11)),
+            ImmutableList.copyOf(targets.subList(11, 15))).inOrder();
+        assertThat(plan.getTargetCount()).isEqualTo(15);
+        assertThat(plan.getMaxFailures()).isEqualTo(2);
+        assertThat(plan.getStageDelayMs()).isEqualTo(100L);
+    }
+
+    @Test
+    public void build_stagesLargerThanTargets() throws Exception {
+        List<RolloutTarget> targets = targets(3);
+        RolloutPlan plan = RolloutPlan.builder()
+            .patch(patch())
+            .targets(targets)
+            .stageSizes(1, 10)
+            .build();
+
+        assertThat(plan.getStages()).containsExactly(
+            ImmutableList.of(targets.get(0)),
+            ImmutableList.copyOf(targets.subList(1, 3))).inOrder();
+        assertThat(plan.getMaxFailures()).isEqualTo(RolloutPlan.DEFAULT_MAX_FAILURES);
+    }
+
+    @Test
+    public void build_invalid() throws Exception {
+        assertInvalid(RolloutPlan.builder().targets(targets(1)));
+        assertInvalid(RolloutPlan.builder().patch(patch()));
+        assertInvalid(RolloutPlan.builder().patch(patch()).targets(targets(2)).stageSizes(0));
+        assertInvalid(RolloutPlan.builder().patch(patch()).targets(targets(2)).maxFailures(-1));
+
+        List<RolloutTarget> duplicates = new ArrayList<>(targets(2));
+        duplicates.add(new RolloutTarget("other", "localhost",
+            duplicates.get(0).getConfigFile(), null, null));
+        assertInvalid(RolloutPlan.builder().patch(patch()).targets(duplicates));
+    }
+
+    private static void assertInvalid(RolloutPlan.RolloutPlanBuilder builder) {
+        try {
+            builder.build();
+            fail("Building should have errored");
+        } catch (InvalidRolloutPlanException e) {
+            // Expected behavior
+        }
+    }
+
+    private static TextSetting patch() throws Exception {
+        return TextSetting.builder().key("root").value("1").build();
+    }
+
+    private static List<RolloutTarget> targets(int count) {
+        List<RolloutTarget> targets = new ArrayList<>();
+        for (int i = 0; i < count; ++i) {
+            targets.add(new RolloutTarget("server" + i, "localhost",
+                Paths.get("server" + i, "server.cfg"), null, null));
+        }
+        return targets;
+    }
+}
@@ -0,0 +1,133 @@
+package me.fru1t.csgo_server_manager.server;
+
+import me.fru1t.csgo_server_manager.files.TextSetting;
+import me.fru1t.csgo_server_manager.files.TextSettingUtil;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+@RunWith(JUnit4.class)
+public class ServerConfigTest {
+    @Test
+    public void fromTextSetting() throws Exception {
+        ServerConfig config = ServerConfig.fromTextSetting(parse("\"casual1\" {"
+            + " \"executable\" \"/home/steam/csgo/srcds_run\""
+            + " \"directory\" \"/home/steam/csgo\""
+            + " \"arguments\" \" -game csgo  +map de_dust2\t-port 27015 \""
+            + " \"restartDelayMs\" \"500\""
+            + " \"maxRestartDelayMs\" \"8000\""
+            + " \"stableAfterMs\" \"60000\""
+            + " \"rconAddress\" \"127.0.0.1:27016\""
+            + " \"rconPassword\" \"hunter2\" }"));
+
+        assertThat(config.getName()).isEqualTo("casual1");
+        assertThat(config.getCommand()).containsExactly("/home/steam/csgo/srcds_run", "-game",
+            "csgo", "+map", "de_dust2", "-port", "27015").inOrder();
+        assertThat(config.getDirectory()).isEqualTo(Paths.get("/home/steam/csgo"));
+        assertThat(config.getRestartDelayMs()).isEqualTo(500L);
+        assertThat(config.getMaxRestartDelayMs()).isEqualTo(8000L);
+        assertThat(config.getStableAfterMs()).isEqualTo(60000L);
+        assertThat(config.getRconAddress()).isEqualTo(new InetSocketAddress("127.0.0.1", 27016));
+        assertThat(config.getRconPassword()).isEqualTo("hunter2");
+        assertThat(config.getLogDirectory()).isEqualTo(Paths.get("/home/steam/csgo/csgo/logs"));
+    }
+
+    @Test
+    public void getLogDirectory() throws Exception {
+        assertThat(ServerConfig.builder().name("casual1").executable("srcds_run").build()
+            .getLogDirectory()).isNull();
+        assertThat(ServerConfig.builder().name("casual1").executable("srcds_run")
+            .directory(Paths.get("/srv")).build().getLogDirectory())
+            .isEqualTo(Paths.get("/srv/csgo/logs"));
+        assertThat(ServerConfig.builder().name("casual1").executable("srcds_run")
+            .directory(Paths.get("/srv")).arguments("-console", "-game", "cstrike").build()
+            .getLogDirectory()).isEqualTo(Paths.get("/srv/cstrike/logs"));
+    }
+
+    @Test
+    public void fromTextSetting_defaultRconPort() throws Exception {
+        ServerConfig config = ServerConfig.fromTextSetting(parse("\"casual1\" {"
+            + " \"executable\" \"srcds_run\""
+            + " \"rconAddress\" \"127.0.0.1\""
+            + " \"rconPassword\" \"hunter2\" }"));
+
+        assertThat(config.getRconAddress()).isEqualTo(new InetSocketAddress("127.0.0.1", 27015));
+        assertThat(config.getQueryAddress()).isEqualTo(config.getRconAddress());
+    }
+
+    @Test
+    public void fromTextSetting_queryAddress() throws Exception {
+        ServerConfig config = ServerConfig.fromTextSetting(parse("\"casual1\" {"
+            + " \"executable\" \"srcds_run\""
+            + " \"rconAddress\" \"127.0.0.1:27016\""
+            + " \"rconPassword\" \"hunter2\""
+            + " \"queryAddress\" \"127.0.0.1\" }"));
+
+        assertThat(config.getQueryAddress()).isEqualTo(new InetSocketAddress("127.0.0.1", 27015));
+    }
+
+    @Test
+    public void fromTextSetting_defaults() throws Exception {
+        ServerConfig config =
+            ServerConfig.fromTextSetting(parse("\"casual1\" { \"executable\" \"srcds_run\" }"));
+
+        assertThat(config.getArguments()).isEmpty();
+        assertThat(config.getDirectory()).isNull();
+        assertThat(config.getRestartDelayMs()).isEqualTo(ServerConfig.DEFAULT_RESTART_DELAY_MS);
+        assertThat(config.getMaxRestartDelayMs())
+            .isEqualTo(ServerConfig.DEFAULT_MAX_RESTART_DELAY_MS);
+        assertThat(config.getStableAfterMs()).isEqualTo(ServerConfig.DEFAULT_STABLE_AFTER_MS);
+        assertThat(config.getRconAddress()).isNull();
+        assertThat(config.getRconPassword()).isNull();
+        assertThat(config.getQueryAddress()).isNull();
+    }
+
+    @Test
+    public void fromTextSetting_invalid() throws Exception {
+        assertInvalid("\"casual1\" \"srcds_run\"");
+        assertInvalid("\"casual1\" { \"arguments\" \"-game csgo\" }");
+        assertInvalid("\"casual1\" { \"executable\" { \"path\" \"srcds_run\" } }");
+        assertInvalid("\"casual1\" { \"executable\" \"srcds_run\" \"restartDelayMs\" \"soon\" }");
+        assertInvalid("\"casual1\" { \"executable\" \"srcds_run\" \"restartDelayMs\" \"2000\""
+            + " \"maxRestartDelayMs\" \"1000\" }");
+        assertInvalid("\"casual1\" { \"executable\" \"srcds_run\""
+            + " \"rconAddress\" \"127.0.0.1:27015\" }");
+        assertInvalid("\"casual1\" { \"executable\" \"srcds_run\" \"rconPassword\" \"hunter2\" }");
+        assertInvalid("\"casual1\" { \"executable\" \"srcds_run\""
+            + " \"rconAddress\" \"127.0.0.1:port\" \"rconPassword\" \"hunter2\" }");
+        assertInvalid("\"casual1\" { \"executable\" \"srcds_run\""
+            + " \"queryAddress\" \"127.0.0.1:port\" }");
+    }
+
+    @Test
+    public void listFromTextSetting() throws Exception {
+        List<ServerConfig> configs = ServerConfig.listFromTextSetting(parse("\"servers\" {"
+            + " \"casual1\" { \"executable\" \"srcds_run\" }"
+            + " \"casual2\" { \"executable\" \"srcds_run\" } }"));
+
+        assertThat(configs).hasSize(2);
+    }
+
+    private static void assertInvalid(String server) throws Exception {
+        try {
+            ServerConfig.fromTextSetting(parse(server));
+            fail("Expected an InvalidServerConfigException for " + server);
+        } catch (InvalidServerConfigException e) {
+            // Expected
+        }
+    }
+
+    private static TextSetting parse(String contents) throws Exception {
+        return TextSettingUtil.processFile(
+            ByteBuffer.wrap(contents.getBytes(StandardCharsets.UTF_8)));
+    }
+}
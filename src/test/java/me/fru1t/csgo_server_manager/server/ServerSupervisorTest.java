@@ -0,0 +1,201 @@
+package me.fru1t.csgo_server_manager.server;
+
+import com.google.common.collect.Lists;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Supervises src/test/resources/fake_srcds.sh, so only runs where there's a /bin/sh.
+ */
+@RunWith(JUnit4.class)
+public class ServerSupervisorTest {
+    private static final Path SHELL = Paths.get("/bin/sh");
+    private static final long TIMEOUT_MS = 10 * 1000;
+
+    private static final class RecordingListener implements ServerSupervisor.Listener {
+        final BlockingQueue<String> output = new LinkedBlockingQueue<>();
+        final BlockingQueue<ServerStatus> statuses = new LinkedBlockingQueue<>();
+
+        @Override
+        public void onOutput(String server, String line) {
+            output.add(server + ": " + line);
+        }
+
+        @Override
+        public void onStatusChange(ServerStatus status) {
+            statuses.add(status);
+        }
+
+        ServerStatus awaitStatus(Predicate<ServerStatus> predicate) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+            while (System.currentTimeMillis() < deadline) {
+                ServerStatus status = statuses.poll(100, TimeUnit.MILLISECONDS);
+                if (status != null && predicate.test(status)) {
+                    return status;
+                }
+            }
+            throw new AssertionError("Timed out waiting for a status");
+        }
+    }
+
+    private Path directory;
+    private Path script;
+    private RecordingListener listener;
+    private ServerSupervisor supervisor;
+
+    @Before
+    public void setUp() throws Exception {
+        assumeTrue(Files.isExecutable(SHELL));
+        directory = Files.createTempDirectory("ServerSupervisorTest");
+        script = Paths.get(getClass().getResource("/fake_srcds.sh").toURI());
+        listener = new RecordingListener();
+        supervisor = new ServerSupervisor(listener, 1, 10, 500);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        if (supervisor == null) {
+            return;
+        }
+        supervisor.close();
+        Files.deleteIfExists(directory.resolve("crashed"));
+        Files.delete(directory);
+    }
+
+    @Test
+    public void startAndStop() throws Exception {
+        supervisor.start(config("casual1", "run", "+map de_dust2").build());
+        assertThat(listener.awaitStatus(s -> true).getState()).isEqualTo(ServerState.RUNNING);
+        assertThat(listener.output.poll(TIMEOUT_MS, TimeUnit.MILLISECONDS))
+            .isEqualTo("casual1: fake srcds: run +map de_dust2");
+        assertThat(listener.output.poll(TIMEOUT_MS, TimeUnit.MILLISECONDS))
+            .isEqualTo("casual1: fake srcds: stderr");
+
+        ServerStatus running = supervisor.getStatus("casual1");
+        assertThat(running.getState()).isEqualTo(ServerState.RUNNING);
+        assertThat(running.getStartedAtMillis()).isGreaterThan(0L);
+        assertThat(running.getPid()).isGreaterThan(0L);
+
+        supervisor.stop("casual1");
+        assertThat(supervisor.awaitStopped("casual1", TIMEOUT_MS, TimeUnit.MILLISECONDS))
+            .isTrue();
+        ServerStatus stopped = supervisor.getStatus("casual1");
+        assertThat(stopped.getRestartCount()).isEqualTo(0);
+        assertThat(stopped.getLastExitCode()).isNotNull();
+        assertThat(stopped.getStartedAtMillis()).isEqualTo(-1L);
+        assertThat(stopped.getPid()).isEqualTo(-1L);
+    }
+
+    @Test
+    public void start_alreadyRunning() throws Exception {
+        supervisor.start(config("casual1", "run").build());
+        try {
+            supervisor.start(config("casual1", "run").build());
+            throw new AssertionError("Expected an IllegalStateException");
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+
+        // Stopped servers may be replaced
+        supervisor.stop("casual1");
+        supervisor.awaitStopped("casual1", TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        supervisor.start(config("casual1", "run").build());
+        assertThat(supervisor.getStatus("casual1").getState()).isEqualTo(ServerState.RUNNING);
+    }
+
+    @Test
+    public void crash_restartsWithBackoff() throws Exception {
+        supervisor.start(config("casual1", "crash", "3")
+            .restartDelayMs(10).maxRestartDelayMs(40).build());
+
+        ServerStatus status = listener.awaitStatus(s -> s.getRestartCount() >= 3);
+        assertThat(status.getName()).isEqualTo("casual1");
+        ServerStatus backingOff =
+            listener.awaitStatus(s -> s.getState() == ServerState.BACKING_OFF);
+        assertThat(backingOff.getLastExitCode()).isEqualTo(3);
+    }
+
+    @Test
+    public void crash_recovers() throws Exception {
+        supervisor.start(config("casual1", "crash-once", directory.resolve("crashed").toString(),
+            "7").restartDelayMs(10).build());
+
+        listener.awaitStatus(s -> s.getState() == ServerState.BACKING_OFF);
+        ServerStatus restarted = listener.awaitStatus(s -> s.getState() == ServerState.RUNNING);
+        assertThat(restarted.getRestartCount()).isEqualTo(1);
+        assertThat(restarted.getLastExitCode()).isEqualTo(7);
+    }
+
+    @Test
+    public void stop_killsAfterTimeout() throws Exception {
+        supervisor.start(config("casual1", "ignore-term").build());
+
+        // Only ignores SIGTERM once it's printed
+        listener.output.poll(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        supervisor.stop("casual1");
+        assertThat(supervisor.getStatus("casual1").getState()).isEqualTo(ServerState.STOPPING);
+        assertThat(supervisor.awaitStopped("casual1", TIMEOUT_MS, TimeUnit.MILLISECONDS))
+            .isTrue();
+    }
+
+    @Test
+    public void launchFailure_backsOff() throws Exception {
+        supervisor.start(ServerConfig.builder().name("casual1")
+            .executable(directory.resolve("missing").toString()).restartDelayMs(1000).build());
+
+        ServerStatus status = supervisor.getStatus("casual1");
+        assertThat(status.getState()).isEqualTo(ServerState.BACKING_OFF);
+        assertThat(status.getLastError()).isNotNull();
+
+        // Stopping cancels the restart
+        supervisor.stop("casual1");
+        assertThat(supervisor.getStatus("casual1").getState()).isEqualTo(ServerState.STOPPED);
+    }
+
+    @Test
+    public void close_stopsEveryServer() throws Exception {
+        supervisor.start(config("casual1", "run").build());
+        supervisor.start(config("casual2", "run").build());
+        supervisor.close();
+
+        List<ServerStatus> statuses = supervisor.getStatuses();
+        assertThat(statuses).hasSize(2);
+        for (ServerStatus status : statuses) {
+            assertThat(status.getState()).isEqualTo(ServerState.STOPPED);
+        }
+    }
+
+    @Test
+    public void restartDelayMs() throws Exception {
+        ServerConfig config = ServerConfig.builder().name("casual1").executable("srcds_run")
+            .restartDelayMs(100).maxRestartDelayMs(1000).build();
+
+        assertThat(SupervisedServer.restartDelayMs(config, 1)).isEqualTo(100L);
+        assertThat(SupervisedServer.restartDelayMs(config, 2)).isEqualTo(200L);
+        assertThat(SupervisedServer.restartDelayMs(config, 4)).isEqualTo(800L);
+        assertThat(SupervisedServer.restartDelayMs(config, 5)).isEqualTo(1000L);
+        assertThat(SupervisedServer.restartDelayMs(config, Integer.MAX_VALUE)).isEqualTo(1000L);
+    }
+
+    private ServerConfig.ServerConfigBuilder config(String name, String... arguments) {
+        List<String> command = Lists.newArrayList(arguments);
+        command.add(0, script.toString());
+        return ServerConfig.builder().name(name).executable(SHELL.toString()).arguments(command);
+    }
+}
@@ -0,0 +1,50 @@
+package me.fru1t.csgo_server_manager.status;
+
+import me.fru1t.csgo_server_manager.query.ServerInfo;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(JUnit4.class)
+public class QueryStatusSamplerTest {
+    private static final ServerInfo INFO = new ServerInfo("Casual 1", "de_dust2", "csgo",
+        "Counter-Strike: Global Offensive", 10, 20, 3, false, true, "1.38.0.0", 27015, null);
+
+    @Test
+    public void record() {
+        ServerStatusRegistry registry = new ServerStatusRegistry();
+        QueryStatusSampler.record(registry, "casual1", INFO, true);
+
+        assertThat(registry.snapshot().get("casual1")).containsExactly(
+            ServerStatusRegistry.BOTS, 3,
+            ServerStatusRegistry.MAP, "de_dust2",
+            ServerStatusRegistry.MAX_PLAYERS, 20,
+            ServerStatusRegistry.NAME, "Casual 1",
+            ServerStatusRegistry.PLAYERS, 7);
+    }
+
+    @Test
+    public void record_leavesPlayersToRcon() {
+        ServerStatusRegistry registry = new ServerStatusRegistry();
+        registry.set("casual1", ServerStatusRegistry.PLAYERS, 8);
+        QueryStatusSampler.record(registry, "casual1", INFO, false);
+
+        assertThat(registry.snapshot().get("casual1")).containsExactly(
+            ServerStatusRegistry.MAX_PLAYERS, 20,
+            ServerStatusRegistry.NAME, "Casual 1",
+            ServerStatusRegistry.PLAYERS, 8);
+    }
+
+    @Test
+    public void record_clearsWithoutAnswer() {
+        ServerStatusRegistry registry = new ServerStatusRegistry();
+        QueryStatusSampler.record(registry, "casual1", INFO, true);
+        registry.set("casual1", ServerStatusRegistry.TICK_RATE, 64.0);
+        QueryStatusSampler.record(registry, "casual1", null, true);
+
+        assertThat(registry.snapshot().get("casual1"))
+            .containsExactly(ServerStatusRegistry.TICK_RATE, 64.0);
+    }
+}
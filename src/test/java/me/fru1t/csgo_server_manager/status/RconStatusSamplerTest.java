@@ -0,0 +1,57 @@
+package me.fru1t.csgo_server_manager.status;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(JUnit4.class)
+public class RconStatusSamplerTest {
+    private static final String STATUS = "hostname: Casual 1\n"
+        + "version : 1.36.0.5/13605 662/6600 secure  [G:1:1234567] \n"
+        + "udp/ip  : 10.0.0.2:27015  (public ip: 203.0.113.4)\n"
+        + "os      :  Linux\n"
+        + "type    :  community dedicated\n"
+        + "map     : de_dust2 at: 0 x, 0 y, 0 z\n"
+        + "players : 7 humans, 3 bots (20/0 max) (not hibernating)\n"
+        + "\n"
+        + "# userid name uniqueid connected ping loss state rate adr\n"
+        + "#  2 \"Player\" STEAM_1:0:1234 01:02 45 0 active 786432 198.51.100.7:27005\n"
+        + "#end\n";
+    private static final String STATS =
+        "  CPU    NetIn   NetOut    Uptime  Maps   FPS   Players  Svms    +-ms   ~tick\n"
+        + " 10.0 20000.0 30000.0        42     3  127.86       7    1.03    0.12    0.05\n";
+
+    @Test
+    public void record() {
+        ServerStatusRegistry registry = new ServerStatusRegistry();
+        RconStatusSampler.record(registry, "casual1", STATUS, STATS);
+
+        assertThat(registry.snapshot().get("casual1")).containsExactly(
+            ServerStatusRegistry.MAP, "de_dust2",
+            ServerStatusRegistry.PLAYERS, 7,
+            ServerStatusRegistry.BOTS, 3,
+            ServerStatusRegistry.TICK_RATE, 127.9);
+    }
+
+    @Test
+    public void record_olderPlayerCount() {
+        ServerStatusRegistry registry = new ServerStatusRegistry();
+        RconStatusSampler.record(registry, "casual1", "players : 12 (24 max)\n", "");
+
+        assertThat(registry.snapshot().get("casual1"))
+            .containsExactly(ServerStatusRegistry.PLAYERS, 12);
+    }
+
+    @Test
+    public void record_clearsWhatIsNotSaid() {
+        ServerStatusRegistry registry = new ServerStatusRegistry();
+        RconStatusSampler.record(registry, "casual1", STATUS, STATS);
+        RconStatusSampler.record(registry, "casual1", "Unknown command \"status\"\n",
+            "CPU FPS\n10.0 fast\n");
+
+        assertThat(registry.snapshot()).containsExactly("casual1", ImmutableMap.of());
+    }
+}
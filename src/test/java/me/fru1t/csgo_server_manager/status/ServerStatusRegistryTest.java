@@ -0,0 +1,54 @@
+package me.fru1t.csgo_server_manager.status;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(JUnit4.class)
+public class ServerStatusRegistryTest {
+    @Test
+    public void setAndSnapshot() {
+        ServerStatusRegistry registry = new ServerStatusRegistry();
+        registry.set("casual2", ServerStatusRegistry.MAP, "de_inferno");
+        registry.set("casual1", ServerStatusRegistry.PLAYERS, 3);
+        registry.set("casual1", ServerStatusRegistry.MAP, "de_dust2");
+
+        assertThat(registry.snapshot()).containsExactly(
+            "casual1", ImmutableMap.of("map", "de_dust2", "players", 3),
+            "casual2", ImmutableMap.of("map", "de_inferno")).inOrder();
+    }
+
+    @Test
+    public void set_nullClears() {
+        ServerStatusRegistry registry = new ServerStatusRegistry();
+        registry.set("casual1", ServerStatusRegistry.PLAYERS, 3);
+        registry.set("casual1", ServerStatusRegistry.PLAYERS, null);
+
+        // The server's still known, if nothing about it is
+        assertThat(registry.snapshot()).containsExactly("casual1", ImmutableMap.of());
+    }
+
+    @Test
+    public void retainAll() {
+        ServerStatusRegistry registry = new ServerStatusRegistry();
+        registry.set("casual1", ServerStatusRegistry.PLAYERS, 3);
+        registry.set("casual2", ServerStatusRegistry.PLAYERS, 5);
+        registry.retainAll(ImmutableList.of("casual2", "casual3"));
+
+        assertThat(registry.snapshot()).containsExactly("casual2", ImmutableMap.of("players", 5));
+    }
+
+    @Test
+    public void snapshot_isUnaffectedByLaterChanges() {
+        ServerStatusRegistry registry = new ServerStatusRegistry();
+        registry.set("casual1", ServerStatusRegistry.PLAYERS, 3);
+        ImmutableMap<String, ?> snapshot = registry.snapshot();
+        registry.set("casual1", ServerStatusRegistry.PLAYERS, 4);
+
+        assertThat(snapshot).containsExactly("casual1", ImmutableMap.of("players", 3));
+    }
+}
@@ -0,0 +1,191 @@
+package me.fru1t.csgo_server_manager.status;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/**
+ * Ticks by hand, never starting the broadcaster's own ticking, other than to test it.
+ */
+@RunWith(JUnit4.class)
+public class StatusBroadcasterTest {
+    private static final class RecordingSubscriber implements StatusBroadcaster.Subscriber {
+        final List<String> events = new ArrayList<>();
+
+        @Override
+        public void send(String event, String data) {
+            events.add(event + " " + data);
+        }
+    }
+
+    private static final long TIMEOUT_MS = 10 * 1000;
+
+    private ServerStatusRegistry registry;
+    private AtomicInteger encodeCount;
+    private StatusBroadcaster broadcaster;
+
+    @Before
+    public void setUp() {
+        registry = new ServerStatusRegistry();
+        encodeCount = new AtomicInteger();
+        broadcaster = new StatusBroadcaster(registry, update -> {
+            encodeCount.incrementAndGet();
+            return update.toString();
+        }, ImmutableList.of(), 60 * 60 * 1000);
+    }
+
+    @After
+    public void tearDown() {
+        broadcaster.close();
+    }
+
+    @Test
+    public void subscribe_sendsSnapshot() throws IOException {
+        registry.set("casual1", ServerStatusRegistry.PLAYERS, 3);
+        broadcaster.tick();
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        broadcaster.subscribe(subscriber);
+
+        assertThat(subscriber.events).containsExactly("snapshot {casual1={players=3}}");
+        assertThat(broadcaster.getSubscriberCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void tick_sendsChangedFieldsEncodedOnce() throws IOException {
+        registry.set("casual1", ServerStatusRegistry.PLAYERS, 3);
+        registry.set("casual1", ServerStatusRegistry.MAP, "de_dust2");
+        broadcaster.tick();
+        RecordingSubscriber first = new RecordingSubscriber();
+        RecordingSubscriber second = new RecordingSubscriber();
+        broadcaster.subscribe(first);
+        broadcaster.subscribe(second);
+        encodeCount.set(0);
+
+        // Only the last of several changes between ticks is sent
+        registry.set("casual1", ServerStatusRegistry.PLAYERS, 4);
+        registry.set("casual1", ServerStatusRegistry.PLAYERS, 5);
+        broadcaster.tick();
+
+        assertThat(first.events).containsExactly(
+            "snapshot {casual1={map=de_dust2, players=3}}", "delta {casual1={players=5}}")
+            .inOrder();
+        assertThat(second.events).isEqualTo(first.events);
+        assertThat(encodeCount.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void tick_runsSamplers() throws IOException {
+        AtomicInteger samples = new AtomicInteger();
+        broadcaster.close();
+        broadcaster = new StatusBroadcaster(registry, Object::toString, ImmutableList.of(
+            () -> {
+                throw new IllegalStateException("Sampling failed");
+            },
+            () -> registry.set("casual1", ServerStatusRegistry.PLAYERS,
+                samples.incrementAndGet())), 60 * 60 * 1000);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        broadcaster.subscribe(subscriber);
+        broadcaster.tick();
+
+        assertThat(subscriber.events).containsExactly("snapshot {casual1={players=1}}",
+            "delta {casual1={players=2}}").inOrder();
+    }
+
+    @Test
+    public void tick_sendsNothingUntilHeartbeat() throws IOException {
+        registry.set("casual1", ServerStatusRegistry.PLAYERS, 3);
+        broadcaster.tick();
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        broadcaster.subscribe(subscriber);
+        encodeCount.set(0);
+        for (int i = 0; i < 14; ++i) {
+            broadcaster.tick();
+        }
+        assertThat(subscriber.events).hasSize(1);
+        assertThat(encodeCount.get()).isEqualTo(0);
+
+        broadcaster.tick();
+        assertThat(subscriber.events).containsExactly(
+            "snapshot {casual1={players=3}}", "delta {}").inOrder();
+    }
+
+    @Test
+    public void tick_unsubscribesFailingSubscribers() throws IOException {
+        broadcaster.subscribe((event, data) -> {
+            if (event.equals(StatusBroadcaster.DELTA_EVENT)) {
+                throw new IOException("Gone away");
+            }
+        });
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        broadcaster.subscribe(subscriber);
+
+        registry.set("casual1", ServerStatusRegistry.PLAYERS, 3);
+        broadcaster.tick();
+
+        assertThat(broadcaster.getSubscriberCount()).isEqualTo(1);
+        assertThat(subscriber.events).containsExactly(
+            "snapshot {}", "delta {casual1={players=3}}").inOrder();
+    }
+
+    @Test
+    public void unsubscribe() throws IOException {
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        broadcaster.subscribe(subscriber);
+        broadcaster.unsubscribe(subscriber);
+        registry.set("casual1", ServerStatusRegistry.PLAYERS, 3);
+        broadcaster.tick();
+
+        assertThat(broadcaster.getSubscriberCount()).isEqualTo(0);
+        assertThat(subscriber.events).containsExactly("snapshot {}");
+    }
+
+    @Test
+    public void start_ticksStraightAway() throws IOException, InterruptedException {
+        BlockingQueue<String> events = new LinkedBlockingQueue<>();
+        broadcaster.subscribe((event, data) -> events.add(event + " " + data));
+        registry.set("casual1", ServerStatusRegistry.PLAYERS, 3);
+        broadcaster.start();
+
+        assertThat(events.poll(TIMEOUT_MS, TimeUnit.MILLISECONDS)).isEqualTo("snapshot {}");
+        assertThat(events.poll(TIMEOUT_MS, TimeUnit.MILLISECONDS))
+            .isEqualTo("delta {casual1={players=3}}");
+    }
+
+    @Test
+    public void diff() {
+        Map<String, Object> removed = new HashMap<>();
+        removed.put("bots", null);
+        removed.put("players", 4);
+
+        assertThat(StatusBroadcaster.diff(
+            ImmutableMap.of(
+                "casual1", ImmutableMap.of("map", "de_dust2", "players", 3, "bots", 2),
+                "casual2", ImmutableMap.of("map", "de_inferno"),
+                "casual3", ImmutableMap.of("map", "cs_office")),
+            ImmutableMap.of(
+                "casual1", ImmutableMap.of("map", "de_dust2", "players", 4),
+                "casual3", ImmutableMap.of("map", "cs_office"),
+                "casual4", ImmutableMap.of())))
+            .isEqualTo(new HashMap<String, Object>() {{
+                put("casual1", removed);
+                put("casual2", null);
+                put("casual4", ImmutableMap.of());
+            }});
+    }
+}
@@ -0,0 +1,97 @@
+package me.fru1t.csgo_server_manager.status;
+
+import me.fru1t.csgo_server_manager.server.ServerConfig;
+import me.fru1t.csgo_server_manager.server.ServerState;
+import me.fru1t.csgo_server_manager.server.ServerSupervisor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Supervises src/test/resources/fake_srcds.sh, so only runs on Linux, where there's a /bin/sh
+ * and a /proc.
+ */
+@RunWith(JUnit4.class)
+public class SupervisorSamplerTest {
+    private static final Path SHELL = Paths.get("/bin/sh");
+    private static final long TIMEOUT_MS = 10 * 1000;
+
+    private ServerSupervisor supervisor;
+    private ServerStatusRegistry registry;
+    private SupervisorSampler sampler;
+    private Path script;
+
+    @Before
+    public void setUp() throws Exception {
+        assumeTrue(Files.isExecutable(SHELL) && Files.isDirectory(Paths.get("/proc/self")));
+        script = Paths.get(getClass().getResource("/fake_srcds.sh").toURI());
+        supervisor = new ServerSupervisor(new ServerSupervisor.Listener() {}, 1, 10, 500);
+        registry = new ServerStatusRegistry();
+        sampler = new SupervisorSampler(supervisor, registry);
+    }
+
+    @After
+    public void tearDown() {
+        if (supervisor != null) {
+            supervisor.close();
+        }
+    }
+
+    @Test
+    public void run() throws Exception {
+        supervisor.start(ServerConfig.builder().name("casual1").executable(SHELL.toString())
+            .arguments(script.toString(), "run").build());
+
+        sampler.run();
+        Map<String, Object> fields = registry.snapshot().get("casual1");
+        assertThat(fields.get(ServerStatusRegistry.STATE)).isEqualTo(ServerState.RUNNING.name());
+        assertThat(fields.get(ServerStatusRegistry.RESTARTS)).isEqualTo(0);
+        assertThat((Long) fields.get(ServerStatusRegistry.MEMORY_BYTES)).isGreaterThan(0L);
+
+        // CPU use needs two samples to tell
+        assertThat(fields).doesNotContainKey(ServerStatusRegistry.CPU_PERCENT);
+        Thread.sleep(50);
+        sampler.run();
+        assertThat((Double) registry.snapshot().get("casual1")
+            .get(ServerStatusRegistry.CPU_PERCENT)).isAtLeast(0.0);
+    }
+
+    @Test
+    public void run_stoppedServer() throws Exception {
+        supervisor.start(ServerConfig.builder().name("casual1").executable(SHELL.toString())
+            .arguments(script.toString(), "run").build());
+        sampler.run();
+        registry.set("casual1", ServerStatusRegistry.PLAYERS, 3);
+        supervisor.stop("casual1");
+        supervisor.awaitStopped("casual1", TIMEOUT_MS, TimeUnit.MILLISECONDS);
+
+        sampler.run();
+        assertThat(registry.snapshot().get("casual1")).containsExactly(
+            ServerStatusRegistry.STATE, ServerState.STOPPED.name(),
+            ServerStatusRegistry.RESTARTS, 0);
+    }
+
+    @Test
+    public void run_forgetsUnsupervisedServers() {
+        registry.set("casual2", ServerStatusRegistry.PLAYERS, 3);
+        sampler.run();
+
+        assertThat(registry.snapshot()).isEmpty();
+    }
+
+    @Test
+    public void processUsage() {
+        assertThat(ProcessUsage.read(Long.MAX_VALUE)).isNull();
+    }
+}
@@ -0,0 +1,137 @@
+package me.fru1t.csgo_server_manager.validation;
+
+import com.google.common.collect.ImmutableMap;
+import me.fru1t.csgo_server_manager.files.TextSettingSchema;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(JUnit4.class)
+public class ConfigValidatorTest {
+    private static final TextSettingSchema SCHEMA = TextSettingSchema.builder()
+        .require("gameTypes")
+        .range("gameTypes/*/gameModes/*/maxplayers", 1, 64)
+        .build();
+    private static final String VALID_FILE = "\"GameModes.txt\" { \"gameTypes\" { \"classic\" {\n"
+        + "  \"gameModes\" { \"casual\" { \"maxplayers\" \"20\" } }\n"
+        + "} } }";
+
+    private Path directory;
+    private ConfigValidator validator;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("ConfigValidatorTest");
+        validator = new ConfigValidator(ImmutableMap.of("gamemodes*.txt", SCHEMA), 2);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        validator.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Test
+    public void validate() throws IOException {
+        write("a/gamemodes.txt", VALID_FILE);
+        Path syntax = write("b/gamemodes_server.txt", "\"GameModes.txt\" {\n"
+            + "  \"gameTypes\" { x }\n"
+            + "  \"mapgroups\" /\n"
+            + "}");
+        Path range = write("b/c/gamemodes.txt", VALID_FILE.replace("20", "100"));
+        write("b/server.cfg", "not a settings file");
+
+        ValidationReport report = validator.validate(directory);
+
+        assertThat(report.getFileCount()).isEqualTo(3);
+        assertThat(report.getParsedCount()).isEqualTo(3);
+        assertThat(report.isClean()).isFalse();
+        // The brace after the invalid character is skipped with it, leaving a block open
+        assertThat(describe(report)).containsExactly(
+            range + ":2:41",
+            syntax + ":2:17",
+            syntax + ":3:16",
+            syntax + ":4:2").inOrder();
+
+        // Schema problems point at the setting at fault, here the value of maxplayers
+        assertThat(report.getProblems().get(0).getMessage()).isEqualTo(
+            "gameTypes/classic/gameModes/casual/maxplayers: Expected between 1 and 64, but was "
+                + "100.");
+    }
+
+    @Test
+    public void validate_incremental() throws IOException {
+        Path file = write("gamemodes.txt", VALID_FILE);
+        write("other/gamemodes.txt", VALID_FILE);
+        assertThat(validator.validate(directory).getParsedCount()).isEqualTo(2);
+
+        // Nothing's changed
+        ValidationReport report = validator.validate(directory);
+        assertThat(report.getFileCount()).isEqualTo(2);
+        assertThat(report.getParsedCount()).isEqualTo(0);
+        assertThat(report.isClean()).isTrue();
+
+        // Only the changed file is parsed again
+        write("gamemodes.txt", "\"GameModes.txt\" { }");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(1000));
+        report = validator.validate(directory);
+        assertThat(report.getParsedCount()).isEqualTo(1);
+        assertThat(describe(report)).containsExactly(file + ":1:17");
+        assertThat(report.getProblems().get(0).getMessage())
+            .isEqualTo("gameTypes: Required, but missing.");
+
+        // Deleted files are forgotten
+        Files.delete(file);
+        report = validator.validate(directory);
+        assertThat(report.getFileCount()).isEqualTo(1);
+        assertThat(report.isClean()).isTrue();
+
+        validator.invalidateAll();
+        assertThat(validator.validate(directory).getParsedCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void validate_empty() throws IOException {
+        Path file = write("gamemodes.txt", "// Nothing yet");
+
+        assertThat(describe(validator.validate(directory)))
+            .containsExactly(file + ": There are no settings in the file.");
+    }
+
+    private Path write(String name, String content) throws IOException {
+        Path file = directory.toAbsolutePath().normalize().resolve(name);
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    // Positions only for problems that have them, as syntax errors' messages are the lenient
+    // reader's business
+    private static List<String> describe(ValidationReport report) {
+        List<String> problems = new ArrayList<>();
+        for (ValidationProblem problem : report.getProblems()) {
+            problems.add(problem.getLine() == 0 ? problem.toString()
+                : problem.getFile() + ":" + problem.getLine() + ":" + problem.getColumn());
+        }
+        return problems;
+    }
+}
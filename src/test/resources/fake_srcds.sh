@@ -0,0 +1,30 @@
+#!/bin/sh
+# Stands in for srcds when testing the server supervisor, or trying it out locally. Prints its
+# arguments to stdout and a line to stderr, then behaves as the first argument says:
+#   run                     Runs until terminated.
+#   crash <code>            Exits with the given code.
+#   crash-once <file> <code>
+#                           Exits with the given code if the file doesn't exist yet, creating
+#                           it, and otherwise runs until terminated.
+#   ignore-term             Runs, ignoring SIGTERM, until killed.
+echo "fake srcds: $*"
+echo "fake srcds: stderr" >&2
+case "$1" in
+    run)
+        exec sleep 600
+        ;;
+    crash)
+        exit "$2"
+        ;;
+    crash-once)
+        if [ -e "$2" ]; then
+            exec sleep 600
+        fi
+        touch "$2"
+        exit "$3"
+        ;;
+    ignore-term)
+        trap '' TERM
+        exec sleep 600
+        ;;
+esac